@@ -0,0 +1,157 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.Parser;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * The source files the analysis benchmarks run on. The corpora are checked
+ * in under {@code net/sourceforge/pmd/jmh/corpus/<language>}, where
+ * {@code index.txt} lists the files, so that the results are comparable
+ * between runs and machines.
+ *
+ * <p>The checked-in corpus of a language can be replaced with the sources in
+ * the directory given by the system property {@value #CORPUS_DIR_PROPERTY},
+ * e.g. {@code -jvmArgsAppend -Dpmd.benchmark.corpus=/path/to/src}.
+ */
+public final class SourceCorpus {
+
+    public static final String CORPUS_DIR_PROPERTY = "pmd.benchmark.corpus";
+
+    private final LanguageVersion languageVersion;
+    private final List<String> fileNames = new ArrayList<>();
+    private final List<String> sources = new ArrayList<>();
+
+    private SourceCorpus(LanguageVersion languageVersion) {
+        this.languageVersion = languageVersion;
+    }
+
+    /**
+     * Loads the corpus of the language with the given terse name, e.g. {@code java}.
+     */
+    public static SourceCorpus load(String language) throws IOException {
+        LanguageVersion version = LanguageRegistry.findLanguageByTerseName(language).getDefaultVersion();
+        SourceCorpus corpus = new SourceCorpus(version);
+        String dir = System.getProperty(CORPUS_DIR_PROPERTY);
+        if (dir != null) {
+            corpus.readDirectory(new File(dir));
+        } else {
+            corpus.readResources(language);
+        }
+        if (corpus.fileNames.isEmpty()) {
+            throw new IllegalStateException("No " + language + " sources in the corpus");
+        }
+        return corpus;
+    }
+
+    private void readResources(String language) throws IOException {
+        String base = "corpus/" + language + "/";
+        for (String name : IOUtils.readLines(resource(base + "index.txt"), StandardCharsets.UTF_8)) {
+            if (!name.trim().isEmpty()) {
+                fileNames.add(name.trim());
+                sources.add(IOUtils.toString(resource(base + name.trim()), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream stream = SourceCorpus.class.getResourceAsStream(name);
+        if (stream == null) {
+            throw new IOException("Missing corpus file " + name);
+        }
+        return stream;
+    }
+
+    private void readDirectory(File dir) throws IOException {
+        if (!dir.isDirectory()) {
+            throw new IllegalStateException("Set the system property " + CORPUS_DIR_PROPERTY + " to a directory");
+        }
+        List<String> extensions = languageVersion.getLanguage().getExtensions();
+        for (File file : FileUtils.listFiles(dir, extensions.toArray(new String[0]), true)) {
+            fileNames.add(file.getPath());
+            sources.add(FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+        }
+    }
+
+    public LanguageVersion getLanguageVersion() {
+        return languageVersion;
+    }
+
+    /**
+     * Returns the names of the files, in the order of {@link #getSources()}.
+     */
+    public List<String> getFileNames() {
+        return Collections.unmodifiableList(fileNames);
+    }
+
+    /**
+     * Returns the contents of the files.
+     */
+    public List<String> getSources() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * Parses the files, without running the later stages of the analysis
+     * like the symbol table.
+     */
+    public List<Node> parse() {
+        LanguageVersionHandler handler = languageVersion.getLanguageVersionHandler();
+        Parser parser = handler.getParser(handler.getDefaultParserOptions());
+        List<Node> roots = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            roots.add(parser.parse(fileNames.get(i), new StringReader(sources.get(i))));
+        }
+        return roots;
+    }
+
+    /**
+     * Parses the Java files and runs the stages of the analysis which come
+     * before the rules: qualified names, symbol table and type resolution.
+     */
+    public List<Node> parseAndResolve() {
+        List<Node> roots = parse();
+        ClassLoader classLoader = new PMDConfiguration().getClassLoader();
+        LanguageVersionHandler handler = languageVersion.getLanguageVersionHandler();
+        for (Node root : roots) {
+            handler.getQualifiedNameResolutionFacade(classLoader).start(root);
+            handler.getSymbolFacade(classLoader).start(root);
+            handler.getTypeResolutionFacade(classLoader).start(root);
+        }
+        return roots;
+    }
+
+    /**
+     * Writes the files to the given directory, e.g. for the benchmarks which
+     * need actual files, and returns them.
+     */
+    public List<File> writeTo(File dir) throws IOException {
+        List<File> files = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            File file = new File(dir, i + "_" + new File(fileNames.get(i)).getName());
+            Files.write(file.toPath(), sources.get(i).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+}
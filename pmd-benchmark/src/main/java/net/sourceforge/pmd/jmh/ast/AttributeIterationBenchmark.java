@@ -0,0 +1,70 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.ast;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sourceforge.pmd.jmh.SourceCorpus;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.Attribute;
+
+/**
+ * Measures the iteration of the XPath attributes of all the nodes, and
+ * the computation of their values, like the XPath engines and the tree
+ * renderers do, in milliseconds per corpus.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributeIterationBenchmark {
+
+    @Param({"java", "ecmascript", "xml"})
+    public String language;
+
+    private List<Node> roots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SourceCorpus corpus = SourceCorpus.load(language);
+        roots = "java".equals(language) ? corpus.parseAndResolve() : corpus.parse();
+    }
+
+    @Benchmark
+    public void iterateAttributes(Blackhole blackhole) {
+        for (Node root : roots) {
+            visit(root, blackhole);
+        }
+    }
+
+    private static void visit(Node node, Blackhole blackhole) {
+        Iterator<Attribute> attributes = node.getXPathAttributesIterator();
+        while (attributes.hasNext()) {
+            blackhole.consume(attributes.next().getValue());
+        }
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            visit(node.getChild(i), blackhole);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.ast;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.jmh.SourceCorpus;
+import net.sourceforge.pmd.lang.LanguageVersionHandler;
+import net.sourceforge.pmd.lang.VisitorStarter;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Measures the stages of the Java analysis which run between the parser
+ * and the rules, in milliseconds per corpus. The ASTs are parsed again,
+ * and the previous stages run, before each invocation, since the stages
+ * annotate the nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JavaAnalysisStagesBenchmark {
+
+    /**
+     * The stages, in the order in which PMD runs them.
+     */
+    public enum Stage {
+        QUALIFIED_NAMES {
+            @Override
+            VisitorStarter facade(LanguageVersionHandler handler, ClassLoader classLoader) {
+                return handler.getQualifiedNameResolutionFacade(classLoader);
+            }
+        },
+        SYMBOL_TABLE {
+            @Override
+            VisitorStarter facade(LanguageVersionHandler handler, ClassLoader classLoader) {
+                return handler.getSymbolFacade(classLoader);
+            }
+        },
+        DATA_FLOW {
+            @Override
+            VisitorStarter facade(LanguageVersionHandler handler, ClassLoader classLoader) {
+                return handler.getDataFlowFacade();
+            }
+        },
+        TYPE_RESOLUTION {
+            @Override
+            VisitorStarter facade(LanguageVersionHandler handler, ClassLoader classLoader) {
+                return handler.getTypeResolutionFacade(classLoader);
+            }
+        };
+
+        abstract VisitorStarter facade(LanguageVersionHandler handler, ClassLoader classLoader);
+    }
+
+    @Param({"QUALIFIED_NAMES", "SYMBOL_TABLE", "DATA_FLOW", "TYPE_RESOLUTION"})
+    public Stage stage;
+
+    private SourceCorpus corpus;
+    private LanguageVersionHandler handler;
+    private ClassLoader classLoader;
+    private List<Node> roots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = SourceCorpus.load("java");
+        handler = corpus.getLanguageVersion().getLanguageVersionHandler();
+        classLoader = new PMDConfiguration().getClassLoader();
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        roots = corpus.parse();
+        for (Stage previous : Stage.values()) {
+            if (previous == stage) {
+                break;
+            }
+            startAll(previous);
+        }
+    }
+
+    @Benchmark
+    public List<Node> runStage() {
+        startAll(stage);
+        return roots;
+    }
+
+    private void startAll(Stage s) {
+        for (Node root : roots) {
+            s.facade(handler, classLoader).start(root);
+        }
+    }
+}
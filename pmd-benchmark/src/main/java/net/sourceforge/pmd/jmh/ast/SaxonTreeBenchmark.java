@@ -0,0 +1,110 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.ast;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.sourceforge.pmd.jmh.SourceCorpus;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
+
+import net.sf.saxon.om.Axis;
+import net.sf.saxon.om.AxisIterator;
+import net.sf.saxon.om.Item;
+
+/**
+ * Measures the wrapping of the Java ASTs for Saxon, as done once per file
+ * by the Saxon XPath rules, in milliseconds per corpus. Run it with
+ * {@code -prof gc} to measure the allocations of the wrappers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaxonTreeBenchmark {
+
+    /**
+     * The nodes the queries navigate to once the tree is wrapped.
+     */
+    public enum Navigation {
+        /**
+         * The method declarations, and their attributes, like a rule chain
+         * query such as {@code //MethodDeclaration[@Public = true()]}.
+         */
+        RULE_CHAIN,
+        /** All the nodes, like a query which is not rule chained. */
+        DESCENDANTS
+    }
+
+    @Param({"RULE_CHAIN", "DESCENDANTS"})
+    public Navigation navigation;
+
+    private List<Node> roots;
+    private List<List<Node>> ruleChainNodes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        roots = SourceCorpus.load("java").parseAndResolve();
+        ruleChainNodes = new ArrayList<>();
+        for (Node root : roots) {
+            List<Node> methods = new ArrayList<>();
+            collect(root, "MethodDeclaration", methods);
+            ruleChainNodes.add(methods);
+        }
+    }
+
+    private static void collect(Node node, String xpathName, List<Node> result) {
+        if (xpathName.equals(node.getXPathNodeName())) {
+            result.add(node);
+        }
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            collect(node.getChild(i), xpathName, result);
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void wrap(Blackhole blackhole) {
+        for (int i = 0; i < roots.size(); i++) {
+            DocumentNode document = new DocumentNode(roots.get(i));
+            if (navigation == Navigation.RULE_CHAIN) {
+                for (Node node : ruleChainNodes.get(i)) {
+                    ElementNode element = document.getElementNode(node);
+                    consume(element.iterateAxis(Axis.ATTRIBUTE), blackhole);
+                }
+            } else {
+                consume(document.iterateAxis(Axis.DESCENDANT), blackhole);
+            }
+        }
+    }
+
+    private static void consume(AxisIterator iterator, Blackhole blackhole) {
+        Item item = iterator.next();
+        while (item != null) {
+            blackhole.consume(item);
+            item = iterator.next();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.cpd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import net.sourceforge.pmd.cpd.Language;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.util.FileFinder;
+
+/**
+ * The corpora the CPD benchmarks run on. The synthetic corpora are
+ * generated with a fixed seed, so that they are the same on every run.
+ */
+public enum CpdCorpus {
+    /** Many files, half of the functions are copies from a small pool. */
+    REPETITIVE(200, 20, 10),
+    /** A single file with mostly distinct functions. */
+    LARGE_FILE(1, 20000, 0),
+    /** Many small files with mostly distinct functions. */
+    MANY_SMALL_FILES(5000, 4, 0),
+    /** Real-world sources from the directory in the system property {@value #CORPUS_DIR_PROPERTY}. */
+    DIRECTORY(0, 0, 0);
+
+    public static final String CORPUS_DIR_PROPERTY = "pmd.benchmark.corpus";
+
+    private static final long SEED = 42;
+
+    private final int files;
+    private final int functionsPerFile;
+    private final int duplicatePoolSize;
+
+    CpdCorpus(int files, int functionsPerFile, int duplicatePoolSize) {
+        this.files = files;
+        this.functionsPerFile = functionsPerFile;
+        this.duplicatePoolSize = duplicatePoolSize;
+    }
+
+    /**
+     * Returns the source files of this corpus for the given language.
+     */
+    public List<SourceCode> sources(Language language) throws IOException {
+        if (this == DIRECTORY) {
+            return readDirectory(language);
+        }
+
+        CodeTemplate template = CodeTemplate.forLanguage(language.getTerseName());
+        Random random = new Random(SEED);
+        List<String> pool = new ArrayList<>();
+        for (int i = 0; i < duplicatePoolSize; i++) {
+            pool.add(template.function("pooled" + i, random));
+        }
+
+        List<SourceCode> sources = new ArrayList<>(files);
+        for (int f = 0; f < files; f++) {
+            StringBuilder code = new StringBuilder(template.fileHeader(f));
+            for (int i = 0; i < functionsPerFile; i++) {
+                if (!pool.isEmpty() && random.nextBoolean()) {
+                    code.append(pool.get(random.nextInt(pool.size())));
+                } else {
+                    code.append(template.function("f" + f + "x" + i, random));
+                }
+            }
+            code.append(template.fileFooter());
+            String fileName = "Gen" + f + language.getExtensions().get(0);
+            sources.add(new SourceCode(new SourceCode.StringCodeLoader(code.toString(), fileName)));
+        }
+        return sources;
+    }
+
+    private static List<SourceCode> readDirectory(Language language) {
+        String dir = System.getProperty(CORPUS_DIR_PROPERTY);
+        if (dir == null || !new File(dir).isDirectory()) {
+            throw new IllegalStateException("Set the system property " + CORPUS_DIR_PROPERTY + " to a directory");
+        }
+        List<SourceCode> sources = new ArrayList<>();
+        for (File file : new FileFinder().findFilesFrom(new File(dir), language.getFileFilter(), true)) {
+            SourceCode source = new SourceCode(new SourceCode.FileCodeLoader(file, StandardCharsets.UTF_8.name()));
+            // read the file once, so that I/O is not part of the measurement
+            source.getCode();
+            sources.add(source);
+        }
+        return sources;
+    }
+
+    /**
+     * Generates functions that are syntactically valid for the language,
+     * with varying names, operators and literals.
+     */
+    private enum CodeTemplate {
+        JAVA("public class Gen%d {\n", "}\n",
+             "    public int %1$s(int a, int b) {\n"
+           + "        int result = %2$d;\n"
+           + "        for (int i = 0; i < a; i++) {\n"
+           + "            if (i %% %3$d == 0) {\n"
+           + "                result %4$s= b * i;\n"
+           + "            } else {\n"
+           + "                result -= helper(i, \"%5$s\");\n"
+           + "            }\n"
+           + "        }\n"
+           + "        return result;\n"
+           + "    }\n"),
+        CS("class Gen%d {\n", "}\n", JAVA.function),
+        CPP("// file %d\n", "",
+            "int %1$s(int a, int b) {\n"
+          + "    int result = %2$d;\n"
+          + "    for (int i = 0; i < a; i++) {\n"
+          + "        if (i %% %3$d == 0) {\n"
+          + "            result %4$s= b * i;\n"
+          + "        } else {\n"
+          + "            result -= helper(i, \"%5$s\");\n"
+          + "        }\n"
+          + "    }\n"
+          + "    return result;\n"
+          + "}\n"),
+        KOTLIN("package gen%d\n\n", "",
+               "fun %1$s(a: Int, b: Int): Int {\n"
+             + "    var result = %2$d\n"
+             + "    for (i in 0 until a) {\n"
+             + "        if (i %% %3$d == 0) {\n"
+             + "            result %4$s= b * i\n"
+             + "        } else {\n"
+             + "            result -= helper(i, \"%5$s\")\n"
+             + "        }\n"
+             + "    }\n"
+             + "    return result\n"
+             + "}\n"),
+        GO("package gen%d\n\n", "",
+           "func %1$s(a int, b int) int {\n"
+         + "\tresult := %2$d\n"
+         + "\tfor i := 0; i < a; i++ {\n"
+         + "\t\tif i%%%3$d == 0 {\n"
+         + "\t\t\tresult %4$s= b * i\n"
+         + "\t\t} else {\n"
+         + "\t\t\tresult -= helper(i, \"%5$s\")\n"
+         + "\t\t}\n"
+         + "\t}\n"
+         + "\treturn result\n"
+         + "}\n");
+
+        private static final String[] OPERATORS = {"+", "-", "*"};
+
+        private final String header;
+        private final String footer;
+        private final String function;
+
+        CodeTemplate(String header, String footer, String function) {
+            this.header = header;
+            this.footer = footer;
+            this.function = function;
+        }
+
+        String fileHeader(int fileIndex) {
+            return String.format(header, fileIndex);
+        }
+
+        String fileFooter() {
+            return footer;
+        }
+
+        String function(String name, Random random) {
+            return String.format(function, name, random.nextInt(1000), 2 + random.nextInt(8),
+                                 OPERATORS[random.nextInt(OPERATORS.length)], Integer.toHexString(random.nextInt()));
+        }
+
+        static CodeTemplate forLanguage(String terseName) {
+            return valueOf(terseName.toUpperCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.cpd;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.cpd.Language;
+import net.sourceforge.pmd.cpd.LanguageFactory;
+import net.sourceforge.pmd.cpd.Match;
+import net.sourceforge.pmd.cpd.MatchAlgorithm;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.TokenEntry;
+import net.sourceforge.pmd.cpd.Tokens;
+
+/**
+ * Measures the match engine of CPD ({@link MatchAlgorithm} and the
+ * {@code MatchCollector}) on an already tokenized Java corpus, depending
+ * on the minimum tile size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CpdMatchBenchmark {
+
+    @Param({"25", "50", "100", "200"})
+    public int minimumTileSize;
+
+    @Param({"REPETITIVE", "LARGE_FILE", "MANY_SMALL_FILES"})
+    public CpdCorpus corpus;
+
+    private final Map<String, SourceCode> sources = new LinkedHashMap<>();
+    private final Tokens tokens = new Tokens();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Language java = LanguageFactory.createLanguage("java");
+        TokenEntry.clearImages();
+        for (SourceCode source : corpus.sources(java)) {
+            java.getTokenizer().tokenize(source, tokens);
+            sources.put(source.getFileName(), source);
+        }
+    }
+
+    @Benchmark
+    public int findMatches() {
+        MatchAlgorithm algorithm = new MatchAlgorithm(sources, tokens, minimumTileSize);
+        algorithm.findMatches();
+        int count = 0;
+        for (Iterator<Match> matches = algorithm.matches(); matches.hasNext(); matches.next()) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.cpd;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.cpd.Language;
+import net.sourceforge.pmd.cpd.LanguageFactory;
+import net.sourceforge.pmd.cpd.SourceCode;
+import net.sourceforge.pmd.cpd.TokenEntry;
+import net.sourceforge.pmd.cpd.Tokenizer;
+import net.sourceforge.pmd.cpd.Tokens;
+
+/**
+ * Measures the throughput of the CPD tokenizers, in corpora per second.
+ * The secondary result {@code tokens} is the number of tokens produced
+ * per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CpdTokenizerBenchmark {
+
+    @Param({"java", "cs", "cpp", "kotlin", "go"})
+    public String language;
+
+    @Param({"REPETITIVE", "LARGE_FILE", "MANY_SMALL_FILES"})
+    public CpdCorpus corpus;
+
+    private Tokenizer tokenizer;
+    private List<SourceCode> sources;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Language lang = LanguageFactory.createLanguage(language);
+        tokenizer = lang.getTokenizer();
+        sources = corpus.sources(lang);
+    }
+
+    @Benchmark
+    public Tokens tokenize(TokenCounter counter) throws IOException {
+        // the token images are interned per thread, start from scratch like CPD does
+        TokenEntry.clearImages();
+        Tokens tokens = new Tokens();
+        for (SourceCode source : sources) {
+            tokenizer.tokenize(source, tokens);
+        }
+        counter.tokens += tokens.size();
+        return tokens;
+    }
+
+    /**
+     * Reports the number of tokens as secondary result.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class TokenCounter {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+}
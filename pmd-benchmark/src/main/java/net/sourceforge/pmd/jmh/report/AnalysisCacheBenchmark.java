@@ -0,0 +1,79 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.cache.FileAnalysisCache;
+
+/**
+ * Measures the loading and the persisting of the incremental analysis
+ * cache, holding the violations of the analyzed Java corpus, in
+ * microseconds per cache file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+@SuppressWarnings("deprecation")
+public class AnalysisCacheBenchmark {
+
+    private AnalyzedCorpus corpus;
+    private FileAnalysisCache cache;
+    private File cacheFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = AnalyzedCorpus.analyze();
+        cacheFile = new File(corpus.getDirectory(), "pmd.cache");
+        cache = new FileAnalysisCache(cacheFile);
+
+        List<File> files = corpus.getFiles();
+        List<Report> reports = corpus.getReports();
+        for (int i = 0; i < files.size(); i++) {
+            cache.isUpToDate(files.get(i));
+            for (RuleViolation violation : reports.get(i).getViolations()) {
+                cache.ruleViolationAdded(violation);
+            }
+        }
+        cache.persist();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public FileAnalysisCache load() {
+        return new FileAnalysisCache(cacheFile);
+    }
+
+    @Benchmark
+    public File persist() {
+        cache.persist();
+        return cacheFile;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSetLoader;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.SourceCodeProcessor;
+import net.sourceforge.pmd.jmh.SourceCorpus;
+
+/**
+ * The Java corpus, written to a temporary directory, with the reports of
+ * the analysis of each file. The reports are the input of the benchmarks
+ * of the reporting and of the analysis cache.
+ */
+final class AnalyzedCorpus {
+
+    /** Rulesets which report violations on most files. */
+    private static final String[] RULESETS = {
+        "category/java/bestpractices.xml", "category/java/codestyle.xml", "category/java/design.xml",
+    };
+
+    private final File directory;
+    private final List<File> files;
+    private final List<Report> reports = new ArrayList<>();
+
+    private AnalyzedCorpus(File directory, List<File> files) {
+        this.directory = directory;
+        this.files = files;
+    }
+
+    /**
+     * Writes the Java corpus to a temporary directory and analyzes it.
+     * The directory must be deleted with {@link #delete()}.
+     */
+    static AnalyzedCorpus analyze() throws IOException {
+        File directory = Files.createTempDirectory("pmd-benchmark").toFile();
+        AnalyzedCorpus corpus = new AnalyzedCorpus(directory, SourceCorpus.load("java").writeTo(directory));
+
+        RuleSets ruleSets = new RuleSets(new RuleSetLoader().warnDeprecated(false)
+                                                            .loadFromResources(Arrays.asList(RULESETS)));
+        SourceCodeProcessor processor = new SourceCodeProcessor(new PMDConfiguration());
+        for (File file : corpus.files) {
+            RuleContext ctx = new RuleContext();
+            ctx.setSourceCodeFile(file);
+            ctx.setReport(new Report());
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                processor.processSourceCode(reader, ruleSets, ctx);
+            } catch (PMDException e) {
+                throw new IllegalStateException(e);
+            }
+            corpus.reports.add(ctx.getReport());
+        }
+        return corpus;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Returns the report of each file.
+     */
+    List<Report> getReports() {
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Returns the reports of all the files, merged.
+     */
+    Report getMergedReport() {
+        Report merged = new Report();
+        for (Report report : reports) {
+            merged.merge(report);
+        }
+        return merged;
+    }
+
+    void delete() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.report;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.renderers.RendererFactory;
+import net.sourceforge.pmd.util.datasource.FileDataSource;
+
+/**
+ * Measures each report format, rendering the reports of the analyzed Java
+ * corpus to a writer which discards the output, in milliseconds per corpus.
+ * The {@code yahtml} format, which writes a file per class, and the
+ * {@code ideaj} format, which requires properties, are not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RendererBenchmark {
+
+    @Param({"codeclimate", "csv", "emacs", "empty", "html", "json", "summaryhtml", "text", "textcolor", "textpad",
+            "vbhtml", "xml", "xslt"})
+    public String format;
+
+    private AnalyzedCorpus corpus;
+    private List<Report> reports;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = AnalyzedCorpus.analyze();
+        reports = corpus.getReports();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Renderer render() throws IOException {
+        Renderer renderer = RendererFactory.createRenderer(format, new Properties());
+        renderer.setWriter(new NullWriter());
+        renderer.start();
+        for (int i = 0; i < reports.size(); i++) {
+            renderer.startFileAnalysis(new FileDataSource(corpus.getFiles().get(i)));
+            renderer.renderFileReport(reports.get(i));
+        }
+        renderer.end();
+        renderer.flush();
+        return renderer;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.report;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.Report;
+
+/**
+ * Measures {@link Report#merge(Report)}, which accumulates the reports of
+ * the files into the global report, in milliseconds per merged report.
+ * The reports of the corpus are merged several times, as if the corpus was
+ * larger.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportMergeBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int copies;
+
+    private AnalyzedCorpus corpus;
+    private List<Report> reports;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = AnalyzedCorpus.analyze();
+        reports = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            reports.addAll(corpus.getReports());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        corpus.delete();
+    }
+
+    @Benchmark
+    public Report merge() {
+        Report merged = new Report();
+        for (Report report : reports) {
+            merged.merge(report);
+        }
+        return merged;
+    }
+}
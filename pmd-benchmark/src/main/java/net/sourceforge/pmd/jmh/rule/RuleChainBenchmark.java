@@ -0,0 +1,114 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.jmh.SourceCorpus;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.java.ast.JavaNode;
+import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
+
+/**
+ * Measures the overhead of the rule chain, i.e. indexing the nodes of each
+ * AST by kind and dispatching them to the rules, in milliseconds per corpus.
+ * The rules do nothing, and each of them visits a few of the most common
+ * kinds of Java nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleChainBenchmark {
+
+    private static final String[] NODE_KINDS = {
+        "ClassOrInterfaceDeclaration", "MethodDeclaration", "FieldDeclaration", "LocalVariableDeclaration",
+        "Name", "PrimaryExpression", "PrimaryPrefix", "PrimarySuffix", "Literal", "Block", "BlockStatement",
+        "Statement", "IfStatement", "ForStatement", "ReturnStatement", "Expression", "ClassOrInterfaceType",
+        "FormalParameter", "VariableDeclaratorId", "AllocationExpression",
+    };
+    private static final int KINDS_PER_RULE = 3;
+
+    @Param({"1", "10", "100"})
+    public int rules;
+
+    private List<Node> roots;
+    private List<File> files;
+    private RuleSets ruleSets;
+    private LanguageVersion java;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SourceCorpus corpus = SourceCorpus.load("java");
+        java = corpus.getLanguageVersion();
+        roots = corpus.parseAndResolve();
+        files = new ArrayList<>();
+        for (String fileName : corpus.getFileNames()) {
+            files.add(new File(fileName));
+        }
+
+        List<Rule> noopRules = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            NoopRule rule = new NoopRule();
+            rule.setName("Noop" + i);
+            rule.setLanguage(java.getLanguage());
+            for (int k = 0; k < KINDS_PER_RULE; k++) {
+                rule.addRuleChainVisit(NODE_KINDS[(i + k) % NODE_KINDS.length]);
+            }
+            noopRules.add(rule);
+        }
+        ruleSets = new RuleSets(RuleSet.create("noop", "Rules which do nothing", "noop.xml",
+                Collections.<Pattern>emptyList(), Collections.<Pattern>emptyList(), noopRules));
+    }
+
+    @Benchmark
+    public Report applyRuleChain() {
+        RuleContext ctx = new RuleContext();
+        ctx.setLanguageVersion(java);
+        ctx.setReport(new Report());
+        for (int i = 0; i < roots.size(); i++) {
+            ctx.setSourceCodeFile(files.get(i));
+            ruleSets.apply(Collections.singletonList(roots.get(i)), ctx, java.getLanguage());
+        }
+        return ctx.getReport();
+    }
+
+    /**
+     * A rule which visits the nodes, but not their children.
+     */
+    private static final class NoopRule extends AbstractJavaRule {
+        @Override
+        public Object visit(JavaNode node, Object data) {
+            return data;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.jmh.rule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.jmh.SourceCorpus;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.lang.rule.xpath.JaxenXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+
+/**
+ * Compares the XPath engines on typical rule expressions, evaluated from
+ * the root of each Java AST, in milliseconds per corpus: Jaxen and Saxon for
+ * XPath 1.0, and Saxon for XPath 2.0.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XPathBenchmark {
+
+    /**
+     * The engine, and the version of XPath.
+     */
+    public enum Engine {
+        /** XPath 1.0 with {@link JaxenXPathRuleQuery}. */
+        JAXEN(XPathVersion.XPATH_1_0),
+        /** XPath 1.0 with {@link SaxonXPathRuleQuery}, in backwards compatible mode. */
+        SAXON_1_0(XPathVersion.XPATH_1_0),
+        /** XPath 2.0 with {@link SaxonXPathRuleQuery}. */
+        SAXON_2_0(XPathVersion.XPATH_2_0);
+
+        private final XPathVersion version;
+
+        Engine(XPathVersion version) {
+            this.version = version;
+        }
+    }
+
+    /**
+     * Expressions in the style of the XPath rules of PMD, valid in XPath 1.0
+     * and 2.0.
+     */
+    public enum Query {
+        /** A predicate on an attribute. */
+        ATTRIBUTE("//MethodDeclaration[@Public = true() and @Static = true()]"),
+        /** A predicate counting children. */
+        COUNT("//MethodDeclaration[count(MethodDeclarator/FormalParameters/FormalParameter) > 3]"),
+        /** Nested descendant axes. */
+        DESCENDANTS("//ClassOrInterfaceDeclaration//LocalVariableDeclaration"
+                        + "[Type/ReferenceType/ClassOrInterfaceType[@Image = 'String']]"),
+        /** String functions on the images. */
+        STRING_FUNCTIONS("//PrimaryPrefix/Name[contains(@Image, '.') and starts-with(@Image, 'get')]"),
+        /** Ancestor axis. */
+        ANCESTORS("//ReturnStatement[ancestor::IfStatement and ancestor::ForStatement]");
+
+        private final String expression;
+
+        Query(String expression) {
+            this.expression = expression;
+        }
+    }
+
+    @Param({"JAXEN", "SAXON_1_0", "SAXON_2_0"})
+    public Engine engine;
+
+    @Param({"ATTRIBUTE", "COUNT", "DESCENDANTS", "STRING_FUNCTIONS", "ANCESTORS"})
+    public Query query;
+
+    private List<Node> roots;
+    private List<File> files;
+    private LanguageVersion java;
+    private XPathRule rule;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SourceCorpus corpus = SourceCorpus.load("java");
+        java = corpus.getLanguageVersion();
+        roots = corpus.parseAndResolve();
+        files = new ArrayList<>();
+        for (String fileName : corpus.getFileNames()) {
+            files.add(new File(fileName));
+        }
+
+        rule = new XPathRule(engine.version, query.expression);
+        rule.setName("XPathBenchmark");
+        rule.setMessage("violation");
+        rule.setLanguage(java.getLanguage());
+        // the engine is chosen when the query is first evaluated
+        String previous = System.setProperty(XPathRule.USE_SAXON_PROPERTY, String.valueOf(engine != Engine.JAXEN));
+        try {
+            evaluate();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(XPathRule.USE_SAXON_PROPERTY);
+            } else {
+                System.setProperty(XPathRule.USE_SAXON_PROPERTY, previous);
+            }
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Report evaluate() {
+        RuleContext ctx = new RuleContext();
+        ctx.setLanguageVersion(java);
+        ctx.setReport(new Report());
+        for (int i = 0; i < roots.size(); i++) {
+            ctx.setSourceCodeFile(files.get(i));
+            rule.evaluate(roots.get(i), ctx);
+        }
+        return ctx.getReport();
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.internal.NodeKindPresence;
+
+/**
+ * This is a base class for RuleChainVisitor implementations which extracts
+ * interesting nodes from an AST, and lets each Rule visit the nodes it has
+ * expressed interest in. Rules using a {@linkplain FusedTraversalRule fused traversal}
+ * are visited with the nodes they are interested in, in document order, from
+ * the same indexing traversal. The traversal also records which of the nodes
+ * {@linkplain RequiredNodesRule required} by the other rules are present, so
+ * that {@link RuleSet#apply(List, RuleContext)} can skip them.
+ *
+ * @deprecated See {@link RuleChainVisitor}
+ */
+@Deprecated
+public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
+    private static final Logger LOG = Logger.getLogger(AbstractRuleChainVisitor.class.getName());
+
+    /**
+     * These are all the rules participating in the RuleChain, grouped by
+     * RuleSet.
+     */
+    protected Map<RuleSet, List<Rule>> ruleSetRules = new LinkedHashMap<>();
+
+    /**
+     * This is a mapping from node names to nodes instances for the current AST.
+     */
+    protected Map<String, List<Node>> nodeNameToNodes;
+
+    /**
+     * The dense kind of each visited or required node name. The kinds of the
+     * visited nodes come first, and index {@link #nodesByKind}.
+     */
+    private Map<String, Integer> nodeKinds;
+    /** The nodes of the current AST, by kind. The lists are shared with {@link #nodeNameToNodes}. */
+    private List<Node>[] nodesByKind;
+    /** The participating rules, grouped by rule set, with their resolved node kinds. */
+    private List<RuleSetDispatch> dispatchTable;
+    /** All the nodes of the current AST in document order, only if there are fused traversal rules. */
+    private List<Node> documentOrder;
+    /** The kind of each node of {@link #documentOrder}, -1 if no rule chain rule visits it. */
+    private int[] documentOrderKinds = new int[0];
+    /** Whether the rules which don't use the rule chain require some nodes. */
+    private boolean hasRequiredNodes;
+    /** The node kinds present in the current AST, only if {@link #hasRequiredNodes}. */
+    private NodeKindPresence presence;
+
+    /**
+     * @see RuleChainVisitor#add(RuleSet, Rule)
+     */
+    @Override
+    public void add(RuleSet ruleSet, Rule rule) {
+
+        if (!ruleSetRules.containsKey(ruleSet)) {
+            ruleSetRules.put(ruleSet, new ArrayList<Rule>());
+        }
+        ruleSetRules.get(ruleSet).add(rule);
+    }
+
+    /**
+     * @see RuleChainVisitor#visitAll(List, RuleContext)
+     */
+    @Override
+    public void visitAll(List<Node> nodes, RuleContext ctx) {
+        initialize();
+        clear();
+        presence = hasRequiredNodes ? new NodeKindPresence(nodeKinds) : null;
+
+        // Perform a visitation of the AST to index nodes which need visiting by
+        // type
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_VISIT)) {
+            indexNodes(nodes, ctx);
+        }
+        if (presence != null) {
+            for (Node node : nodes) {
+                presence.storeOn(node);
+            }
+        }
+
+        // For each RuleSet, only if this source file applies
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE)) {
+            for (RuleSetDispatch dispatch : dispatchTable) {
+                if (!dispatch.ruleSet.applies(ctx.getSourceCodeFile())) {
+                    continue;
+                }
+
+                // For each rule, allow it to visit the nodes it desires
+                for (RuleDispatch ruleDispatch : dispatch.rules) {
+                    Rule rule = ruleDispatch.rule;
+                    int visits = 0;
+                    if (!RuleSet.applies(rule, ctx.getLanguageVersion())) {
+                        continue;
+                    }
+                    if (ruleDispatch.fused) {
+                        applyFusedTraversal(ruleDispatch, ctx);
+                        continue;
+                    }
+                    try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE, rule.getName())) {
+                        for (int kind : ruleDispatch.nodeKinds) {
+                            List<Node> ns = nodesByKind[kind];
+                            for (int i = 0; i < ns.size(); i++) {
+                                // Visit with underlying Rule, not the RuleReference
+                                visit(ruleDispatch.actualRule, ns.get(i), ctx);
+                            }
+                            visits += ns.size();
+                        }
+                        rcto.close(visits);
+                    } catch (RuntimeException e) {
+                        handleRuleException(rule, ctx, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void applyFusedTraversal(RuleDispatch ruleDispatch, RuleContext ctx) {
+        // the rule doesn't use the rule chain, account for it like RuleSet#apply does
+        try (TimedOperation rto = TimeTracker.startOperation(TimedOperationCategory.RULE, ruleDispatch.rule.getName())) {
+            int visits = 0;
+            boolean[] kindMask = ruleDispatch.kindMask;
+            for (int i = 0; i < documentOrder.size(); i++) {
+                int kind = documentOrderKinds[i];
+                if (kindMask == null || kind >= 0 && kindMask[kind]) {
+                    visit(ruleDispatch.actualRule, documentOrder.get(i), ctx);
+                    visits++;
+                }
+            }
+            rto.close(visits);
+        } catch (RuntimeException e) {
+            handleRuleException(ruleDispatch.rule, ctx, e);
+        }
+    }
+
+    private void handleRuleException(Rule rule, RuleContext ctx, RuntimeException e) {
+        if (ctx.isIgnoreExceptions()) {
+            ctx.getReport().addError(new Report.ProcessingError(e, String.valueOf(ctx.getSourceCodeFile())));
+
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(Level.WARNING, "Exception applying rule " + rule.getName() + " on file "
+                        + ctx.getSourceCodeFile() + ", continuing with next rule", e);
+            }
+        } else {
+            throw e;
+        }
+    }
+
+    /**
+     * Visit the given rule to the given node.
+     */
+    protected abstract void visit(Rule rule, Node node, RuleContext ctx);
+
+    /**
+     * Index all nodes for visitation by rules.
+     */
+    protected abstract void indexNodes(List<Node> nodes, RuleContext ctx);
+
+    /**
+     * Index a single node for visitation by rules.
+     */
+    protected void indexNode(Node node) {
+        Integer kind = nodeKinds.get(node.getXPathNodeName());
+        boolean visited = kind != null && kind < nodesByKind.length;
+        if (visited) {
+            nodesByKind[kind].add(node);
+        }
+        if (presence != null && kind != null) {
+            presence.add(kind);
+        }
+        if (documentOrder != null) {
+            int index = documentOrder.size();
+            if (index == documentOrderKinds.length) {
+                documentOrderKinds = Arrays.copyOf(documentOrderKinds, Math.max(256, 2 * index));
+            }
+            documentOrderKinds[index] = visited ? kind : -1;
+            documentOrder.add(node);
+        }
+    }
+
+    /**
+     * Initialize the RuleChainVisitor to be ready to perform visitations. This
+     * method should not be called until it is known that all Rules
+     * participating in the RuleChain are ready to be initialized themselves.
+     * Some rules may require full initialization to determine if they will
+     * participate in the RuleChain, so this has been delayed as long as
+     * possible to ensure that manipulation of the Rules is no longer occurring.
+     */
+    protected void initialize() {
+        if (nodeNameToNodes != null) {
+            return;
+        }
+
+        // Determine all node types that need visiting
+        Set<String> visitedNodes = new HashSet<>();
+        Set<String> requiredNodes = new HashSet<>();
+        boolean hasFusedTraversal = false;
+        for (Iterator<Map.Entry<RuleSet, List<Rule>>> entryIterator = ruleSetRules.entrySet().iterator(); entryIterator
+                .hasNext();) {
+            Map.Entry<RuleSet, List<Rule>> entry = entryIterator.next();
+            for (Iterator<Rule> ruleIterator = entry.getValue().iterator(); ruleIterator.hasNext();) {
+                Rule rule = ruleIterator.next();
+                if (rule.isRuleChain()) {
+                    visitedNodes.addAll(rule.getRuleChainVisits());
+
+                    logXPathRuleChainUsage(true, rule);
+                } else if (RuleSet.usesFusedTraversal(rule)) {
+                    visitedNodes.addAll(((FusedTraversalRule) RuleDispatch.unwrap(rule)).getFusedTraversalVisits());
+                    hasFusedTraversal = true;
+                } else {
+                    // Drop rules which do not participate in the rule chain,
+                    // but record the presence of the nodes they require.
+                    requiredNodes.addAll(RuleSet.getRequiredNodes(rule));
+                    ruleIterator.remove();
+
+                    logXPathRuleChainUsage(false, rule);
+                }
+            }
+            // Drop RuleSets in which all Rules have been dropped.
+            if (entry.getValue().isEmpty()) {
+                entryIterator.remove();
+            }
+        }
+
+        // Setup the data structure to manage mapping node names to node
+        // instances. We intend to reuse this data structure between
+        // visits to different ASTs. Each node name gets a dense kind, which
+        // indexes the node lists.
+        nodeNameToNodes = new HashMap<>();
+        nodeKinds = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Node>[] lists = new List[visitedNodes.size()];
+        nodesByKind = lists;
+        for (String s : visitedNodes) {
+            List<Node> nodes = new ArrayList<>(100);
+            nodesByKind[nodeKinds.size()] = nodes;
+            nodeKinds.put(s, nodeKinds.size());
+            nodeNameToNodes.put(s, nodes);
+        }
+        hasRequiredNodes = !requiredNodes.isEmpty();
+        requiredNodes.removeAll(visitedNodes);
+        for (String s : requiredNodes) {
+            nodeKinds.put(s, nodeKinds.size());
+        }
+        if (hasFusedTraversal) {
+            documentOrder = new ArrayList<>(1000);
+        }
+
+        // Resolve the rule references and node kinds of each rule once,
+        // instead of for each visited node.
+        dispatchTable = new ArrayList<>(ruleSetRules.size());
+        for (Map.Entry<RuleSet, List<Rule>> entry : ruleSetRules.entrySet()) {
+            List<RuleDispatch> rules = new ArrayList<>(entry.getValue().size());
+            for (Rule rule : entry.getValue()) {
+                rules.add(new RuleDispatch(rule, nodeKinds, visitedNodes.size()));
+            }
+            dispatchTable.add(new RuleSetDispatch(entry.getKey(), rules));
+        }
+    }
+
+    private void logXPathRuleChainUsage(boolean usesRuleChain, Rule rule) {
+        if (LOG.isLoggable(Level.FINE)) {
+            Rule r;
+            if (rule instanceof RuleReference) {
+                r = ((RuleReference) rule).getRule();
+            } else {
+                r = rule;
+            }
+            if (r instanceof XPathRule) {
+                String message = (usesRuleChain ? "Using " : "no ")
+                        + "rule chain for XPath " + rule.getProperty(XPathRule.VERSION_DESCRIPTOR)
+                        + " rule: " + rule.getName() + " (" + rule.getRuleSetName() + ")";
+                LOG.fine(message);
+            }
+        }
+    }
+
+    /**
+     * Clears the internal data structure used to manage the nodes visited
+     * between visiting different ASTs.
+     */
+    protected void clear() {
+        for (List<Node> l : nodesByKind) {
+            l.clear();
+        }
+        if (documentOrder != null) {
+            documentOrder.clear();
+        }
+    }
+
+    private static final class RuleSetDispatch {
+        private final RuleSet ruleSet;
+        private final List<RuleDispatch> rules;
+
+        RuleSetDispatch(RuleSet ruleSet, List<RuleDispatch> rules) {
+            this.ruleSet = ruleSet;
+            this.rules = rules;
+        }
+    }
+
+    private static final class RuleDispatch {
+        private final Rule rule;
+        /** The underlying rule, if {@link #rule} is a rule reference. */
+        private final Rule actualRule;
+        /** The kinds of the nodes visited by the rule, in the order of its rule chain visits. */
+        private final int[] nodeKinds;
+        /** Whether the rule uses the fused traversal instead of the rule chain. */
+        private final boolean fused;
+        /** The kinds visited by a fused traversal rule, null for all nodes. */
+        private final boolean[] kindMask;
+
+        RuleDispatch(Rule rule, Map<String, Integer> kinds, int kindCount) {
+            this.rule = rule;
+            this.actualRule = unwrap(rule);
+            this.fused = !rule.isRuleChain();
+            List<String> nodeNames = fused ? ((FusedTraversalRule) actualRule).getFusedTraversalVisits()
+                    : rule.getRuleChainVisits();
+            nodeKinds = new int[nodeNames.size()];
+            for (int i = 0; i < nodeKinds.length; i++) {
+                nodeKinds[i] = kinds.get(nodeNames.get(i));
+            }
+            if (fused && nodeKinds.length > 0) {
+                kindMask = new boolean[kindCount];
+                for (int kind : nodeKinds) {
+                    kindMask[kind] = true;
+                }
+            } else {
+                kindMask = null;
+            }
+        }
+
+        static Rule unwrap(Rule rule) {
+            Rule actual = rule;
+            while (actual instanceof RuleReference) {
+                actual = ((RuleReference) actual).getRule();
+            }
+            return actual;
+        }
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
+import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
+import net.sourceforge.pmd.lang.rule.xpath.internal.JaxenCompatibility;
+import net.sourceforge.pmd.lang.rule.xpath.internal.PredicatePlan;
+import net.sourceforge.pmd.lang.rule.xpath.internal.RuleChainAnalyzer;
+import net.sourceforge.pmd.lang.xpath.Initializer;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.DataKey;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.NamePool;
+import net.sf.saxon.om.NamespaceConstant;
+import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.om.ValueRepresentation;
+import net.sf.saxon.sxpath.AbstractStaticContext;
+import net.sf.saxon.sxpath.IndependentContext;
+import net.sf.saxon.sxpath.XPathDynamicContext;
+import net.sf.saxon.sxpath.XPathEvaluator;
+import net.sf.saxon.sxpath.XPathExpression;
+import net.sf.saxon.sxpath.XPathStaticContext;
+import net.sf.saxon.sxpath.XPathVariable;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.AtomicValue;
+import net.sf.saxon.value.BigIntegerValue;
+import net.sf.saxon.value.BooleanValue;
+import net.sf.saxon.value.DoubleValue;
+import net.sf.saxon.value.EmptySequence;
+import net.sf.saxon.value.FloatValue;
+import net.sf.saxon.value.Int64Value;
+import net.sf.saxon.value.SequenceExtent;
+import net.sf.saxon.value.StringValue;
+import net.sf.saxon.value.UntypedAtomicValue;
+import net.sf.saxon.value.Value;
+
+/**
+ * This is a Saxon based XPathRule query.
+ *
+ * @deprecated Internal API
+ */
+@Deprecated
+@InternalApi
+public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
+
+    /**
+     * Special nodeName that references the root expression.
+     */
+    static final String AST_ROOT = "_AST_ROOT_";
+
+    private static final Logger LOG = Logger.getLogger(SaxonXPathRuleQuery.class.getName());
+
+    private static final NamePool NAME_POOL = new NamePool();
+
+    /** Cache key for the wrapped tree for saxon. */
+    private static final SimpleDataKey<DocumentNode> SAXON_TREE_CACHE_KEY = DataMap.simpleDataKey("saxon.tree");
+
+    /**
+     * Compiled queries by version, variable names and expression, see {@link CompiledQuery}.
+     */
+    private static final ConcurrentMap<String, CompiledQuery> COMPILED_QUERIES = new ConcurrentHashMap<>();
+
+    /** Queries are compiled without caching them past this number, e.g. in the rule designer. */
+    private static final int MAX_COMPILED_QUERIES = 4096;
+
+    /**
+     * Contains for each nodeName a sub expression, used for implementing rule chain.
+     */
+    Map<String, List<Expression>> nodeNameToXPaths = new HashMap<>();
+
+    /**
+     * Contains for each nodeName the plans of its sub expressions, in the same order. A plan is
+     * null if the sub expression is evaluated as is.
+     */
+    Map<String, List<PredicatePlan>> nodeNameToPlans = new HashMap<>();
+
+    /**
+     * Representation of an XPath query, created at {@link #initializeXPathExpression()} using {@link #xpath}.
+     */
+    XPathExpression xpathExpression;
+
+    /**
+     * Holds the static context later used to match the variables in the dynamic context in
+     * {@link #createDynamicContext(ElementNode)}. Created at {@link #initializeXPathExpression()}
+     * using the properties descriptors in {@link #properties}.
+     */
+    private List<XPathVariable> xpathVariables;
+
+    /**
+     * Why the rule chain can't be used for the query, null if it is used.
+     */
+    private String ruleChainFallbackReason;
+
+    private final DeprecatedAttrLogger attrCtx;
+
+    @Deprecated
+    public SaxonXPathRuleQuery() {
+        this(DeprecatedAttrLogger.noop());
+    }
+
+    public SaxonXPathRuleQuery(DeprecatedAttrLogger attrCtx) {
+        this.attrCtx = attrCtx;
+    }
+
+    @Override
+    public boolean isSupportedVersion(String version) {
+        return XPATH_1_0.equals(version) || XPATH_1_0_COMPATIBILITY.equals(version) || XPATH_2_0.equals(version);
+    }
+
+    @Override
+    public List<Node> evaluate(final Node node, final RuleContext data) {
+        initializeXPathExpression();
+
+        try {
+            final DocumentNode documentNode = getDocumentNodeForRootNode(node);
+            documentNode.setAttrCtx(attrCtx); //
+            // XPath 1.0 rules compare attributes as strings, like Jaxen does
+            documentNode.setUntypedAttributes(XPATH_1_0.equals(version));
+
+            // Map AST Node -> Saxon Node
+            final ElementNode rootElementNode = documentNode.getElementNode(node);
+            assert rootElementNode != null : "Cannot find " + node;
+            final XPathDynamicContext xpathDynamicContext = createDynamicContext(rootElementNode);
+
+            final List<Node> results = new LinkedList<>();
+            List<Expression> expressions = getXPathExpressionForNodeOrDefault(node.getXPathNodeName());
+            List<PredicatePlan> plans = nodeNameToPlans.get(node.getXPathNodeName());
+            for (int i = 0; i < expressions.size(); i++) {
+                PredicatePlan plan = plans == null ? null : plans.get(i);
+                XPathContext context = xpathDynamicContext.getXPathContextObject();
+                SequenceIterator iterator = plan == null
+                                            ? expressions.get(i).iterate(context)
+                                            : plan.iterate(rootElementNode, context, documentNode);
+                Item current = iterator.next();
+                while (current != null) {
+                    if (current instanceof AstNodeOwner) {
+                        results.add(((AstNodeOwner) current).getUnderlyingNode());
+                    } else {
+                        throw new RuntimeException("XPath rule expression returned a non-node (" + current.getClass() + "): " + current);
+                    }
+                    current = iterator.next();
+                }
+            }
+
+            Collections.sort(results, RuleChainAnalyzer.documentOrderComparator());
+            return results;
+        } catch (final XPathException e) {
+            if (XPATH_1_0.equals(version) && e.getCause() instanceof RuntimeException) {
+                // Jaxen lets the exceptions thrown by the PMD functions through
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(super.xpath + " had problem: " + e.getMessage(), e);
+        }
+    }
+
+    private List<Expression> getXPathExpressionForNodeOrDefault(String nodeName) {
+        if (nodeNameToXPaths.containsKey(nodeName)) {
+            return nodeNameToXPaths.get(nodeName);
+        }
+        return nodeNameToXPaths.get(AST_ROOT);
+    }
+
+    /**
+     * Attempt to create a dynamic context on which to evaluate the {@link #xpathExpression}.
+     *
+     * @param elementNode the node on which to create the context; generally this node is the root node of the Saxon
+     *                    Tree
+     * @return the dynamic context on which to run the query
+     * @throws XPathException if the supplied value does not conform to the required type of the
+     * variable, when setting up the dynamic context; or if the supplied value contains a node that does not belong to
+     * this Configuration (or another Configuration that shares the same namePool)
+     */
+    private XPathDynamicContext createDynamicContext(final ElementNode elementNode) throws XPathException {
+        final XPathDynamicContext dynamicContext = xpathExpression.createDynamicContext(elementNode);
+
+        // Set variable values on the dynamic context
+        for (final XPathVariable xpathVariable : xpathVariables) {
+            final String variableName = xpathVariable.getVariableQName().getLocalName();
+            for (final Map.Entry<PropertyDescriptor<?>, Object> entry : super.properties.entrySet()) {
+                if (variableName.equals(entry.getKey().name())) {
+                    final ValueRepresentation valueRepresentation = getRepresentation(entry.getKey(), entry.getValue());
+                    dynamicContext.setVariable(xpathVariable, valueRepresentation);
+                }
+            }
+        }
+        return dynamicContext;
+    }
+
+
+    private ValueRepresentation getRepresentation(final PropertyDescriptor<?> descriptor, final Object value) {
+        if (XPATH_1_0.equals(version) && value != null) {
+            // Jaxen binds the variables to the string representation of the values
+            return new StringValue(value.toString());
+        } else if (descriptor.isMultiValue()) {
+            return getSequenceRepresentation((List<?>) value);
+        } else {
+            return getAtomicRepresentation(value);
+        }
+    }
+
+    /**
+     * Gets the DocumentNode representation for the whole AST in which the node is, that is, if the node is not the root
+     * of the AST, then the AST is traversed all the way up until the root node is found. If the DocumentNode was
+     * cached because this method was previously called, then a new DocumentNode will not be instanced.
+     *
+     * @param node the node from which the root node will be looked for.
+     * @return the DocumentNode representing the whole AST
+     */
+    private DocumentNode getDocumentNodeForRootNode(final Node node) {
+        final Node root = getRootNode(node);
+
+        DataMap<DataKey<?, ?>> userMap = root.getUserMap();
+        DocumentNode docNode = userMap.get(SAXON_TREE_CACHE_KEY);
+        if (docNode == null) {
+            docNode = new DocumentNode(root, getNamePool());
+            userMap.set(SAXON_TREE_CACHE_KEY, docNode);
+        }
+        return docNode;
+    }
+
+    /**
+     * Traverse the AST until the root node is found.
+     *
+     * @param node the node from where to start traversing the tree
+     * @return the root node
+     */
+    private Node getRootNode(final Node node) {
+        Node root = node;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    /**
+     * Initialize the {@link #xpathExpression} and the {@link #xpathVariables}.
+     */
+    private void initializeXPathExpression() {
+        if (xpathExpression != null) {
+            return;
+        }
+        final CompiledQuery compiled;
+        try {
+            compiled = getCompiledQuery();
+        } catch (final XPathException e) {
+            throw new RuntimeException(e);
+        }
+        xpathVariables = compiled.xpathVariables;
+        nodeNameToXPaths = compiled.nodeNameToXPaths;
+        nodeNameToPlans = compiled.nodeNameToPlans;
+        super.ruleChainVisits.addAll(compiled.ruleChainVisits);
+        ruleChainFallbackReason = compiled.ruleChainFallbackReason;
+        super.requiredNodes.addAll(compiled.requiredNodes);
+        xpathExpression = compiled.xpathExpression;
+    }
+
+    /**
+     * Returns true if the expression can be compiled. XPath 1.0 expressions
+     * are translated for Saxon, see {@link JaxenCompatibility}, but they
+     * may use functions which only Jaxen knows about.
+     *
+     * @since 6.31.0
+     */
+    public boolean isCompilable() {
+        if (xpathExpression != null) {
+            return true;
+        }
+        try {
+            getCompiledQuery();
+            return true;
+        } catch (final XPathException e) {
+            LOG.log(Level.FINE, "Unable to compile XPath: " + xpath, e);
+            return false;
+        }
+    }
+
+    private CompiledQuery getCompiledQuery() throws XPathException {
+        final List<String> variableNames = new ArrayList<>();
+        for (final PropertyDescriptor<?> propertyDescriptor : super.properties.keySet()) {
+            if (!"xpath".equals(propertyDescriptor.name())) {
+                variableNames.add(propertyDescriptor.name());
+            }
+        }
+        Collections.sort(variableNames);
+
+        // the property values are only used in the dynamic context, they don't change the compiled query
+        final String key = version + '\n' + variableNames + '\n' + xpath;
+        CompiledQuery compiled = COMPILED_QUERIES.get(key);
+        if (compiled == null) {
+            compiled = new CompiledQuery(xpath, version, variableNames);
+            if (COMPILED_QUERIES.size() < MAX_COMPILED_QUERIES) {
+                final CompiledQuery previous = COMPILED_QUERIES.putIfAbsent(key, compiled);
+                if (previous != null) {
+                    compiled = previous;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Gets the Saxon representation of the parameter, if its type corresponds
+     * to an XPath 2.0 atomic datatype.
+     *
+     * @param value The value to convert
+     *
+     * @return The converted AtomicValue
+     */
+    public static AtomicValue getAtomicRepresentation(final Object value) {
+
+        /*
+        FUTURE When supported, we should consider refactor this implementation to use Pattern Matching
+        (see http://openjdk.java.net/jeps/305) so that it looks clearer.
+        */
+        if (value == null) {
+            return UntypedAtomicValue.ZERO_LENGTH_UNTYPED;
+        } else if (value instanceof Enum) {
+            // enums use their toString
+            return new StringValue(value.toString());
+        } else if (value instanceof String) {
+            return new StringValue((String) value);
+        } else if (value instanceof Boolean) {
+            return BooleanValue.get((Boolean) value);
+        } else if (value instanceof Integer) {
+            return Int64Value.makeIntegerValue((Integer) value);
+        } else if (value instanceof Long) {
+            return new BigIntegerValue((Long) value);
+        } else if (value instanceof Double) {
+            return new DoubleValue((Double) value);
+        } else if (value instanceof Character) {
+            return new StringValue(value.toString());
+        } else if (value instanceof Float) {
+            return new FloatValue((Float) value);
+        } else if (value instanceof Pattern) {
+            return new StringValue(String.valueOf(value));
+        } else {
+            // We could maybe use UntypedAtomicValue
+            throw new RuntimeException("Unable to create ValueRepresentation for value of type: " + value.getClass());
+        }
+    }
+
+    public static Value getSequenceRepresentation(List<?> list) {
+        if (list == null || list.isEmpty()) {
+            return EmptySequence.getInstance();
+        }
+        final Item[] converted = new Item[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            converted[i] = getAtomicRepresentation(list.get(i));
+        }
+        return new SequenceExtent(converted);
+    }
+
+    @Override
+    public List<String> getRuleChainVisits() {
+        initializeXPathExpression();
+        return super.getRuleChainVisits();
+    }
+
+    @Override
+    public List<String> getRequiredNodes() {
+        initializeXPathExpression();
+        return super.getRequiredNodes();
+    }
+
+    /**
+     * Returns why the query is evaluated on the whole AST instead of using
+     * the rule chain, or null if it uses the rule chain.
+     *
+     * @since 6.31.0
+     */
+    public String getRuleChainFallbackReason() {
+        initializeXPathExpression();
+        return ruleChainFallbackReason;
+    }
+
+    public static NamePool getNamePool() {
+        return NAME_POOL;
+    }
+
+    /**
+     * An XPath expression compiled for the rule chain. It is immutable, and
+     * shared by the queries of all threads: only the dynamic context created
+     * for each evaluation is specific to a query.
+     */
+    private static final class CompiledQuery {
+        private final XPathExpression xpathExpression;
+        private final List<XPathVariable> xpathVariables;
+        private final Map<String, List<Expression>> nodeNameToXPaths;
+        private final Map<String, List<PredicatePlan>> nodeNameToPlans;
+        private final List<String> ruleChainVisits;
+        private final String ruleChainFallbackReason;
+        private final List<String> requiredNodes;
+
+        CompiledQuery(String xpath, String version, List<String> variableNames) throws XPathException {
+            final XPathEvaluator xpathEvaluator = new XPathEvaluator();
+            final XPathStaticContext xpathStaticContext = xpathEvaluator.getStaticContext();
+            xpathStaticContext.getConfiguration().setNamePool(getNamePool());
+
+            // Enable XPath 1.0 compatibility
+            if (XPATH_1_0.equals(version) || XPATH_1_0_COMPATIBILITY.equals(version)) {
+                ((AbstractStaticContext) xpathStaticContext).setBackwardsCompatibilityMode(true);
+            }
+
+            ((IndependentContext) xpathStaticContext).declareNamespace("fn", NamespaceConstant.FN);
+
+            // Register PMD functions
+            Initializer.initialize((IndependentContext) xpathStaticContext);
+
+            /*
+            Create XPathVariables for later use. It is a Saxon quirk that XPathVariables must be defined on the
+            static context, and reused later to associate an actual value on the dynamic context creation, in
+            createDynamicContext(ElementNode).
+            */
+            final List<XPathVariable> variables = new ArrayList<>();
+            for (final String name : variableNames) {
+                variables.add(xpathStaticContext.declareVariable(null, name));
+            }
+            xpathVariables = Collections.unmodifiableList(variables);
+
+            // Jaxen declares the PMD functions without namespace
+            final String source = XPATH_1_0.equals(version)
+                                      ? JaxenCompatibility.translate(xpath, (IndependentContext) xpathStaticContext)
+                                      : xpath;
+            xpathExpression = xpathEvaluator.createExpression(source);
+            if (XPATH_1_0.equals(version)
+                && !JaxenCompatibility.hasSameResults(xpathExpression.getInternalExpression(),
+                                                      xpathEvaluator.getConfiguration().getTypeHierarchy())) {
+                throw new XPathException("The expression doesn't select the same nodes as with Jaxen");
+            }
+
+            final Expression expr = xpathExpression.getInternalExpression();
+            final Configuration configuration = xpathEvaluator.getConfiguration();
+
+            // Even without rule chain, the query can be skipped for trees without the selected elements
+            requiredNodes = RuleChainAnalyzer.getSelectedElements(expr, configuration);
+
+            final Map<String, List<Expression>> expressions = new HashMap<>();
+            String fallbackReason = null;
+
+            // First step: Split the union venn expressions into single expressions
+            Iterable<Expression> subexpressions = RuleChainAnalyzer.splitUnions(expr, configuration);
+
+            // Second step: Analyze each expression separately
+            for (Expression subexpression : subexpressions) {
+                RuleChainAnalyzer rca = new RuleChainAnalyzer(configuration);
+                Expression modified = rca.visit(subexpression);
+
+                if (rca.getFallbackReason() == null) {
+                    for (String rootElement : rca.getRootElements()) {
+                        addExpressionForNode(expressions, rootElement, modified);
+                    }
+                } else {
+                    // couldn't find a root element for the expression, that means, we can't use rule chain at all
+                    // even though, it would be possible for part of the expression.
+                    fallbackReason = rca.getFallbackReason();
+                    break;
+                }
+            }
+
+            ruleChainFallbackReason = fallbackReason;
+            if (fallbackReason == null) {
+                ruleChainVisits = Collections.unmodifiableList(new ArrayList<>(expressions.keySet()));
+            } else {
+                ruleChainVisits = Collections.emptyList();
+                expressions.clear();
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.log(Level.FINE, "Unable to use RuleChain for XPath: " + xpath + " (" + fallbackReason + ")");
+                }
+            }
+
+            // the predicates of the rule chain expressions may be shared with other queries
+            final Map<String, List<PredicatePlan>> plans = new HashMap<>();
+            for (Map.Entry<String, List<Expression>> entry : expressions.entrySet()) {
+                final List<PredicatePlan> nodePlans = new ArrayList<>();
+                for (Expression expression : entry.getValue()) {
+                    nodePlans.add(PredicatePlan.create(version, entry.getKey(), expression, configuration));
+                }
+                plans.put(entry.getKey(), Collections.unmodifiableList(nodePlans));
+            }
+            nodeNameToPlans = Collections.unmodifiableMap(plans);
+
+            // always add fallback expression
+            addExpressionForNode(expressions, AST_ROOT, expr);
+            for (Map.Entry<String, List<Expression>> entry : expressions.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            nodeNameToXPaths = Collections.unmodifiableMap(expressions);
+        }
+
+        private static void addExpressionForNode(Map<String, List<Expression>> expressions, String nodeName,
+                                                 Expression expression) {
+            if (!expressions.containsKey(nodeName)) {
+                expressions.put(nodeName, new ArrayList<Expression>());
+            }
+            expressions.get(nodeName).add(expression);
+        }
+    }
+}
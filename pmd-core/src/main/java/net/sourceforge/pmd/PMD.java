@@ -23,6 +23,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.AstMemoryReport;
+import net.sourceforge.pmd.benchmark.AstMemoryTracker;
+import net.sourceforge.pmd.benchmark.JsonTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.MetricsExporter;
+import net.sourceforge.pmd.benchmark.MetricsRegistry;
+import net.sourceforge.pmd.benchmark.TextAstMemoryReportRenderer;
 import net.sourceforge.pmd.benchmark.TextTimingReportRenderer;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
@@ -228,6 +234,8 @@ public class PMD {
 
         final List<DataSource> files = getApplicableFiles(configuration, getApplicableLanguages(configuration, ruleSets));
 
+        final MetricsExporter metricsExporter = configuration.getMetricsFile() == null ? null
+                : MetricsExporter.start(MetricsRegistry.getInstance(), configuration.getMetricsFile(), configuration.getMetricsInterval());
         try {
             Renderer renderer;
             List<Renderer> renderers;
@@ -259,6 +267,9 @@ public class PMD {
             LOG.info(PMDCommandLineInterface.buildUsageText());
             return PMDCommandLineInterface.NO_ERRORS_STATUS;
         } finally {
+            if (metricsExporter != null) {
+                metricsExporter.close();
+            }
             /*
              * Make sure it's our own classloader before attempting to close it....
              * Maven + Jacoco provide us with a cloaseable classloader that if closed
@@ -515,6 +526,9 @@ public class PMD {
         if (params.isBenchmark()) {
             TimeTracker.startGlobalTracking();
         }
+        if (params.isAstMemory()) {
+            AstMemoryTracker.startGlobalTracking();
+        }
 
         int status = PMDCommandLineInterface.NO_ERRORS_STATUS;
         final PMDConfiguration configuration = params.toConfiguration();
@@ -545,8 +559,8 @@ public class PMD {
             if (params.isBenchmark()) {
                 final TimingReport timingReport = TimeTracker.stopGlobalTracking();
 
-                // TODO get specified report format from config
-                final TimingReportRenderer renderer = new TextTimingReportRenderer();
+                final TimingReportRenderer renderer = "json".equalsIgnoreCase(params.getBenchmarkFormat())
+                        ? new JsonTimingReportRenderer() : new TextTimingReportRenderer();
                 try {
                     // Don't close this writer, we don't want to close stderr
                     @SuppressWarnings("PMD.CloseResource")
@@ -556,6 +570,17 @@ public class PMD {
                     System.err.println(e.getMessage());
                 }
             }
+            if (params.isAstMemory()) {
+                final AstMemoryReport astMemoryReport = AstMemoryTracker.stopGlobalTracking();
+                try {
+                    // Don't close this writer, we don't want to close stderr
+                    @SuppressWarnings("PMD.CloseResource")
+                    final Writer writer = new OutputStreamWriter(System.err);
+                    new TextAstMemoryReportRenderer().render(astMemoryReport, writer);
+                } catch (final IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
         }
         return status;
     }
@@ -7,9 +7,12 @@ package net.sourceforge.pmd;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import net.sourceforge.pmd.benchmark.ProgressListener;
 import net.sourceforge.pmd.cache.AnalysisCache;
 import net.sourceforge.pmd.cache.FileAnalysisCache;
 import net.sourceforge.pmd.cache.NoopAnalysisCache;
@@ -76,6 +79,14 @@ import net.sourceforge.pmd.util.ClasspathClassLoader;
  * as randomizing the order of file processing. {@link #isStressTest()}</li>
  * <li>An indicator of whether PMD should log benchmarking information.
  * {@link #isBenchmark()}</li>
+ * <li>The file to which PMD periodically exports its metrics, and the
+ * interval of the exports. {@link #getMetricsFile()}</li>
+ * <li>The time budgets of a rule, above which the rule is not applied
+ * anymore. {@link #getRuleTimeBudget()}</li>
+ * <li>The fraction of the maximum heap that the files analyzed concurrently
+ * may use. {@link #getMemoryFraction()}</li>
+ * <li>The listeners of the progress of the analysis, including a progress
+ * bar and a progress file. {@link #getProgressListeners()}</li>
  * </ul>
  */
 public class PMDConfiguration extends AbstractConfiguration {
@@ -104,6 +115,14 @@ public class PMDConfiguration extends AbstractConfiguration {
 
     private boolean stressTest;
     private boolean benchmark;
+    private String metricsFile;
+    private int metricsInterval = 10;
+    private long ruleTimeBudget;
+    private long ruleFileTimeBudget;
+    private double memoryFraction;
+    private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+    private boolean progressBar;
+    private String progressFile;
     private AnalysisCache analysisCache = new NoopAnalysisCache();
     private boolean ignoreIncrementalAnalysis;
 
@@ -642,4 +661,211 @@ public class PMDConfiguration extends AbstractConfiguration {
     public boolean isIgnoreIncrementalAnalysis() {
         return ignoreIncrementalAnalysis;
     }
+
+
+    /**
+     * Returns the file to which the metrics of the analysis are periodically
+     * exported, see {@link net.sourceforge.pmd.benchmark.MetricsExporter}.
+     *
+     * @return The file, or null if the metrics are not exported
+     *
+     * @since 6.31.0
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+
+    /**
+     * Sets the file to which the metrics of the analysis are periodically
+     * exported. Files ending with {@code .json} are written in JSON, the
+     * others in the Prometheus text format.
+     *
+     * @param metricsFile The file, or null to not export the metrics
+     *
+     * @since 6.31.0
+     */
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+
+    /**
+     * Returns the interval between two exports of the metrics, in seconds.
+     * The default is 10 seconds.
+     *
+     * @since 6.31.0
+     */
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+
+    /**
+     * Sets the interval between two exports of the metrics, in seconds.
+     *
+     * @param metricsInterval A positive number of seconds
+     *
+     * @since 6.31.0
+     */
+    public void setMetricsInterval(int metricsInterval) {
+        this.metricsInterval = metricsInterval;
+    }
+
+
+    /**
+     * Returns the cumulative time budget of a rule, in milliseconds. A rule
+     * which spends more time than that over all the analyzed files is
+     * disabled for the rest of the analysis, and for the next ones if the
+     * analysis cache is enabled. The default is 0, which means that the time
+     * of the rules is not limited.
+     *
+     * @since 6.31.0
+     */
+    public long getRuleTimeBudget() {
+        return ruleTimeBudget;
+    }
+
+
+    /**
+     * Sets the cumulative time budget of a rule, in milliseconds.
+     *
+     * @param ruleTimeBudget The budget, or 0 not to limit the time of the rules
+     *
+     * @see #getRuleTimeBudget()
+     * @since 6.31.0
+     */
+    public void setRuleTimeBudget(long ruleTimeBudget) {
+        this.ruleTimeBudget = ruleTimeBudget;
+    }
+
+
+    /**
+     * Returns the time budget of a rule on a single file, in milliseconds.
+     * A rule which spends more time than that on a file is reported, and is
+     * not applied to this file anymore in the next analyses if the analysis
+     * cache is enabled. The default is 0, which means that the time of the
+     * rules is not limited.
+     *
+     * @since 6.31.0
+     */
+    public long getRuleFileTimeBudget() {
+        return ruleFileTimeBudget;
+    }
+
+
+    /**
+     * Sets the time budget of a rule on a single file, in milliseconds.
+     *
+     * @param ruleFileTimeBudget The budget, or 0 not to limit the time of the rules
+     *
+     * @see #getRuleFileTimeBudget()
+     * @since 6.31.0
+     */
+    public void setRuleFileTimeBudget(long ruleFileTimeBudget) {
+        this.ruleFileTimeBudget = ruleFileTimeBudget;
+    }
+
+
+    /**
+     * Returns the fraction of the maximum heap which the files analyzed
+     * concurrently may use. The memory needed by a file is estimated from
+     * its size and the language, and a thread only starts to analyze a file
+     * if the estimates of the files being analyzed stay below this fraction
+     * of the heap. The largest files are thus analyzed alone, and the small
+     * ones concurrently. The default is 0, which starts the analysis of a
+     * file as soon as a thread is available.
+     *
+     * @since 6.31.0
+     */
+    public double getMemoryFraction() {
+        return memoryFraction;
+    }
+
+
+    /**
+     * Sets the fraction of the maximum heap which the files analyzed
+     * concurrently may use.
+     *
+     * @param memoryFraction A fraction between 0 and 1, 0 not to limit the files analyzed concurrently
+     *
+     * @see #getMemoryFraction()
+     * @since 6.31.0
+     */
+    public void setMemoryFraction(double memoryFraction) {
+        this.memoryFraction = memoryFraction;
+    }
+
+
+    /**
+     * Returns the listeners notified of the progress of the analysis, in
+     * addition to the progress bar and the progress file.
+     *
+     * @return An unmodifiable list of the listeners
+     *
+     * @since 6.31.0
+     */
+    public List<ProgressListener> getProgressListeners() {
+        return Collections.unmodifiableList(progressListeners);
+    }
+
+
+    /**
+     * Adds a listener notified of the progress of the analysis.
+     *
+     * @param listener The listener, which must be thread-safe
+     *
+     * @since 6.31.0
+     */
+    public void addProgressListener(ProgressListener listener) {
+        progressListeners.add(listener);
+    }
+
+
+    /**
+     * Returns whether the progress of the analysis is displayed on the
+     * standard error, see {@link net.sourceforge.pmd.benchmark.ConsoleProgressBar}.
+     * The default is false.
+     *
+     * @since 6.31.0
+     */
+    public boolean isProgressBar() {
+        return progressBar;
+    }
+
+
+    /**
+     * Sets whether the progress of the analysis is displayed on the
+     * standard error.
+     *
+     * @since 6.31.0
+     */
+    public void setProgressBar(boolean progressBar) {
+        this.progressBar = progressBar;
+    }
+
+
+    /**
+     * Returns the file to which the progress of the analysis is written, as
+     * JSON lines, see {@link net.sourceforge.pmd.benchmark.JsonLinesProgressWriter}.
+     *
+     * @return The file, or null if the progress is not written
+     *
+     * @since 6.31.0
+     */
+    public String getProgressFile() {
+        return progressFile;
+    }
+
+
+    /**
+     * Sets the file to which the progress of the analysis is written.
+     *
+     * @param progressFile The file, or null to not write the progress
+     *
+     * @since 6.31.0
+     */
+    public void setProgressFile(String progressFile) {
+        this.progressFile = progressFile;
+    }
 }
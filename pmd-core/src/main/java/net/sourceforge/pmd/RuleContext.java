@@ -9,7 +9,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.rule.internal.RuleTimeBudget;
 
 /**
  * The RuleContext provides access to Rule processing state. This information
@@ -36,6 +38,10 @@ public class RuleContext {
     private LanguageVersion languageVersion;
     private final ConcurrentMap<String, Object> attributes;
     private boolean ignoreExceptions = true;
+    private RuleTimeBudget ruleTimeBudget;
+    private boolean sourceCodeParsed;
+    private boolean astSizeMeasured;
+    private long astRetainedBytes;
 
     /**
      * Default constructor.
@@ -54,6 +60,7 @@ public class RuleContext {
     public RuleContext(RuleContext ruleContext) {
         this.attributes = ruleContext.attributes;
         this.report.addListeners(ruleContext.getReport().getListeners());
+        this.ruleTimeBudget = ruleContext.ruleTimeBudget;
     }
 
     /**
@@ -259,4 +266,110 @@ public class RuleContext {
     public boolean isIgnoreExceptions() {
         return ignoreExceptions;
     }
+
+    /**
+     * Returns the time budget of the rules, shared between the RuleContext
+     * instances of an analysis.
+     *
+     * @return The budget, or <code>null</code> if the time of the rules is not limited.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public RuleTimeBudget getRuleTimeBudget() {
+        return ruleTimeBudget;
+    }
+
+    /**
+     * Sets the time budget of the rules.
+     *
+     * @param ruleTimeBudget
+     *            The budget, or <code>null</code> not to limit the time of the rules.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public void setRuleTimeBudget(RuleTimeBudget ruleTimeBudget) {
+        this.ruleTimeBudget = ruleTimeBudget;
+    }
+
+    /**
+     * Returns whether the current source code file was parsed, or its
+     * violations were taken from the analysis cache.
+     *
+     * @return <code>true</code> if the file was parsed, <code>false</code> otherwise.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public boolean isSourceCodeParsed() {
+        return sourceCodeParsed;
+    }
+
+    /**
+     * Sets whether the current source code file was parsed.
+     *
+     * @param sourceCodeParsed
+     *            <code>true</code> if the file was parsed.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public void setSourceCodeParsed(boolean sourceCodeParsed) {
+        this.sourceCodeParsed = sourceCodeParsed;
+    }
+
+    /**
+     * Returns whether the heap retained by the AST of the current source
+     * code file is estimated, once the rules have been applied to it.
+     *
+     * @return <code>true</code> if the AST is measured.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public boolean isAstSizeMeasured() {
+        return astSizeMeasured;
+    }
+
+    /**
+     * Sets whether the heap retained by the AST of the current source code
+     * file is estimated. The estimate walks the whole AST.
+     *
+     * @param astSizeMeasured
+     *            <code>true</code> to measure the AST.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public void setAstSizeMeasured(boolean astSizeMeasured) {
+        this.astSizeMeasured = astSizeMeasured;
+    }
+
+    /**
+     * Returns the estimated heap retained by the AST of the current source
+     * code file, see {@link #isAstSizeMeasured()}.
+     *
+     * @return The estimate in bytes, 0 if the AST was not measured.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public long getAstRetainedBytes() {
+        return astRetainedBytes;
+    }
+
+    /**
+     * Sets the estimated heap retained by the AST of the current source
+     * code file.
+     *
+     * @param astRetainedBytes
+     *            The estimate in bytes, 0 if the AST was not measured.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public void setAstRetainedBytes(long astRetainedBytes) {
+        this.astRetainedBytes = astRetainedBytes;
+    }
 }
@@ -20,6 +20,7 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
+import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
@@ -27,8 +28,12 @@ import net.sourceforge.pmd.cache.ChecksumAware;
 import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.lang.LanguageVersion;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.FusedTraversalRule;
+import net.sourceforge.pmd.lang.rule.RequiredNodesRule;
 import net.sourceforge.pmd.lang.rule.RuleReference;
 import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.lang.rule.internal.NodeKindPresence;
+import net.sourceforge.pmd.lang.rule.internal.RuleTimeBudget;
 import net.sourceforge.pmd.util.filter.Filter;
 import net.sourceforge.pmd.util.filter.Filters;
 
@@ -651,10 +656,13 @@ public class RuleSet implements ChecksumAware {
      *            the current context
      */
     public void apply(List<? extends Node> acuList, RuleContext ctx) {
+        final RuleTimeBudget budget = ctx.getRuleTimeBudget();
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULE)) {
             for (Rule rule : rules) {
-                if (!rule.isRuleChain() && applies(rule, ctx.getLanguageVersion())) {
+                if (!rule.isRuleChain() && !usesFusedTraversal(rule) && applies(rule, ctx.getLanguageVersion())
+                        && hasRequiredNodes(rule, acuList) && (budget == null || !budget.isSkipped(rule, ctx))) {
 
+                    final long start = budget == null ? 0 : System.nanoTime();
                     try (TimedOperation rto = TimeTracker.startOperation(TimedOperationCategory.RULE, rule.getName())) {
                         rule.apply(acuList, ctx);
                     } catch (RuntimeException e) {
@@ -669,6 +677,9 @@ public class RuleSet implements ChecksumAware {
                             throw e;
                         }
                     }
+                    if (budget != null) {
+                        budget.recordTime(rule, ctx, System.nanoTime() - start);
+                    }
                 }
             }
         }
@@ -695,6 +706,64 @@ public class RuleSet implements ChecksumAware {
                 && (max == null || max.compareTo(languageVersion) >= 0);
     }
 
+    /**
+     * Returns true if the given rule, or the rule it references, shares the
+     * traversal of the AST with other rules. Such rules are applied by the
+     * {@link RuleChain} instead of {@link #apply(List, RuleContext)}.
+     *
+     * @param rule The rule
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public static boolean usesFusedTraversal(Rule rule) {
+        Rule actualRule = rule;
+        while (actualRule instanceof RuleReference) {
+            actualRule = ((RuleReference) actualRule).getRule();
+        }
+        return actualRule instanceof FusedTraversalRule && ((FusedTraversalRule) actualRule).isFusedTraversal();
+    }
+
+    /**
+     * Returns the XPath names of the nodes of which at least one must be
+     * present in a file for the given rule, or the rule it references, to
+     * find violations. An empty list means the rule applies to every file.
+     *
+     * @param rule The rule
+     *
+     * @see RequiredNodesRule
+     * @since 6.31.0
+     */
+    @InternalApi
+    public static List<String> getRequiredNodes(Rule rule) {
+        Rule actualRule = rule;
+        while (actualRule instanceof RuleReference) {
+            actualRule = ((RuleReference) actualRule).getRule();
+        }
+        if (actualRule instanceof RequiredNodesRule) {
+            return ((RequiredNodesRule) actualRule).getRequiredNodes();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns false if the rule requires some nodes, and the rule chain
+     * recorded that none of them is present in the given ASTs.
+     */
+    private static boolean hasRequiredNodes(Rule rule, List<? extends Node> acuList) {
+        List<String> requiredNodes = getRequiredNodes(rule);
+        if (requiredNodes.isEmpty()) {
+            return true;
+        }
+        for (Node root : acuList) {
+            NodeKindPresence presence = NodeKindPresence.get(root);
+            if (presence == null || presence.containsAny(requiredNodes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Triggers the end lifecycle event on each rule in the ruleset. Some rules
      * perform a final summary calculation or cleanup in the end.
@@ -12,6 +12,8 @@ import java.util.Collections;
 import java.util.List;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.AstMemoryTracker;
+import net.sourceforge.pmd.benchmark.MetricsRegistry;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
@@ -83,16 +85,21 @@ public class SourceCodeProcessor {
      */
     public void processSourceCode(Reader sourceCode, RuleSets ruleSets, RuleContext ctx) throws PMDException {
         determineLanguage(ctx);
+        ctx.setSourceCodeParsed(false);
+        ctx.setAstRetainedBytes(0);
 
         // make sure custom XPath functions are initialized
         Initializer.initialize();
 
         // Coarse check to see if any RuleSet applies to file, will need to do a finer RuleSet specific check later
         if (ruleSets.applies(ctx.getSourceCodeFile())) {
-            if (isCacheUpToDate(ctx)) {
-                reportCachedRuleViolations(ctx);
-            } else {
-                processSourceCodeWithoutCache(sourceCode, ruleSets, ctx);
+            try (TimedOperation to = TimeTracker.startFileOperation(String.valueOf(ctx.getSourceCodeFile()),
+                    ctx.getLanguageVersion().getLanguage().getTerseName())) {
+                if (isCacheUpToDate(ctx)) {
+                    reportCachedRuleViolations(ctx);
+                } else {
+                    processSourceCodeWithoutCache(sourceCode, ruleSets, ctx);
+                }
             }
         }
     }
@@ -110,8 +117,11 @@ public class SourceCodeProcessor {
     private void processSourceCodeWithoutCache(final Reader sourceCode, final RuleSets ruleSets, final RuleContext ctx) throws PMDException {
         try {
             ruleSets.start(ctx);
+            ctx.setSourceCodeParsed(true);
             processSource(sourceCode, ruleSets, ctx);
         } catch (ParseException pe) {
+            MetricsRegistry.getInstance().counter("pmd_parse_failures_total", "Files which could not be parsed",
+                    "language", ctx.getLanguageVersion().getLanguage().getTerseName()).increment();
             configuration.getAnalysisCache().analysisFailed(ctx.getSourceCodeFile());
             throw new PMDException("Error while parsing " + ctx.getSourceCodeFile(), pe);
         } catch (Exception e) {
@@ -123,10 +133,18 @@ public class SourceCodeProcessor {
     }
 
     private Node parse(RuleContext ctx, Reader sourceCode, Parser parser) {
+        final String language = ctx.getLanguageVersion().getLanguage().getTerseName();
+        final long start = System.nanoTime();
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.PARSER)) {
             Node rootNode = parser.parse(String.valueOf(ctx.getSourceCodeFile()), sourceCode);
             ctx.getReport().suppress(parser.getSuppressMap());
             return rootNode;
+        } finally {
+            final MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.timer("pmd_parse_time_seconds_total", "Time spent parsing files", "language", language)
+                   .add(System.nanoTime() - start);
+            metrics.counter("pmd_parsed_files_total", "Files parsed, including the ones which failed", "language", language)
+                   .increment();
         }
     }
 
@@ -198,6 +216,12 @@ public class SourceCodeProcessor {
 
         List<Node> acus = Collections.singletonList(rootNode);
         ruleSets.apply(acus, ctx, language);
+
+        // once the rules ran, the AST has its XPath wrappers and user data
+        AstMemoryTracker.measure(language, ctx.getSourceCodeFile(), rootNode);
+        if (ctx.isAstSizeMeasured()) {
+            ctx.setAstRetainedBytes(AstMemoryTracker.estimateRetainedBytes(rootNode));
+        }
     }
 
     private void determineLanguage(RuleContext ctx) {
@@ -0,0 +1,122 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * A snapshot of the progress of an analysis, passed to the
+ * {@link ProgressListener}s.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class AnalysisProgress {
+
+    private final int totalFiles;
+    private final int startedFiles;
+    private final int finishedFiles;
+    private final int skippedFiles;
+    private final int failedFiles;
+    private final long violations;
+    private final long elapsedMillis;
+
+    public AnalysisProgress(int totalFiles, int startedFiles, int finishedFiles, int skippedFiles, int failedFiles,
+            long violations, long elapsedMillis) {
+        this.totalFiles = totalFiles;
+        this.startedFiles = startedFiles;
+        this.finishedFiles = finishedFiles;
+        this.skippedFiles = skippedFiles;
+        this.failedFiles = failedFiles;
+        this.violations = violations;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the number of files to analyze.
+     */
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * Returns the number of files whose analysis started, including the
+     * finished ones.
+     */
+    public int getStartedFiles() {
+        return startedFiles;
+    }
+
+    /**
+     * Returns the number of files whose analysis ended, including the
+     * skipped and failed ones.
+     */
+    public int getFinishedFiles() {
+        return finishedFiles;
+    }
+
+    /**
+     * Returns the number of files being analyzed.
+     */
+    public int getFilesInProgress() {
+        return startedFiles - finishedFiles;
+    }
+
+    /**
+     * Returns the number of files which were not parsed, because their
+     * violations were in the analysis cache, or no rule applies to them.
+     */
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+
+    /**
+     * Returns the number of files whose analysis failed.
+     */
+    public int getFailedFiles() {
+        return failedFiles;
+    }
+
+    /**
+     * Returns the number of violations found so far.
+     */
+    public long getViolations() {
+        return violations;
+    }
+
+    /**
+     * Returns the milliseconds elapsed since the analysis started.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the finished files per second since the analysis started.
+     */
+    public double getFilesPerSecond() {
+        return elapsedMillis == 0 ? 0 : finishedFiles * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Returns the estimated milliseconds until all the files are analyzed,
+     * at the throughput so far.
+     *
+     * @return The estimate, or -1 if no file is finished yet
+     */
+    public long getEstimatedRemainingMillis() {
+        if (finishedFiles == 0) {
+            return -1;
+        }
+        return (long) ((double) elapsedMillis * (totalFiles - finishedFiles) / finishedFiles);
+    }
+
+    /**
+     * Returns the share of the files which are finished, between 0 and 1.
+     */
+    public double getCompletion() {
+        return totalFiles == 0 ? 1 : (double) finishedFiles / totalFiles;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+/**
+ * The kinds of structures which make up the heap retained by an AST, see
+ * {@link AstMemoryTracker}.
+ *
+ * @since 6.31.0
+ */
+public enum AstMemoryCategory {
+    /** The nodes, and their arrays of children. */
+    NODES("Nodes"),
+    /** The tokens, including the special tokens of the comments. */
+    TOKENS("Tokens"),
+    /** The strings referenced by the nodes, e.g. their image. */
+    IMAGES("Images"),
+    /** The user data of the nodes, i.e. their {@link net.sourceforge.pmd.util.DataMap}. */
+    USER_DATA("User Data"),
+    /** The Saxon wrappers of the nodes, built by the XPath rules. */
+    XPATH_WRAPPERS("XPath Wrappers"),
+    /** The scopes, declarations and occurrences of the symbol table. */
+    SCOPES("Symbol Table Scopes"),
+    /** The data flow nodes and their variable accesses. */
+    DATA_FLOW("Data Flow Nodes"),
+    /**
+     * The other objects referenced by the nodes, e.g. the parser or the
+     * AST of a third-party compiler wrapped by the nodes.
+     */
+    OTHER("Other");
+
+    private final String displayName;
+
+    AstMemoryCategory(final String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String displayName() {
+        return displayName;
+    }
+}
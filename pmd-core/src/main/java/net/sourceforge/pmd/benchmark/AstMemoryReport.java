@@ -0,0 +1,190 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.sourceforge.pmd.benchmark.AstSizeEstimator.Footprint;
+
+/**
+ * The heap retained by the ASTs of the analyzed files, per language, as
+ * measured by the {@link AstMemoryTracker}.
+ *
+ * @since 6.31.0
+ */
+public final class AstMemoryReport {
+
+    private final Map<String, LanguageFootprint> languages;
+
+    /* package */ AstMemoryReport(final Map<String, LanguageFootprint> languages) {
+        this.languages = Collections.unmodifiableMap(new TreeMap<>(languages));
+    }
+
+    /**
+     * Returns the footprint of the ASTs of each language, by language name.
+     */
+    public Map<String, LanguageFootprint> getLanguages() {
+        return languages;
+    }
+
+    /**
+     * The heap retained by the ASTs of the files of a language. The sizes
+     * are in bytes.
+     */
+    public static final class LanguageFootprint {
+
+        private static final Comparator<Map.Entry<String, Long>> BY_BYTES = new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(final Map.Entry<String, Long> o1, final Map.Entry<String, Long> o2) {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        };
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong sourceBytes = new AtomicLong();
+        private final AtomicLong objects = new AtomicLong();
+        private final AtomicLongArray bytes = new AtomicLongArray(AstMemoryCategory.values().length);
+        private final DurationHistogram totalHistogram = new DurationHistogram();
+        private final DurationHistogram[] histograms = new DurationHistogram[AstMemoryCategory.values().length];
+        private final ConcurrentMap<String, AtomicLong> bytesByClass = new ConcurrentHashMap<>();
+        private String largestFile;
+        private long largestFileBytes;
+
+        /* package */ LanguageFootprint() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new DurationHistogram();
+            }
+        }
+
+        /* package */ void add(final String fileName, final long fileSourceBytes, final Footprint footprint) {
+            files.incrementAndGet();
+            sourceBytes.addAndGet(fileSourceBytes);
+            objects.addAndGet(footprint.objects);
+            for (int i = 0; i < footprint.bytes.length; i++) {
+                bytes.addAndGet(i, footprint.bytes[i]);
+                histograms[i].record(footprint.bytes[i]);
+            }
+            final long total = footprint.getTotalBytes();
+            totalHistogram.record(total);
+
+            for (final Map.Entry<String, Long> entry : footprint.bytesByClass.entrySet()) {
+                AtomicLong classBytes = bytesByClass.get(entry.getKey());
+                if (classBytes == null) {
+                    final AtomicLong newBytes = new AtomicLong();
+                    classBytes = bytesByClass.putIfAbsent(entry.getKey(), newBytes);
+                    if (classBytes == null) {
+                        classBytes = newBytes;
+                    }
+                }
+                classBytes.addAndGet(entry.getValue());
+            }
+
+            synchronized (this) {
+                if (total > largestFileBytes) {
+                    largestFile = fileName;
+                    largestFileBytes = total;
+                }
+            }
+        }
+
+        public long getFiles() {
+            return files.get();
+        }
+
+        /**
+         * Returns the size of the analyzed source files, or 0 if it is
+         * unknown, e.g. for sources which are not files.
+         */
+        public long getSourceBytes() {
+            return sourceBytes.get();
+        }
+
+        /**
+         * Returns the number of objects retained by the ASTs.
+         */
+        public long getObjects() {
+            return objects.get();
+        }
+
+        /**
+         * Returns the heap retained by the ASTs of all the files.
+         */
+        public long getTotalBytes() {
+            long total = 0;
+            for (int i = 0; i < bytes.length(); i++) {
+                total += bytes.get(i);
+            }
+            return total;
+        }
+
+        /**
+         * Returns the heap retained by the given category of structures,
+         * for all the files.
+         */
+        public long getBytes(final AstMemoryCategory category) {
+            return bytes.get(category.ordinal());
+        }
+
+        /**
+         * Returns an estimate of the given percentile of the heap retained
+         * by the AST of a file.
+         *
+         * @param percentile A percentile between 0 and 100
+         */
+        public long getPercentile(final double percentile) {
+            return totalHistogram.getPercentile(percentile);
+        }
+
+        /**
+         * Returns an estimate of the given percentile of the heap retained
+         * by the given category of structures of a file.
+         *
+         * @param category   The category
+         * @param percentile A percentile between 0 and 100
+         */
+        public long getPercentile(final AstMemoryCategory category, final double percentile) {
+            return histograms[category.ordinal()].getPercentile(percentile);
+        }
+
+        /**
+         * Returns the file with the largest AST.
+         */
+        public synchronized String getLargestFile() {
+            return largestFile;
+        }
+
+        /**
+         * Returns the heap retained by the largest AST.
+         */
+        public synchronized long getLargestFileBytes() {
+            return largestFileBytes;
+        }
+
+        /**
+         * Returns the classes whose instances retain the most heap, with
+         * the heap they retain, largest first.
+         *
+         * @param count The maximum number of classes to return
+         */
+        public List<Map.Entry<String, Long>> getLargestClasses(final int count) {
+            final List<Map.Entry<String, Long>> classes = new ArrayList<>(bytesByClass.size());
+            for (final Map.Entry<String, AtomicLong> entry : bytesByClass.entrySet()) {
+                classes.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get()));
+            }
+            Collections.sort(classes, BY_BYTES);
+            return classes.subList(0, Math.min(count, classes.size()));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.benchmark.AstMemoryReport.LanguageFootprint;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Measures the heap retained by the AST of each analyzed file, once all the
+ * rules have been applied to it, and aggregates the measurements per
+ * language. This shows which structures to target to reduce the memory
+ * usage, and the heap needed by each thread of an analysis, which holds an
+ * AST at a time.
+ *
+ * <p>The measurement walks the objects reachable from the root of each AST,
+ * and slows down the analysis noticeably: it is only done between
+ * {@link #startGlobalTracking()} and {@link #stopGlobalTracking()}, e.g.
+ * with the {@code -astmemory} command line option.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class AstMemoryTracker {
+
+    private static final AtomicReference<ConcurrentMap<String, LanguageFootprint>> TRACKED = new AtomicReference<>();
+
+    private AstMemoryTracker() {
+        throw new AssertionError("Can't instantiate utility class");
+    }
+
+    /**
+     * Starts measuring the ASTs of the analyzed files.
+     */
+    public static void startGlobalTracking() {
+        TRACKED.set(new ConcurrentHashMap<String, LanguageFootprint>());
+    }
+
+    /**
+     * Stops measuring the ASTs, and returns the measurements since
+     * {@link #startGlobalTracking()}.
+     *
+     * @return The measurements, empty if the tracking wasn't started
+     */
+    public static AstMemoryReport stopGlobalTracking() {
+        final ConcurrentMap<String, LanguageFootprint> tracked = TRACKED.getAndSet(null);
+        return new AstMemoryReport(tracked == null ? new ConcurrentHashMap<String, LanguageFootprint>() : tracked);
+    }
+
+    /**
+     * Returns true if the ASTs are being measured.
+     */
+    public static boolean isTracking() {
+        return TRACKED.get() != null;
+    }
+
+    /**
+     * Estimates the heap retained by the given AST, whether the tracking is
+     * started or not. The estimate walks the whole AST, and is only worth it
+     * on a sample of the files.
+     *
+     * @param root The root of the AST
+     *
+     * @return The estimated bytes
+     */
+    public static long estimateRetainedBytes(final Node root) {
+        return AstSizeEstimator.estimate(root).getTotalBytes();
+    }
+
+    /**
+     * Measures the AST of the given file, if the tracking is started.
+     *
+     * @param language   The language of the file
+     * @param sourceFile The file, used to report the largest one and its size
+     * @param root       The root of the AST of the file
+     */
+    public static void measure(final Language language, final File sourceFile, final Node root) {
+        final ConcurrentMap<String, LanguageFootprint> tracked = TRACKED.get();
+        if (tracked == null) {
+            return;
+        }
+
+        LanguageFootprint footprint = tracked.get(language.getName());
+        if (footprint == null) {
+            final LanguageFootprint newFootprint = new LanguageFootprint();
+            footprint = tracked.putIfAbsent(language.getName(), newFootprint);
+            if (footprint == null) {
+                footprint = newFootprint;
+            }
+        }
+        footprint.add(String.valueOf(sourceFile), sourceFile == null ? 0 : sourceFile.length(),
+                      AstSizeEstimator.estimate(root));
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.ast.GenericToken;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.dfa.DataFlowNode;
+import net.sourceforge.pmd.lang.symboltable.NameDeclaration;
+import net.sourceforge.pmd.lang.symboltable.NameOccurrence;
+import net.sourceforge.pmd.lang.symboltable.Scope;
+import net.sourceforge.pmd.util.DataMap;
+
+import net.sf.saxon.om.NodeInfo;
+
+/**
+ * Estimates the heap retained by an AST, by walking the graph of the
+ * objects reachable from its root. The sizes are the ones of a 64-bit JVM
+ * with compressed references, the default below 32 GB of heap. The walk
+ * doesn't follow the objects which are shared by all the ASTs, e.g. the
+ * classes, the Saxon configuration, or the type definitions of the Java
+ * type resolution.
+ *
+ * <p>Each object is attributed to the {@link AstMemoryCategory} of its
+ * class if it has one, otherwise to the category of the object it was
+ * reached from. The fields of the objects of the JDK are never accessed,
+ * as they are encapsulated since Java 9: the collections are accounted for
+ * with estimates of their internal structure, and their elements are
+ * walked, the other objects with their shallow size. The estimates are
+ * thus the same whatever the version of the JDK, and don't print illegal
+ * reflective access warnings.
+ */
+/* package */ final class AstSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+    /** Estimate of a node of a linked or hashed collection, e.g. a HashMap.Node. */
+    private static final int COLLECTION_NODE = 32;
+
+    /** The strings store their characters in a byte per character if they can, since Java 9. */
+    private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version", "1.").startsWith("1.");
+
+    private static final String[] SHARED_PACKAGES = {
+        "java.lang.reflect.",
+        "java.lang.invoke.",
+        "net.sf.saxon.",
+        "net.sourceforge.pmd.lang.java.typeresolution.typedefinition.",
+    };
+
+    private static final ConcurrentMap<Class<?>, ClassLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private AstSizeEstimator() {
+        // utility class
+    }
+
+    /**
+     * Returns the estimated footprint of the AST of the given root node.
+     */
+    /* package */ static Footprint estimate(final Node root) {
+        final Footprint footprint = new Footprint();
+        final Map<Object, AstMemoryCategory> visited = new IdentityHashMap<>();
+        final Deque<Object> pending = new ArrayDeque<>();
+        visited.put(root, AstMemoryCategory.NODES);
+        pending.push(root);
+
+        final List<Object> references = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            final Object object = pending.pop();
+            final AstMemoryCategory category = visited.get(object);
+            references.clear();
+            footprint.add(object.getClass(), category, sizeOf(object, references));
+
+            for (final Object reference : references) {
+                if (reference != null && !visited.containsKey(reference) && !isShared(reference)) {
+                    visited.put(reference, categoryOf(reference, category));
+                    pending.push(reference);
+                }
+            }
+        }
+        return footprint;
+    }
+
+    private static AstMemoryCategory categoryOf(final Object object, final AstMemoryCategory referrer) {
+        if (object instanceof Node) {
+            return AstMemoryCategory.NODES;
+        } else if (object instanceof GenericToken) {
+            return AstMemoryCategory.TOKENS;
+        } else if (object instanceof DataMap) {
+            return AstMemoryCategory.USER_DATA;
+        } else if (object instanceof NodeInfo) {
+            return AstMemoryCategory.XPATH_WRAPPERS;
+        } else if (object instanceof Scope || object instanceof NameDeclaration || object instanceof NameOccurrence) {
+            return AstMemoryCategory.SCOPES;
+        } else if (object instanceof DataFlowNode) {
+            return AstMemoryCategory.DATA_FLOW;
+        }
+
+        if (referrer == AstMemoryCategory.NODES) {
+            if (object instanceof String) {
+                return AstMemoryCategory.IMAGES;
+            }
+            // e.g. the arrays of children are part of the nodes, but not the parser
+            final Class<?> type = object.getClass();
+            return type.isArray() || isJdk(type) ? AstMemoryCategory.NODES : AstMemoryCategory.OTHER;
+        }
+        return referrer;
+    }
+
+    private static boolean isShared(final Object object) {
+        if (object instanceof Class || object instanceof ClassLoader || object instanceof Thread
+                || object instanceof Enum || object instanceof Language || object instanceof LanguageVersion) {
+            return true;
+        }
+        final String name = object.getClass().getName();
+        for (final String sharedPackage : SHARED_PACKAGES) {
+            if (name.startsWith(sharedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJdk(final Class<?> type) {
+        final String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    /**
+     * Returns the size of the given object, and adds the objects it
+     * references to the given list.
+     */
+    private static long sizeOf(final Object object, final List<Object> references) {
+        final Class<?> type = object.getClass();
+        if (type.isArray()) {
+            final int length = Array.getLength(object);
+            final Class<?> componentType = type.getComponentType();
+            if (!componentType.isPrimitive()) {
+                for (final Object element : (Object[]) object) {
+                    references.add(element);
+                }
+                return align(ARRAY_HEADER + (long) length * REFERENCE);
+            }
+            return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        }
+
+        final ClassLayout layout = layoutOf(type);
+        if (object instanceof String) {
+            // the characters are not accessible since Java 9
+            final String string = (String) object;
+            return layout.shallowSize + align(ARRAY_HEADER + (long) string.length() * charSize(string));
+        }
+        if (layout.accessible) {
+            for (final Field field : layout.references) {
+                try {
+                    references.add(field.get(object));
+                } catch (final IllegalAccessException ignored) {
+                    // made accessible with the layout
+                }
+            }
+            return layout.shallowSize;
+        }
+
+        if (object instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) object;
+            references.addAll(collection);
+            return layout.shallowSize + align(ARRAY_HEADER + (long) collection.size() * REFERENCE)
+                + (collection instanceof List ? 0 : (long) collection.size() * COLLECTION_NODE);
+        } else if (object instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) object;
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                references.add(entry.getKey());
+                references.add(entry.getValue());
+            }
+            return layout.shallowSize + align(ARRAY_HEADER + (long) map.size() * REFERENCE)
+                + (long) map.size() * COLLECTION_NODE;
+        }
+        return layout.shallowSize;
+    }
+
+    private static int charSize(final String string) {
+        if (COMPACT_STRINGS) {
+            for (int i = 0; i < string.length(); i++) {
+                if (string.charAt(i) > 0xFF) {
+                    return 2;
+                }
+            }
+            return 1;
+        }
+        return 2;
+    }
+
+    private static ClassLayout layoutOf(final Class<?> type) {
+        ClassLayout layout = LAYOUTS.get(type);
+        if (layout == null) {
+            layout = new ClassLayout(type);
+            LAYOUTS.putIfAbsent(type, layout);
+        }
+        return layout;
+    }
+
+    private static int primitiveSize(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(final long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * The shallow size of the instances of a class, and its fields which
+     * reference other objects.
+     */
+    private static final class ClassLayout {
+
+        private final long shallowSize;
+        private final List<Field> references = new ArrayList<>();
+        private final boolean accessible;
+
+        ClassLayout(final Class<?> type) {
+            long size = OBJECT_HEADER;
+            for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+                for (final Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        size += primitiveSize(field.getType());
+                    } else {
+                        size += REFERENCE;
+                        references.add(field);
+                    }
+                }
+            }
+            this.shallowSize = align(size);
+
+            // the JDK classes are encapsulated since Java 9, and accessing
+            // them anyway gives results and warnings which depend on the JDK
+            boolean canAccess = !isJdk(type);
+            if (canAccess) {
+                try {
+                    for (final Field field : references) {
+                        field.setAccessible(true);
+                    }
+                } catch (final RuntimeException e) {
+                    // e.g. a security manager
+                    canAccess = false;
+                }
+            }
+            this.accessible = canAccess;
+        }
+    }
+
+    /**
+     * The estimated footprint of an AST.
+     */
+    /* package */ static final class Footprint {
+
+        /* package */ final long[] bytes = new long[AstMemoryCategory.values().length];
+        /* package */ final Map<String, Long> bytesByClass = new HashMap<>();
+        /* package */ long objects;
+
+        /* package */ long getTotalBytes() {
+            long total = 0;
+            for (final long categoryBytes : bytes) {
+                total += categoryBytes;
+            }
+            return total;
+        }
+
+        private void add(final Class<?> type, final AstMemoryCategory category, final long size) {
+            bytes[category.ordinal()] += size;
+            objects++;
+            final String className = type.isArray() ? type.getComponentType().getName() + "[]" : type.getName();
+            final Long classBytes = bytesByClass.get(className);
+            bytesByClass.put(className, classBytes == null ? size : classBytes + size);
+        }
+    }
+}
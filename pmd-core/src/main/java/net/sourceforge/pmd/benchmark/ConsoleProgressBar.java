@@ -0,0 +1,134 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * Displays the progress of an analysis on a console. On a terminal, a
+ * single line is redrawn, a few times per second. Otherwise, e.g. in the
+ * log of a CI build, a line is printed every few seconds.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public class ConsoleProgressBar implements ProgressListener {
+
+    private static final int BAR_WIDTH = 30;
+    private static final long TERMINAL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final PrintStream out;
+    private final boolean terminal;
+    private final long intervalNanos;
+    private final AtomicLong nextDrawNanos;
+    private int lastLength;
+
+    /**
+     * Creates a progress bar.
+     *
+     * @param out      The stream to print to
+     * @param terminal Whether the stream is displayed on a terminal, which
+     *                 supports redrawing the line
+     */
+    public ConsoleProgressBar(PrintStream out, boolean terminal) {
+        this.out = out;
+        this.terminal = terminal;
+        this.intervalNanos = terminal ? TERMINAL_INTERVAL_NANOS : LOG_INTERVAL_NANOS;
+        this.nextDrawNanos = new AtomicLong(System.nanoTime() + intervalNanos);
+    }
+
+    /**
+     * Creates a progress bar printing to the standard error, redrawn if
+     * the JVM runs on a terminal.
+     */
+    public static ConsoleProgressBar forStandardError() {
+        return new ConsoleProgressBar(System.err, System.console() != null);
+    }
+
+    @Override
+    public void analysisStarted(AnalysisProgress progress) {
+        draw(progress);
+    }
+
+    @Override
+    public void fileStarted(String fileName, AnalysisProgress progress) {
+        drawIfDue(progress);
+    }
+
+    @Override
+    public void fileFinished(String fileName, Outcome outcome, int violations, AnalysisProgress progress) {
+        drawIfDue(progress);
+    }
+
+    @Override
+    public void analysisFinished(AnalysisProgress progress) {
+        draw(progress);
+        if (terminal) {
+            synchronized (out) {
+                out.println();
+            }
+        }
+    }
+
+    private void drawIfDue(AnalysisProgress progress) {
+        final long now = System.nanoTime();
+        final long next = nextDrawNanos.get();
+        // a single thread draws, the others go on with their file
+        if (now - next >= 0 && nextDrawNanos.compareAndSet(next, now + intervalNanos)) {
+            draw(progress);
+        }
+    }
+
+    private void draw(AnalysisProgress progress) {
+        final String line = format(progress);
+        synchronized (out) {
+            if (terminal) {
+                // erase the end of a longer previous line
+                out.print('\r' + StringUtils.rightPad(line, lastLength));
+                out.flush();
+                lastLength = line.length();
+            } else {
+                out.println(line);
+            }
+        }
+    }
+
+    /* package */ static String format(AnalysisProgress progress) {
+        final int filled = (int) (progress.getCompletion() * BAR_WIDTH);
+        final StringBuilder sb = new StringBuilder(160)
+            .append('[')
+            .append(StringUtils.repeat('=', filled))
+            .append(StringUtils.repeat(' ', BAR_WIDTH - filled))
+            .append("] ")
+            .append(StringUtils.leftPad(String.valueOf((int) (progress.getCompletion() * 100)), 3)).append("% ")
+            .append(progress.getFinishedFiles()).append('/').append(progress.getTotalFiles()).append(" files, ")
+            .append(progress.getFilesInProgress()).append(" in progress, ")
+            .append(progress.getSkippedFiles()).append(" skipped, ")
+            .append(progress.getFailedFiles()).append(" failed, ")
+            .append(progress.getViolations()).append(" violations, ")
+            .append(String.format(Locale.ROOT, "%.1f", progress.getFilesPerSecond())).append(" files/s");
+        final long remainingMillis = progress.getEstimatedRemainingMillis();
+        if (remainingMillis >= 0 && progress.getFinishedFiles() < progress.getTotalFiles()) {
+            sb.append(", ETA ").append(formatDuration(remainingMillis));
+        }
+        return sb.toString();
+    }
+
+    private static String formatDuration(long millis) {
+        final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis);
+        if (seconds >= 3600) {
+            return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+}
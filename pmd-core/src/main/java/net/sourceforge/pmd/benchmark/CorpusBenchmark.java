@@ -0,0 +1,356 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.benchmark.CorpusBenchmarkResult.Iteration;
+import net.sourceforge.pmd.benchmark.TimeTracker.TimedResult;
+import net.sourceforge.pmd.cli.PMDCommandLineInterface;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+
+/**
+ * Runs PMD several times over a corpus of source files, and measures the
+ * throughput, the time of each phase, the peak heap usage and the GC time.
+ * The peak heap usage is sampled every few milliseconds.
+ * The result can be stored as a baseline, and compared with the baseline
+ * on a later run, e.g. to evaluate a new version of PMD on a local corpus
+ * before rolling it out. The comparison fails if the wall clock time or
+ * the time of a phase regresses by more than a tolerance.
+ *
+ * <p>This is the {@code corpus-benchmark} application of the binary
+ * distribution:
+ * <pre>
+ * run.sh corpus-benchmark -d src/main/java -R rulesets.xml -output baseline.json
+ * run.sh corpus-benchmark -d src/main/java -R rulesets.xml -baseline baseline.json -tolerance 10
+ * </pre>
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class CorpusBenchmark {
+
+    /** Exit status of a run which found regressions. */
+    public static final int REGRESSION_STATUS = 4;
+
+    private static final Logger LOG = Logger.getLogger(CorpusBenchmark.class.getName());
+
+    @Parameter(names = { "-dir", "-d" }, description = "Root directory of the corpus.", required = true)
+    private String dir;
+
+    @Parameter(names = { "-rulesets", "-R" }, description = "Comma separated list of ruleset names to use.",
+               required = true)
+    private String rulesets;
+
+    @Parameter(names = { "-threads", "-t" }, description = "Sets the number of threads used by PMD.")
+    private int threads = 1;
+
+    @Parameter(names = "-auxclasspath", description = "Auxiliary classpath of the corpus, for type resolution.")
+    private String auxclasspath;
+
+    @Parameter(names = "-warmup", description = "Number of runs which are not measured, to warm up the JVM.")
+    private int warmup = 1;
+
+    @Parameter(names = "-iterations", description = "Number of measured runs.")
+    private int iterations = 5;
+
+    @Parameter(names = "-baseline", description = "Result of an earlier run to compare with.")
+    private String baseline;
+
+    @Parameter(names = "-tolerance", description = "Slowdown of a phase, in percent of the baseline, "
+            + "above which the phase regresses.")
+    private double tolerance = 10;
+
+    @Parameter(names = "-mintime", description = "Phases shorter than this, in milliseconds in the baseline, "
+            + "are not compared.")
+    private long minimumMillis = 100;
+
+    @Parameter(names = { "-output", "-o" }, description = "File to write the result to, in JSON.")
+    private String output;
+
+    @Parameter(names = { "-help", "-h", "-H" }, description = "Display help on usage.", help = true)
+    private boolean help;
+
+    private CorpusBenchmark() {
+        // configured by the command line
+    }
+
+    public static void main(String[] args) {
+        PMDCommandLineInterface.setStatusCodeOrExit(run(args, System.out));
+    }
+
+    /**
+     * Parses the command line arguments and runs the benchmark. Returns the
+     * exit status without exiting the VM.
+     *
+     * @param args Command line arguments
+     * @param out  Stream to print the results to
+     *
+     * @return 0 if there is no regression, {@link #REGRESSION_STATUS} if a
+     *         phase regressed, and 1 in case of error
+     */
+    public static int run(String[] args, PrintStream out) {
+        final CorpusBenchmark benchmark = new CorpusBenchmark();
+        final JCommander jcommander = new JCommander(benchmark);
+        jcommander.setProgramName("corpus-benchmark");
+        try {
+            jcommander.parse(args);
+            if (benchmark.iterations < 1 || benchmark.warmup < 0 || benchmark.tolerance < 0) {
+                throw new ParameterException("The iterations must be positive, "
+                                                 + "the warmup and the tolerance must not be negative");
+            }
+        } catch (ParameterException e) {
+            System.err.println(e.getMessage());
+            jcommander.usage();
+            return PMDCommandLineInterface.ERROR_STATUS;
+        }
+        if (benchmark.help) {
+            jcommander.usage();
+            return PMDCommandLineInterface.NO_ERRORS_STATUS;
+        }
+
+        try {
+            return benchmark.execute(out);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return PMDCommandLineInterface.ERROR_STATUS;
+        }
+    }
+
+    private int execute(PrintStream out) throws IOException {
+        // read the baseline first, not to run for nothing
+        final CorpusBenchmarkResult baselineResult = baseline == null ? null : readResult(new File(baseline));
+
+        // the report is discarded, it would close System.out
+        final File reportFile = File.createTempFile("pmd-corpus-benchmark", ".txt");
+        final List<Iteration> measured = new ArrayList<>();
+        try {
+            for (int i = 0; i < warmup; i++) {
+                LOG.info("Warmup run " + (i + 1) + "/" + warmup);
+                runOnce(reportFile);
+            }
+            for (int i = 0; i < iterations; i++) {
+                LOG.info("Measured run " + (i + 1) + "/" + iterations);
+                measured.add(runOnce(reportFile));
+            }
+        } finally {
+            Files.deleteIfExists(reportFile.toPath());
+        }
+        final CorpusBenchmarkResult result = CorpusBenchmarkResult.of(measured);
+
+        if (output != null) {
+            try (Writer writer = Files.newBufferedWriter(new File(output).toPath(), StandardCharsets.UTF_8)) {
+                result.writeJson(writer);
+            }
+        }
+
+        printResult(result, baselineResult, out);
+        if (baselineResult == null) {
+            return PMDCommandLineInterface.NO_ERRORS_STATUS;
+        }
+        if (baselineResult.getFiles() != result.getFiles()) {
+            LOG.warning("The baseline analyzed " + baselineResult.getFiles() + " files, this run "
+                            + result.getFiles() + " files: the corpus has changed");
+        }
+
+        final List<String> regressions = result.findRegressions(baselineResult, tolerance / 100, minimumMillis);
+        if (regressions.isEmpty()) {
+            out.println("No regression above " + tolerance + "%");
+            return PMDCommandLineInterface.NO_ERRORS_STATUS;
+        }
+        out.println("Regressions above " + tolerance + "%:");
+        for (final String regression : regressions) {
+            out.println("  " + regression);
+        }
+        return REGRESSION_STATUS;
+    }
+
+    private static CorpusBenchmarkResult readResult(File file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return CorpusBenchmarkResult.readJson(reader);
+        }
+    }
+
+    private PMDConfiguration newConfiguration(File reportFile) throws IOException {
+        final PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setInputPaths(dir);
+        configuration.setRuleSets(rulesets);
+        configuration.setThreads(threads);
+        configuration.setReportFormat("empty");
+        configuration.setReportFile(reportFile.getPath());
+        configuration.setIgnoreIncrementalAnalysis(true);
+        if (auxclasspath != null) {
+            configuration.prependClasspath(auxclasspath);
+        }
+        return configuration;
+    }
+
+    @SuppressWarnings("PMD.DoNotCallGarbageCollectionExplicitly")
+    private Iteration runOnce(File reportFile) throws IOException {
+        final PMDConfiguration configuration = newConfiguration(reportFile);
+        final MetricsRegistry.Counter processedFiles = MetricsRegistry.getInstance()
+            .counter("pmd_files_processed_total", "Files analyzed, including the ones which failed");
+
+        // start from a clean heap, so that the peak is the one of this run
+        System.gc();
+        final HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+        final long gcMillisBefore = getGcMillis();
+        final long filesBefore = processedFiles.get();
+
+        TimeTracker.startGlobalTracking();
+        final TimingReport report;
+        final long peakHeapBytes;
+        try {
+            PMD.doPMD(configuration);
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+            peakHeapBytes = heapSampler.stopSampling();
+        }
+
+        final Map<TimedOperationCategory, Long> phases = new EnumMap<>(TimedOperationCategory.class);
+        for (final TimedOperationCategory category : TimedOperationCategory.values()) {
+            final long nanos = getTotalNanos(report, category);
+            if (nanos > 0) {
+                phases.put(category, nanos / 1000000);
+            }
+        }
+        return new Iteration(processedFiles.get() - filesBefore, report.getWallClockMillis(),
+                             getGcMillis() - gcMillisBefore, peakHeapBytes, phases);
+    }
+
+    /**
+     * Returns the time spent in the given category. The labeled operations,
+     * e.g. the rules, mostly run inside an unlabeled operation of the same
+     * category, which already includes their time: only the time of the
+     * labeled operations which ran outside of it is added, e.g. the fused rules.
+     */
+    /* package */ static long getTotalNanos(TimingReport report, TimedOperationCategory category) {
+        long nanos = 0;
+        final TimedResult unlabeled = report.getUnlabeledMeasurements(category);
+        if (unlabeled != null) {
+            nanos += unlabeled.totalTimeNanos.get();
+        }
+        for (final TimedResult labeled : report.getLabeledMeasurements(category).values()) {
+            nanos += labeled.unnestedTimeNanos.get();
+        }
+        return nanos;
+    }
+
+    /**
+     * Samples the used heap as a whole, every few milliseconds. The peaks
+     * of the heap pools are reached at different times, so their sum would
+     * overstate the peak, and depend on the layout of the pools of the GC.
+     */
+    private static final class HeapSampler extends Thread {
+        private static final long INTERVAL_MILLIS = 5;
+
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private volatile boolean running = true;
+        private volatile long peakBytes;
+
+        HeapSampler() {
+            super("PMD corpus benchmark heap sampler");
+            setDaemon(true);
+            sample();
+        }
+
+        private void sample() {
+            peakBytes = Math.max(peakBytes, memory.getHeapMemoryUsage().getUsed());
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Stops the sampling, and returns the peak of the used heap.
+         */
+        long stopSampling() {
+            running = false;
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sample();
+            return peakBytes;
+        }
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static void printResult(CorpusBenchmarkResult result, CorpusBenchmarkResult baseline, PrintStream out) {
+        out.println(String.format(Locale.ROOT, "Analyzed %d files, median of %d runs", result.getFiles(),
+                                  result.getIterations()));
+        final String format = "%-30s %14s %14s %10s";
+        out.println(String.format(Locale.ROOT, format, "", "Current", "Baseline", "Change"));
+        printRow(format, "Wall Clock Time (ms)", result.getWallClockMillis(),
+                 baseline == null ? null : baseline.getWallClockMillis(), out);
+        printRow(format, "Files per Second", result.getFilesPerSecond(),
+                 baseline == null ? null : baseline.getFilesPerSecond(), out);
+        printRow(format, "GC Time (ms)", result.getGcMillis(),
+                 baseline == null ? null : baseline.getGcMillis(), out);
+        printRow(format, "Peak Heap (MB)", result.getPeakHeapBytes() / (1024.0 * 1024.0),
+                 baseline == null ? null : baseline.getPeakHeapBytes() / (1024.0 * 1024.0), out);
+        for (final TimedOperationCategory category : TimedOperationCategory.values()) {
+            final Long current = result.getPhaseMillis().get(category.name());
+            final Long previous = baseline == null ? null : baseline.getPhaseMillis().get(category.name());
+            if (current != null || previous != null) {
+                printRow(format, category.displayName() + " (ms)", current, previous, out);
+            }
+        }
+    }
+
+    private static void printRow(String format, String label, Number current, Number baseline, PrintStream out) {
+        final String change = current == null || baseline == null ? ""
+                : CorpusBenchmarkResult.formatChange(current.doubleValue(), baseline.doubleValue());
+        out.println(String.format(Locale.ROOT, format, label, formatNumber(current), formatNumber(baseline), change));
+    }
+
+    private static String formatNumber(Number number) {
+        if (number == null) {
+            return "-";
+        }
+        return number instanceof Double ? String.format(Locale.ROOT, "%.1f", number.doubleValue())
+                : String.valueOf(number);
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.annotation.Experimental;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * The result of a {@link CorpusBenchmark}: the medians over the measured
+ * iterations of the wall clock time, of the GC time and of the time of
+ * each phase, and the peak heap usage. Results are stored as JSON, to be
+ * used as the baseline of a later run.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class CorpusBenchmarkResult {
+
+    private final String pmdVersion;
+    private final int iterations;
+    private final long files;
+    private final long wallClockMillis;
+    private final long gcMillis;
+    private final long peakHeapBytes;
+    private final Map<String, Long> phaseMillis;
+
+    /* package */ CorpusBenchmarkResult(String pmdVersion, int iterations, long files, long wallClockMillis,
+                                        long gcMillis, long peakHeapBytes, Map<String, Long> phaseMillis) {
+        this.pmdVersion = pmdVersion;
+        this.iterations = iterations;
+        this.files = files;
+        this.wallClockMillis = wallClockMillis;
+        this.gcMillis = gcMillis;
+        this.peakHeapBytes = peakHeapBytes;
+        this.phaseMillis = Collections.unmodifiableMap(new LinkedHashMap<>(phaseMillis));
+    }
+
+    /**
+     * Summarizes the measured iterations.
+     */
+    /* package */ static CorpusBenchmarkResult of(List<Iteration> measured) {
+        final List<Long> wallClock = new ArrayList<>();
+        final List<Long> gc = new ArrayList<>();
+        final Map<TimedOperationCategory, List<Long>> phases = new EnumMap<>(TimedOperationCategory.class);
+        long files = 0;
+        long peakHeap = 0;
+        for (final Iteration iteration : measured) {
+            wallClock.add(iteration.wallClockMillis);
+            gc.add(iteration.gcMillis);
+            files = Math.max(files, iteration.files);
+            peakHeap = Math.max(peakHeap, iteration.peakHeapBytes);
+            for (final Map.Entry<TimedOperationCategory, Long> phase : iteration.phaseMillis.entrySet()) {
+                List<Long> times = phases.get(phase.getKey());
+                if (times == null) {
+                    times = new ArrayList<>();
+                    phases.put(phase.getKey(), times);
+                }
+                times.add(phase.getValue());
+            }
+        }
+
+        final Map<String, Long> phaseMedians = new LinkedHashMap<>();
+        for (final Map.Entry<TimedOperationCategory, List<Long>> phase : phases.entrySet()) {
+            phaseMedians.put(phase.getKey().name(), median(phase.getValue()));
+        }
+        return new CorpusBenchmarkResult(PMDVersion.VERSION, measured.size(), files, median(wallClock), median(gc),
+                                         peakHeap, phaseMedians);
+    }
+
+    private static long median(List<Long> values) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        final List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * Returns the version of PMD which produced the result.
+     */
+    public String getPmdVersion() {
+        return pmdVersion;
+    }
+
+    /**
+     * Returns the number of measured iterations.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the number of files analyzed by each iteration.
+     */
+    public long getFiles() {
+        return files;
+    }
+
+    public long getWallClockMillis() {
+        return wallClockMillis;
+    }
+
+    /**
+     * Returns the number of files analyzed per second of wall clock time.
+     */
+    public double getFilesPerSecond() {
+        return wallClockMillis == 0 ? 0 : files * 1000.0 / wallClockMillis;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /**
+     * Returns the highest heap usage of all the iterations.
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    /**
+     * Returns the time of each phase, keyed by the name of its {@link TimedOperationCategory}.
+     */
+    public Map<String, Long> getPhaseMillis() {
+        return phaseMillis;
+    }
+
+    /**
+     * Compares this result with a baseline. The wall clock time, and the
+     * time of each phase of the baseline, regress if they exceed the time
+     * of the baseline by more than the tolerance. Times of the baseline
+     * shorter than the given minimum are ignored, they are dominated by noise.
+     *
+     * @param baseline      The result to compare with
+     * @param tolerance     The allowed slowdown, e.g. 0.1 for 10%
+     * @param minimumMillis The shortest time of the baseline which is compared
+     *
+     * @return A description of each regression, empty if there are none
+     */
+    public List<String> findRegressions(CorpusBenchmarkResult baseline, double tolerance, long minimumMillis) {
+        final List<String> regressions = new ArrayList<>();
+        checkRegression("Wall Clock Time", wallClockMillis, baseline.wallClockMillis, tolerance, minimumMillis,
+                        regressions);
+        for (final Map.Entry<String, Long> phase : baseline.phaseMillis.entrySet()) {
+            final Long current = phaseMillis.get(phase.getKey());
+            if (current != null) {
+                checkRegression(phase.getKey(), current, phase.getValue(), tolerance, minimumMillis, regressions);
+            }
+        }
+        return regressions;
+    }
+
+    private static void checkRegression(String name, long current, long baseline, double tolerance,
+                                        long minimumMillis, List<String> regressions) {
+        if (baseline >= minimumMillis && current > baseline * (1 + tolerance)) {
+            regressions.add(String.format(Locale.ROOT, "%s: %d ms instead of %d ms (%s)",
+                                          name, current, baseline, formatChange(current, baseline)));
+        }
+    }
+
+    /**
+     * Formats the relative change from the baseline, e.g. {@code +12.5%}.
+     */
+    /* package */ static String formatChange(double current, double baseline) {
+        if (baseline == 0) {
+            return "n/a";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (current - baseline) * 100 / baseline);
+    }
+
+    /**
+     * Writes the result as a JSON object.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        // Don't close the JsonWriter, it would close the underlying writer
+        @SuppressWarnings("PMD.CloseResource")
+        final JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+
+        json.beginObject();
+        json.name("pmdVersion").value(pmdVersion);
+        json.name("iterations").value(iterations);
+        json.name("files").value(files);
+        json.name("wallClockMillis").value(wallClockMillis);
+        json.name("filesPerSecond").value(getFilesPerSecond());
+        json.name("gcMillis").value(gcMillis);
+        json.name("peakHeapBytes").value(peakHeapBytes);
+        json.name("phaseMillis").beginObject();
+        for (final Map.Entry<String, Long> phase : phaseMillis.entrySet()) {
+            json.name(phase.getKey()).value(phase.getValue());
+        }
+        json.endObject();
+        json.endObject();
+        json.flush();
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    /**
+     * Reads a result written by {@link #writeJson(Writer)}.
+     *
+     * @throws IOException If the JSON is malformed
+     */
+    public static CorpusBenchmarkResult readJson(Reader reader) throws IOException {
+        try {
+            final JsonObject json = new JsonParser().parse(reader).getAsJsonObject();
+            final Map<String, Long> phases = new LinkedHashMap<>();
+            for (final Map.Entry<String, JsonElement> phase : getRequired(json, "phaseMillis").getAsJsonObject().entrySet()) {
+                phases.put(phase.getKey(), phase.getValue().getAsLong());
+            }
+            return new CorpusBenchmarkResult(getRequired(json, "pmdVersion").getAsString(),
+                                             getRequired(json, "iterations").getAsInt(),
+                                             getRequired(json, "files").getAsLong(),
+                                             getRequired(json, "wallClockMillis").getAsLong(),
+                                             getRequired(json, "gcMillis").getAsLong(),
+                                             getRequired(json, "peakHeapBytes").getAsLong(),
+                                             phases);
+        } catch (JsonParseException | IllegalStateException | ClassCastException | NumberFormatException e) {
+            throw new IOException("Invalid benchmark result: " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonElement getRequired(JsonObject json, String name) throws IOException {
+        final JsonElement element = json.get(name);
+        if (element == null) {
+            throw new IOException("Invalid benchmark result: missing " + name);
+        }
+        return element;
+    }
+
+    /**
+     * The measurements of one run of PMD over the corpus.
+     */
+    /* package */ static final class Iteration {
+        /* package */ final long files;
+        /* package */ final long wallClockMillis;
+        /* package */ final long gcMillis;
+        /* package */ final long peakHeapBytes;
+        /* package */ final Map<TimedOperationCategory, Long> phaseMillis;
+
+        /* package */ Iteration(long files, long wallClockMillis, long gcMillis, long peakHeapBytes,
+                                Map<TimedOperationCategory, Long> phaseMillis) {
+            this.files = files;
+            this.wallClockMillis = wallClockMillis;
+            this.gcMillis = gcMillis;
+            this.peakHeapBytes = peakHeapBytes;
+            this.phaseMillis = phaseMillis;
+        }
+    }
+}
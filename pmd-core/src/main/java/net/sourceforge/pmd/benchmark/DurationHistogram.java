@@ -0,0 +1,81 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe histogram of durations, used to estimate their percentiles
+ * without keeping each of them. The buckets grow exponentially: each power
+ * of two is split into {@value #SUB_BUCKETS} buckets, so that the estimates
+ * are within about 10% of the actual durations.
+ */
+final class DurationHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative durations count as zero
+     */
+    void record(final long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(nanos, 0)));
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the recorded durations,
+     * or 0 if there are none.
+     *
+     * @param percentile A percentile between 0 and 100
+     *
+     * @return The duration in nanoseconds
+     */
+    long getPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return midpointOf(i);
+            }
+        }
+        return midpointOf(BUCKETS - 1);
+    }
+
+    /**
+     * The durations below {@value #SUB_BUCKETS} have a bucket each. The
+     * others are bucketed by their highest set bit, and the
+     * {@value #SUB_BUCKET_BITS} bits following it.
+     */
+    private static int bucketOf(final long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long midpointOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowerBound = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Emits a Java Flight Recorder event for each operation started through the
+ * {@link TimeTracker}, e.g. an event per rule and per file, with the label of
+ * the operation, and the name and language of the file being analyzed. Each
+ * category has its own event type, named {@code net.sourceforge.pmd.<Category>},
+ * e.g. {@code net.sourceforge.pmd.Rule}.
+ *
+ * <p>PMD is compiled for Java 7, so the Flight Recorder API (Java 11, or Java 8
+ * since update 262) is used through reflection. The event types are only
+ * registered once the recorder is initialized, i.e. once a recording is
+ * created, and an operation only creates an event if the type of the event
+ * is enabled in a running recording. Otherwise, starting an operation costs
+ * an atomic read. The events are enabled by default, except the ones of the
+ * XPath functions and class lookups, which run for each node.
+ */
+final class FlightRecorderEvents {
+
+    private static final Logger LOG = Logger.getLogger(FlightRecorderEvents.class.getName());
+
+    private static final String EVENT_PREFIX = "net.sourceforge.pmd.";
+    private static final int LABEL_FIELD = 0;
+    private static final int FILE_FIELD = 1;
+    private static final int LANGUAGE_FIELD = 2;
+
+    private static final Object[] NONE = new Object[0];
+
+    /** The file name and language analyzed by the current thread, if an event is enabled. */
+    private static final ThreadLocal<String[]> CURRENT_FILE = new ThreadLocal<>();
+
+    /** The event factories, indexed by category, registered once the recorder is initialized. */
+    private static Object[] factories = NONE;
+    /** The factories of the enabled event types, indexed by category, or {@link #NONE}. */
+    private static final AtomicReference<Object[]> ENABLED_FACTORIES = new AtomicReference<>(NONE);
+
+    private static Method newEvent;
+    private static Method getEventType;
+    private static Method isEnabled;
+    private static Method begin;
+    private static Method end;
+    private static Method set;
+    private static Method commit;
+
+    static {
+        try {
+            final Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+            if ((Boolean) flightRecorder.getMethod("isAvailable").invoke(null)) {
+                final Class<?> listenerType = Class.forName("jdk.jfr.FlightRecorderListener");
+                final Object listener = Proxy.newProxyInstance(FlightRecorderEvents.class.getClassLoader(),
+                        new Class<?>[] {listenerType}, new RecorderListener());
+                flightRecorder.getMethod("addListener", listenerType).invoke(null, listener);
+            }
+        } catch (final ClassNotFoundException ignored) {
+            // the JVM has no flight recorder
+        } catch (final ReflectiveOperationException | LinkageError | RuntimeException e) {
+            LOG.log(Level.FINE, "Cannot listen to the flight recorder", e);
+        }
+    }
+
+    private FlightRecorderEvents() {
+        throw new AssertionError("Can't instantiate utility class");
+    }
+
+    /**
+     * Returns the given operation, or an operation which also records an event
+     * if the event type of the category is enabled.
+     */
+    static TimedOperation wrap(final TimedOperationCategory category, final String label, final TimedOperation operation) {
+        final Object[] enabled = ENABLED_FACTORIES.get();
+        if (enabled.length == 0 || enabled[category.ordinal()] == null) {
+            return operation;
+        }
+        final String[] file = CURRENT_FILE.get();
+        final Object event = beginEvent(enabled[category.ordinal()], label, file);
+        return event == null ? operation : new EventOperation(event, operation, false);
+    }
+
+    /**
+     * Sets the file analyzed by the current thread, which is added to the
+     * events of the thread until the returned operation is closed. The
+     * analysis of the file is recorded as a {@link TimedOperationCategory#FILE_PROCESSING}
+     * event.
+     */
+    static TimedOperation startFile(final String fileName, final String language, final TimedOperation operation) {
+        final Object[] enabled = ENABLED_FACTORIES.get();
+        if (enabled.length == 0) {
+            return operation;
+        }
+        final String[] file = {fileName, language};
+        CURRENT_FILE.set(file);
+        final Object factory = enabled[TimedOperationCategory.FILE_PROCESSING.ordinal()];
+        final Object event = factory == null ? null : beginEvent(factory, null, file);
+        return new EventOperation(event, operation, true);
+    }
+
+    private static Object beginEvent(final Object factory, final String label, final String[] file) {
+        final Object event = invoke(newEvent, factory);
+        if (event != null) {
+            invoke(set, event, LABEL_FIELD, label);
+            if (file != null) {
+                invoke(set, event, FILE_FIELD, file[0]);
+                invoke(set, event, LANGUAGE_FIELD, file[1]);
+            }
+            invoke(begin, event);
+        }
+        return event;
+    }
+
+    private static Object invoke(final Method method, final Object target, final Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (final IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Cannot record the PMD flight recorder events", e);
+            ENABLED_FACTORIES.set(NONE);
+            return null;
+        }
+    }
+
+    /**
+     * Registers the event types. Called when the recorder is initialized.
+     */
+    private static synchronized void register() throws ReflectiveOperationException {
+        if (factories.length > 0) {
+            return;
+        }
+
+        final Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+        final Class<?> event = Class.forName("jdk.jfr.Event");
+        newEvent = eventFactory.getMethod("newEvent");
+        getEventType = eventFactory.getMethod("getEventType");
+        isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+        begin = event.getMethod("begin");
+        end = event.getMethod("end");
+        set = event.getMethod("set", int.class, Object.class);
+        commit = event.getMethod("commit");
+
+        final Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+        final Constructor<?> newValueDescriptor = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+        final List<Object> fields = new ArrayList<>();
+        fields.add(newValueDescriptor.newInstance(String.class, "label", Arrays.asList(
+                annotation("jdk.jfr.Label", "Label"),
+                annotation("jdk.jfr.Description", "Rule name, or other detail of the operation"))));
+        fields.add(newValueDescriptor.newInstance(String.class, "file",
+                Collections.singletonList(annotation("jdk.jfr.Label", "File"))));
+        fields.add(newValueDescriptor.newInstance(String.class, "language",
+                Collections.singletonList(annotation("jdk.jfr.Label", "Language"))));
+
+        final Method create = eventFactory.getMethod("create", List.class, List.class);
+        final Object[] result = new Object[TimedOperationCategory.values().length];
+        for (final TimedOperationCategory category : TimedOperationCategory.values()) {
+            if (category == TimedOperationCategory.UNACCOUNTED) {
+                // never closed as an operation
+                continue;
+            }
+            final String displayName = category.displayName();
+            result[category.ordinal()] = create.invoke(null, Arrays.asList(
+                    annotation("jdk.jfr.Name", EVENT_PREFIX + displayName.replace(" ", "")),
+                    annotation("jdk.jfr.Label", "PMD " + displayName),
+                    annotation("jdk.jfr.Category", new String[] {"PMD"}),
+                    // the operations which run for nodes rather than files are too frequent
+                    // to be recorded, unless the settings of the recording enable them
+                    annotation("jdk.jfr.Enabled", !category.isPerNode()),
+                    // stack traces are costly, and the fields tell what was running
+                    annotation("jdk.jfr.StackTrace", Boolean.FALSE)), fields);
+        }
+        factories = result;
+    }
+
+    private static Object annotation(final String type, final Object value) throws ReflectiveOperationException {
+        return Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class)
+                .newInstance(Class.forName(type), value);
+    }
+
+    /**
+     * Updates the enabled event types. Called when a recording changes state.
+     */
+    private static synchronized void refresh() throws ReflectiveOperationException {
+        final Object[] enabled = new Object[factories.length];
+        boolean any = false;
+        for (int i = 0; i < factories.length; i++) {
+            if (factories[i] != null && (Boolean) isEnabled.invoke(getEventType.invoke(factories[i]))) {
+                enabled[i] = factories[i];
+                any = true;
+            }
+        }
+        ENABLED_FACTORIES.set(any ? enabled : NONE);
+    }
+
+    /**
+     * Implements {@code jdk.jfr.FlightRecorderListener}.
+     */
+    private static final class RecorderListener implements InvocationHandler {
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            switch (method.getName()) {
+            case "recorderInitialized":
+            case "recordingStateChanged":
+                try {
+                    register();
+                    refresh();
+                } catch (final ReflectiveOperationException | LinkageError | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Cannot record the PMD flight recorder events", e);
+                }
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return System.identityHashCode(proxy) == System.identityHashCode(args[0]);
+            case "toString":
+                return "PMD flight recorder listener";
+            default:
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Records an event when the operation is closed.
+     */
+    private static final class EventOperation implements TimedOperation {
+        private final Object event;
+        private final TimedOperation delegate;
+        private final boolean fileOperation;
+        private boolean closed = false;
+
+        EventOperation(final Object event, final TimedOperation delegate, final boolean fileOperation) {
+            this.event = event;
+            this.delegate = delegate;
+            this.fileOperation = fileOperation;
+        }
+
+        @Override
+        public void close() {
+            close(0);
+        }
+
+        @Override
+        public void close(final int extraDataCounter) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            if (event != null) {
+                invoke(end, event);
+                invoke(commit, event);
+            }
+            if (fileOperation) {
+                CURRENT_FILE.remove();
+            }
+            delegate.close(extraDataCounter);
+        }
+    }
+}
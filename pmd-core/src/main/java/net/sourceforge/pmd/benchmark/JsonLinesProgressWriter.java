@@ -0,0 +1,134 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.annotation.Experimental;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes the progress of an analysis as a stream of JSON objects, one per
+ * line and per event, so that an orchestrator can follow the throughput of
+ * an analysis, and stop it if no line is written for too long. Each line
+ * is flushed once written. For example:
+ *
+ * <pre>
+ * {"event":"fileFinished","file":"src/Foo.java","outcome":"analyzed","fileViolations":2,"totalFiles":120,
+ *  "startedFiles":11,"finishedFiles":8,"skippedFiles":3,"failedFiles":0,"violations":14,"elapsedMillis":512,
+ *  "filesPerSecond":15.6,"etaMillis":7168}
+ * </pre>
+ *
+ * <p>The events are {@code analysisStarted}, {@code fileStarted},
+ * {@code fileFinished} and {@code analysisFinished}.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public class JsonLinesProgressWriter implements ProgressListener, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(JsonLinesProgressWriter.class.getName());
+
+    private final Writer writer;
+    private boolean failed;
+
+    /**
+     * Creates a progress writer.
+     *
+     * @param writer The writer, closed with this progress writer
+     */
+    public JsonLinesProgressWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Creates a progress writer replacing the given file.
+     *
+     * @param file The file to write
+     *
+     * @throws IOException If the file cannot be created
+     */
+    public static JsonLinesProgressWriter open(String file) throws IOException {
+        final Path path = Paths.get(file);
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return new JsonLinesProgressWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void analysisStarted(AnalysisProgress progress) {
+        write("analysisStarted", null, null, -1, progress);
+    }
+
+    @Override
+    public void fileStarted(String fileName, AnalysisProgress progress) {
+        write("fileStarted", fileName, null, -1, progress);
+    }
+
+    @Override
+    public void fileFinished(String fileName, Outcome outcome, int violations, AnalysisProgress progress) {
+        write("fileFinished", fileName, outcome, violations, progress);
+    }
+
+    @Override
+    public void analysisFinished(AnalysisProgress progress) {
+        write("analysisFinished", null, null, -1, progress);
+    }
+
+    private synchronized void write(String event, String fileName, Outcome outcome, int fileViolations,
+            AnalysisProgress progress) {
+        if (failed) {
+            return;
+        }
+        try {
+            // Don't close the JsonWriter, the underlying writer stays open for the next lines
+            @SuppressWarnings("PMD.CloseResource")
+            final JsonWriter json = new JsonWriter(writer);
+            json.beginObject();
+            json.name("event").value(event);
+            if (fileName != null) {
+                json.name("file").value(fileName);
+            }
+            if (outcome != null) {
+                json.name("outcome").value(outcome.name().toLowerCase(Locale.ROOT));
+                json.name("fileViolations").value(fileViolations);
+            }
+            json.name("totalFiles").value(progress.getTotalFiles());
+            json.name("startedFiles").value(progress.getStartedFiles());
+            json.name("finishedFiles").value(progress.getFinishedFiles());
+            json.name("skippedFiles").value(progress.getSkippedFiles());
+            json.name("failedFiles").value(progress.getFailedFiles());
+            json.name("violations").value(progress.getViolations());
+            json.name("elapsedMillis").value(progress.getElapsedMillis());
+            json.name("filesPerSecond").value(progress.getFilesPerSecond());
+            json.name("etaMillis").value(progress.getEstimatedRemainingMillis());
+            json.endObject();
+            json.flush();
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            // don't fail the analysis, nor log for every file
+            failed = true;
+            LOG.log(Level.WARNING, "Cannot write the progress, it won't be written anymore", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
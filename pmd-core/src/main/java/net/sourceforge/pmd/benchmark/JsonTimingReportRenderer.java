@@ -0,0 +1,131 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.sourceforge.pmd.benchmark.TimeTracker.TimedResult;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A JSON renderer for {@link TimingReport}, for consumption by tools.
+ * Times are reported in nanoseconds, allocations in bytes. The slowest
+ * files, and the slowest phases and rules on single files, follow the categories. The CPU time
+ * and the allocations are 0 if the JVM doesn't measure them.
+ *
+ * @since 6.31.0
+ */
+public class JsonTimingReportRenderer implements TimingReportRenderer {
+
+    @Override
+    public void render(final TimingReport report, final Writer writer) throws IOException {
+        // Don't close the JsonWriter, it would close the underlying writer
+        @SuppressWarnings("PMD.CloseResource")
+        final JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+
+        json.beginObject();
+        json.name("wallClockMillis").value(report.getWallClockMillis());
+        json.name("categories").beginObject();
+        for (final TimedOperationCategory category : TimedOperationCategory.values()) {
+            final TimedResult total = report.getUnlabeledMeasurements(category);
+            final Map<String, TimedResult> labeled = report.getLabeledMeasurements(category);
+            if (total == null && labeled.isEmpty()) {
+                continue;
+            }
+
+            json.name(category.name()).beginObject();
+            if (total != null) {
+                json.name("total");
+                renderMeasurement(total, json);
+            }
+            if (!labeled.isEmpty()) {
+                json.name("labels").beginObject();
+                for (final Map.Entry<String, TimedResult> entry : new TreeMap<>(labeled).entrySet()) {
+                    json.name(entry.getKey());
+                    renderMeasurement(entry.getValue(), json);
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+        json.endObject();
+        renderSlowestFiles(report, json);
+        renderSlowestFilePhases(report, json);
+        renderSlowestFileRules(report, json);
+        json.endObject();
+        json.flush();
+        writer.write(System.lineSeparator());
+        writer.flush();
+    }
+
+    private void renderSlowestFiles(final TimingReport report, final JsonWriter json) throws IOException {
+        renderSlowestPhases("slowestFiles", report.getSlowestFiles(), report.getTotalFileNanos(), json);
+    }
+
+    private void renderSlowestFilePhases(final TimingReport report, final JsonWriter json) throws IOException {
+        renderSlowestPhases("slowestFilePhases", report.getSlowestFilePhases(), report.getTotalFileNanos(), json);
+    }
+
+    private void renderSlowestPhases(final String name, final List<SlowOperation> operations,
+            final long totalFileNanos, final JsonWriter json) throws IOException {
+        json.name(name).beginArray();
+        for (final SlowOperation operation : operations) {
+            json.beginObject();
+            json.name("file").value(operation.getFileName());
+            json.name("category").value(operation.getCategory().name());
+            json.name("timeNanos").value(operation.getNanos());
+            if (totalFileNanos > 0) {
+                json.name("shareOfFiles").value((double) operation.getNanos() / totalFileNanos);
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void renderSlowestFileRules(final TimingReport report, final JsonWriter json) throws IOException {
+        json.name("slowestFileRules").beginArray();
+        for (final SlowOperation operation : report.getSlowestFileRules()) {
+            json.beginObject();
+            json.name("file").value(operation.getFileName());
+            json.name("category").value(operation.getCategory().name());
+            json.name("rule").value(operation.getLabel());
+            json.name("timeNanos").value(operation.getNanos());
+            final TimedResult rule = report.getLabeledMeasurements(operation.getCategory()).get(operation.getLabel());
+            final long p50 = rule == null ? 0 : rule.getDurationPercentile(50);
+            if (p50 > 0) {
+                json.name("ratioToRuleP50").value((double) operation.getNanos() / p50);
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private void renderMeasurement(final TimedResult result, final JsonWriter json) throws IOException {
+        json.beginObject();
+        json.name("timeNanos").value(result.totalTimeNanos.get());
+        json.name("selfTimeNanos").value(result.selfTimeNanos.get());
+        json.name("cpuTimeNanos").value(result.cpuTimeNanos.get());
+        json.name("allocatedBytes").value(result.allocatedBytes.get());
+        json.name("calls").value(result.callCount.get());
+        if (result.callCount.get() > 0) {
+            json.name("p50Nanos").value(result.getDurationPercentile(50));
+            json.name("p99Nanos").value(result.getDurationPercentile(99));
+        }
+        final long counter = result.extraDataCounter.get();
+        if (counter > 0) {
+            json.name("counter").value(counter);
+            if (result.totalTimeNanos.get() > 0) {
+                json.name("counterPerSecond").value(counter * 1000000000.0 / result.totalTimeNanos.get());
+            }
+        }
+        json.endObject();
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Counter;
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Kind;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Periodically writes the counters of a {@link MetricsRegistry} to a file,
+ * so that a long running analysis can be monitored. The file is replaced
+ * at each export, and written one last time when the exporter is closed.
+ *
+ * <p>Files ending with {@code .json} are written in JSON, the others in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text format</a>,
+ * e.g. for the textfile collector of the node exporter.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class MetricsExporter implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(MetricsExporter.class.getName());
+
+    private final MetricsRegistry registry;
+    private final Path file;
+    private final ScheduledExecutorService executor;
+
+    private MetricsExporter(MetricsRegistry registry, Path file, int intervalSeconds) {
+        this.registry = registry;
+        this.file = file;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PmdMetricsExporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                exportQuietly();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts exporting the registry to the file at the given interval.
+     *
+     * @param registry        The registry to export
+     * @param file            The file to write
+     * @param intervalSeconds The interval between two exports, in seconds
+     *
+     * @return The exporter, which must be closed when the analysis is done
+     *
+     * @throws IllegalArgumentException If the interval is not positive
+     */
+    public static MetricsExporter start(MetricsRegistry registry, String file, int intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("The metrics export interval must be positive, got " + intervalSeconds);
+        }
+        return new MetricsExporter(registry, Paths.get(file), intervalSeconds);
+    }
+
+    /**
+     * Writes the current values of the counters to the file.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public synchronized void export() throws IOException {
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        // write to a temporary file first, so that readers never see a partial export
+        final Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                    renderJson(registry, writer);
+                } else {
+                    renderPrometheus(registry, writer);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void exportQuietly() {
+        try {
+            export();
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Cannot export the metrics to " + file, e);
+        }
+    }
+
+    /**
+     * Stops the periodic export, and exports the final values.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        exportQuietly();
+    }
+
+    /**
+     * Renders the counters in the Prometheus text format. The counters of a
+     * metric are grouped under a single {@code HELP} and {@code TYPE}.
+     */
+    /* package */ static void renderPrometheus(MetricsRegistry registry, Writer writer) throws IOException {
+        String lastName = null;
+        for (Counter counter : registry.getCounters()) {
+            if (!counter.getName().equals(lastName)) {
+                lastName = counter.getName();
+                writer.write("# HELP " + lastName + ' ' + counter.getHelp().replace("\\", "\\\\").replace("\n", "\\n") + '\n');
+                writer.write("# TYPE " + lastName + ' ' + (counter.getKind() == Kind.GAUGE ? "gauge" : "counter") + '\n');
+            }
+            writer.write(lastName);
+            if (counter.getLabelName() != null) {
+                writer.write('{' + counter.getLabelName() + "=\"" + escapeLabelValue(counter.getLabelValue()) + "\"}");
+            }
+            writer.write(' ' + formatValue(counter) + '\n');
+        }
+    }
+
+    private static String escapeLabelValue(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatValue(Counter counter) {
+        if (counter.getKind() == Kind.TIMER) {
+            return String.valueOf(counter.get() / 1000000000.0);
+        }
+        return String.valueOf(counter.get());
+    }
+
+    /**
+     * Renders the counters as a JSON object, with the uptime of the registry.
+     * Timers are rendered in seconds, like in the Prometheus format.
+     */
+    /* package */ static void renderJson(MetricsRegistry registry, Writer writer) throws IOException {
+        // Don't close the JsonWriter, the caller closes the underlying writer
+        @SuppressWarnings("PMD.CloseResource")
+        final JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+
+        json.beginObject();
+        json.name("uptimeMillis").value(registry.getUptimeMillis());
+        json.name("metrics").beginArray();
+        for (Counter counter : registry.getCounters()) {
+            json.beginObject();
+            json.name("name").value(counter.getName());
+            json.name("type").value(counter.getKind().name().toLowerCase(Locale.ROOT));
+            if (counter.getLabelName() != null) {
+                json.name("labels").beginObject().name(counter.getLabelName()).value(counter.getLabelValue()).endObject();
+            }
+            if (counter.getKind() == Kind.TIMER) {
+                json.name("value").value(counter.get() / 1000000000.0);
+            } else {
+                json.name("value").value(counter.get());
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+        writer.write(System.lineSeparator());
+    }
+}
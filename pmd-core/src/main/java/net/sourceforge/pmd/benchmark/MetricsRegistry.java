@@ -0,0 +1,224 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * A registry of counters describing a running analysis, e.g. the number
+ * of analyzed files, the number of files waiting for a thread, or the
+ * hits of the analysis cache. In contrast to the {@link TimeTracker},
+ * the counters are always maintained, and can be exported while PMD
+ * runs, see {@link MetricsExporter}.
+ *
+ * <p>The counters are striped, so that the threads of the analysis
+ * don't contend on a single memory location: updating a counter is a
+ * single atomic addition, and reading it sums the stripes.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final long startMillis = System.currentTimeMillis();
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /* package */ MetricsRegistry() {
+        // use the global instance
+    }
+
+    /**
+     * Returns the registry of the current JVM.
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the milliseconds elapsed since the registry was created.
+     */
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startMillis;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param name Name of the counter, by convention it ends with {@code _total}
+     * @param help Description of the counter
+     */
+    public Counter counter(String name, String help) {
+        return getOrCreate(Kind.COUNTER, name, help, null, null);
+    }
+
+    /**
+     * Returns the counter with the given name and label, creating it if needed.
+     *
+     * @param name       Name of the counter, by convention it ends with {@code _total}
+     * @param help       Description of the counter
+     * @param labelName  Name of the label, e.g. {@code language}
+     * @param labelValue Value of the label, e.g. {@code java}
+     */
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return getOrCreate(Kind.COUNTER, name, help, labelName, labelValue);
+    }
+
+    /**
+     * Returns the gauge with the given name, creating it if needed. A gauge
+     * is a counter which may decrease, e.g. the size of a queue.
+     *
+     * @param name Name of the gauge
+     * @param help Description of the gauge
+     */
+    public Counter gauge(String name, String help) {
+        return getOrCreate(Kind.GAUGE, name, help, null, null);
+    }
+
+    /**
+     * Returns the timer with the given name and label, creating it if
+     * needed. A timer is a counter of nanoseconds, which is exported in
+     * seconds.
+     *
+     * @param name       Name of the timer, by convention it ends with {@code _seconds_total}
+     * @param help       Description of the timer
+     * @param labelName  Name of the label, e.g. {@code language}
+     * @param labelValue Value of the label, e.g. {@code java}
+     */
+    public Counter timer(String name, String help, String labelName, String labelValue) {
+        return getOrCreate(Kind.TIMER, name, help, labelName, labelValue);
+    }
+
+    private Counter getOrCreate(Kind kind, String name, String help, String labelName, String labelValue) {
+        final String key = labelName == null ? name : name + '{' + labelName + "=\"" + labelValue + "\"}";
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counters.putIfAbsent(key, new Counter(kind, name, help, labelName, labelValue));
+            counter = counters.get(key);
+        }
+        return counter;
+    }
+
+    /**
+     * Returns all the counters, sorted by name and label.
+     */
+    public List<Counter> getCounters() {
+        final List<Counter> result = new ArrayList<>(counters.values());
+        Collections.sort(result, new Comparator<Counter>() {
+            @Override
+            public int compare(Counter o1, Counter o2) {
+                final int byName = o1.getName().compareTo(o2.getName());
+                if (byName != 0) {
+                    return byName;
+                }
+                return String.valueOf(o1.getLabelValue()).compareTo(String.valueOf(o2.getLabelValue()));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * The kind of a counter, which determines how it is exported.
+     */
+    public enum Kind {
+        /** A count which only increases. */
+        COUNTER,
+        /** A value which increases and decreases. */
+        GAUGE,
+        /** A duration in nanoseconds which only increases, exported in seconds. */
+        TIMER
+    }
+
+    /**
+     * A striped counter. Each thread adds to one of the stripes, which
+     * are on separate cache lines.
+     */
+    public static final class Counter {
+
+        private static final int STRIPES = stripes();
+        /** 8 longs per stripe, i.e. a cache line of 64 bytes. */
+        private static final int PADDING = 8;
+
+        private final Kind kind;
+        private final String name;
+        private final String help;
+        private final String labelName;
+        private final String labelValue;
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        /* package */ Counter(Kind kind, String name, String help, String labelName, String labelValue) {
+            this.kind = kind;
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.labelValue = labelValue;
+        }
+
+        /** Returns the power of two above twice the number of processors, up to 64. */
+        private static int stripes() {
+            int stripes = 1;
+            while (stripes < 2 * Runtime.getRuntime().availableProcessors() && stripes < 64) {
+                stripes <<= 1;
+            }
+            return stripes;
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public void decrement() {
+            add(-1);
+        }
+
+        public void add(long delta) {
+            final int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            cells.addAndGet(stripe * PADDING, delta);
+        }
+
+        /**
+         * Returns the current value of the counter. The value is not a
+         * snapshot if other threads update the counter concurrently.
+         */
+        public long get() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        /** Returns the name of the label of the counter, or null if it has none. */
+        public String getLabelName() {
+            return labelName;
+        }
+
+        /** Returns the value of the label of the counter, or null if it has none. */
+        public String getLabelValue() {
+            return labelValue;
+        }
+    }
+}
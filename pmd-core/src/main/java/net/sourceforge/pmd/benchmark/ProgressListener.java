@@ -0,0 +1,69 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * Receives the progress of an analysis, e.g. to display it or to stop an
+ * analysis which is stuck. Listeners are registered with
+ * {@link PMDConfiguration#addProgressListener(ProgressListener)}.
+ *
+ * <p>The files are analyzed by several threads: the methods are called
+ * concurrently, by the thread which analyzes the file, and must be
+ * thread-safe. They should return quickly, as the analysis of the file
+ * waits for them.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public interface ProgressListener {
+
+    /**
+     * How the analysis of a file ended.
+     */
+    enum Outcome {
+        /** The file was parsed and the rules were applied to it. */
+        ANALYZED,
+        /** The file was not parsed, because its violations were in the analysis cache, or no rule applies to it. */
+        SKIPPED,
+        /** The analysis of the file failed, e.g. it could not be parsed. */
+        FAILED
+    }
+
+    /**
+     * Called once the files to analyze are discovered, before any of them
+     * is analyzed.
+     *
+     * @param progress The progress, with the number of files to analyze
+     */
+    void analysisStarted(AnalysisProgress progress);
+
+    /**
+     * Called when a thread starts to analyze a file.
+     *
+     * @param fileName The name of the file
+     * @param progress The progress, including this file
+     */
+    void fileStarted(String fileName, AnalysisProgress progress);
+
+    /**
+     * Called when the analysis of a file ended.
+     *
+     * @param fileName   The name of the file
+     * @param outcome    How the analysis of the file ended
+     * @param violations The violations found in the file
+     * @param progress   The progress, including this file
+     */
+    void fileFinished(String fileName, Outcome outcome, int violations, AnalysisProgress progress);
+
+    /**
+     * Called once all the files are analyzed, or the analysis failed.
+     *
+     * @param progress The final progress
+     */
+    void analysisFinished(AnalysisProgress progress);
+}
@@ -0,0 +1,143 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.ProgressListener.Outcome;
+
+/**
+ * Counts the files of an analysis and notifies the {@link ProgressListener}s
+ * of the configuration, along with the console progress bar and the progress
+ * file if they are enabled.
+ *
+ * <p>The counters are atomic, and the listeners are called by the thread
+ * analyzing a file without holding any lock: the snapshots passed to them
+ * may not reflect the files finished concurrently.
+ *
+ * @since 6.31.0
+ */
+@InternalApi
+public final class ProgressTracker {
+
+    private static final Logger LOG = Logger.getLogger(ProgressTracker.class.getName());
+
+    private final List<ProgressListener> listeners;
+    private final List<Closeable> closeables;
+    private final int totalFiles;
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicInteger startedFiles = new AtomicInteger();
+    private final AtomicInteger finishedFiles = new AtomicInteger();
+    private final AtomicInteger skippedFiles = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+    private final AtomicLong violations = new AtomicLong();
+
+    /* package */ ProgressTracker(List<ProgressListener> listeners, List<Closeable> closeables, int totalFiles) {
+        this.listeners = listeners;
+        this.closeables = closeables;
+        this.totalFiles = totalFiles;
+    }
+
+    /**
+     * Starts tracking the progress of the analysis of the given number of
+     * files, and notifies the listeners.
+     *
+     * @param configuration The configuration, with the listeners
+     * @param totalFiles    The number of files to analyze
+     *
+     * @return The tracker, or null if nothing listens to the progress
+     */
+    @SuppressWarnings("PMD.CloseResource")
+    // the progress file is closed by finish()
+    public static ProgressTracker start(PMDConfiguration configuration, int totalFiles) {
+        final List<ProgressListener> listeners = new ArrayList<>(configuration.getProgressListeners());
+        final List<Closeable> closeables = new ArrayList<>();
+        if (configuration.isProgressBar()) {
+            listeners.add(ConsoleProgressBar.forStandardError());
+        }
+        if (configuration.getProgressFile() != null) {
+            try {
+                final JsonLinesProgressWriter writer = JsonLinesProgressWriter.open(configuration.getProgressFile());
+                listeners.add(writer);
+                closeables.add(writer);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Cannot write the progress to " + configuration.getProgressFile(), e);
+            }
+        }
+        if (listeners.isEmpty()) {
+            return null;
+        }
+
+        final ProgressTracker tracker = new ProgressTracker(listeners, closeables, totalFiles);
+        final AnalysisProgress progress = tracker.snapshot();
+        for (final ProgressListener listener : listeners) {
+            listener.analysisStarted(progress);
+        }
+        return tracker;
+    }
+
+    /**
+     * Notifies the listeners that a thread starts to analyze a file.
+     */
+    public void fileStarted(String fileName) {
+        startedFiles.incrementAndGet();
+        final AnalysisProgress progress = snapshot();
+        for (final ProgressListener listener : listeners) {
+            listener.fileStarted(fileName, progress);
+        }
+    }
+
+    /**
+     * Notifies the listeners that the analysis of a file ended.
+     */
+    public void fileFinished(String fileName, Outcome outcome, int fileViolations) {
+        if (outcome == Outcome.SKIPPED) {
+            skippedFiles.incrementAndGet();
+        } else if (outcome == Outcome.FAILED) {
+            failedFiles.incrementAndGet();
+        }
+        violations.addAndGet(fileViolations);
+        finishedFiles.incrementAndGet();
+
+        final AnalysisProgress progress = snapshot();
+        for (final ProgressListener listener : listeners) {
+            listener.fileFinished(fileName, outcome, fileViolations, progress);
+        }
+    }
+
+    /**
+     * Notifies the listeners that the analysis ended, and closes the
+     * progress file.
+     */
+    @SuppressWarnings("PMD.CloseResource")
+    // closed quietly
+    public void finish() {
+        final AnalysisProgress progress = snapshot();
+        for (final ProgressListener listener : listeners) {
+            listener.analysisFinished(progress);
+        }
+        for (final Closeable closeable : closeables) {
+            IOUtils.closeQuietly(closeable);
+        }
+    }
+
+    /* package */ AnalysisProgress snapshot() {
+        return new AnalysisProgress(totalFiles, startedFiles.get(), finishedFiles.get(), skippedFiles.get(),
+                failedFiles.get(), violations.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+}
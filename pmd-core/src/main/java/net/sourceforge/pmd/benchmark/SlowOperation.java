@@ -0,0 +1,61 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+/**
+ * One of the slowest operations on a single file, e.g. the parsing of a
+ * file, or a rule applied to a file. See {@link TimingReport#getSlowestFiles()},
+ * {@link TimingReport#getSlowestFilePhases()} and {@link TimingReport#getSlowestFileRules()}.
+ *
+ * @since 6.31.0
+ */
+public final class SlowOperation {
+
+    private final String fileName;
+    private final TimedOperationCategory category;
+    private final String label;
+    private final long nanos;
+
+    /* package */ SlowOperation(final String fileName, final TimedOperationCategory category, final String label,
+                                final long nanos) {
+        this.fileName = fileName;
+        this.category = category;
+        this.label = label;
+        this.nanos = nanos;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns the category of the operation. The analysis of the whole file
+     * has the category {@link TimedOperationCategory#FILE_PROCESSING}.
+     */
+    public TimedOperationCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * Returns the label of the operation, i.e. the name of the rule for the
+     * rules, or null for the phases.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns the wall clock time of the operation, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SlowOperation [file=" + fileName + ", category=" + category + ", label=" + label
+            + ", nanos=" + nanos + "]";
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest operations seen by a thread, in a bounded min-heap: the
+ * memory is independent of the number of files, and the fastest retained
+ * operation is the one evicted. Not thread-safe, each thread has its own,
+ * they are merged once the analysis is over.
+ */
+/* package */ final class SlowestOperations {
+
+    private static final Comparator<SlowOperation> BY_NANOS = new Comparator<SlowOperation>() {
+        @Override
+        public int compare(final SlowOperation o1, final SlowOperation o2) {
+            return Long.compare(o1.getNanos(), o2.getNanos());
+        }
+    };
+
+    private final int capacity;
+    private final PriorityQueue<SlowOperation> heap;
+
+    /* package */ SlowestOperations(final int capacity) {
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity + 1, BY_NANOS);
+    }
+
+    /* package */ void offer(final String fileName, final TimedOperationCategory category, final String label,
+                             final long nanos) {
+        if (heap.size() == capacity) {
+            if (heap.peek().getNanos() >= nanos) {
+                // don't allocate for the common case
+                return;
+            }
+            heap.poll();
+        }
+        heap.add(new SlowOperation(fileName, category, label, nanos));
+    }
+
+    /**
+     * Returns the slowest operations of all the given heaps, slowest first.
+     */
+    /* package */ static List<SlowOperation> merge(final Collection<SlowestOperations> all, final int capacity) {
+        final SlowestOperations merged = new SlowestOperations(capacity);
+        for (final SlowestOperations operations : all) {
+            for (final SlowOperation operation : operations.heap) {
+                if (merged.heap.size() < capacity || merged.heap.peek().getNanos() < operation.getNanos()) {
+                    if (merged.heap.size() == capacity) {
+                        merged.heap.poll();
+                    }
+                    merged.heap.add(operation);
+                }
+            }
+        }
+        final List<SlowOperation> result = new ArrayList<>(merged.heap);
+        Collections.sort(result, Collections.reverseOrder(BY_NANOS));
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.benchmark.AstMemoryReport.LanguageFootprint;
+
+/**
+ * A text based renderer for {@link AstMemoryReport}. Each language has a
+ * table of the heap retained by each category of structures, in total and
+ * per file, followed by the classes which retain the most heap.
+ *
+ * @since 6.31.0
+ */
+public class TextAstMemoryReportRenderer {
+
+    private static final String MEGABYTES_FORMAT = "{0,number,0.0}";
+    private static final String KILOBYTES_FORMAT = "{0,number,0.0}";
+    private static final String PERCENT_FORMAT = "{0,number,0.0}%";
+    private static final String RATIO_FORMAT = "{0,number,0.0}x";
+    private static final String COUNTER_FORMAT = "{0,number,###,###,###}";
+
+    private static final int LABEL_COLUMN_WIDTH = 70;
+    private static final int SIZE_COLUMN_WIDTH = 12;
+    private static final int SHARE_COLUMN_WIDTH = 10;
+    private static final int PERCENTILE_COLUMN_WIDTH = 14;
+    private static final int LARGEST_CLASSES = 10;
+
+    private static final int COLUMNS = LABEL_COLUMN_WIDTH + SIZE_COLUMN_WIDTH + SHARE_COLUMN_WIDTH
+            + 2 * PERCENTILE_COLUMN_WIDTH;
+
+    public void render(final AstMemoryReport report, final Writer writer) throws IOException {
+        for (final Map.Entry<String, LanguageFootprint> language : report.getLanguages().entrySet()) {
+            renderLanguage(language.getKey(), language.getValue(), writer);
+        }
+        writer.flush();
+    }
+
+    private void renderLanguage(final String language, final LanguageFootprint footprint,
+            final Writer writer) throws IOException {
+        renderRuler("AST Memory - " + language, writer);
+        writer.write(StringUtils.rightPad("Label", LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Heap (MB)", SIZE_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Share", SHARE_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("p50/File (KB)", PERCENTILE_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("p99/File (KB)", PERCENTILE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        writer.write(PMD.EOL);
+
+        final long total = footprint.getTotalBytes();
+        for (final AstMemoryCategory category : AstMemoryCategory.values()) {
+            final long bytes = footprint.getBytes(category);
+            if (bytes > 0) {
+                renderRow(category.displayName(), bytes, total, footprint.getPercentile(category, 50),
+                          footprint.getPercentile(category, 99), writer);
+            }
+        }
+        renderRow("Total", total, total, footprint.getPercentile(50), footprint.getPercentile(99), writer);
+        writer.write(PMD.EOL);
+
+        writer.write(StringUtils.rightPad("Files", LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(MessageFormat.format(COUNTER_FORMAT, footprint.getFiles()), SIZE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        writer.write(StringUtils.rightPad("Objects", LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(MessageFormat.format(COUNTER_FORMAT, footprint.getObjects()), SIZE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        if (footprint.getSourceBytes() > 0) {
+            writer.write(StringUtils.rightPad("Heap per Byte of Source", LABEL_COLUMN_WIDTH));
+            writer.write(StringUtils.leftPad(MessageFormat.format(RATIO_FORMAT, (double) total / footprint.getSourceBytes()),
+                                             SIZE_COLUMN_WIDTH));
+            writer.write(PMD.EOL);
+        }
+        writer.write(StringUtils.rightPad(StringUtils.abbreviateMiddle("Largest: " + footprint.getLargestFile(), "..",
+                                                                       LABEL_COLUMN_WIDTH - 1), LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(formatMegabytes(footprint.getLargestFileBytes()), SIZE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        writer.write(PMD.EOL);
+
+        writer.write("Largest Classes");
+        writer.write(PMD.EOL);
+        for (final Map.Entry<String, Long> largestClass : footprint.getLargestClasses(LARGEST_CLASSES)) {
+            renderRow(largestClass.getKey(), largestClass.getValue(), total, -1, -1, writer);
+        }
+        writer.write(PMD.EOL);
+    }
+
+    private void renderRow(final String label, final long bytes, final long total, final long p50, final long p99,
+            final Writer writer) throws IOException {
+        writer.write(StringUtils.rightPad(StringUtils.abbreviateMiddle(label, "..", LABEL_COLUMN_WIDTH - 1),
+                                          LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(formatMegabytes(bytes), SIZE_COLUMN_WIDTH));
+        final double share = total == 0 ? 0 : 100.0 * bytes / total;
+        writer.write(StringUtils.leftPad(MessageFormat.format(PERCENT_FORMAT, share), SHARE_COLUMN_WIDTH));
+        if (p50 >= 0) {
+            writer.write(StringUtils.leftPad(MessageFormat.format(KILOBYTES_FORMAT, p50 / 1024.0), PERCENTILE_COLUMN_WIDTH));
+            writer.write(StringUtils.leftPad(MessageFormat.format(KILOBYTES_FORMAT, p99 / 1024.0), PERCENTILE_COLUMN_WIDTH));
+        }
+        writer.write(PMD.EOL);
+    }
+
+    private static String formatMegabytes(final long bytes) {
+        return MessageFormat.format(MEGABYTES_FORMAT, bytes / (1024.0 * 1024.0));
+    }
+
+    private void renderRuler(final String displayName, final Writer writer) throws IOException {
+        final StringBuilder sb = new StringBuilder(COLUMNS)
+                .append(displayName);
+
+        // Make sure we have an even-length string
+        if (displayName.length() % 2 == 1) {
+            sb.append(' ');
+        }
+
+        // Surround with <<< and >>>
+        sb.insert(0, "<<< ").append(" >>>");
+
+        // Create the ruler
+        while (sb.length() < COLUMNS) {
+            sb.insert(0, '-').append('-');
+        }
+
+        writer.write(sb.toString());
+        writer.write(PMD.EOL);
+    }
+}
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.text.MessageFormat;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeSet;
@@ -25,15 +26,26 @@ public class TextTimingReportRenderer implements TimingReportRenderer {
 
     private static final String TIME_FORMAT = "{0,number,0.0000}";
     private static final String CUSTOM_COUNTER_FORMAT = "{0,number,###,###,###}";
+    private static final String MEGABYTES_FORMAT = "{0,number,0.0}";
+    private static final String MILLIS_FORMAT = "{0,number,0.000}";
+    private static final String PERCENT_FORMAT = "{0,number,0.0}%";
+    private static final String RATIO_FORMAT = "{0,number,0.0}x";
 
     private static final int LABEL_COLUMN_WIDTH = 50;
     private static final int TIME_COLUMN_WIDTH = 12;
     private static final int SELF_TIME_COLUMN_WIDTH = 17;
+    private static final int CPU_TIME_COLUMN_WIDTH = 12;
+    private static final int ALLOCATION_COLUMN_WIDTH = 12;
     private static final int CALL_COLUMN_WIDTH = 9;
+    private static final int PERCENTILE_COLUMN_WIDTH = 10;
     private static final int COUNTER_COLUMN_WIDTH = 12;
+    private static final int COUNTER_RATE_COLUMN_WIDTH = 14;
+    private static final int OPERATION_COLUMN_WIDTH = 40;
+    private static final int SHARE_COLUMN_WIDTH = 14;
 
     private static final int COLUMNS = LABEL_COLUMN_WIDTH + TIME_COLUMN_WIDTH
-            + SELF_TIME_COLUMN_WIDTH + CALL_COLUMN_WIDTH + COUNTER_COLUMN_WIDTH;
+            + SELF_TIME_COLUMN_WIDTH + CPU_TIME_COLUMN_WIDTH + ALLOCATION_COLUMN_WIDTH + CALL_COLUMN_WIDTH
+            + 2 * PERCENTILE_COLUMN_WIDTH + COUNTER_COLUMN_WIDTH + COUNTER_RATE_COLUMN_WIDTH;
 
     @Override
     public void render(final TimingReport report, final Writer writer) throws IOException {
@@ -54,6 +66,10 @@ public class TextTimingReportRenderer implements TimingReportRenderer {
         }
 
         writer.write(PMD.EOL);
+        renderSlowestFiles(report, writer);
+        renderSlowestFilePhases(report, writer);
+        renderSlowestFileRules(report, writer);
+
         renderHeader("Total", writer);
 
         writer.write(StringUtils.rightPad("Wall Clock Time", LABEL_COLUMN_WIDTH));
@@ -74,13 +90,30 @@ public class TextTimingReportRenderer implements TimingReportRenderer {
         final String selfTime = MessageFormat.format(TIME_FORMAT, timedResult.selfTimeNanos.get() / 1000000000.0);
         writer.write(StringUtils.leftPad(selfTime, SELF_TIME_COLUMN_WIDTH));
 
+        final String cpuTime = MessageFormat.format(TIME_FORMAT, timedResult.cpuTimeNanos.get() / 1000000000.0);
+        writer.write(StringUtils.leftPad(cpuTime, CPU_TIME_COLUMN_WIDTH));
+
+        final String allocated = MessageFormat.format(MEGABYTES_FORMAT, timedResult.allocatedBytes.get() / (1024.0 * 1024.0));
+        writer.write(StringUtils.leftPad(allocated, ALLOCATION_COLUMN_WIDTH));
+
         if (timedResult.callCount.get() > 0) {
             final String callCount = MessageFormat.format(CUSTOM_COUNTER_FORMAT, timedResult.callCount.get());
             writer.write(StringUtils.leftPad(callCount, CALL_COLUMN_WIDTH));
 
+            final String p50 = MessageFormat.format(MILLIS_FORMAT, timedResult.getDurationPercentile(50) / 1000000.0);
+            writer.write(StringUtils.leftPad(p50, PERCENTILE_COLUMN_WIDTH));
+            final String p99 = MessageFormat.format(MILLIS_FORMAT, timedResult.getDurationPercentile(99) / 1000000.0);
+            writer.write(StringUtils.leftPad(p99, PERCENTILE_COLUMN_WIDTH));
+
             if (timedResult.extraDataCounter.get() > 0) {
                 final String counter = MessageFormat.format(CUSTOM_COUNTER_FORMAT, timedResult.extraDataCounter.get());
                 writer.write(StringUtils.leftPad(counter, COUNTER_COLUMN_WIDTH));
+
+                if (timedResult.totalTimeNanos.get() > 0) {
+                    final String rate = MessageFormat.format(CUSTOM_COUNTER_FORMAT,
+                            timedResult.extraDataCounter.get() * 1000000000.0 / timedResult.totalTimeNanos.get());
+                    writer.write(StringUtils.leftPad(rate, COUNTER_RATE_COLUMN_WIDTH));
+                }
             }
         }
 
@@ -111,7 +144,90 @@ public class TextTimingReportRenderer implements TimingReportRenderer {
         writer.write(PMD.EOL);
     }
 
+    private void renderSlowestFiles(final TimingReport report, final Writer writer) throws IOException {
+        renderSlowestPhases("Slowest Files", report.getSlowestFiles(), report.getTotalFileNanos(), writer);
+    }
+
+    private void renderSlowestFilePhases(final TimingReport report, final Writer writer) throws IOException {
+        renderSlowestPhases("Slowest Files And Phases", report.getSlowestFilePhases(), report.getTotalFileNanos(),
+                            writer);
+    }
+
+    private void renderSlowestPhases(final String title, final List<SlowOperation> operations,
+            final long totalFileNanos, final Writer writer) throws IOException {
+        if (operations.isEmpty()) {
+            return;
+        }
+        renderRuler(title, writer);
+        renderOutlierTitles("Phase", "% of Files", writer);
+
+        for (final SlowOperation operation : operations) {
+            final String share = totalFileNanos == 0 ? ""
+                    : MessageFormat.format(PERCENT_FORMAT, operation.getNanos() * 100.0 / totalFileNanos);
+            renderOutlier(operation, operation.getCategory().displayName(), share, writer);
+        }
+        writer.write(PMD.EOL);
+    }
+
+    private void renderSlowestFileRules(final TimingReport report, final Writer writer) throws IOException {
+        if (report.getSlowestFileRules().isEmpty()) {
+            return;
+        }
+        renderRuler("Slowest Files And Rules", writer);
+        renderOutlierTitles("Rule", "x Rule p50", writer);
+
+        for (final SlowOperation operation : report.getSlowestFileRules()) {
+            final TimedResult rule = report.getLabeledMeasurements(operation.getCategory()).get(operation.getLabel());
+            final long p50 = rule == null ? 0 : rule.getDurationPercentile(50);
+            final String ratio = p50 == 0 ? "" : MessageFormat.format(RATIO_FORMAT, (double) operation.getNanos() / p50);
+            renderOutlier(operation, operation.getLabel(), ratio, writer);
+        }
+        writer.write(PMD.EOL);
+    }
+
+    private void renderOutlierTitles(final String operationTitle, final String shareTitle, final Writer writer)
+            throws IOException {
+        writer.write(StringUtils.rightPad("File", LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.rightPad(operationTitle, OPERATION_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Time (secs)", TIME_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(shareTitle, SHARE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        writer.write(PMD.EOL);
+    }
+
+    private void renderOutlier(final SlowOperation operation, final String name, final String share,
+            final Writer writer) throws IOException {
+        // keep the end of long paths, which is the most specific
+        final String fileName = operation.getFileName();
+        final String file = fileName.length() < LABEL_COLUMN_WIDTH ? fileName
+                : "..." + fileName.substring(fileName.length() - LABEL_COLUMN_WIDTH + 4);
+        writer.write(StringUtils.rightPad(file, LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.rightPad(StringUtils.abbreviate(name, OPERATION_COLUMN_WIDTH - 1), OPERATION_COLUMN_WIDTH));
+        final String time = MessageFormat.format(TIME_FORMAT, operation.getNanos() / 1000000000.0);
+        writer.write(StringUtils.leftPad(time, TIME_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad(share, SHARE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+    }
+
     private void renderHeader(final String displayName, final Writer writer) throws IOException {
+        renderRuler(displayName, writer);
+
+        // Write table titles
+        writer.write(StringUtils.rightPad("Label", LABEL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Time (secs)", TIME_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Self Time (secs)", SELF_TIME_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("CPU (secs)", CPU_TIME_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Alloc (MB)", ALLOCATION_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("# Calls", CALL_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("p50 (ms)", PERCENTILE_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("p99 (ms)", PERCENTILE_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Counter", COUNTER_COLUMN_WIDTH));
+        writer.write(StringUtils.leftPad("Counter/sec", COUNTER_RATE_COLUMN_WIDTH));
+        writer.write(PMD.EOL);
+        writer.write(PMD.EOL);
+    }
+
+    private void renderRuler(final String displayName, final Writer writer) throws IOException {
         final StringBuilder sb = new StringBuilder(COLUMNS)
                 .append(displayName);
 
@@ -130,15 +246,5 @@ public class TextTimingReportRenderer implements TimingReportRenderer {
 
         writer.write(sb.toString());
         writer.write(PMD.EOL);
-
-        // Write table titles
-        writer.write(StringUtils.rightPad("Label", LABEL_COLUMN_WIDTH));
-        writer.write(StringUtils.leftPad("Time (secs)", TIME_COLUMN_WIDTH));
-        writer.write(StringUtils.leftPad("Self Time (secs)", SELF_TIME_COLUMN_WIDTH));
-        writer.write(StringUtils.leftPad("# Calls", CALL_COLUMN_WIDTH));
-        writer.write(StringUtils.leftPad("Counter", COUNTER_COLUMN_WIDTH));
-        writer.write(PMD.EOL);
-        writer.write(PMD.EOL);
     }
-
 }
@@ -4,19 +4,41 @@
 
 package net.sourceforge.pmd.benchmark;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import net.sourceforge.pmd.annotation.InternalApi;
+
 /**
  * A time tracker class to measure time spent on different sections of PMD analysis.
  * The class is thread-aware, allowing to differentiate CPU and wall clock time.
  *
+ * <p>Along with the wall clock time, each operation measures the CPU time
+ * of its thread and the bytes its thread allocated, where the JVM supports it,
+ * and the distribution of its durations. Rules are timed once per file, so
+ * that the percentiles of their durations are per file. The operations timed
+ * per node or per lookup only measure the wall clock time, as sampling the
+ * thread would cost more than the operations themselves.
+ *
+ * <p>The slowest operations on a single file, e.g. the parsing of a file
+ * or a rule applied to a file, are retained to find outliers, see
+ * {@link TimingReport#getSlowestFiles()}.
+ *
+ * <p>Independently of the tracking, each operation is recorded as a Java
+ * Flight Recorder event when a recording enables it. The events are named
+ * after their category, e.g. {@code net.sourceforge.pmd.Rule}.
+ *
  * @author Juan Martín Sotuyo Dodero
  */
 public final class TimeTracker {
@@ -25,6 +47,20 @@ public final class TimeTracker {
     private static long wallClockStartMillis = -1;
     private static final ThreadLocal<Queue<TimerEntry>> TIMER_ENTRIES;
     private static final ConcurrentMap<TimedOperationKey, TimedResult> ACCUMULATED_RESULTS = new ConcurrentHashMap<>();
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+    private static final boolean ALLOCATION_SUPPORTED = isAllocationSupported();
+
+    /** Number of slowest operations on a single file retained, per kind. */
+    private static final int SLOWEST_OPERATIONS = 10;
+    /** The file analyzed by the current thread, while tracking. */
+    private static final ThreadLocal<String> CURRENT_FILE = new ThreadLocal<>();
+    private static final ThreadLocal<ThreadOutliers> OUTLIERS = new ThreadLocal<>();
+    /** The outliers of every thread since tracking started, merged into the report. */
+    private static final Queue<ThreadOutliers> ALL_OUTLIERS = new ConcurrentLinkedQueue<>();
+    /** Incremented when tracking starts, so that threads reused across runs drop their outliers. */
+    private static final AtomicInteger TRACKING_GENERATION = new AtomicInteger();
+    private static final AtomicLong TOTAL_FILE_NANOS = new AtomicLong();
     private static final TimedOperation NOOP_TIMED_OPERATION = new TimedOperation() {
 
         @Override
@@ -51,6 +87,63 @@ public final class TimeTracker {
         throw new AssertionError("Can't instantiate utility class");
     }
 
+    private static boolean isCpuTimeSupported() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+        } catch (final UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean isAllocationSupported() {
+        try {
+            return HotSpotThreads.isAllocatedMemoryEnabled(THREAD_MX_BEAN);
+        } catch (final UnsupportedOperationException | LinkageError ignored) {
+            // not a HotSpot JVM
+            return false;
+        }
+    }
+
+    /**
+     * Returns the CPU time of the current thread in nanoseconds, or 0 if
+     * it's not supported.
+     */
+    private static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or 0 if
+     * it's not supported.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public static long currentThreadAllocatedBytes() {
+        return ALLOCATION_SUPPORTED ? HotSpotThreads.getCurrentThreadAllocatedBytes(THREAD_MX_BEAN) : 0;
+    }
+
+    /**
+     * Isolates the references to the extension of the HotSpot JVM measuring
+     * the allocations of threads, which other JVMs may not have.
+     */
+    private static final class HotSpotThreads {
+
+        private HotSpotThreads() {
+            throw new AssertionError("Can't instantiate utility class");
+        }
+
+        static boolean isAllocatedMemoryEnabled(final ThreadMXBean bean) {
+            return bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled();
+        }
+
+        static long getCurrentThreadAllocatedBytes(final ThreadMXBean bean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+
     /**
      * Starts global tracking. Allows tracking operations to take place and starts the wall clock.
      * Must be called once PMD starts if tracking is desired, no tracking will be performed otherwise.
@@ -59,6 +152,9 @@ public final class TimeTracker {
         wallClockStartMillis = System.currentTimeMillis();
         trackTime = true;
         ACCUMULATED_RESULTS.clear(); // just in case
+        ALL_OUTLIERS.clear();
+        TRACKING_GENERATION.incrementAndGet();
+        TOTAL_FILE_NANOS.set(0);
         initThread(); // init main thread
     }
 
@@ -80,7 +176,20 @@ public final class TimeTracker {
         unaccountedResult.totalTimeNanos.set(unaccountedResult.selfTimeNanos.get());
         unaccountedResult.callCount.set(0);
 
-        return new TimingReport(System.currentTimeMillis() - wallClockStartMillis, ACCUMULATED_RESULTS);
+        final List<SlowestOperations> files = new ArrayList<>();
+        final List<SlowestOperations> phases = new ArrayList<>();
+        final List<SlowestOperations> rules = new ArrayList<>();
+        for (final ThreadOutliers outliers : ALL_OUTLIERS) {
+            files.add(outliers.files);
+            phases.add(outliers.phases);
+            rules.add(outliers.rules);
+        }
+        ALL_OUTLIERS.clear();
+
+        return new TimingReport(System.currentTimeMillis() - wallClockStartMillis, ACCUMULATED_RESULTS,
+                                SlowestOperations.merge(files, SLOWEST_OPERATIONS),
+                                SlowestOperations.merge(phases, SLOWEST_OPERATIONS),
+                                SlowestOperations.merge(rules, SLOWEST_OPERATIONS), TOTAL_FILE_NANOS.get());
     }
 
     /**
@@ -110,6 +219,39 @@ public final class TimeTracker {
         }
     }
 
+    /**
+     * Returns true if the operations are being tracked, i.e. between
+     * {@link #startGlobalTracking()} and {@link #stopGlobalTracking()}.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public static boolean isTracking() {
+        return trackTime;
+    }
+
+    /**
+     * Records an operation measured by the caller, nested in the current
+     * operation of the thread. This is meant for operations which are
+     * interleaved with each other, and can't be started and finished.
+     * Their CPU time and allocations are not measured.
+     *
+     * @param category         The category of the operation
+     * @param label            The label of the operation
+     * @param nanos            The wall clock time of the operation
+     * @param extraDataCounter An additional data counter, e.g. the number of visited nodes
+     * @since 6.31.0
+     */
+    @InternalApi
+    public static void recordOperation(final TimedOperationCategory category, final String label,
+            final long nanos, final long extraDataCounter) {
+        if (!trackTime) {
+            return;
+        }
+
+        accumulate(new TimedOperationKey(category, label), nanos, 0, 0, 0, extraDataCounter);
+    }
+
     /**
      * Starts tracking an operation.
      * @param category The category under which to track the operation.
@@ -127,11 +269,42 @@ public final class TimeTracker {
      */
     public static TimedOperation startOperation(final TimedOperationCategory category, final String label) {
         if (!trackTime) {
-            return NOOP_TIMED_OPERATION;
+            return FlightRecorderEvents.wrap(category, label, NOOP_TIMED_OPERATION);
         }
 
         TIMER_ENTRIES.get().add(new TimerEntry(category, label));
-        return new TimedOperationImpl();
+        return FlightRecorderEvents.wrap(category, label, new TimedOperationImpl());
+    }
+
+    /**
+     * Starts the analysis of a file by the current thread. The analysis is
+     * not tracked, but the Java Flight Recorder events of the operations
+     * started until the returned operation is closed include the name and
+     * the language of the file.
+     *
+     * @param fileName The name of the file
+     * @param language The terse name of the language of the file
+     * @return The operation, which must be closed once the file is analyzed.
+     * @since 6.31.0
+     */
+    public static TimedOperation startFileOperation(final String fileName, final String language) {
+        if (!trackTime) {
+            return FlightRecorderEvents.startFile(fileName, language, NOOP_TIMED_OPERATION);
+        }
+
+        CURRENT_FILE.set(fileName);
+        return FlightRecorderEvents.startFile(fileName, language, new FileOperation(fileName));
+    }
+
+    private static ThreadOutliers getOutliers() {
+        final int generation = TRACKING_GENERATION.get();
+        ThreadOutliers outliers = OUTLIERS.get();
+        if (outliers == null || outliers.generation != generation) {
+            outliers = new ThreadOutliers(generation);
+            OUTLIERS.set(outliers);
+            ALL_OUTLIERS.add(outliers);
+        }
+        return outliers;
     }
 
     /**
@@ -145,33 +318,74 @@ public final class TimeTracker {
             return;
         }
 
-        final Queue<TimerEntry> queue = TIMER_ENTRIES.get();
-        final TimerEntry timerEntry = queue.remove();
+        final TimerEntry timerEntry = TIMER_ENTRIES.get().remove();
+        final long delta = System.nanoTime() - timerEntry.start;
+        if (timerEntry.sampled) {
+            accumulate(timerEntry.operation, delta, timerEntry.inNestedOperationsNanos,
+                       currentThreadCpuTime() - timerEntry.startCpuNanos,
+                       currentThreadAllocatedBytes() - timerEntry.startAllocatedBytes, extraDataCounter);
+        } else {
+            accumulate(timerEntry.operation, delta, timerEntry.inNestedOperationsNanos, 0, 0, extraDataCounter);
+        }
+    }
 
+    private static void accumulate(final TimedOperationKey operation, final long delta, final long nestedNanos,
+            final long cpuDelta, final long allocatedDelta, final long extraDataCounter) {
         // Compute if absent
-        TimedResult result = ACCUMULATED_RESULTS.get(timerEntry.operation);
+        TimedResult result = ACCUMULATED_RESULTS.get(operation);
         if (result == null) {
-            ACCUMULATED_RESULTS.putIfAbsent(timerEntry.operation, new TimedResult());
-            result = ACCUMULATED_RESULTS.get(timerEntry.operation);
+            ACCUMULATED_RESULTS.putIfAbsent(operation, new TimedResult());
+            result = ACCUMULATED_RESULTS.get(operation);
         }
 
         // Update counters and let next element on the stack ignore the time we spent
-        final long delta = result.accumulate(timerEntry, extraDataCounter);
+        result.accumulate(delta, nestedNanos, cpuDelta, allocatedDelta, extraDataCounter);
+        final Queue<TimerEntry> queue = TIMER_ENTRIES.get();
+        if (!isInUnlabeledOperation(queue, operation.category)) {
+            result.unnestedTimeNanos.getAndAdd(delta);
+        }
         if (!queue.isEmpty()) {
             queue.peek().inNestedOperationsNanos += delta;
         }
+
+        final String fileName = CURRENT_FILE.get();
+        final TimedOperationCategory category = operation.category;
+        if (fileName != null && !category.isPerNode()) {
+            // the rules are labeled with their name, their unlabeled total is a phase
+            final boolean isRule = operation.label != null
+                && (category == TimedOperationCategory.RULE || category == TimedOperationCategory.RULECHAIN_RULE);
+            final SlowestOperations outliers = isRule ? getOutliers().rules : getOutliers().phases;
+            outliers.offer(fileName, category, operation.label, delta);
+        }
     }
 
     /**
      * An entry in the open timers queue. Defines an operation that has started and hasn't finished yet.
      */
+    private static boolean isInUnlabeledOperation(final Queue<TimerEntry> queue, final TimedOperationCategory category) {
+        for (final TimerEntry entry : queue) {
+            if (entry.operation.category == category && entry.operation.label == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static class TimerEntry {
         /* package */ final TimedOperationKey operation;
         /* package */ final long start;
+        /* package */ final long startCpuNanos;
+        /* package */ final long startAllocatedBytes;
+        /** Whether the CPU time and the allocations of the thread are measured. */
+        /* package */ final boolean sampled;
         /* package */ long inNestedOperationsNanos = 0;
 
         /* package */ TimerEntry(final TimedOperationCategory category, final String label) {
             this.operation = new TimedOperationKey(category, label);
+            // the thread counters would inflate the very short operations they measure
+            this.sampled = !category.isPerNode();
+            this.startAllocatedBytes = sampled ? currentThreadAllocatedBytes() : 0;
+            this.startCpuNanos = sampled ? currentThreadCpuTime() : 0;
             this.start = System.nanoTime();
         }
 
@@ -189,31 +403,56 @@ public final class TimeTracker {
         /* package */ AtomicLong selfTimeNanos = new AtomicLong();
         /* package */ AtomicInteger callCount = new AtomicInteger();
         /* package */ AtomicLong extraDataCounter = new AtomicLong();
+        /** CPU time of the thread, including the nested operations. */
+        /* package */ AtomicLong cpuTimeNanos = new AtomicLong();
+        /** Bytes allocated by the thread, including the nested operations. */
+        /* package */ AtomicLong allocatedBytes = new AtomicLong();
+        /**
+         * Wall clock time of the calls which didn't run inside an unlabeled
+         * operation of the same category, and aren't part of its time.
+         */
+        /* package */ AtomicLong unnestedTimeNanos = new AtomicLong();
+        /** Distribution of the wall clock time of the calls. */
+        /* package */ DurationHistogram durations = new DurationHistogram();
 
         /**
-         * Adds a new {@link TimerEntry} to the results.
-         * @param timerEntry The entry to be added
+         * Adds a finished operation to the results.
+         * @param delta The wall clock time of the operation in nanos
+         * @param nestedNanos The time spent in its nested operations in nanos
+         * @param cpuDelta The CPU time of the operation in nanos
+         * @param allocatedDelta The bytes allocated by the operation
          * @param extraData Any extra data counter to be added
-         * @return The delta time transcurred since the {@link TimerEntry} began in nanos.
          */
-        /* package */ long accumulate(final TimerEntry timerEntry, final long extraData) {
-            final long delta = System.nanoTime() - timerEntry.start;
-
+        /* package */ void accumulate(final long delta, final long nestedNanos, final long cpuDelta,
+                final long allocatedDelta, final long extraData) {
             totalTimeNanos.getAndAdd(delta);
-            selfTimeNanos.getAndAdd(delta - timerEntry.inNestedOperationsNanos);
+            selfTimeNanos.getAndAdd(delta - nestedNanos);
             callCount.getAndIncrement();
             extraDataCounter.getAndAdd(extraData);
-
-            return delta;
+            cpuTimeNanos.getAndAdd(cpuDelta);
+            allocatedBytes.getAndAdd(allocatedDelta);
+            durations.record(delta);
         }
 
         /**
-         * Merges the times (and only the times) from another {@link TimedResult} into self.
+         * Merges the times, CPU times and allocations (and only those) from another {@link TimedResult} into self.
          * @param timedResult The {@link TimedResult} to merge
          */
         /* package */ void mergeTimes(final TimedResult timedResult) {
             totalTimeNanos.getAndAdd(timedResult.totalTimeNanos.get());
             selfTimeNanos.getAndAdd(timedResult.selfTimeNanos.get());
+            cpuTimeNanos.getAndAdd(timedResult.cpuTimeNanos.get());
+            allocatedBytes.getAndAdd(timedResult.allocatedBytes.get());
+            unnestedTimeNanos.getAndAdd(timedResult.unnestedTimeNanos.get());
+        }
+
+        /**
+         * Returns an estimate of a percentile of the wall clock time of the calls.
+         * @param percentile A percentile between 0 and 100
+         * @return The duration in nanos, 0 if there were no calls
+         */
+        /* package */ long getDurationPercentile(final double percentile) {
+            return durations.getPercentile(percentile);
         }
     }
 
@@ -262,6 +501,54 @@ public final class TimeTracker {
         }
     }
 
+    /**
+     * The slowest operations on a single file seen by a thread.
+     */
+    private static class ThreadOutliers {
+        /* package */ final int generation;
+        /* package */ final SlowestOperations files = new SlowestOperations(SLOWEST_OPERATIONS);
+        /* package */ final SlowestOperations phases = new SlowestOperations(SLOWEST_OPERATIONS);
+        /* package */ final SlowestOperations rules = new SlowestOperations(SLOWEST_OPERATIONS);
+
+        /* package */ ThreadOutliers(final int generation) {
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * The analysis of a file. It is not accumulated in the results, but
+     * it is retained if it is one of the slowest.
+     */
+    private static class FileOperation implements TimedOperation {
+        private final String fileName;
+        private final long start = System.nanoTime();
+        private boolean closed = false;
+
+        /* package */ FileOperation(final String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public void close() {
+            close(0);
+        }
+
+        @Override
+        public void close(int extraDataCounter) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            CURRENT_FILE.remove();
+            if (trackTime) {
+                final long delta = System.nanoTime() - start;
+                TOTAL_FILE_NANOS.addAndGet(delta);
+                getOutliers().files.offer(fileName, TimedOperationCategory.FILE_PROCESSING, null, delta);
+            }
+        }
+    }
+
     /**
      * A standard timed operation implementation.
      */
@@ -22,7 +22,13 @@ public enum TimedOperationCategory {
     DFA,
     TYPE_RESOLUTION,
     RULECHAIN_VISIT,
+    XPATH_FUNCTION,
+    CLASS_LOOKUP,
     MULTIFILE_ANALYSIS,
+    ANALYSIS_CACHE,
+    CPD_TOKENIZATION,
+    CPD_HASHING,
+    CPD_MATCHING,
     REPORTING,
     FILE_PROCESSING,
     UNACCOUNTED;
@@ -36,4 +42,12 @@ public enum TimedOperationCategory {
         sb.setLength(sb.length() - 1); // remove the final space
         return sb.toString();
     }
+
+    /**
+     * Returns whether the operations of the category are timed once per
+     * node or per lookup, i.e. are short and very frequent.
+     */
+    /* package */ boolean isPerNode() {
+        return this == XPATH_FUNCTION || this == CLASS_LOOKUP;
+    }
 }
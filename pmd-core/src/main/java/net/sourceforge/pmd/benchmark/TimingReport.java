@@ -4,7 +4,9 @@
 
 package net.sourceforge.pmd.benchmark;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.sourceforge.pmd.benchmark.TimeTracker.TimedOperationKey;
@@ -18,10 +20,20 @@ public class TimingReport {
 
     private final long wallClockMillis;
     private final Map<TimedOperationKey, TimedResult> results;
+    private final List<SlowOperation> slowestFiles;
+    private final List<SlowOperation> slowestFilePhases;
+    private final List<SlowOperation> slowestFileRules;
+    private final long totalFileNanos;
 
-    /* package */ TimingReport(final long wallClockMillis, final Map<TimedOperationKey, TimedResult> accumulatedResults) {
+    /* package */ TimingReport(final long wallClockMillis, final Map<TimedOperationKey, TimedResult> accumulatedResults,
+                               final List<SlowOperation> slowestFiles, final List<SlowOperation> slowestFilePhases,
+                               final List<SlowOperation> slowestFileRules, final long totalFileNanos) {
         this.wallClockMillis = wallClockMillis;
         results = accumulatedResults;
+        this.slowestFiles = Collections.unmodifiableList(slowestFiles);
+        this.slowestFilePhases = Collections.unmodifiableList(slowestFilePhases);
+        this.slowestFileRules = Collections.unmodifiableList(slowestFileRules);
+        this.totalFileNanos = totalFileNanos;
     }
 
     public Map<String, TimedResult> getLabeledMeasurements(final TimedOperationCategory category) {
@@ -51,4 +63,43 @@ public class TimingReport {
     public long getWallClockMillis() {
         return wallClockMillis;
     }
+
+    /**
+     * Returns the slowest analyses of a whole file, slowest first. Their
+     * category is {@link TimedOperationCategory#FILE_PROCESSING}.
+     *
+     * @since 6.31.0
+     */
+    public List<SlowOperation> getSlowestFiles() {
+        return slowestFiles;
+    }
+
+    /**
+     * Returns the slowest phases on a single file, slowest first, e.g. the
+     * parsing or the type resolution of a file.
+     *
+     * @since 6.31.0
+     */
+    public List<SlowOperation> getSlowestFilePhases() {
+        return slowestFilePhases;
+    }
+
+    /**
+     * Returns the slowest rules applied to a single file, slowest first.
+     *
+     * @since 6.31.0
+     */
+    public List<SlowOperation> getSlowestFileRules() {
+        return slowestFileRules;
+    }
+
+    /**
+     * Returns the sum of the wall clock times of the analyses of the files,
+     * in nanoseconds. With several threads, it exceeds the wall clock time.
+     *
+     * @since 6.31.0
+     */
+    public long getTotalFileNanos() {
+        return totalFileNanos;
+    }
 }
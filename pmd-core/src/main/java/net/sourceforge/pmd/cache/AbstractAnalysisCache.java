@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
@@ -34,6 +35,8 @@ import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.MetricsRegistry;
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Counter;
 import net.sourceforge.pmd.stat.Metric;
 
 /**
@@ -46,9 +49,15 @@ import net.sourceforge.pmd.stat.Metric;
 public abstract class AbstractAnalysisCache implements AnalysisCache {
 
     protected static final Logger LOG = Logger.getLogger(AbstractAnalysisCache.class.getName());
+    private static final Counter CACHE_HITS = MetricsRegistry.getInstance()
+        .counter("pmd_cache_hits_total", "Files whose violations were found in the analysis cache");
+    private static final Counter CACHE_MISSES = MetricsRegistry.getInstance()
+        .counter("pmd_cache_misses_total", "Files which are new or changed since the analysis cache was written");
     protected final String pmdVersion;
     protected final ConcurrentMap<String, AnalysisResult> fileResultsCache;
     protected final ConcurrentMap<String, AnalysisResult> updatedResultsCache;
+    protected final ConcurrentMap<String, Long> disabledRules;
+    protected final ConcurrentMap<String, Double> memoryRatios;
     protected final CachedRuleMapper ruleMapper = new CachedRuleMapper();
     protected long rulesetChecksum;
     protected long auxClassPathChecksum;
@@ -61,6 +70,8 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
         pmdVersion = PMDVersion.VERSION;
         fileResultsCache = new ConcurrentHashMap<>();
         updatedResultsCache = new ConcurrentHashMap<>();
+        disabledRules = new ConcurrentHashMap<>();
+        memoryRatios = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -72,16 +83,25 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
         // Now check the old cache
         final AnalysisResult analysisResult = fileResultsCache.get(sourceFile.getPath());
 
-        // is this a known file? has it changed?
+        // is this a known file? has it changed? were all the rules applied to it?
         final boolean result = analysisResult != null
+                && analysisResult.isComplete()
                 && analysisResult.getFileChecksum() == updatedResult.getFileChecksum();
 
+        (result ? CACHE_HITS : CACHE_MISSES).increment();
+
+        // the rules which were too slow on the file are still skipped if it changed
+        if (analysisResult != null) {
+            updatedResult.getSkippedRules().putAll(analysisResult.getSkippedRules());
+        }
+
         if (LOG.isLoggable(Level.FINE)) {
             if (result) {
                 LOG.fine("Incremental Analysis cache HIT");
             } else {
                 LOG.fine("Incremental Analysis cache MISS - "
-                        + (analysisResult != null ? "file changed" : "no previous result found"));
+                        + (analysisResult == null ? "no previous result found"
+                            : analysisResult.isComplete() ? "file changed" : "some rules were skipped"));
             }
         }
 
@@ -100,6 +120,52 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
         return analysisResult.getViolations();
     }
 
+    @Override
+    public Map<String, Long> getDisabledRules() {
+        return Collections.unmodifiableMap(disabledRules);
+    }
+
+    @Override
+    public void ruleDisabled(final String ruleName, final long budgetMillis) {
+        disabledRules.put(ruleName, budgetMillis);
+    }
+
+    @Override
+    public Map<String, Double> getMemoryRatios() {
+        // the ratios depend on the languages, not on the rules: they stay valid
+        return Collections.unmodifiableMap(memoryRatios);
+    }
+
+    @Override
+    public void setMemoryRatio(final String languageName, final double ratio) {
+        memoryRatios.put(languageName, ratio);
+    }
+
+    @Override
+    public Map<String, Long> getSkippedRules(final File sourceFile) {
+        final AnalysisResult analysisResult = updatedResultsCache.get(sourceFile.getPath());
+        if (analysisResult == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(analysisResult.getSkippedRules());
+    }
+
+    @Override
+    public void ruleSkipped(final File sourceFile, final String ruleName, final long budgetMillis) {
+        final AnalysisResult analysisResult = updatedResultsCache.get(sourceFile.getPath());
+        if (analysisResult != null) {
+            analysisResult.addSkippedRule(ruleName, budgetMillis);
+        }
+    }
+
+    @Override
+    public void analysisIncomplete(final File sourceFile) {
+        final AnalysisResult analysisResult = updatedResultsCache.get(sourceFile.getPath());
+        if (analysisResult != null) {
+            analysisResult.setComplete(false);
+        }
+    }
+
     @Override
     public void analysisFailed(final File sourceFile) {
         updatedResultsCache.remove(sourceFile.getPath());
@@ -152,6 +218,7 @@ public abstract class AbstractAnalysisCache implements AnalysisCache {
         if (!cacheIsValid) {
             // Clear the cache
             fileResultsCache.clear();
+            disabledRules.clear();
         }
 
         // Update the local checksums
@@ -6,6 +6,7 @@ package net.sourceforge.pmd.cache;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
@@ -62,4 +63,78 @@ public interface AnalysisCache extends ThreadSafeReportListener {
      * @param auxclassPathClassLoader The class loader for auxclasspath configured for this analysis.
      */
     void checkValidity(RuleSets ruleSets, ClassLoader auxclassPathClassLoader);
+
+    /**
+     * Returns the rules which exceeded their cumulative time budget in an
+     * earlier analysis, by name. The values are the exceeded budgets, in
+     * milliseconds.
+     *
+     * @since 6.31.0
+     */
+    Map<String, Long> getDisabledRules();
+
+    /**
+     * Records that the given rule exceeded its cumulative time budget.
+     *
+     * @param ruleName     The name of the rule
+     * @param budgetMillis The exceeded budget, in milliseconds
+     *
+     * @since 6.31.0
+     */
+    void ruleDisabled(String ruleName, long budgetMillis);
+
+    /**
+     * Returns the rules which exceeded their time budget on the given file in
+     * an earlier analysis, by name, even if the file changed since then. The
+     * values are the exceeded budgets, in milliseconds. Make sure to call
+     * {@link #isUpToDate(File)} first.
+     *
+     * @param sourceFile The file to check in the cache
+     *
+     * @since 6.31.0
+     */
+    Map<String, Long> getSkippedRules(File sourceFile);
+
+    /**
+     * Records that the given rule exceeded its time budget on the given file.
+     *
+     * @param sourceFile   The file
+     * @param ruleName     The name of the rule
+     * @param budgetMillis The exceeded budget, in milliseconds
+     *
+     * @since 6.31.0
+     */
+    void ruleSkipped(File sourceFile, String ruleName, long budgetMillis);
+
+    /**
+     * Notifies the cache that some rules were not applied to the given file,
+     * because of their time budget. Its violations are then not reused by the
+     * next analyses, even if the file doesn't change, but the rules which
+     * exceeded their budget on the file are still recorded.
+     *
+     * @param sourceFile The file
+     *
+     * @since 6.31.0
+     */
+    void analysisIncomplete(File sourceFile);
+
+    /**
+     * Returns the heap retained by the AST per byte of source in an earlier
+     * analysis, by language name. It is used to estimate the memory needed
+     * by a file before starting to analyze it.
+     *
+     * @since 6.31.0
+     */
+    Map<String, Double> getMemoryRatios();
+
+    /**
+     * Records the heap retained by the AST per byte of source of the given
+     * language.
+     *
+     * @param languageName The name of the language
+     * @param ratio        The retained bytes per byte of source
+     *
+     * @since 6.31.0
+     */
+    void setMemoryRatio(String languageName, double ratio);
 }
@@ -10,6 +10,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.Adler32;
 import java.util.zip.CheckedInputStream;
 
@@ -20,7 +22,10 @@ import net.sourceforge.pmd.annotation.InternalApi;
 
 /**
  * The result of a single file analysis.
- * Includes a checksum of the file and the complete list of violations detected.
+ * Includes a checksum of the file and the complete list of violations detected,
+ * and the rules which exceeded their time budget on the file.
+ * A result is incomplete if some rules were skipped on the file because of
+ * their time budget: its violations must not be reused.
  * @deprecated This is internal API, will be hidden with 7.0.0
  */
 @Deprecated
@@ -29,6 +34,8 @@ public class AnalysisResult {
 
     private final long fileChecksum;
     private final List<RuleViolation> violations;
+    private final Map<String, Long> skippedRules = new ConcurrentHashMap<>();
+    private volatile boolean complete = true;
 
     public AnalysisResult(final long fileChecksum, final List<RuleViolation> violations) {
         this.fileChecksum = fileChecksum;
@@ -74,4 +81,38 @@ public class AnalysisResult {
     public void addViolation(final RuleViolation ruleViolation) {
         this.violations.add(ruleViolation);
     }
+
+    /**
+     * Returns the rules which exceeded their time budget on the file, by
+     * name. The values are the exceeded budgets, in milliseconds.
+     *
+     * @since 6.31.0
+     */
+    public Map<String, Long> getSkippedRules() {
+        return skippedRules;
+    }
+
+    /**
+     * @since 6.31.0
+     */
+    public void addSkippedRule(final String ruleName, final long budgetMillis) {
+        this.skippedRules.put(ruleName, budgetMillis);
+    }
+
+    /**
+     * Returns false if some rules were not applied to the file, because
+     * of their time budget. The violations are then not the complete list.
+     *
+     * @since 6.31.0
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @since 6.31.0
+     */
+    public void setComplete(final boolean complete) {
+        this.complete = complete;
+    }
 }
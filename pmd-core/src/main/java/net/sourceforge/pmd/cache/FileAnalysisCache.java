@@ -19,6 +19,9 @@ import java.util.Map;
 import net.sourceforge.pmd.PMDVersion;
 import net.sourceforge.pmd.RuleViolation;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 
 /**
  * An analysis cache backed by a regular file.
@@ -39,7 +42,9 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
         super();
         this.cacheFile = cache;
 
-        loadFromFile(cache);
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "load")) {
+            loadFromFile(cache);
+        }
     }
 
     /**
@@ -62,10 +67,23 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                     auxClassPathChecksum = inputStream.readLong();
                     executionClassPathChecksum = inputStream.readLong();
 
+                    // Rules which exceeded their time budget
+                    final int countDisabledRules = inputStream.readInt();
+                    for (int i = 0; i < countDisabledRules; i++) {
+                        disabledRules.put(inputStream.readUTF(), inputStream.readLong());
+                    }
+
+                    // Heap retained per byte of source, by language
+                    final int countMemoryRatios = inputStream.readInt();
+                    for (int i = 0; i < countMemoryRatios; i++) {
+                        memoryRatios.put(inputStream.readUTF(), inputStream.readDouble());
+                    }
+
                     // Cached results
                     while (inputStream.available() > 0) {
                         final String fileName = inputStream.readUTF();
                         final long checksum = inputStream.readLong();
+                        final boolean complete = inputStream.readBoolean();
 
                         final int countViolations = inputStream.readInt();
                         final List<RuleViolation> violations = new ArrayList<>(countViolations);
@@ -73,7 +91,14 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
                             violations.add(CachedRuleViolation.loadFromStream(inputStream, fileName, ruleMapper));
                         }
 
-                        fileResultsCache.put(fileName, new AnalysisResult(checksum, violations));
+                        final AnalysisResult result = new AnalysisResult(checksum, violations);
+                        result.setComplete(complete);
+                        final int countSkippedRules = inputStream.readInt();
+                        for (int i = 0; i < countSkippedRules; i++) {
+                            result.addSkippedRule(inputStream.readUTF(), inputStream.readLong());
+                        }
+
+                        fileResultsCache.put(fileName, result);
                     }
 
                     LOG.info("Analysis cache loaded");
@@ -92,7 +117,12 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
 
     @Override
     public void persist() {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.ANALYSIS_CACHE, "persist")) {
+            persistToFile();
+        }
+    }
 
+    private void persistToFile() {
         if (cacheFile.isDirectory()) {
             LOG.severe("Cannot persist the cache, the given path points to a directory.");
             return;
@@ -118,16 +148,27 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
             outputStream.writeLong(auxClassPathChecksum);
             outputStream.writeLong(executionClassPathChecksum);
 
+            writeSkippedRules(outputStream, disabledRules);
+
+            final List<Map.Entry<String, Double>> ratios = new ArrayList<>(memoryRatios.entrySet());
+            outputStream.writeInt(ratios.size());
+            for (final Map.Entry<String, Double> ratio : ratios) {
+                outputStream.writeUTF(ratio.getKey());
+                outputStream.writeDouble(ratio.getValue());
+            }
+
             for (final Map.Entry<String, AnalysisResult> resultEntry : updatedResultsCache.entrySet()) {
                 final List<RuleViolation> violations = resultEntry.getValue().getViolations();
 
                 outputStream.writeUTF(resultEntry.getKey()); // the full filename
                 outputStream.writeLong(resultEntry.getValue().getFileChecksum());
+                outputStream.writeBoolean(resultEntry.getValue().isComplete());
 
                 outputStream.writeInt(violations.size());
                 for (final RuleViolation rv : violations) {
                     CachedRuleViolation.storeToStream(outputStream, rv);
                 }
+                writeSkippedRules(outputStream, resultEntry.getValue().getSkippedRules());
             }
             if (cacheFileShouldBeCreated) {
                 LOG.info("Analysis cache created");
@@ -139,6 +180,16 @@ public class FileAnalysisCache extends AbstractAnalysisCache {
         }
     }
 
+    private static void writeSkippedRules(final DataOutputStream outputStream, final Map<String, Long> rules)
+            throws IOException {
+        // copy the entries, for the count to match
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(rules.entrySet());
+        outputStream.writeInt(entries.size());
+        for (final Map.Entry<String, Long> entry : entries) {
+            outputStream.writeUTF(entry.getKey());
+            outputStream.writeLong(entry.getValue());
+        }
+    }
 
     @Override
     protected boolean cacheExists() {
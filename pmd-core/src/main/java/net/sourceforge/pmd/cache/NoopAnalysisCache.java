@@ -7,6 +7,7 @@ package net.sourceforge.pmd.cache;
 import java.io.File;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RuleViolation;
@@ -56,4 +57,39 @@ public class NoopAnalysisCache implements AnalysisCache {
     public List<RuleViolation> getCachedViolations(File sourceFile) {
         return Collections.emptyList();
     }
+
+    @Override
+    public Map<String, Long> getDisabledRules() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void ruleDisabled(String ruleName, long budgetMillis) {
+        // noop
+    }
+
+    @Override
+    public Map<String, Long> getSkippedRules(File sourceFile) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void ruleSkipped(File sourceFile, String ruleName, long budgetMillis) {
+        // noop
+    }
+
+    @Override
+    public void analysisIncomplete(File sourceFile) {
+        // noop
+    }
+
+    @Override
+    public Map<String, Double> getMemoryRatios() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void setMemoryRatio(String languageName, double ratio) {
+        // noop
+    }
 }
@@ -66,6 +66,49 @@ public class PMDParameters {
             description = "Benchmark mode - output a benchmark report upon completion; default to System.err.")
     private boolean benchmark = false;
 
+    @Parameter(names = "-benchmarkformat",
+            description = "Format of the benchmark report, text or json. Default is text.")
+    private String benchmarkFormat = "text";
+
+    @Parameter(names = "-astmemory",
+            description = "Measures the heap retained by the AST of each file, and outputs its distribution per language "
+                + "upon completion to System.err. Slows down the analysis.")
+    private boolean astMemory = false;
+
+    @Parameter(names = "-metricsfile",
+            description = "File to which the metrics of the analysis are exported periodically, in JSON if the name ends with .json, "
+                + "otherwise in the Prometheus text format.")
+    private String metricsFile;
+
+    @Parameter(names = "-metricsinterval", description = "Interval between two exports of the metrics, in seconds.",
+            validateWith = PositiveInteger.class)
+    private int metricsInterval = 10;
+
+    @Parameter(names = "-rulebudget",
+            description = "Time in milliseconds a rule may spend over all the files before it is disabled. "
+                + "Default is 0, for no limit.",
+            validateWith = PositiveInteger.class)
+    private int ruleTimeBudget = 0;
+
+    @Parameter(names = "-rulefilebudget",
+            description = "Time in milliseconds a rule may spend on a single file before it is skipped on this file. "
+                + "Default is 0, for no limit.",
+            validateWith = PositiveInteger.class)
+    private int ruleFileTimeBudget = 0;
+
+    @Parameter(names = "-memoryfraction",
+            description = "Fraction of the maximum heap, between 0 and 1, which the files analyzed concurrently may use, "
+                + "as estimated from their size. Default is 0, for no limit.")
+    private double memoryFraction = 0;
+
+    @Parameter(names = "-progress",
+            description = "Displays the progress of the analysis on System.err.")
+    private boolean progressBar = false;
+
+    @Parameter(names = "-progressfile",
+            description = "File to which the progress of the analysis is written, as a JSON object per line and per event.")
+    private String progressFile;
+
     @Parameter(names = { "-stress", "-S" }, description = "Performs a stress test.")
     private boolean stress = false;
 
@@ -195,6 +238,16 @@ public class PMDParameters {
         configuration.setInputUri(this.getUri());
         configuration.setReportFormat(this.getFormat());
         configuration.setBenchmark(this.isBenchmark());
+        configuration.setMetricsFile(this.metricsFile);
+        configuration.setMetricsInterval(this.metricsInterval);
+        configuration.setRuleTimeBudget(this.ruleTimeBudget);
+        configuration.setRuleFileTimeBudget(this.ruleFileTimeBudget);
+        if (this.memoryFraction < 0 || this.memoryFraction > 1) {
+            throw new IllegalArgumentException("The memory fraction must be between 0 and 1, not " + this.memoryFraction);
+        }
+        configuration.setMemoryFraction(this.memoryFraction);
+        configuration.setProgressBar(this.progressBar);
+        configuration.setProgressFile(this.progressFile);
         configuration.setDebug(this.isDebug());
         configuration.setMinimumPriority(this.getMinimumPriority());
         configuration.setReportFile(this.getReportfile());
@@ -259,6 +312,24 @@ public class PMDParameters {
         return benchmark;
     }
 
+    /**
+     * Returns the format of the benchmark report, text or json.
+     *
+     * @since 6.31.0
+     */
+    public String getBenchmarkFormat() {
+        return benchmarkFormat;
+    }
+
+    /**
+     * Returns whether the heap retained by the ASTs is measured.
+     *
+     * @since 6.31.0
+     */
+    public boolean isAstMemory() {
+        return astMemory;
+    }
+
     public boolean isStress() {
         return stress;
     }
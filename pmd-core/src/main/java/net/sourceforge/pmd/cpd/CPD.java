@@ -7,7 +7,9 @@ package net.sourceforge.pmd.cpd;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -20,6 +22,10 @@ import java.util.logging.Logger;
 import org.apache.commons.io.FilenameUtils;
 
 import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 import net.sourceforge.pmd.lang.ast.TokenMgrError;
 import net.sourceforge.pmd.util.FileFinder;
 import net.sourceforge.pmd.util.database.DBMSMetadata;
@@ -34,14 +40,18 @@ public class CPD {
     private Map<String, SourceCode> source = new TreeMap<>();
     private CPDListener listener = new CPDNullListener();
     private Tokens tokens = new Tokens();
-    private MatchAlgorithm matchAlgorithm;
+    private List<Match> matches;
     private Set<String> current = new HashSet<>();
+    private TokenCache tokenCache;
 
     public CPD(CPDConfiguration theConfiguration) {
         configuration = theConfiguration;
         // before we start any tokenizing (add(File...)), we need to reset the
         // static TokenEntry status
         TokenEntry.clearImages();
+        if (configuration.getTokenCacheFile() != null) {
+            tokenCache = new TokenCache(configuration.getTokenCacheFile(), TokenCache.signature(configuration));
+        }
     }
 
     public void setCpdListener(CPDListener cpdListener) {
@@ -49,12 +59,94 @@ public class CPD {
     }
 
     public void go() {
-        matchAlgorithm = new MatchAlgorithm(source, tokens, configuration.getMinimumTileSize(), listener);
-        matchAlgorithm.findMatches();
+        try {
+            CPDBaseline baseline = loadBaseline();
+            MatchSelection selection = new MatchSelection(configuration.getMinimumLineCount(),
+                    configuration.getMaxDuplications(), baseline);
+            newMatchAlgorithm().findMatches(selection);
+            matches = selection.getMatches();
+            saveBaseline(baseline);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Finds the duplications and renders each one as soon as it is found,
+     * without sorting them. If the number of reported duplications is
+     * limited with {@link CPDConfiguration#getMaxDuplications()}, the
+     * largest duplications are rendered, sorted, once all of them are known.
+     * {@link #getMatches()} is empty afterwards.
+     *
+     * <p>The baseline given with {@link CPDConfiguration#getBaselineFile()}
+     * is only updated once all duplications are rendered.
+     *
+     * @param renderer Renderer for the duplications
+     * @param writer   Writer for the report
+     *
+     * @return The number of rendered duplications
+     *
+     * @throws IOException If writing the report fails
+     * @since 6.31.0
+     */
+    public int go(final CPDStreamingRenderer renderer, final Writer writer) throws IOException {
+        if (configuration.getMaxDuplications() > 0) {
+            go();
+            renderer.render(matches.iterator(), writer);
+            return matches.size();
+        }
+
+        matches = Collections.emptyList();
+        final CPDBaseline baseline = loadBaseline();
+        final MatchSelection selection = new MatchSelection(configuration.getMinimumLineCount(), 0, baseline);
+        final int[] count = {0};
+        // the listener can't throw the IOException, it is rethrown once the matches are found
+        final IOException[] failure = {null};
+        renderer.start(writer);
+        newMatchAlgorithm().findMatches(new MatchListener() {
+            @Override
+            public void matchFound(Match match) {
+                if (failure[0] != null || !selection.accepts(match)) {
+                    return;
+                }
+                try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.REPORTING)) {
+                    renderer.renderMatch(match, writer);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return;
+                }
+                count[0]++;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        renderer.end(writer);
+        saveBaseline(baseline);
+        return count[0];
+    }
+
+    private MatchAlgorithm newMatchAlgorithm() {
+        if (tokenCache != null) {
+            // all the files are added by now
+            tokenCache.persist();
+        }
+        return new MatchAlgorithm(source, tokens, configuration.getMinimumTileSize(), listener);
+    }
+
+    private CPDBaseline loadBaseline() throws IOException {
+        File baselineFile = configuration.getBaselineFile();
+        return baselineFile == null ? null : CPDBaseline.load(baselineFile, tokens.getTokens());
+    }
+
+    private void saveBaseline(CPDBaseline baseline) throws IOException {
+        if (baseline != null && configuration.isUpdateBaseline()) {
+            baseline.save(configuration.getBaselineFile());
+        }
     }
 
     public Iterator<Match> getMatches() {
-        return matchAlgorithm.matches();
+        return matches.iterator();
     }
 
     public void addAllInDirectory(File dir) throws IOException {
@@ -141,11 +233,32 @@ public class CPD {
     }
 
     private void addAndThrowLexicalError(SourceCode sourceCode) throws IOException {
-        configuration.tokenizer().tokenize(sourceCode, tokens);
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.CPD_TOKENIZATION);
+             TimedOperation lto = TimeTracker.startOperation(TimedOperationCategory.CPD_TOKENIZATION,
+                     configuration.getLanguage().getName())) {
+            int tokenCount = tokens.size();
+            tokenize(sourceCode);
+            lto.close(tokens.size() - tokenCount);
+            to.close(tokens.size() - tokenCount);
+        }
         listener.addedFile(1, new File(sourceCode.getFileName()));
         source.put(sourceCode.getFileName(), sourceCode);
     }
 
+    private void tokenize(SourceCode sourceCode) throws IOException {
+        if (tokenCache == null) {
+            configuration.tokenizer().tokenize(sourceCode, tokens);
+            return;
+        }
+        int tokenCount = tokens.size();
+        long checksum = TokenCache.checksum(sourceCode);
+        if (!tokenCache.addCachedTokens(sourceCode.getFileName(), checksum, tokens)) {
+            configuration.tokenizer().tokenize(sourceCode, tokens);
+            tokenCache.record(sourceCode.getFileName(), checksum,
+                    tokens.getTokens().subList(tokenCount, tokens.size()));
+        }
+    }
+
     private void addAndSkipLexicalErrors(SourceCode sourceCode) throws IOException {
         TokenEntry.State savedTokenEntry = new TokenEntry.State(tokens.getTokens());
         try {
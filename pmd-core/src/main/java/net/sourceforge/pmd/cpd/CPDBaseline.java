@@ -0,0 +1,128 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A snapshot of the duplications found by an earlier run of CPD, used to
+ * only report the duplications which are new since then.
+ *
+ * <p>Each duplication is recorded as a 64-bit fingerprint of its token
+ * images and of its number of occurrences. The fingerprint doesn't depend
+ * on file names or line numbers, so moving duplicated code around doesn't
+ * make a duplication new, but changing it or adding another copy does.
+ * The snapshot file contains one fingerprint per line, in hexadecimal.
+ */
+final class CPDBaseline {
+
+    private static final String HEADER = "# CPD baseline, one fingerprint per duplication";
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /** Sorted fingerprints of the snapshot. */
+    private final long[] known;
+    private final List<TokenEntry> tokens;
+    /** Fingerprints of the duplications found in this run, unsorted. */
+    private long[] found = new long[16];
+    private int foundCount;
+
+    CPDBaseline(long[] known, List<TokenEntry> tokens) {
+        this.known = known.clone();
+        this.tokens = tokens;
+        Arrays.sort(this.known);
+    }
+
+    /**
+     * Loads the snapshot from the given file. A missing file is an empty
+     * snapshot, so that all duplications are new.
+     *
+     * @param file   Snapshot file
+     * @param tokens Tokens of the current run, the matches refer to them
+     */
+    static CPDBaseline load(File file, List<TokenEntry> tokens) throws IOException {
+        long[] fingerprints = new long[16];
+        int count = 0;
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.charAt(0) == '#') {
+                        continue;
+                    }
+                    if (count == fingerprints.length) {
+                        fingerprints = Arrays.copyOf(fingerprints, count * 2);
+                    }
+                    try {
+                        fingerprints[count++] = parseHex(line);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Invalid fingerprint in CPD baseline " + file + ": " + line, e);
+                    }
+                }
+            }
+        }
+        return new CPDBaseline(Arrays.copyOf(fingerprints, count), tokens);
+    }
+
+    private static long parseHex(String hex) {
+        if (hex.length() > 16) {
+            throw new NumberFormatException(hex);
+        }
+        // parseLong doesn't accept values with the highest bit set
+        return hex.length() <= 8 ? Long.parseLong(hex, 16)
+                : Long.parseLong(hex.substring(0, hex.length() - 8), 16) << 32 | Long.parseLong(hex.substring(hex.length() - 8), 16);
+    }
+
+    /**
+     * Returns true if the match is not part of the snapshot. The match is
+     * recorded for {@link #save(File)} in any case.
+     */
+    boolean isNew(Match match) {
+        long fingerprint = fingerprint(match);
+        if (foundCount == found.length) {
+            found = Arrays.copyOf(found, foundCount * 2);
+        }
+        found[foundCount++] = fingerprint;
+        return Arrays.binarySearch(known, fingerprint) < 0;
+    }
+
+    long fingerprint(Match match) {
+        long h = FNV_OFFSET_BASIS;
+        int start = match.getFirstMark().getToken().getIndex();
+        for (int i = start; i < start + match.getTokenCount(); i++) {
+            // String#hashCode is specified, so the fingerprint is stable across runs
+            h = (h ^ tokens.get(i).toString().hashCode()) * FNV_PRIME;
+        }
+        return (h ^ match.getMarkCount()) * FNV_PRIME;
+    }
+
+    /**
+     * Writes the fingerprints of all the duplications found in this run,
+     * whether they were new or not, to the given file.
+     */
+    void save(File file) throws IOException {
+        long[] sorted = Arrays.copyOf(found, foundCount);
+        Arrays.sort(sorted);
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (int i = 0; i < sorted.length; i++) {
+                if (i > 0 && sorted[i] == sorted[i - 1]) {
+                    continue;
+                }
+                writer.write(String.format("%016x", sorted[i]));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -17,6 +18,14 @@ import java.util.logging.Logger;
 
 import net.sourceforge.pmd.PMD;
 import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.benchmark.JsonTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.TextTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.benchmark.TimingReport;
+import net.sourceforge.pmd.benchmark.TimingReportRenderer;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 import net.sourceforge.pmd.util.FileUtil;
 import net.sourceforge.pmd.util.database.DBURI;
 
@@ -83,28 +92,65 @@ public final class CPDCommandLineInterface {
         CPDConfiguration.setSystemProperties(arguments);
         CPD cpd = new CPD(arguments);
 
+        if (arguments.isBenchmark()) {
+            TimeTracker.startGlobalTracking();
+        }
+
+        int status;
         try {
+            status = run(cpd, arguments);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            status = ERROR_STATUS;
+        }
+
+        if (arguments.isBenchmark()) {
+            renderBenchmark(TimeTracker.stopGlobalTracking(), arguments.getBenchmarkFormat());
+        }
+        setStatusCodeOrExit(status);
+    }
+
+    private static int run(CPD cpd, CPDConfiguration arguments) throws IOException {
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.COLLECT_FILES)) {
             addSourceFilesToCPD(cpd, arguments);
+        }
 
-            cpd.go();
-            if (arguments.getCPDRenderer() == null) {
-                // legacy writer
-                System.out.println(arguments.getRenderer().render(cpd.getMatches()));
-            } else {
-                arguments.getCPDRenderer().render(cpd.getMatches(), new BufferedWriter(new OutputStreamWriter(System.out)));
+        boolean foundDuplications;
+        if (arguments.isStreaming() && arguments.getCPDRenderer() instanceof CPDStreamingRenderer) {
+            CPDStreamingRenderer renderer = (CPDStreamingRenderer) arguments.getCPDRenderer();
+            foundDuplications = cpd.go(renderer, new BufferedWriter(new OutputStreamWriter(System.out))) > 0;
+        } else {
+            if (arguments.isStreaming()) {
+                LOGGER.warning("The renderer " + arguments.getRendererName() + " doesn't support streaming");
             }
-            if (cpd.getMatches().hasNext()) {
-                if (arguments.isFailOnViolation()) {
-                    setStatusCodeOrExit(DUPLICATE_CODE_FOUND);
+            cpd.go();
+            try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.REPORTING)) {
+                if (arguments.getCPDRenderer() == null) {
+                    // legacy writer
+                    System.out.println(arguments.getRenderer().render(cpd.getMatches()));
                 } else {
-                    setStatusCodeOrExit(NO_ERRORS_STATUS);
+                    arguments.getCPDRenderer().render(cpd.getMatches(), new BufferedWriter(new OutputStreamWriter(System.out)));
                 }
-            } else {
-                setStatusCodeOrExit(NO_ERRORS_STATUS);
             }
-        } catch (IOException | RuntimeException e) {
-            e.printStackTrace();
-            setStatusCodeOrExit(ERROR_STATUS);
+            foundDuplications = cpd.getMatches().hasNext();
+        }
+
+        if (foundDuplications && arguments.isFailOnViolation()) {
+            return DUPLICATE_CODE_FOUND;
+        }
+        return NO_ERRORS_STATUS;
+    }
+
+    private static void renderBenchmark(TimingReport timingReport, String format) {
+        final TimingReportRenderer renderer = "json".equalsIgnoreCase(format)
+                ? new JsonTimingReportRenderer() : new TextTimingReportRenderer();
+        try {
+            // Don't close this writer, we don't want to close stderr
+            @SuppressWarnings("PMD.CloseResource")
+            final Writer writer = new OutputStreamWriter(System.err);
+            renderer.render(timingReport, writer);
+        } catch (final IOException e) {
+            System.err.println(e.getMessage());
         }
     }
 
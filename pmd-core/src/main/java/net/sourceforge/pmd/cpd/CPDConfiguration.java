@@ -57,6 +57,44 @@ public class CPDConfiguration extends AbstractConfiguration {
             description = "The minimum token length which should be reported as a duplicate.", required = true)
     private int minimumTileSize;
 
+    @Parameter(names = "--minimum-lines",
+            description = "The minimum number of lines of a duplication to be reported.", required = false)
+    private int minimumLineCount;
+
+    @Parameter(names = "--max-duplications",
+            description = "Only report the given number of largest duplications. By default, all are reported.",
+            required = false)
+    private int maxDuplications;
+
+    @Parameter(names = "--stream",
+            description = "Write each duplication as soon as it is found, instead of sorting all duplications first",
+            required = false)
+    private boolean streaming;
+
+    @Parameter(names = "--baseline",
+            description = "Only report the duplications which are not recorded in the given baseline file",
+            required = false, converter = FileConverter.class)
+    private File baselineFile;
+
+    @Parameter(names = "--update-baseline",
+            description = "Record all the duplications found in the baseline file given with --baseline",
+            required = false)
+    private boolean updateBaseline;
+
+    @Parameter(names = "--token-cache",
+            description = "File to cache the tokens in, so that unchanged files are not tokenized again",
+            required = false, converter = FileConverter.class)
+    private File tokenCacheFile;
+
+    @Parameter(names = "--benchmark",
+            description = "Benchmark mode - output a timing report of the CPD phases upon completion to System.err",
+            required = false)
+    private boolean benchmark;
+
+    @Parameter(names = "--benchmark-format", description = "Format of the benchmark report, text or json. Default is text",
+            required = false)
+    private String benchmarkFormat = "text";
+
     @Parameter(names = "--skip-duplicate-files",
             description = "Ignore multiple copies of files of the same name and length in comparison", required = false)
     private boolean skipDuplicates;
@@ -302,6 +340,91 @@ public class CPDConfiguration extends AbstractConfiguration {
         this.minimumTileSize = minimumTileSize;
     }
 
+    public int getMinimumLineCount() {
+        return minimumLineCount;
+    }
+
+    public void setMinimumLineCount(int minimumLineCount) {
+        this.minimumLineCount = minimumLineCount;
+    }
+
+    public int getMaxDuplications() {
+        return maxDuplications;
+    }
+
+    /**
+     * Limits the report to the given number of largest duplications.
+     * Zero, the default, reports all of them.
+     */
+    public void setMaxDuplications(int maxDuplications) {
+        this.maxDuplications = maxDuplications;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public File getBaselineFile() {
+        return baselineFile;
+    }
+
+    /**
+     * Sets the baseline file. Only the duplications which are not recorded
+     * in it are reported.
+     *
+     * @since 6.31.0
+     */
+    public void setBaselineFile(File baselineFile) {
+        this.baselineFile = baselineFile;
+    }
+
+    public boolean isUpdateBaseline() {
+        return updateBaseline;
+    }
+
+    /**
+     * Whether to record all the duplications found in the baseline file,
+     * once they are reported.
+     *
+     * @since 6.31.0
+     */
+    public void setUpdateBaseline(boolean updateBaseline) {
+        this.updateBaseline = updateBaseline;
+    }
+
+    public File getTokenCacheFile() {
+        return tokenCacheFile;
+    }
+
+    /**
+     * Sets the file to cache the tokens of the source files in between runs.
+     *
+     * @since 6.31.0
+     */
+    public void setTokenCacheFile(File tokenCacheFile) {
+        this.tokenCacheFile = tokenCacheFile;
+    }
+
+    public boolean isBenchmark() {
+        return benchmark;
+    }
+
+    public void setBenchmark(boolean benchmark) {
+        this.benchmark = benchmark;
+    }
+
+    public String getBenchmarkFormat() {
+        return benchmarkFormat;
+    }
+
+    public void setBenchmarkFormat(String benchmarkFormat) {
+        this.benchmarkFormat = benchmarkFormat;
+    }
+
     public boolean isSkipDuplicates() {
         return skipDuplicates;
     }
@@ -12,9 +12,9 @@ import java.util.Iterator;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import net.sourceforge.pmd.PMD;
-import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 
-public class CSVRenderer implements Renderer, CPDRenderer {
+public class CSVRenderer implements Renderer, CPDStreamingRenderer {
 
     private final char separator;
     private final boolean lineCountPerFile;
@@ -52,33 +52,45 @@ public class CSVRenderer implements Renderer, CPDRenderer {
 
     @Override
     public void render(Iterator<Match> matches, Writer writer) throws IOException {
+        start(writer);
+        while (matches.hasNext()) {
+            renderMatch(matches.next(), writer);
+        }
+        end(writer);
+    }
+
+    @Override
+    public void start(Writer writer) throws IOException {
         if (!lineCountPerFile) {
             writer.append("lines").append(separator);
         }
         writer.append("tokens").append(separator).append("occurrences").append(PMD.EOL);
+    }
 
-        while (matches.hasNext()) {
-            Match match = matches.next();
-
-            if (!lineCountPerFile) {
-                writer.append(String.valueOf(match.getLineCount())).append(separator);
+    @Override
+    public void renderMatch(Match match, Writer writer) throws IOException {
+        if (!lineCountPerFile) {
+            writer.append(String.valueOf(match.getLineCount())).append(separator);
+        }
+        writer.append(String.valueOf(match.getTokenCount())).append(separator)
+            .append(String.valueOf(match.getMarkCount())).append(separator);
+        for (Iterator<Mark> marks = match.iterator(); marks.hasNext();) {
+            Mark mark = marks.next();
+
+            writer.append(String.valueOf(mark.getBeginLine())).append(separator);
+            if (lineCountPerFile) {
+                writer.append(String.valueOf(mark.getLineCount())).append(separator);
             }
-            writer.append(String.valueOf(match.getTokenCount())).append(separator)
-                .append(String.valueOf(match.getMarkCount())).append(separator);
-            for (Iterator<Mark> marks = match.iterator(); marks.hasNext();) {
-                Mark mark = marks.next();
-
-                writer.append(String.valueOf(mark.getBeginLine())).append(separator);
-                if (lineCountPerFile) {
-                    writer.append(String.valueOf(mark.getLineCount())).append(separator);
-                }
-                writer.append(StringEscapeUtils.escapeCsv(mark.getFilename()));
-                if (marks.hasNext()) {
-                    writer.append(separator);
-                }
+            writer.append(StringEscapeUtils.escapeCsv(mark.getFilename()));
+            if (marks.hasNext()) {
+                writer.append(separator);
             }
-            writer.append(PMD.EOL);
         }
+        writer.append(PMD.EOL);
+    }
+
+    @Override
+    public void end(Writer writer) throws IOException {
         writer.flush();
     }
 }
@@ -0,0 +1,74 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.util.List;
+
+/**
+ * Groups token positions by the 64-bit fingerprint of the token window
+ * starting there. This is an open-addressing hash table over primitive
+ * arrays: each slot holds a fingerprint and the first position of its
+ * group, and the positions of a group are chained through {@link #next}.
+ * Positions must be added in descending order, so that each group is
+ * chained in ascending order.
+ */
+final class FingerprintTable {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final long[] fingerprints;
+    /** Position + 1 of the first token of the group in each slot, 0 for an empty slot. */
+    private final int[] heads;
+    /** Position + 1 of the next token in the same group, 0 at the end of the group. */
+    private final int[] next;
+    private final int shift;
+
+    /**
+     * @param tokenCount Number of token positions, an upper bound for the number of groups
+     */
+    FingerprintTable(int tokenCount) {
+        // keep the load factor at or below 0.75
+        int capacity = Integer.highestOneBit(Math.max(16, tokenCount + tokenCount / 3) - 1) << 1;
+        fingerprints = new long[capacity];
+        heads = new int[capacity];
+        next = new int[tokenCount];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    void add(long fingerprint, int position) {
+        int mask = heads.length - 1;
+        int slot = (int) ((fingerprint * GOLDEN_RATIO) >>> shift);
+        while (heads[slot] != 0 && fingerprints[slot] != fingerprint) {
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        next[position] = heads[slot];
+        heads[slot] = position + 1;
+    }
+
+    /**
+     * Returns the first slot at or after the given one which holds a
+     * group of at least two positions, or -1 if there is none.
+     */
+    int nextGroup(int fromSlot) {
+        for (int slot = fromSlot; slot < heads.length; slot++) {
+            int head = heads[slot];
+            if (head != 0 && next[head - 1] != 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the tokens of the group in the given slot to the list, in
+     * ascending order of their position.
+     */
+    void addGroupTo(int slot, List<TokenEntry> code, List<TokenEntry> group) {
+        for (int position = heads[slot]; position != 0; position = next[position - 1]) {
+            group.add(code.get(position - 1));
+        }
+    }
+}
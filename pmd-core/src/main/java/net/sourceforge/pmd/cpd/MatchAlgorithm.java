@@ -6,16 +6,33 @@ package net.sourceforge.pmd.cpd;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+
 public class MatchAlgorithm {
 
-    private static final int MOD = 37;
-    private int lastHash;
-    private int lastMod = 1;
+    /** Base of the rolling polynomial hash, which is computed modulo 2^64. */
+    private static final long BASE = 0x100000001B3L;
+
+    /**
+     * Timing labels of the mark groups, by power of two of their size.
+     * This gives a histogram of the group sizes in the timing report.
+     */
+    private static final String[] MARK_GROUP_LABELS = new String[32];
+
+    static {
+        MARK_GROUP_LABELS[1] = "Mark groups of size 2";
+        for (int i = 2; i < MARK_GROUP_LABELS.length; i++) {
+            MARK_GROUP_LABELS[i] = "Mark groups of size " + ((1L << (i - 1)) + 1) + "-" + (1L << i);
+        }
+    }
+
+    private long lastMod = 1;
 
     private List<Match> matches;
     private Map<String, SourceCode> source;
@@ -35,7 +52,7 @@ public class MatchAlgorithm {
         this.min = min;
         this.cpdListener = listener;
         for (int i = 0; i < min; i++) {
-            lastMod *= MOD;
+            lastMod *= BASE;
         }
     }
 
@@ -56,70 +73,96 @@ public class MatchAlgorithm {
     }
 
     public void findMatches() {
+        final List<Match> result = new ArrayList<>();
+        findMatches(new MatchListener() {
+            @Override
+            public void matchFound(Match match) {
+                result.add(match);
+            }
+        });
+        Collections.sort(result);
+        matches = result;
+    }
+
+    /**
+     * Finds the matches and hands each one over to the given listener
+     * as soon as it is complete, without retaining or sorting them.
+     * {@link #matches()} is empty afterwards.
+     *
+     * @param matchListener Receives the matches
+     *
+     * @since 6.31.0
+     */
+    public void findMatches(MatchListener matchListener) {
+        matches = Collections.emptyList();
         cpdListener.phaseUpdate(CPDListener.HASH);
-        Map<TokenEntry, Object> markGroups = hash();
+        FingerprintTable markGroups;
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.CPD_HASHING)) {
+            markGroups = hash();
+            to.close(code.size());
+        }
 
         cpdListener.phaseUpdate(CPDListener.MATCH);
-        MatchCollector matchCollector = new MatchCollector(this);
-        for (Iterator<Object> i = markGroups.values().iterator(); i.hasNext();) {
-            Object o = i.next();
-            if (o instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<TokenEntry> l = (List<TokenEntry>) o;
-                Collections.reverse(l);
-                matchCollector.collect(l);
+        try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.CPD_MATCHING)) {
+            int matchCount = 0;
+            MatchCollector matchCollector = new MatchCollector(this);
+            List<TokenEntry> l = new ArrayList<>();
+            for (int slot = markGroups.nextGroup(0); slot >= 0; slot = markGroups.nextGroup(slot + 1)) {
+                l.clear();
+                markGroups.addGroupTo(slot, code, l);
+                try (TimedOperation gto = TimeTracker.startOperation(TimedOperationCategory.CPD_MATCHING,
+                        MARK_GROUP_LABELS[32 - Integer.numberOfLeadingZeros(l.size() - 1)])) {
+                    matchCollector.collect(l);
+                    gto.close(l.size());
+                }
+                for (Match match : matchCollector.drainMatches()) {
+                    completeMarks(match);
+                    matchListener.matchFound(match);
+                    matchCount++;
+                }
             }
-            i.remove();
+            to.close(matchCount);
         }
         cpdListener.phaseUpdate(CPDListener.GROUPING);
-        matches = matchCollector.getMatches();
-
-        for (Match match : matches) {
-            for (Mark mark : match) {
-                TokenEntry token = mark.getToken();
-                int lineCount = tokens.getLineCount(token, match);
-                TokenEntry endToken = tokens.getEndToken(token, match);
-
-                mark.setLineCount(lineCount);
-                mark.setEndToken(endToken);
-                SourceCode sourceCode = source.get(token.getTokenSrcID());
-                mark.setSourceCode(sourceCode);
-            }
-        }
         cpdListener.phaseUpdate(CPDListener.DONE);
     }
 
+    private void completeMarks(Match match) {
+        for (Mark mark : match) {
+            TokenEntry token = mark.getToken();
+            int lineCount = tokens.getLineCount(token, match);
+            TokenEntry endToken = tokens.getEndToken(token, match);
+
+            mark.setLineCount(lineCount);
+            mark.setEndToken(endToken);
+            SourceCode sourceCode = source.get(token.getTokenSrcID());
+            mark.setSourceCode(sourceCode);
+        }
+    }
+
+    /**
+     * Computes a 64-bit rolling fingerprint of the window of {@link #min}
+     * tokens starting at each token, and groups the tokens by fingerprint.
+     * Windows in the same group are then almost certainly equal, so that
+     * {@link MatchCollector} hardly ever compares windows which only share
+     * their hash.
+     */
     @SuppressWarnings("PMD.JumbledIncrementer")
-    private Map<TokenEntry, Object> hash() {
-        Map<TokenEntry, Object> markGroups = new HashMap<>(tokens.size());
+    private FingerprintTable hash() {
+        FingerprintTable markGroups = new FingerprintTable(code.size());
+        long lastHash = 0;
         for (int i = code.size() - 1; i >= 0; i--) {
             TokenEntry token = code.get(i);
             if (token != TokenEntry.EOF) {
                 int last = tokenAt(min, token).getIdentifier();
-                lastHash = MOD * lastHash + token.getIdentifier() - lastMod * last;
-                token.setHashCode(lastHash);
-                Object o = markGroups.get(token);
-
-                // Note that this insertion method is worthwhile since the vast
-                // majority
-                // markGroup keys will have only one value.
-                if (o == null) {
-                    markGroups.put(token, token);
-                } else if (o instanceof TokenEntry) {
-                    List<TokenEntry> l = new ArrayList<>();
-                    l.add((TokenEntry) o);
-                    l.add(token);
-                    markGroups.put(token, l);
-                } else {
-                    @SuppressWarnings("unchecked")
-                    List<TokenEntry> l = (List<TokenEntry>) o;
-                    l.add(token);
-                }
+                lastHash = BASE * lastHash + token.getIdentifier() - lastMod * last;
+                token.setHashCode((int) (lastHash ^ (lastHash >>> 32)));
+                markGroups.add(lastHash, i);
             } else {
                 lastHash = 0;
                 for (int end = Math.max(0, i - min + 1); i > end; i--) {
                     token = code.get(i - 1);
-                    lastHash = MOD * lastHash + token.getIdentifier();
+                    lastHash = BASE * lastHash + token.getIdentifier();
                     if (token == TokenEntry.EOF) {
                         break;
                     }
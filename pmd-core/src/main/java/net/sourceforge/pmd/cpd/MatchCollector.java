@@ -82,6 +82,22 @@ public class MatchCollector {
         return matchList;
     }
 
+    /**
+     * Returns the matches collected since the last call, unsorted, and
+     * forgets about them. All marks of a match come from the same mark
+     * group, so these matches are complete once {@link #collect(List)}
+     * has returned.
+     */
+    List<Match> drainMatches() {
+        matchTree.clear();
+        if (matchList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Match> result = matchList;
+        matchList = new ArrayList<>();
+        return result;
+    }
+
     private boolean hasPreviousDupe(TokenEntry mark1, TokenEntry mark2) {
         if (mark1.getIndex() == 0) {
             return false;
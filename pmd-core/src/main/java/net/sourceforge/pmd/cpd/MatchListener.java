@@ -0,0 +1,17 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+/**
+ * Receives the duplications found by {@link MatchAlgorithm} as soon as
+ * they are complete. The matches are not sorted, and the line count and
+ * source code of their marks are already available.
+ *
+ * @since 6.31.0
+ */
+public interface MatchListener {
+
+    void matchFound(Match match);
+}
@@ -0,0 +1,83 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Retains the matches that should be reported, according to the
+ * minimum line count, the baseline and the maximum number of duplications. When the
+ * number of duplications is limited, only the largest ones are kept in
+ * a bounded heap, so the full list of matches is never materialized.
+ */
+class MatchSelection implements MatchListener {
+
+    private final int minimumLineCount;
+    private final int maxDuplications;
+    private final CPDBaseline baseline;
+    private final PriorityQueue<Match> largest;
+    private final List<Match> matches;
+
+    /**
+     * @param minimumLineCount Matches spanning less lines are dropped
+     * @param maxDuplications  Maximum number of matches to retain, zero or less for all
+     */
+    MatchSelection(int minimumLineCount, int maxDuplications) {
+        this(minimumLineCount, maxDuplications, null);
+    }
+
+    /**
+     * @param minimumLineCount Matches spanning less lines are dropped
+     * @param maxDuplications  Maximum number of matches to retain, zero or less for all
+     * @param baseline         Matches recorded in the baseline are dropped, may be null
+     */
+    MatchSelection(int minimumLineCount, int maxDuplications, CPDBaseline baseline) {
+        this.minimumLineCount = minimumLineCount;
+        this.maxDuplications = maxDuplications;
+        this.baseline = baseline;
+        if (maxDuplications > 0) {
+            // the head of the queue is the smallest retained match
+            largest = new PriorityQueue<>(maxDuplications + 1, Collections.<Match>reverseOrder());
+            matches = null;
+        } else {
+            largest = null;
+            matches = new ArrayList<>();
+        }
+    }
+
+    boolean accepts(Match match) {
+        // the baseline records every match, so that lowering the minimum
+        // line count later doesn't report the smaller ones as new
+        boolean isNew = baseline == null || baseline.isNew(match);
+        return isNew && match.getLineCount() >= minimumLineCount;
+    }
+
+    @Override
+    public void matchFound(Match match) {
+        if (!accepts(match)) {
+            return;
+        }
+        if (largest == null) {
+            matches.add(match);
+            return;
+        }
+        largest.add(match);
+        if (largest.size() > maxDuplications) {
+            largest.poll();
+        }
+    }
+
+    /**
+     * Returns the retained matches, largest first.
+     */
+    List<Match> getMatches() {
+        List<Match> result = largest == null ? matches : new ArrayList<>(largest);
+        Collections.sort(result);
+        return result;
+    }
+}
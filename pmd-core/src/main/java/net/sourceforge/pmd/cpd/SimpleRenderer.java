@@ -10,13 +10,14 @@ import java.io.Writer;
 import java.util.Iterator;
 
 import net.sourceforge.pmd.PMD;
-import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 import net.sourceforge.pmd.util.StringUtil;
 
-public class SimpleRenderer implements Renderer, CPDRenderer {
+public class SimpleRenderer implements Renderer, CPDStreamingRenderer {
 
     private String separator;
     private boolean trimLeadingWhitespace;
+    private boolean firstMatch;
 
     public static final String DEFAULT_SEPARATOR = "=====================================================================";
 
@@ -76,16 +77,29 @@ public class SimpleRenderer implements Renderer, CPDRenderer {
 
     @Override
     public void render(Iterator<Match> matches, Writer writer) throws IOException {
-        if (matches.hasNext()) {
-            renderOn(writer, matches.next());
+        start(writer);
+        while (matches.hasNext()) {
+            renderMatch(matches.next(), writer);
         }
+        end(writer);
+    }
 
-        Match match;
-        while (matches.hasNext()) {
-            match = matches.next();
+    @Override
+    public void start(Writer writer) {
+        firstMatch = true;
+    }
+
+    @Override
+    public void renderMatch(Match match, Writer writer) throws IOException {
+        if (!firstMatch) {
             writer.append(separator).append(PMD.EOL);
-            renderOn(writer, match);
         }
+        firstMatch = false;
+        renderOn(writer, match);
+    }
+
+    @Override
+    public void end(Writer writer) throws IOException {
         writer.flush();
     }
 }
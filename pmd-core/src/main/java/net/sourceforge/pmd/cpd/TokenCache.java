@@ -0,0 +1,227 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Adler32;
+
+import net.sourceforge.pmd.PMDVersion;
+
+/**
+ * Caches the tokens of each source file between runs of CPD, so that
+ * files which didn't change are not tokenized again. The cache is only
+ * valid for the same PMD version, language and tokenizer options.
+ *
+ * <p>Only the files added during the current run are written back, so
+ * the cache doesn't keep the tokens of deleted files.
+ */
+final class TokenCache {
+
+    private static final Logger LOG = Logger.getLogger(TokenCache.class.getName());
+
+    private final File cacheFile;
+    private final String signature;
+    private final Map<String, CachedTokens> cachedTokens = new HashMap<>();
+    private final Map<String, CachedTokens> currentTokens = new HashMap<>();
+    /** Shares the strings of equal images between the cached files. */
+    private final Map<String, String> images = new HashMap<>();
+
+    /**
+     * Creates a new cache backed by the given file, and loads the cached
+     * tokens from it if its signature matches.
+     *
+     * @param cacheFile The file on which to store the tokens
+     * @param signature Describes the tokenizer, see {@link #signature(CPDConfiguration)}
+     */
+    TokenCache(File cacheFile, String signature) {
+        this.cacheFile = cacheFile;
+        this.signature = signature;
+        loadFromFile();
+    }
+
+    static String signature(CPDConfiguration configuration) {
+        return configuration.getLanguage().getTerseName()
+                + ";literals=" + configuration.isIgnoreLiterals()
+                + ";identifiers=" + configuration.isIgnoreIdentifiers()
+                + ";annotations=" + configuration.isIgnoreAnnotations()
+                + ";usings=" + configuration.isIgnoreUsings()
+                + ";literalSequences=" + configuration.isIgnoreLiteralSequences()
+                + ";skipBlocks=" + !configuration.isNoSkipBlocks()
+                + ";skipBlocksPattern=" + configuration.getSkipBlocksPattern();
+    }
+
+    static long checksum(SourceCode sourceCode) {
+        Adler32 adler32 = new Adler32();
+        adler32.update(sourceCode.getCodeBuffer().toString().getBytes(StandardCharsets.UTF_8));
+        return adler32.getValue();
+    }
+
+    /**
+     * Adds the cached tokens of the given file, if its content didn't change.
+     *
+     * @return True if the tokens were added, false if the file must be tokenized
+     */
+    boolean addCachedTokens(String fileName, long checksum, Tokens tokens) {
+        CachedTokens cached = cachedTokens.get(fileName);
+        if (cached == null || cached.checksum != checksum) {
+            return false;
+        }
+        for (int i = 0; i < cached.images.length; i++) {
+            if (cached.images[i] == null) {
+                tokens.add(TokenEntry.getEOF());
+            } else {
+                tokens.add(new TokenEntry(cached.images[i], fileName, cached.coordinates[3 * i],
+                        cached.coordinates[3 * i + 1], cached.coordinates[3 * i + 2]));
+            }
+        }
+        currentTokens.put(fileName, cached);
+        return true;
+    }
+
+    /**
+     * Records the tokens of a file which was just tokenized.
+     */
+    void record(String fileName, long checksum, List<TokenEntry> fileTokens) {
+        String[] fileImages = new String[fileTokens.size()];
+        int[] coordinates = new int[3 * fileTokens.size()];
+        for (int i = 0; i < fileImages.length; i++) {
+            TokenEntry token = fileTokens.get(i);
+            if (token != TokenEntry.EOF) {
+                fileImages[i] = share(token.getImage());
+                coordinates[3 * i] = token.getBeginLine();
+                coordinates[3 * i + 1] = token.getBeginColumn();
+                coordinates[3 * i + 2] = token.getEndColumn();
+            }
+        }
+        currentTokens.put(fileName, new CachedTokens(checksum, fileImages, coordinates));
+    }
+
+    private String share(String image) {
+        String shared = images.get(image);
+        if (shared == null) {
+            images.put(image, image);
+            shared = image;
+        }
+        return shared;
+    }
+
+    private void loadFromFile() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream inputStream = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (!PMDVersion.VERSION.equals(inputStream.readUTF()) || !signature.equals(inputStream.readUTF())) {
+                LOG.info("CPD token cache is outdated, all files will be tokenized");
+                return;
+            }
+            String[] imageTable = new String[inputStream.readInt()];
+            for (int i = 0; i < imageTable.length; i++) {
+                imageTable[i] = share(readString(inputStream));
+            }
+            int fileCount = inputStream.readInt();
+            for (int f = 0; f < fileCount; f++) {
+                String fileName = inputStream.readUTF();
+                long checksum = inputStream.readLong();
+                String[] fileImages = new String[inputStream.readInt()];
+                int[] coordinates = new int[3 * fileImages.length];
+                for (int i = 0; i < fileImages.length; i++) {
+                    int image = inputStream.readInt();
+                    fileImages[i] = image < 0 ? null : imageTable[image];
+                    coordinates[3 * i] = inputStream.readInt();
+                    coordinates[3 * i + 1] = inputStream.readInt();
+                    coordinates[3 * i + 2] = inputStream.readInt();
+                }
+                cachedTokens.put(fileName, new CachedTokens(checksum, fileImages, coordinates));
+            }
+            LOG.info("CPD token cache loaded");
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Could not load CPD token cache " + cacheFile, e);
+            cachedTokens.clear();
+        }
+    }
+
+    /**
+     * Writes the tokens of the files added during this run to the cache file.
+     */
+    void persist() {
+        Map<String, Integer> imageIndexes = new HashMap<>();
+        List<String> imageTable = new ArrayList<>();
+        for (CachedTokens cached : currentTokens.values()) {
+            for (String image : cached.images) {
+                if (image != null && !imageIndexes.containsKey(image)) {
+                    imageIndexes.put(image, imageTable.size());
+                    imageTable.add(image);
+                }
+            }
+        }
+
+        try (DataOutputStream outputStream = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath())))) {
+            outputStream.writeUTF(PMDVersion.VERSION);
+            outputStream.writeUTF(signature);
+            outputStream.writeInt(imageTable.size());
+            for (String image : imageTable) {
+                writeString(outputStream, image);
+            }
+            outputStream.writeInt(currentTokens.size());
+            for (Map.Entry<String, CachedTokens> entry : currentTokens.entrySet()) {
+                CachedTokens cached = entry.getValue();
+                outputStream.writeUTF(entry.getKey());
+                outputStream.writeLong(cached.checksum);
+                outputStream.writeInt(cached.images.length);
+                for (int i = 0; i < cached.images.length; i++) {
+                    outputStream.writeInt(cached.images[i] == null ? -1 : imageIndexes.get(cached.images[i]));
+                    outputStream.writeInt(cached.coordinates[3 * i]);
+                    outputStream.writeInt(cached.coordinates[3 * i + 1]);
+                    outputStream.writeInt(cached.coordinates[3 * i + 2]);
+                }
+            }
+            LOG.info("CPD token cache persisted");
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "Could not persist CPD token cache " + cacheFile, e);
+        }
+    }
+
+    // writeUTF is limited to 64K, which long string literals may exceed
+    private static void writeString(DataOutputStream outputStream, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    private static String readString(DataInputStream inputStream) throws IOException {
+        byte[] bytes = new byte[inputStream.readInt()];
+        inputStream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class CachedTokens {
+        private final long checksum;
+        /** The image of each token, null for the end of file marker. */
+        private final String[] images;
+        /** Begin line, begin column and end column of each token. */
+        private final int[] coordinates;
+
+        CachedTokens(long checksum, String[] images, int[] coordinates) {
+            this.checksum = checksum;
+            this.images = images;
+            this.coordinates = coordinates;
+        }
+    }
+}
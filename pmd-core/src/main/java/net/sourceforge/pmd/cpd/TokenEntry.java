@@ -28,6 +28,13 @@ public class TokenEntry implements Comparable<TokenEntry> {
             return new HashMap<>();
         }
     };
+    /** The images by identifier, the image of identifier {@code i} is at index {@code i - 1}. */
+    private static final ThreadLocal<List<String>> IMAGES = new ThreadLocal<List<String>>() {
+        @Override
+        protected List<String> initialValue() {
+            return new ArrayList<>();
+        }
+    };
     private static final ThreadLocal<AtomicInteger> TOKEN_COUNT = new ThreadLocal<AtomicInteger>() {
         @Override
         protected AtomicInteger initialValue() {
@@ -86,6 +93,7 @@ public class TokenEntry implements Comparable<TokenEntry> {
     public static void clearImages() {
         TOKENS.get().clear();
         TOKENS.remove();
+        IMAGES.remove();
         TOKEN_COUNT.remove();
     }
 
@@ -108,6 +116,11 @@ public class TokenEntry implements Comparable<TokenEntry> {
             TokenEntry.TOKEN_COUNT.get().set(tokenCount);
             TOKENS.get().clear();
             TOKENS.get().putAll(tokens);
+            // images are only ever appended, so drop the ones added since
+            List<String> images = IMAGES.get();
+            if (images.size() > tokens.size()) {
+                images.subList(tokens.size(), images.size()).clear();
+            }
             return entries;
         }
     }
@@ -174,12 +187,17 @@ public class TokenEntry implements Comparable<TokenEntry> {
         if (this == EOF) {
             return "EOF";
         }
-        for (Map.Entry<String, Integer> e : TOKENS.get().entrySet()) {
-            if (e.getValue().intValue() == identifier) {
-                return e.getKey();
-            }
-        }
-        return "--unknown--";
+        String image = getImage();
+        return image == null ? "--unknown--" : image;
+    }
+
+    /**
+     * Returns the image of this token, or null if it is not known in the
+     * current thread anymore.
+     */
+    String getImage() {
+        List<String> images = IMAGES.get();
+        return identifier >= 1 && identifier <= images.size() ? images.get(identifier - 1) : null;
     }
 
     final void setImage(String image) {
@@ -187,6 +205,7 @@ public class TokenEntry implements Comparable<TokenEntry> {
         if (i == null) {
             i = TOKENS.get().size() + 1;
             TOKENS.get().put(image, i);
+            IMAGES.get().add(image);
         }
         this.identifier = i.intValue();
     }
@@ -10,9 +10,9 @@ import java.io.Writer;
 import java.util.Iterator;
 
 import net.sourceforge.pmd.PMD;
-import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 
-public class VSRenderer implements Renderer, CPDRenderer {
+public class VSRenderer implements Renderer, CPDStreamingRenderer {
 
     @Override
     public String render(Iterator<Match> matches) {
@@ -27,16 +27,31 @@ public class VSRenderer implements Renderer, CPDRenderer {
 
     @Override
     public void render(Iterator<Match> matches, Writer writer) throws IOException {
-        for (Match match; matches.hasNext();) {
-            match = matches.next();
-            Mark mark;
-            for (Iterator<Mark> iterator = match.iterator(); iterator.hasNext();) {
-                mark = iterator.next();
-                writer.append(mark.getFilename())
-                        .append('(').append(String.valueOf(mark.getBeginLine())).append("):")
-                        .append(" Between lines ").append(String.valueOf(mark.getBeginLine())).append(" and ").append(String.valueOf(mark.getBeginLine() + match.getLineCount())).append(PMD.EOL);
-            }
+        start(writer);
+        while (matches.hasNext()) {
+            renderMatch(matches.next(), writer);
         }
+        end(writer);
+    }
+
+    @Override
+    public void start(Writer writer) {
+        // no header
+    }
+
+    @Override
+    public void renderMatch(Match match, Writer writer) throws IOException {
+        Mark mark;
+        for (Iterator<Mark> iterator = match.iterator(); iterator.hasNext();) {
+            mark = iterator.next();
+            writer.append(mark.getFilename())
+                    .append('(').append(String.valueOf(mark.getBeginLine())).append("):")
+                    .append(" Between lines ").append(String.valueOf(mark.getBeginLine())).append(" and ").append(String.valueOf(mark.getBeginLine() + match.getLineCount())).append(PMD.EOL);
+        }
+    }
+
+    @Override
+    public void end(Writer writer) throws IOException {
         writer.flush();
     }
 }
@@ -18,10 +18,12 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import net.sourceforge.pmd.cpd.renderer.CPDRenderer;
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 import net.sourceforge.pmd.util.StringUtil;
 
 /**
@@ -29,7 +31,7 @@ import net.sourceforge.pmd.util.StringUtil;
  * @author Romain Pelisse - javax.xml implementation
  *
  */
-public final class XMLRenderer implements Renderer, CPDRenderer {
+public final class XMLRenderer implements Renderer, CPDStreamingRenderer {
 
     private String encoding;
 
@@ -159,4 +161,68 @@ public final class XMLRenderer implements Renderer, CPDRenderer {
         duplication.setAttribute("tokens", String.valueOf(match.getTokenCount()));
         return duplication;
     }
+
+    /**
+     * Returns the XML declaration written by the transformer of
+     * {@link #render(Iterator, Writer)}, whose attributes (e.g. {@code standalone})
+     * depend on the {@link TransformerFactory} in use.
+     */
+    private String createXmlDeclaration() {
+        Document doc = createDocument();
+        doc.appendChild(doc.createElement("pmd-cpd"));
+        StringWriter writer = new StringWriter();
+        dumpDocToWriter(doc, writer);
+        String xml = writer.toString();
+        return xml.substring(0, xml.indexOf("?>") + 2);
+    }
+
+    @Override
+    public void start(Writer writer) throws IOException {
+        writer.append(createXmlDeclaration()).append(PMD.EOL);
+        writer.append("<pmd-cpd>").append(PMD.EOL);
+    }
+
+    /**
+     * Writes the duplication element directly to the writer, without
+     * building a DOM. The output is equivalent to the one of
+     * {@link #render(Iterator, Writer)}.
+     */
+    @Override
+    public void renderMatch(Match match, Writer writer) throws IOException {
+        writer.append("    <duplication lines=\"").append(String.valueOf(match.getLineCount()))
+              .append("\" tokens=\"").append(String.valueOf(match.getTokenCount())).append("\">").append(PMD.EOL);
+        for (Mark mark : match) {
+            writer.append("        <file");
+            final int beginCol = mark.getBeginColumn();
+            final int endCol = mark.getEndColumn();
+            if (beginCol != -1) {
+                appendAttribute(writer, "column", String.valueOf(beginCol));
+            }
+            if (endCol != -1) {
+                appendAttribute(writer, "endcolumn", String.valueOf(endCol));
+            }
+            appendAttribute(writer, "endline", String.valueOf(mark.getEndLine()));
+            appendAttribute(writer, "line", String.valueOf(mark.getBeginLine()));
+            appendAttribute(writer, "path", mark.getFilename());
+            writer.append("/>").append(PMD.EOL);
+        }
+        String codeSnippet = match.getSourceCodeSlice();
+        if (codeSnippet != null) {
+            String platformSpecific = codeSnippet.replace("\n", System.lineSeparator());
+            // split the CDATA section if the code contains its end marker
+            String cdata = StringUtil.removedInvalidXml10Characters(platformSpecific).replace("]]>", "]]]]><![CDATA[>");
+            writer.append("        <codefragment><![CDATA[").append(cdata).append("]]></codefragment>").append(PMD.EOL);
+        }
+        writer.append("    </duplication>").append(PMD.EOL);
+    }
+
+    private static void appendAttribute(Writer writer, String name, String value) throws IOException {
+        writer.append(' ').append(name).append("=\"").append(StringEscapeUtils.escapeXml10(value)).append('"');
+    }
+
+    @Override
+    public void end(Writer writer) throws IOException {
+        writer.append("</pmd-cpd>").append(PMD.EOL);
+        writer.flush();
+    }
 }
@@ -0,0 +1,27 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd.renderer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import net.sourceforge.pmd.cpd.Match;
+
+/**
+ * A renderer which can write each duplication as soon as it is found,
+ * instead of waiting for the complete, sorted list of matches. A report
+ * is written by calling {@link #start(Writer)}, then {@link #renderMatch(Match, Writer)}
+ * for each match, and finally {@link #end(Writer)}, always with the same writer.
+ *
+ * @since 6.31.0
+ */
+public interface CPDStreamingRenderer extends CPDRenderer {
+
+    void start(Writer writer) throws IOException;
+
+    void renderMatch(Match match, Writer writer) throws IOException;
+
+    void end(Writer writer) throws IOException;
+}
@@ -4,7 +4,6 @@
 
 package net.sourceforge.pmd.lang.ast.xpath;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.List;
@@ -13,6 +12,7 @@ import java.util.Objects;
 import net.sourceforge.pmd.annotation.Experimental;
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.internal.AttributeAccessor;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttribute;
 
 /**
@@ -26,25 +26,35 @@ import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttribute;
  * @author daniels
  */
 public class Attribute {
-    private static final Object[] EMPTY_OBJ_ARRAY = new Object[0];
 
     private final Node parent;
     private final String name;
-    private Method method;
+    private final AttributeAccessor accessor;
     private List<?> value;
     private String stringValue;
 
     /** Creates a new attribute belonging to the given node using its accessor. */
     public Attribute(Node parent, String name, Method m) {
+        this(parent, name, AttributeAccessor.forMethod(m));
+    }
+
+    /**
+     * Creates a new attribute belonging to the given node using its accessor.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public Attribute(Node parent, String name, AttributeAccessor accessor) {
         this.parent = parent;
         this.name = name;
-        this.method = m;
+        this.accessor = accessor;
     }
 
     /** Creates a new attribute belonging to the given node using its string value. */
     public Attribute(Node parent, String name, String value) {
         this.parent = parent;
         this.name = name;
+        this.accessor = null;
         this.value = Collections.singletonList(value);
         this.stringValue = value;
     }
@@ -62,7 +72,18 @@ public class Attribute {
     /** Returns the most general type that the value may be. */
     @Experimental
     public Class<?> getType() {
-        return method == null ? String.class : method.getReturnType();
+        return accessor == null ? String.class : accessor.getType();
+    }
+
+    /**
+     * Returns the accessor which reads the value of this attribute, or
+     * null if the attribute was created with its string value.
+     *
+     * @since 6.31.0
+     */
+    @InternalApi
+    public AttributeAccessor getAccessor() {
+        return accessor;
     }
 
     /**
@@ -71,9 +92,10 @@ public class Attribute {
      */
     @InternalApi
     public String replacementIfDeprecated() {
-        if (method == null) {
+        if (accessor == null) {
             return null;
         } else {
+            Method method = accessor.getMethod();
             DeprecatedAttribute annot = method.getAnnotation(DeprecatedAttribute.class);
             String result = annot != null
                    ? annot.replaceWith()
@@ -93,20 +115,20 @@ public class Attribute {
             return value.get(0);
         }
 
-        // this lazy loading reduces calls to Method.invoke() by about 90%
-        try {
-            value = Collections.singletonList(method.invoke(parent, EMPTY_OBJ_ARRAY));
-            return value.get(0);
-        } catch (IllegalAccessException | InvocationTargetException iae) {
-            iae.printStackTrace();
-        }
-        return null;
+        // this lazy loading reduces calls to the getter by about 90%
+        value = Collections.singletonList(accessor.getValue(parent));
+        return value.get(0);
     }
 
     public String getStringValue() {
         if (stringValue != null) {
             return stringValue;
         }
+        if (value == null) {
+            // avoids boxing primitive values
+            stringValue = accessor.getStringValue(parent);
+            return stringValue;
+        }
         Object v = getValue();
 
         stringValue = v == null ? "" : String.valueOf(v);
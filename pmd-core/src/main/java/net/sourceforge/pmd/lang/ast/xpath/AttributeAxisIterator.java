@@ -18,6 +18,7 @@ import java.util.concurrent.ConcurrentMap;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.internal.AttributeAccessor;
 
 
 /**
@@ -137,23 +138,26 @@ public class AttributeAxisIterator implements Iterator<Attribute> {
             return null;
         }
         MethodWrapper m = methodWrappers[position++];
-        return new Attribute(node, m.name, m.method);
+        return new Attribute(node, m.name, m.accessor);
     }
 
 
     /**
      * Associates an attribute accessor with the XPath-accessible
-     * name of the attribute. This is used to avoid recomputing
+     * name of the attribute and with the method handles which read
+     * its value. This is used to avoid recomputing
      * the name of the attribute for each attribute (it's only done
      * once and put inside the {@link #METHOD_CACHE}).
      */
     private static class MethodWrapper {
         public Method method;
+        public AttributeAccessor accessor;
         public String name;
 
 
         MethodWrapper(Method m) {
             this.method = m;
+            this.accessor = AttributeAccessor.forMethod(m);
             this.name = truncateMethodName(m.getName());
         }
 
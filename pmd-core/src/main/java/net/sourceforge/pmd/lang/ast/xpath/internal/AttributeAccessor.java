@@ -0,0 +1,242 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.ast.xpath.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * Reads the value of an XPath attribute from its getter. The getter is
+ * called through a {@link MethodHandle} instead of {@link Method#invoke(Object, Object...)},
+ * and attributes of type {@code boolean}, {@code int} and {@link String}
+ * can be read without boxing their value or allocating an argument array.
+ *
+ * <p>If the getter is not accessible to a method handle, eg because it's
+ * declared in a class which is not public, the accessor falls back to
+ * reflection.
+ *
+ * @since 6.31.0
+ */
+@InternalApi
+public final class AttributeAccessor {
+
+    private static final Logger LOG = Logger.getLogger(AttributeAccessor.class.getName());
+
+    /** Caches the accessor of each getter, they are shared by all nodes. */
+    private static final ConcurrentMap<Method, AttributeAccessor> ACCESSORS = new ConcurrentHashMap<>();
+
+    private static final Object[] EMPTY_OBJ_ARRAY = new Object[0];
+
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Node.class);
+    private static final MethodType BOOLEAN_GETTER = MethodType.methodType(boolean.class, Node.class);
+    private static final MethodType INT_GETTER = MethodType.methodType(int.class, Node.class);
+    private static final MethodType STRING_GETTER = MethodType.methodType(String.class, Node.class);
+
+    private final Method method;
+    /** Returns the boxed value, null if the getter must be called reflectively. */
+    private final MethodHandle objectGetter;
+    /** Returns the unboxed value, if the getter has one of the types with a fast path. */
+    private final MethodHandle booleanGetter;
+    private final MethodHandle intGetter;
+    private final MethodHandle stringGetter;
+
+
+    private AttributeAccessor(Method method) {
+        this.method = method;
+
+        MethodHandle handle = unreflect(method);
+        Class<?> type = method.getReturnType();
+        this.objectGetter = handle == null ? null : handle.asType(OBJECT_GETTER);
+        this.booleanGetter = handle != null && type == boolean.class ? handle.asType(BOOLEAN_GETTER) : null;
+        this.intGetter = handle != null && type == int.class ? handle.asType(INT_GETTER) : null;
+        this.stringGetter = handle != null && type == String.class ? handle.asType(STRING_GETTER) : null;
+    }
+
+
+    /**
+     * Returns the accessor for the given getter.
+     *
+     * @param method A public getter without parameters, declared by a node class
+     */
+    public static AttributeAccessor forMethod(Method method) {
+        AttributeAccessor accessor = ACCESSORS.get(method);
+        if (accessor == null) {
+            accessor = new AttributeAccessor(method);
+            AttributeAccessor previous = ACCESSORS.putIfAbsent(method, accessor);
+            if (previous != null) {
+                accessor = previous;
+            }
+        }
+        return accessor;
+    }
+
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            LOG.log(Level.FINE, "Attribute getter " + method + " will be called reflectively", e);
+            return null;
+        }
+    }
+
+
+    /** Returns the getter of the attribute. */
+    public Method getMethod() {
+        return method;
+    }
+
+
+    /** Returns the return type of the getter. */
+    public Class<?> getType() {
+        return method.getReturnType();
+    }
+
+
+    /**
+     * Returns true if {@link #getBoolean(Node)} can be used to read the
+     * value of the attribute.
+     */
+    public boolean hasBooleanValue() {
+        return booleanGetter != null;
+    }
+
+
+    /**
+     * Returns true if {@link #getInt(Node)} can be used to read the
+     * value of the attribute.
+     */
+    public boolean hasIntValue() {
+        return intGetter != null;
+    }
+
+
+    /**
+     * Returns the value of the attribute on the given node, boxed if it's
+     * primitive. Returns null if the getter throws.
+     */
+    public Object getValue(Node node) {
+        if (objectGetter == null) {
+            return invokeReflectively(node);
+        }
+        try {
+            return (Object) objectGetter.invokeExact(node);
+        } catch (Throwable t) { // NOPMD - invokeExact declares Throwable, errors are rethrown
+            return handleFailure(t);
+        }
+    }
+
+
+    /**
+     * Returns the value of a boolean attribute on the given node.
+     *
+     * @throws IllegalStateException If {@link #hasBooleanValue()} is false
+     * @throws ReadException         If the getter throws, the attribute then has no value
+     */
+    public boolean getBoolean(Node node) {
+        if (booleanGetter == null) {
+            throw new IllegalStateException(method + " has no boolean value");
+        }
+        try {
+            return (boolean) booleanGetter.invokeExact(node);
+        } catch (Throwable t) { // NOPMD - invokeExact declares Throwable, errors are rethrown
+            handleFailure(t);
+            throw new ReadException(method, t);
+        }
+    }
+
+
+    /**
+     * Returns the value of an int attribute on the given node.
+     *
+     * @throws IllegalStateException If {@link #hasIntValue()} is false
+     * @throws ReadException         If the getter throws, the attribute then has no value
+     */
+    public int getInt(Node node) {
+        if (intGetter == null) {
+            throw new IllegalStateException(method + " has no int value");
+        }
+        try {
+            return (int) intGetter.invokeExact(node);
+        } catch (Throwable t) { // NOPMD - invokeExact declares Throwable, errors are rethrown
+            handleFailure(t);
+            throw new ReadException(method, t);
+        }
+    }
+
+
+    /**
+     * Returns the string value of the attribute on the given node. This
+     * is the empty string if the value is null, or if the getter throws.
+     */
+    public String getStringValue(Node node) {
+        if (booleanGetter != null || intGetter != null) {
+            try {
+                return booleanGetter != null ? String.valueOf(getBoolean(node)) : String.valueOf(getInt(node));
+            } catch (ReadException e) {
+                return "";
+            }
+        } else if (stringGetter != null) {
+            String value;
+            try {
+                value = (String) stringGetter.invokeExact(node);
+            } catch (Throwable t) { // NOPMD - invokeExact declares Throwable, errors are rethrown
+                value = (String) handleFailure(t);
+            }
+            return value == null ? "" : value;
+        }
+        Object value = getValue(node);
+        return value == null ? "" : String.valueOf(value);
+    }
+
+
+    private Object invokeReflectively(Node node) {
+        try {
+            return method.invoke(node, EMPTY_OBJ_ARRAY);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return handleFailure(e);
+        }
+    }
+
+
+    private Object handleFailure(Throwable t) {
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        LOG.log(Level.WARNING, "Exception while reading attribute with " + method, t);
+        return null;
+    }
+
+
+    @Override
+    public String toString() {
+        return "AttributeAccessor[" + method + "]";
+    }
+
+
+    /**
+     * Thrown by the primitive reads when the getter throws, as they can't
+     * return null. The attribute must then be treated as if its value
+     * were null. The failure is already logged.
+     */
+    public static final class ReadException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ReadException(Method method, Throwable cause) {
+            super("Exception while reading attribute with " + method, cause);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.List;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.xpath.Attribute;
+import net.sourceforge.pmd.lang.ast.xpath.internal.AttributeAccessor;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
 
@@ -15,6 +16,10 @@ import net.sf.saxon.om.NodeInfo;
 import net.sf.saxon.om.SequenceIterator;
 import net.sf.saxon.trans.XPathException;
 import net.sf.saxon.type.Type;
+import net.sf.saxon.value.BooleanValue;
+import net.sf.saxon.value.EmptySequence;
+import net.sf.saxon.value.Int64Value;
+import net.sf.saxon.value.UntypedAtomicValue;
 import net.sf.saxon.value.Value;
 
 /**
@@ -29,6 +34,7 @@ public class AttributeNode extends BaseNodeInfo {
     protected final Attribute attribute;
     protected final int id;
     protected Value value;
+    private Value untypedValue;
 
 
     /**
@@ -56,7 +62,29 @@ public class AttributeNode extends BaseNodeInfo {
     @Override
     public Value atomize() {
         getAttrCtx().recordUsageOf(attribute);
+        if (parent != null && parent.document.hasUntypedAttributes()) {
+            if (untypedValue == null) {
+                // comparisons convert the string value as needed, like XPath 1.0 does
+                untypedValue = new UntypedAtomicValue(attribute.getStringValue());
+            }
+            return untypedValue;
+        }
         if (value == null) {
+            AttributeAccessor accessor = attribute.getAccessor();
+            // read primitive values without boxing them
+            try {
+                if (accessor != null && accessor.hasBooleanValue()) {
+                    value = BooleanValue.get(accessor.getBoolean(attribute.getParent()));
+                    return value;
+                } else if (accessor != null && accessor.hasIntValue()) {
+                    value = Int64Value.makeIntegerValue(accessor.getInt(attribute.getParent()));
+                    return value;
+                }
+            } catch (AttributeAccessor.ReadException e) {
+                // no value, so that no comparison matches, nor fails on a cast
+                value = EmptySequence.getInstance();
+                return value;
+            }
             Object data = attribute.getValue();
             if (data instanceof List) {
                 value = SaxonXPathRuleQuery.getSequenceRepresentation((List<?>) data);
@@ -4,15 +4,23 @@
 
 package net.sourceforge.pmd.lang.ast.xpath.saxon;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.sourceforge.pmd.annotation.InternalApi;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.internal.PredicateIds;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
 
 import net.sf.saxon.om.Axis;
 import net.sf.saxon.om.AxisIterator;
@@ -24,7 +32,9 @@ import net.sf.saxon.om.SingleNodeIterator;
 import net.sf.saxon.type.Type;
 
 /**
- * A Saxon OM Document node for an AST Node.
+ * A Saxon OM Document node for an AST Node. The AST is wrapped lazily, see
+ * {@link ElementNode}. Each wrapped node is stored in the user map of its AST
+ * node, instead of a map of the whole tree.
  */
 @Deprecated
 @InternalApi
@@ -35,13 +45,26 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
      */
     protected final ElementNode rootNode;
 
+    private static final SimpleDataKey<ElementNode> ELEMENT_NODE_KEY = DataMap.simpleDataKey("saxon.element");
+    private static final SimpleDataKey<ElementNode> UNTYPED_ELEMENT_NODE_KEY = DataMap.simpleDataKey("saxon.element.untyped");
+
     /**
-     * Mapping from AST Node to corresponding ElementNode.
+     * Mapping from AST Node to corresponding ElementNode. The nodes are
+     * wrapped when they are looked up.
+     *
+     * @deprecated Use {@link #getElementNode(Node)}
      */
-    public final Map<Node, ElementNode> nodeToElementNode = new HashMap<>();
+    @Deprecated
+    public final Map<Node, ElementNode> nodeToElementNode = new ElementNodeMap();
 
     private DeprecatedAttrLogger attrCtx;
 
+    private PredicateIds predicateIds;
+
+    /** Whether attributes are atomized to untyped values, see {@link #hasUntypedAttributes()}. */
+    private final boolean untypedAttributes;
+    private final SimpleDataKey<ElementNode> elementNodeKey;
+
     /**
      * Construct a DocumentNode, with the given AST Node serving as the root
      * ElementNode.
@@ -52,7 +75,24 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
      * @see ElementNode
      */
     public DocumentNode(Node node, NamePool namePool) {
+        this(node, namePool, false);
+    }
+
+    /**
+     * Construct a DocumentNode, with the given AST Node serving as the root
+     * ElementNode. A typed and an untyped document may wrap the same AST.
+     *
+     * @param node              The root AST Node.
+     * @param namePool          Pool to share names
+     * @param untypedAttributes Whether the attributes are atomized to untyped
+     *                          values, see {@link #hasUntypedAttributes()}
+     *
+     * @since 6.31.0
+     */
+    public DocumentNode(Node node, NamePool namePool, boolean untypedAttributes) {
         super(Type.DOCUMENT, namePool, "", null);
+        this.untypedAttributes = untypedAttributes;
+        this.elementNodeKey = untypedAttributes ? UNTYPED_ELEMENT_NODE_KEY : ELEMENT_NODE_KEY;
         this.rootNode = new ElementNode(this, new IdGenerator(), null, node, -1, namePool);
     }
 
@@ -61,6 +101,75 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
         this(node, SaxonXPathRuleQuery.getNamePool());
     }
 
+    void register(Node node, ElementNode elementNode) {
+        node.getUserMap().set(elementNodeKey, elementNode);
+    }
+
+    private ElementNode getRegistered(Node node) {
+        ElementNode elementNode = node.getUserMap().get(elementNodeKey);
+        return elementNode != null && elementNode.document == this ? elementNode : null;
+    }
+
+    /**
+     * Returns the ElementNode of the given AST node, wrapping the nodes on
+     * the path from its closest wrapped ancestor if needed. If the parents
+     * of the AST nodes are not set, the AST is searched from the root.
+     *
+     * @param node A node of the AST of this document
+     *
+     * @return The ElementNode, or null if the node is not part of this document
+     */
+    public ElementNode getElementNode(Node node) {
+        ElementNode elementNode = getRegistered(node);
+        if (elementNode != null) {
+            return elementNode;
+        }
+
+        List<Node> path = new ArrayList<>();
+        Node current = node;
+        while (elementNode == null) {
+            if (current.getParent() == null) {
+                return findDescendant(rootNode, node);
+            }
+            path.add(current);
+            current = current.getParent();
+            elementNode = getRegistered(current);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            elementNode = getChild(elementNode, path.get(i));
+        }
+        return elementNode;
+    }
+
+    private static ElementNode findDescendant(ElementNode elementNode, Node node) {
+        if (elementNode.node == node) {
+            return elementNode;
+        }
+        if (elementNode.getChildren() != null) {
+            for (NodeInfo child : elementNode.children) {
+                ElementNode found = findDescendant((ElementNode) child, node);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ElementNode getChild(ElementNode parent, Node child) {
+        NodeInfo[] children = parent.getChildren();
+        int index = child.getIndexInParent();
+        if (index >= 0 && index < children.length && ((ElementNode) children[index]).node == child) {
+            return (ElementNode) children[index];
+        }
+        for (NodeInfo candidate : children) {
+            if (((ElementNode) candidate).node == child) {
+                return (ElementNode) candidate;
+            }
+        }
+        throw new IllegalStateException("Node " + child + " is not a child of its parent " + parent.node);
+    }
+
     @Override
     public String[] getUnparsedEntity(String name) {
         throw createUnsupportedOperationException("DocumentInfo.getUnparsedEntity(String)");
@@ -109,6 +218,17 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
         return rootNode.getUnderlyingNode();
     }
 
+    /**
+     * Returns the ids of the predicates that rule chain queries share on
+     * this document.
+     */
+    public PredicateIds getPredicateIds() {
+        if (predicateIds == null) {
+            predicateIds = new PredicateIds();
+        }
+        return predicateIds;
+    }
+
     public DeprecatedAttrLogger getAttrCtx() {
         return attrCtx == null ? DeprecatedAttrLogger.noop() : attrCtx;
     }
@@ -116,4 +236,49 @@ public class DocumentNode extends BaseNodeInfo implements DocumentInfo, AstNodeO
     public void setAttrCtx(DeprecatedAttrLogger attrCtx) {
         this.attrCtx = attrCtx;
     }
+
+    /**
+     * Returns true if the attributes of the AST are atomized to untyped values
+     * instead of the value of their type, e.g. {@code xs:boolean}. Untyped
+     * values behave like the strings of XPath 1.0, and are used to evaluate
+     * XPath 1.0 rules with the semantics of Jaxen.
+     *
+     * @since 6.31.0
+     */
+    public boolean hasUntypedAttributes() {
+        return untypedAttributes;
+    }
+
+    /**
+     * Looks up the element nodes with {@link #getElementNode(Node)}.
+     * Iterating over the entries wraps the whole AST.
+     */
+    private final class ElementNodeMap extends AbstractMap<Node, ElementNode> {
+
+        @Override
+        public ElementNode get(Object key) {
+            return key instanceof Node ? getElementNode((Node) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<Node, ElementNode>> entrySet() {
+            Map<Node, ElementNode> all = new LinkedHashMap<>();
+            addAll(rootNode, all);
+            return Collections.unmodifiableMap(all).entrySet();
+        }
+
+        private void addAll(ElementNode elementNode, Map<Node, ElementNode> all) {
+            all.put(elementNode.node, elementNode);
+            if (elementNode.getChildren() != null) {
+                for (NodeInfo child : elementNode.children) {
+                    addAll((ElementNode) child, all);
+                }
+            }
+        }
+    }
 }
@@ -13,6 +13,7 @@ import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.Attribute;
 import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
 import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.internal.PredicateResults;
 
 import net.sf.saxon.om.Axis;
 import net.sf.saxon.om.AxisIterator;
@@ -35,7 +36,9 @@ import net.sf.saxon.value.UntypedAtomicValue;
 import net.sf.saxon.value.Value;
 
 /**
- * A Saxon OM Element type node for an AST Node.
+ * A Saxon OM Element type node for an AST Node. The children are wrapped
+ * when they are first navigated to, so that queries which only look at a
+ * part of the AST don't wrap all of it.
  */
 @Deprecated
 @InternalApi
@@ -46,10 +49,15 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
     protected final Node node;
     protected final int id;
     protected final int siblingPosition;
-    protected final NodeInfo[] children;
+    /** The wrapped children, null until they are navigated to, or if there are none. */
+    protected NodeInfo[] children;
+
+    private final IdGenerator idGenerator;
 
     private Map<Integer, AttributeNode> attributes;
 
+    private PredicateResults predicateResults;
+
     @Deprecated
     public ElementNode(DocumentNode document, IdGenerator idGenerator, ElementNode parent, Node node, int siblingPosition) {
         this(document, idGenerator, parent, node, siblingPosition, SaxonXPathRuleQuery.getNamePool());
@@ -68,16 +76,35 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         this.node = node;
         this.id = idGenerator.getNextId();
         this.siblingPosition = siblingPosition;
+        this.idGenerator = idGenerator;
+        document.register(node, this);
+    }
 
-        if (node.getNumChildren() > 0) {
-            this.children = new NodeInfo[node.getNumChildren()];
-            for (int i = 0; i < children.length; i++) {
-                children[i] = new ElementNode(document, idGenerator, this, node.getChild(i), i, namePool);
+    /**
+     * Returns the wrapped children, wrapping them on the first call.
+     *
+     * @return The children, or null if there are none
+     */
+    NodeInfo[] getChildren() {
+        if (children == null && node.getNumChildren() > 0) {
+            NodeInfo[] wrapped = new NodeInfo[node.getNumChildren()];
+            for (int i = 0; i < wrapped.length; i++) {
+                wrapped[i] = new ElementNode(document, idGenerator, this, node.getChild(i), i, getNamePool());
             }
-        } else {
-            this.children = null;
+            children = wrapped;
+        }
+        return children;
+    }
+
+    /**
+     * Returns the results of the predicates that rule chain queries share
+     * for this node.
+     */
+    public PredicateResults getPredicateResults() {
+        if (predicateResults == null) {
+            predicateResults = new PredicateResults();
         }
-        document.nodeToElementNode.put(node, this);
+        return predicateResults;
     }
 
     private Map<Integer, AttributeNode> getAttributes() {
@@ -116,7 +143,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
 
     @Override
     public boolean hasChildNodes() {
-        return children != null;
+        return node.getNumChildren() > 0;
     }
 
     @Override
@@ -209,7 +236,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         case Axis.ATTRIBUTE:
             return new AttributeEnumeration();
         case Axis.CHILD:
-            if (children == null) {
+            if (getChildren() == null) {
                 return EmptyIterator.getInstance();
             } else {
                 return new NodeArrayIterator(children);
@@ -221,7 +248,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
         case Axis.FOLLOWING:
             return new Navigator.FollowingEnumeration(this);
         case Axis.FOLLOWING_SIBLING:
-            if (parent == null || siblingPosition == parent.children.length - 1) {
+            if (parent == null || siblingPosition == parent.getChildren().length - 1) {
                 return EmptyIterator.getInstance();
             } else {
                 return new NodeArrayIterator(parent.children, siblingPosition + 1, parent.children.length);
@@ -236,7 +263,7 @@ public class ElementNode extends BaseNodeInfo implements AstNodeOwner {
             if (parent == null || siblingPosition == 0) {
                 return EmptyIterator.getInstance();
             } else {
-                return new NodeArrayIterator(parent.children, 0, siblingPosition);
+                return new NodeArrayIterator(parent.getChildren(), 0, siblingPosition);
             }
         case Axis.SELF:
             return SingleNodeIterator.makeIterator(this);
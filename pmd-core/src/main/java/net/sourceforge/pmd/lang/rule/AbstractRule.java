@@ -23,7 +23,7 @@ import net.sourceforge.pmd.properties.PropertyDescriptor;
  *
  * @author pieter_van_raemdonck - Application Engineers NV/SA - www.ae.be
  */
-public abstract class AbstractRule extends AbstractPropertySource implements Rule {
+public abstract class AbstractRule extends AbstractPropertySource implements RequiredNodesRule {
 
     private Language language;
     private LanguageVersion minimumLanguageVersion;
@@ -42,6 +42,7 @@ public abstract class AbstractRule extends AbstractPropertySource implements Rul
     private boolean usesTypeResolution;
     private boolean usesMultifile;
     private List<String> ruleChainVisits = new ArrayList<>();
+    private List<String> requiredNodes = new ArrayList<>();
 
     public AbstractRule() {
         definePropertyDescriptor(Rule.VIOLATION_SUPPRESS_REGEX_DESCRIPTOR);
@@ -77,6 +78,7 @@ public abstract class AbstractRule extends AbstractPropertySource implements Rul
         otherRule.usesTypeResolution = usesTypeResolution;
         otherRule.usesMultifile = usesMultifile;
         otherRule.ruleChainVisits = copyRuleChainVisits();
+        otherRule.requiredNodes = new ArrayList<>(requiredNodes);
     }
 
     private List<String> copyExamples() {
@@ -331,6 +333,36 @@ public abstract class AbstractRule extends AbstractPropertySource implements Rul
         }
     }
 
+    @Override
+    public List<String> getRequiredNodes() {
+        return requiredNodes;
+    }
+
+    /**
+     * Declares that this rule can only find violations in files which
+     * contain a node of the given type, see {@link RequiredNodesRule}.
+     *
+     * @since 6.31.0
+     */
+    public void addRequiredNode(Class<? extends Node> nodeClass) {
+        if (!nodeClass.getSimpleName().startsWith("AST")) {
+            throw new IllegalArgumentException("Node class does not start with 'AST' prefix: " + nodeClass);
+        }
+        addRequiredNode(nodeClass.getSimpleName().substring("AST".length()));
+    }
+
+    /**
+     * Declares that this rule can only find violations in files which
+     * contain a node with the given XPath name, see {@link RequiredNodesRule}.
+     *
+     * @since 6.31.0
+     */
+    public void addRequiredNode(String astNodeName) {
+        if (!requiredNodes.contains(astNodeName)) {
+            requiredNodes.add(astNodeName);
+        }
+    }
+
     @Override
     public void start(RuleContext ctx) {
         // Override as needed
@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.lang.rule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -23,11 +24,17 @@ import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.internal.NodeKindPresence;
+import net.sourceforge.pmd.lang.rule.internal.RuleTimeBudget;
 
 /**
  * This is a base class for RuleChainVisitor implementations which extracts
  * interesting nodes from an AST, and lets each Rule visit the nodes it has
- * expressed interest in.
+ * expressed interest in. Rules using a {@linkplain FusedTraversalRule fused traversal}
+ * share a single pass over the nodes in document order, which dispatches each
+ * node to all the fused rules interested in its kind. The traversal also records which of the nodes
+ * {@linkplain RequiredNodesRule required} by the other rules are present, so
+ * that {@link RuleSet#apply(List, RuleContext)} can skip them.
  *
  * @deprecated See {@link RuleChainVisitor}
  */
@@ -46,6 +53,30 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      */
     protected Map<String, List<Node>> nodeNameToNodes;
 
+    /**
+     * The dense kind of each visited or required node name. The kinds of the
+     * visited nodes come first, and index {@link #nodesByKind}.
+     */
+    private Map<String, Integer> nodeKinds;
+    /** The nodes of the current AST, by kind. The lists are shared with {@link #nodeNameToNodes}. */
+    private List<Node>[] nodesByKind;
+    /** The participating rules, grouped by rule set, with their resolved node kinds. */
+    private List<RuleSetDispatch> dispatchTable;
+    /** The fused traversal rules, indexed by {@link RuleDispatch#fusedIndex}. */
+    private RuleDispatch[] fusedRules = new RuleDispatch[0];
+    /** The indices of the fused traversal rules interested in each visited kind. */
+    private int[][] fusedRulesByKind;
+    /** The indices of the fused traversal rules interested in all the nodes. */
+    private int[] fusedRulesOnAllNodes;
+    /** All the nodes of the current AST in document order, only if there are fused traversal rules. */
+    private List<Node> documentOrder;
+    /** The kind of each node of {@link #documentOrder}, -1 if no rule chain rule visits it. */
+    private int[] documentOrderKinds = new int[0];
+    /** Whether the rules which don't use the rule chain require some nodes. */
+    private boolean hasRequiredNodes;
+    /** The node kinds present in the current AST, only if {@link #hasRequiredNodes}. */
+    private NodeKindPresence presence;
+
     /**
      * @see RuleChainVisitor#add(RuleSet, Rule)
      */
@@ -65,57 +96,138 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
     public void visitAll(List<Node> nodes, RuleContext ctx) {
         initialize();
         clear();
+        presence = hasRequiredNodes ? new NodeKindPresence(nodeKinds) : null;
 
         // Perform a visitation of the AST to index nodes which need visiting by
         // type
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_VISIT)) {
             indexNodes(nodes, ctx);
         }
+        if (presence != null) {
+            for (Node node : nodes) {
+                presence.storeOn(node);
+            }
+        }
 
         // For each RuleSet, only if this source file applies
+        final RuleTimeBudget budget = ctx.getRuleTimeBudget();
+        final boolean[] activeFusedRules = new boolean[fusedRules.length];
+        boolean hasActiveFusedRules = false;
         try (TimedOperation to = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE)) {
-            for (Map.Entry<RuleSet, List<Rule>> entry : ruleSetRules.entrySet()) {
-                RuleSet ruleSet = entry.getKey();
-                if (!ruleSet.applies(ctx.getSourceCodeFile())) {
+            for (RuleSetDispatch dispatch : dispatchTable) {
+                if (!dispatch.ruleSet.applies(ctx.getSourceCodeFile())) {
                     continue;
                 }
 
                 // For each rule, allow it to visit the nodes it desires
-                for (Rule rule : entry.getValue()) {
-                    int visits = 0;
-                    if (!RuleSet.applies(rule, ctx.getLanguageVersion())) {
+                for (RuleDispatch ruleDispatch : dispatch.rules) {
+                    Rule rule = ruleDispatch.rule;
+                    if (!RuleSet.applies(rule, ctx.getLanguageVersion())
+                            || budget != null && budget.isSkipped(rule, ctx)) {
                         continue;
                     }
-                    try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE, rule.getName())) {
-                        final List<String> nodeNames = rule.getRuleChainVisits();
-                        for (int j = 0; j < nodeNames.size(); j++) {
-                            List<Node> ns = nodeNameToNodes.get(nodeNames.get(j));
-                            for (Node node : ns) {
-                                // Visit with underlying Rule, not the RuleReference
-                                Rule actualRule = rule;
-                                while (actualRule instanceof RuleReference) {
-                                    actualRule = ((RuleReference) actualRule).getRule();
-                                }
-                                visit(actualRule, node, ctx);
-                            }
-                            visits += ns.size();
-                        }
-                        rcto.close(visits);
-                    } catch (RuntimeException e) {
-                        if (ctx.isIgnoreExceptions()) {
-                            ctx.getReport().addError(new Report.ProcessingError(e, String.valueOf(ctx.getSourceCodeFile())));
-
-                            if (LOG.isLoggable(Level.WARNING)) {
-                                LOG.log(Level.WARNING, "Exception applying rule " + rule.getName() + " on file "
-                                        + ctx.getSourceCodeFile() + ", continuing with next rule", e);
-                            }
-                        } else {
-                            throw e;
-                        }
+                    if (ruleDispatch.fused) {
+                        // visited below, along with the other fused rules
+                        activeFusedRules[ruleDispatch.fusedIndex] = true;
+                        hasActiveFusedRules = true;
+                        continue;
+                    }
+                    final long start = budget == null ? 0 : System.nanoTime();
+                    applyRuleChain(ruleDispatch, ctx);
+                    if (budget != null) {
+                        budget.recordTime(rule, ctx, System.nanoTime() - start);
                     }
                 }
             }
         }
+
+        if (hasActiveFusedRules) {
+            applyFusedTraversal(activeFusedRules, ctx);
+        }
+    }
+
+    private void applyRuleChain(RuleDispatch ruleDispatch, RuleContext ctx) {
+        Rule rule = ruleDispatch.rule;
+        int visits = 0;
+        try (TimedOperation rcto = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE, rule.getName())) {
+            for (int kind : ruleDispatch.nodeKinds) {
+                List<Node> ns = nodesByKind[kind];
+                for (int i = 0; i < ns.size(); i++) {
+                    // Visit with underlying Rule, not the RuleReference
+                    visit(ruleDispatch.actualRule, ns.get(i), ctx);
+                }
+                visits += ns.size();
+            }
+            rcto.close(visits);
+        } catch (RuntimeException e) {
+            handleRuleException(rule, ctx, e);
+        }
+    }
+
+    /**
+     * Visits the nodes once, in document order, and dispatches each of them
+     * to the active fused traversal rules interested in its kind. A rule
+     * failing on a node is not visited with the next nodes.
+     */
+    private void applyFusedTraversal(boolean[] active, RuleContext ctx) {
+        final RuleTimeBudget budget = ctx.getRuleTimeBudget();
+        // the time of each rule is only measured if someone looks at it
+        final boolean timed = budget != null || TimeTracker.isTracking();
+        final long[] nanos = new long[fusedRules.length];
+        final int[] visits = new int[fusedRules.length];
+
+        for (int i = 0; i < documentOrder.size(); i++) {
+            final Node node = documentOrder.get(i);
+            final int kind = documentOrderKinds[i];
+            visitFused(fusedRulesOnAllNodes, active, node, ctx, timed, nanos, visits);
+            if (kind >= 0) {
+                visitFused(fusedRulesByKind[kind], active, node, ctx, timed, nanos, visits);
+            }
+        }
+
+        for (int r = 0; r < fusedRules.length; r++) {
+            if (visits[r] == 0) {
+                continue;
+            }
+            // the rules don't use the rule chain, account for them like RuleSet#apply does
+            TimeTracker.recordOperation(TimedOperationCategory.RULE, fusedRules[r].rule.getName(), nanos[r], visits[r]);
+            if (budget != null) {
+                budget.recordTime(fusedRules[r].rule, ctx, nanos[r]);
+            }
+        }
+    }
+
+    private void visitFused(int[] rules, boolean[] active, Node node, RuleContext ctx, boolean timed,
+            long[] nanos, int[] visits) {
+        for (int r : rules) {
+            if (!active[r]) {
+                continue;
+            }
+            final long start = timed ? System.nanoTime() : 0;
+            try {
+                ((FusedTraversalRule) fusedRules[r].actualRule).visitInFusedTraversal(node, ctx);
+            } catch (RuntimeException e) {
+                active[r] = false;
+                handleRuleException(fusedRules[r].rule, ctx, e);
+            }
+            if (timed) {
+                nanos[r] += System.nanoTime() - start;
+            }
+            visits[r]++;
+        }
+    }
+
+    private void handleRuleException(Rule rule, RuleContext ctx, RuntimeException e) {
+        if (ctx.isIgnoreExceptions()) {
+            ctx.getReport().addError(new Report.ProcessingError(e, String.valueOf(ctx.getSourceCodeFile())));
+
+            if (LOG.isLoggable(Level.WARNING)) {
+                LOG.log(Level.WARNING, "Exception applying rule " + rule.getName() + " on file "
+                        + ctx.getSourceCodeFile() + ", continuing with next rule", e);
+            }
+        } else {
+            throw e;
+        }
     }
 
     /**
@@ -132,9 +244,21 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      * Index a single node for visitation by rules.
      */
     protected void indexNode(Node node) {
-        List<Node> nodes = nodeNameToNodes.get(node.getXPathNodeName());
-        if (nodes != null) {
-            nodes.add(node);
+        Integer kind = nodeKinds.get(node.getXPathNodeName());
+        boolean visited = kind != null && kind < nodesByKind.length;
+        if (visited) {
+            nodesByKind[kind].add(node);
+        }
+        if (presence != null && kind != null) {
+            presence.add(kind);
+        }
+        if (documentOrder != null) {
+            int index = documentOrder.size();
+            if (index == documentOrderKinds.length) {
+                documentOrderKinds = Arrays.copyOf(documentOrderKinds, Math.max(256, 2 * index));
+            }
+            documentOrderKinds[index] = visited ? kind : -1;
+            documentOrder.add(node);
         }
     }
 
@@ -153,6 +277,8 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
 
         // Determine all node types that need visiting
         Set<String> visitedNodes = new HashSet<>();
+        Set<String> requiredNodes = new HashSet<>();
+        boolean hasFusedTraversal = false;
         for (Iterator<Map.Entry<RuleSet, List<Rule>>> entryIterator = ruleSetRules.entrySet().iterator(); entryIterator
                 .hasNext();) {
             Map.Entry<RuleSet, List<Rule>> entry = entryIterator.next();
@@ -162,8 +288,13 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
                     visitedNodes.addAll(rule.getRuleChainVisits());
 
                     logXPathRuleChainUsage(true, rule);
+                } else if (RuleSet.usesFusedTraversal(rule)) {
+                    visitedNodes.addAll(((FusedTraversalRule) RuleDispatch.unwrap(rule)).getFusedTraversalVisits());
+                    hasFusedTraversal = true;
                 } else {
-                    // Drop rules which do not participate in the rule chain.
+                    // Drop rules which do not participate in the rule chain,
+                    // but record the presence of the nodes they require.
+                    requiredNodes.addAll(RuleSet.getRequiredNodes(rule));
                     ruleIterator.remove();
 
                     logXPathRuleChainUsage(false, rule);
@@ -177,12 +308,80 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
 
         // Setup the data structure to manage mapping node names to node
         // instances. We intend to reuse this data structure between
-        // visits to different ASTs.
+        // visits to different ASTs. Each node name gets a dense kind, which
+        // indexes the node lists.
         nodeNameToNodes = new HashMap<>();
+        nodeKinds = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        List<Node>[] lists = new List[visitedNodes.size()];
+        nodesByKind = lists;
         for (String s : visitedNodes) {
             List<Node> nodes = new ArrayList<>(100);
+            nodesByKind[nodeKinds.size()] = nodes;
+            nodeKinds.put(s, nodeKinds.size());
             nodeNameToNodes.put(s, nodes);
         }
+        hasRequiredNodes = !requiredNodes.isEmpty();
+        requiredNodes.removeAll(visitedNodes);
+        for (String s : requiredNodes) {
+            nodeKinds.put(s, nodeKinds.size());
+        }
+        if (hasFusedTraversal) {
+            documentOrder = new ArrayList<>(1000);
+        }
+
+        // Resolve the rule references and node kinds of each rule once,
+        // instead of for each visited node.
+        dispatchTable = new ArrayList<>(ruleSetRules.size());
+        List<RuleDispatch> fused = new ArrayList<>();
+        for (Map.Entry<RuleSet, List<Rule>> entry : ruleSetRules.entrySet()) {
+            List<RuleDispatch> rules = new ArrayList<>(entry.getValue().size());
+            for (Rule rule : entry.getValue()) {
+                RuleDispatch ruleDispatch = new RuleDispatch(rule, nodeKinds, fused.size());
+                if (ruleDispatch.fused) {
+                    fused.add(ruleDispatch);
+                }
+                rules.add(ruleDispatch);
+            }
+            dispatchTable.add(new RuleSetDispatch(entry.getKey(), rules));
+        }
+        indexFusedRules(fused, visitedNodes.size());
+    }
+
+    /**
+     * Groups the fused traversal rules by the kinds of the nodes they visit,
+     * so that the traversal only looks at the rules interested in a node.
+     */
+    private void indexFusedRules(List<RuleDispatch> fused, int kindCount) {
+        fusedRules = fused.toArray(new RuleDispatch[0]);
+        List<List<Integer>> byKind = new ArrayList<>(kindCount);
+        for (int i = 0; i < kindCount; i++) {
+            byKind.add(new ArrayList<Integer>());
+        }
+        List<Integer> onAllNodes = new ArrayList<>();
+        for (RuleDispatch ruleDispatch : fusedRules) {
+            if (ruleDispatch.nodeKinds.length == 0) {
+                onAllNodes.add(ruleDispatch.fusedIndex);
+            }
+            for (int kind : ruleDispatch.nodeKinds) {
+                if (!byKind.get(kind).contains(ruleDispatch.fusedIndex)) {
+                    byKind.get(kind).add(ruleDispatch.fusedIndex);
+                }
+            }
+        }
+        fusedRulesOnAllNodes = toArray(onAllNodes);
+        fusedRulesByKind = new int[kindCount][];
+        for (int i = 0; i < kindCount; i++) {
+            fusedRulesByKind[i] = toArray(byKind.get(i));
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
     }
 
     private void logXPathRuleChainUsage(boolean usesRuleChain, Rule rule) {
@@ -207,8 +406,54 @@ public abstract class AbstractRuleChainVisitor implements RuleChainVisitor {
      * between visiting different ASTs.
      */
     protected void clear() {
-        for (List<Node> l : nodeNameToNodes.values()) {
+        for (List<Node> l : nodesByKind) {
             l.clear();
         }
+        if (documentOrder != null) {
+            documentOrder.clear();
+        }
+    }
+
+    private static final class RuleSetDispatch {
+        private final RuleSet ruleSet;
+        private final List<RuleDispatch> rules;
+
+        RuleSetDispatch(RuleSet ruleSet, List<RuleDispatch> rules) {
+            this.ruleSet = ruleSet;
+            this.rules = rules;
+        }
+    }
+
+    private static final class RuleDispatch {
+        private final Rule rule;
+        /** The underlying rule, if {@link #rule} is a rule reference. */
+        private final Rule actualRule;
+        /** The kinds of the nodes visited by the rule, in the order of its rule chain visits. */
+        private final int[] nodeKinds;
+        /** Whether the rule uses the fused traversal instead of the rule chain. */
+        private final boolean fused;
+        /** The index of a fused traversal rule among the fused rules, -1 for a rule chain rule. */
+        private final int fusedIndex;
+
+        RuleDispatch(Rule rule, Map<String, Integer> kinds, int nextFusedIndex) {
+            this.rule = rule;
+            this.actualRule = unwrap(rule);
+            this.fused = !rule.isRuleChain();
+            List<String> nodeNames = fused ? ((FusedTraversalRule) actualRule).getFusedTraversalVisits()
+                    : rule.getRuleChainVisits();
+            nodeKinds = new int[nodeNames.size()];
+            for (int i = 0; i < nodeKinds.length; i++) {
+                nodeKinds[i] = kinds.get(nodeNames.get(i));
+            }
+            fusedIndex = fused ? nextFusedIndex : -1;
+        }
+
+        static Rule unwrap(Rule rule) {
+            Rule actual = rule;
+            while (actual instanceof RuleReference) {
+                actual = ((RuleReference) actual).getRule();
+            }
+            return actual;
+        }
     }
 }
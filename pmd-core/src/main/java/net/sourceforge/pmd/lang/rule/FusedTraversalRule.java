@@ -0,0 +1,51 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.List;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.annotation.Experimental;
+import net.sourceforge.pmd.lang.ast.Node;
+
+/**
+ * A visitor rule which can share a single traversal of the AST with the
+ * other rules of the file, instead of walking the whole tree on its own.
+ * The rule is then visited with each node it is interested in, in document
+ * order, through {@link #visitInFusedTraversal(Node, RuleContext)}, and must
+ * not visit the children of the node itself. Applying the rule directly, with
+ * {@link #apply(List, RuleContext)}, still walks the whole tree.
+ *
+ * <p>Only rules which don't control the descent into the tree can use the
+ * shared traversal: they must not skip subtrees, must not pass another
+ * data object down to the children, and must not rely on code which runs
+ * after the children of a node have been visited.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public interface FusedTraversalRule extends Rule {
+
+    /**
+     * Returns true if this rule uses the shared traversal.
+     */
+    boolean isFusedTraversal();
+
+    /**
+     * Returns the XPath node names of the nodes this rule is visited with
+     * in the shared traversal. An empty list means all nodes.
+     */
+    List<String> getFusedTraversalVisits();
+
+    /**
+     * Visits a node in the shared traversal, without visiting its children,
+     * which are visited by the traversal.
+     *
+     * @param node A node of one of the kinds returned by {@link #getFusedTraversalVisits()}
+     * @param ctx  The context of the file
+     */
+    void visitInFusedTraversal(Node node, RuleContext ctx);
+}
@@ -0,0 +1,30 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule;
+
+import java.util.List;
+
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.annotation.Experimental;
+
+/**
+ * A rule which can only find violations in files that contain some
+ * specific nodes. Rules which don't use the rule chain are skipped for the
+ * files in which none of these nodes is present, instead of traversing the
+ * whole AST for nothing. The presence of the nodes is recorded by the
+ * {@link RuleChainVisitor} while it indexes the AST.
+ *
+ * @since 6.31.0
+ */
+@Experimental
+public interface RequiredNodesRule extends Rule {
+
+    /**
+     * Returns the XPath node names of which at least one must be present
+     * in a file for this rule to find violations in it. An empty list means
+     * the rule is applied to every file.
+     */
+    List<String> getRequiredNodes();
+}
@@ -8,16 +8,22 @@ import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_1_0;
 import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_1_0_COMPATIBILITY;
 import static net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery.XPATH_2_0;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
 
 import net.sourceforge.pmd.Rule;
 import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.annotation.Experimental;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.lang.rule.xpath.JaxenXPathRuleQuery;
@@ -29,9 +35,26 @@ import net.sourceforge.pmd.properties.StringProperty;
 
 /**
  * Rule that tries to match an XPath expression against a DOM view of an AST.
+ *
+ * <p>XPath 1.0 expressions are evaluated with Jaxen. If the system property
+ * {@value #USE_SAXON_PROPERTY} is true, they are evaluated with Saxon instead,
+ * in backwards compatibility mode and with the attributes compared as strings,
+ * which gives the same results as Jaxen. They still fall back to Jaxen if they
+ * use a function Saxon doesn't know about.
  */
 public class XPathRule extends AbstractRule {
 
+    /**
+     * If this system property is true, XPath 1.0 rules are evaluated with Saxon
+     * instead of Jaxen, when Saxon gives the same results.
+     *
+     * @since 6.31.0
+     */
+    @Experimental
+    public static final String USE_SAXON_PROPERTY = "net.sourceforge.pmd.xpath.saxon";
+
+    private static final Logger LOG = Logger.getLogger(XPathRule.class.getName());
+
     /**
      * @deprecated Use {@link #XPathRule(XPathVersion, String)}
      */
@@ -191,10 +214,13 @@ public class XPathRule extends AbstractRule {
             throw new IllegalStateException("Invalid XPath version, should have been caught by Rule::dysfunctionReason");
         }
 
+        xpathRuleQuery = new SaxonXPathRuleQuery(attrLogger);
         if (version == XPathVersion.XPATH_1_0) {
-            xpathRuleQuery = new JaxenXPathRuleQuery(attrLogger);
-        } else {
-            xpathRuleQuery = new SaxonXPathRuleQuery(attrLogger);
+            // XPath 1.0 rules are only translated for Saxon if it's been asked
+            // for, and Jaxen is still used for the expressions which can't be
+            if (!Boolean.getBoolean(USE_SAXON_PROPERTY) || !initSaxonQuery(xpath, version)) {
+                xpathRuleQuery = new JaxenXPathRuleQuery(attrLogger);
+            }
         }
 
         xpathRuleQuery.setXPath(xpath);
@@ -202,6 +228,18 @@ public class XPathRule extends AbstractRule {
         xpathRuleQuery.setProperties(getPropertiesByPropertyDescriptor());
     }
 
+    private boolean initSaxonQuery(String xpath, XPathVersion version) {
+        SaxonXPathRuleQuery saxonQuery = (SaxonXPathRuleQuery) xpathRuleQuery;
+        saxonQuery.setXPath(xpath);
+        saxonQuery.setVersion(version.getXmlName());
+        saxonQuery.setProperties(getPropertiesByPropertyDescriptor());
+        if (!saxonQuery.isCompilable()) {
+            LOG.fine("Rule " + getName() + " is evaluated with Jaxen, its XPath 1.0 expression can't be compiled by Saxon");
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Checks if the {@link #xpathRuleQuery} is null and therefore requires initialization.
      *
@@ -219,10 +257,36 @@ public class XPathRule extends AbstractRule {
             for (String nodeName : xpathRuleQuery.getRuleChainVisits()) {
                 super.addRuleChainVisit(nodeName);
             }
+            if (xpathRuleQuery instanceof SaxonXPathRuleQuery && LOG.isLoggable(Level.FINE)) {
+                String reason = ((SaxonXPathRuleQuery) xpathRuleQuery).getRuleChainFallbackReason();
+                if (reason != null) {
+                    LOG.fine("Rule " + getName() + " is evaluated on the whole AST: " + reason);
+                }
+            }
         }
         return super.getRuleChainVisits();
     }
 
+    /**
+     * Returns the elements the XPath expression selects, if they can be
+     * determined, along with the nodes added with {@link #addRequiredNode(String)}.
+     * The query doesn't need to be evaluated on files without any of these
+     * elements.
+     */
+    @Override
+    public List<String> getRequiredNodes() {
+        if (xPathRuleQueryNeedsInitialization()) {
+            getRuleChainVisits();
+        }
+        List<String> inferred = xpathRuleQuery.getRequiredNodes();
+        if (inferred.isEmpty() || super.getRequiredNodes().isEmpty()) {
+            return inferred.isEmpty() ? super.getRequiredNodes() : inferred;
+        }
+        Set<String> merged = new LinkedHashSet<>(super.getRequiredNodes());
+        merged.addAll(inferred);
+        return new ArrayList<>(merged);
+    }
+
     @Override
     public String dysfunctionReason() {
         if (getVersion() == null) {
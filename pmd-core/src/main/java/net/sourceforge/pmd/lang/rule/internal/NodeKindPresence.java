@@ -0,0 +1,71 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Records which kinds of nodes are present in an AST. It is computed by the
+ * rule chain while indexing the AST, and stored on its root node, so that
+ * rules which require some nodes can be skipped if none is present.
+ */
+public final class NodeKindPresence {
+
+    private static final SimpleDataKey<NodeKindPresence> PRESENCE_KEY = DataMap.simpleDataKey("rulechain.presence");
+
+    /** The kind of each tracked node name, indexes {@link #present}. */
+    private final Map<String, Integer> kinds;
+    private final BitSet present;
+
+    public NodeKindPresence(Map<String, Integer> kinds) {
+        this.kinds = kinds;
+        this.present = new BitSet(kinds.size());
+    }
+
+    /**
+     * Records that a node of the given kind is present.
+     */
+    public void add(int kind) {
+        present.set(kind);
+    }
+
+    /**
+     * Returns true if any of the given nodes may be present. Node names
+     * which are not tracked may be present.
+     *
+     * @param nodeNames XPath node names
+     */
+    public boolean containsAny(List<String> nodeNames) {
+        for (String nodeName : nodeNames) {
+            Integer kind = kinds.get(nodeName);
+            if (kind == null || present.get(kind)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores this presence on the root node of an AST, replacing the
+     * presence of an earlier indexing.
+     */
+    public void storeOn(Node root) {
+        root.getUserMap().set(PRESENCE_KEY, this);
+    }
+
+    /**
+     * Returns the presence stored on the root node of an AST, or null if
+     * the AST was not indexed.
+     */
+    public static NodeKindPresence get(Node root) {
+        return root.getUserMap().get(PRESENCE_KEY);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.cache.AnalysisCache;
+
+/**
+ * Limits the time spent by each rule, see {@link PMDConfiguration#getRuleTimeBudget()}
+ * and {@link PMDConfiguration#getRuleFileTimeBudget()}. A rule which exceeds
+ * its cumulative budget is not applied anymore for the rest of the analysis.
+ * A rule which exceeds its budget on a single file can't be interrupted, but
+ * it is not applied to this file anymore by the next analyses. Both decisions
+ * are reported as configuration errors, and recorded in the analysis cache,
+ * so that the next analyses skip the rule from the start. The files on which
+ * a rule is skipped are not up to date for the next analyses, which may have
+ * a larger budget or none.
+ *
+ * <p>The budget is shared by all the threads of an analysis, through the
+ * {@link RuleContext}.
+ */
+public final class RuleTimeBudget {
+
+    private static final Logger LOG = Logger.getLogger(RuleTimeBudget.class.getName());
+
+    private final long budgetMillis;
+    private final long fileBudgetMillis;
+    private final AnalysisCache cache;
+    private final ConcurrentMap<String, AtomicLong> spentNanos = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Boolean> disabledRules = new ConcurrentHashMap<>();
+
+    private RuleTimeBudget(long budgetMillis, long fileBudgetMillis, AnalysisCache cache) {
+        this.budgetMillis = budgetMillis;
+        this.fileBudgetMillis = fileBudgetMillis;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the budget of the given configuration, or null if the time of
+     * the rules is not limited. The rules disabled by an earlier analysis, for
+     * a budget not larger than the current one, are disabled from the start,
+     * and reported on the given report.
+     *
+     * @param configuration The configuration of the analysis, whose analysis cache must already be checked
+     * @param ruleSets      The rules of the analysis
+     * @param report        The report on which to report the disabled rules
+     */
+    public static RuleTimeBudget create(PMDConfiguration configuration, RuleSets ruleSets, Report report) {
+        if (configuration.getRuleTimeBudget() <= 0 && configuration.getRuleFileTimeBudget() <= 0) {
+            return null;
+        }
+        final RuleTimeBudget budget = new RuleTimeBudget(configuration.getRuleTimeBudget(),
+                                                         configuration.getRuleFileTimeBudget(),
+                                                         configuration.getAnalysisCache());
+        if (budget.budgetMillis > 0) {
+            final Map<String, Long> disabled = budget.cache.getDisabledRules();
+            for (final Rule rule : ruleSets.getAllRules()) {
+                final Long exceededBudget = disabled.get(rule.getName());
+                if (exceededBudget != null && budget.budgetMillis <= exceededBudget
+                        && budget.disabledRules.putIfAbsent(rule.getName(), Boolean.TRUE) == null) {
+                    report.addConfigError(new Report.ConfigurationError(rule,
+                        "Disabled, the rule exceeded its time budget of " + exceededBudget + " ms in an earlier analysis"));
+                }
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * Returns true if the given rule must not be applied to the current file
+     * of the context. The skipped files are reported on the report of the
+     * context, the disabled rules aren't, they are reported once by
+     * {@link #create(PMDConfiguration, RuleSets, Report)} or {@link #recordTime(Rule, RuleContext, long)}.
+     */
+    public boolean isSkipped(Rule rule, RuleContext ctx) {
+        final File file = ctx.getSourceCodeFile();
+        if (disabledRules.containsKey(rule.getName())) {
+            skipped(file);
+            return true;
+        }
+        if (fileBudgetMillis > 0) {
+            final Long exceededBudget = file == null ? null : cache.getSkippedRules(file).get(rule.getName());
+            if (exceededBudget != null && fileBudgetMillis <= exceededBudget) {
+                ctx.getReport().addConfigError(new Report.ConfigurationError(rule,
+                    "Skipped on file " + file + ", the rule exceeded its time budget of " + exceededBudget
+                        + " ms on this file in an earlier analysis"));
+                skipped(file);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void skipped(File file) {
+        // the violations of the other rules only must not be replayed by an analysis without budget
+        if (file != null) {
+            cache.analysisIncomplete(file);
+        }
+    }
+
+    /**
+     * Records the time spent by the given rule on the current file of the
+     * context, and disables the rule if it exceeded one of its budgets.
+     *
+     * @param rule  The rule
+     * @param ctx   The context of the file
+     * @param nanos The time spent by the rule on the file
+     */
+    public void recordTime(Rule rule, RuleContext ctx, long nanos) {
+        final String name = rule.getName();
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        final File file = ctx.getSourceCodeFile();
+        if (fileBudgetMillis > 0 && millis > fileBudgetMillis && file != null) {
+            cache.ruleSkipped(file, name, fileBudgetMillis);
+            reportExceeded(rule, ctx, "Exceeded its time budget of " + fileBudgetMillis + " ms on file " + file
+                + " (" + millis + " ms), the rule is skipped on this file by the next incremental analyses");
+        }
+
+        if (budgetMillis > 0) {
+            AtomicLong spent = spentNanos.get(name);
+            if (spent == null) {
+                final AtomicLong newSpent = new AtomicLong();
+                spent = spentNanos.putIfAbsent(name, newSpent);
+                if (spent == null) {
+                    spent = newSpent;
+                }
+            }
+            final long totalMillis = TimeUnit.NANOSECONDS.toMillis(spent.addAndGet(nanos));
+            if (totalMillis > budgetMillis && disabledRules.putIfAbsent(name, Boolean.TRUE) == null) {
+                cache.ruleDisabled(name, budgetMillis);
+                reportExceeded(rule, ctx, "Exceeded its time budget of " + budgetMillis + " ms (" + totalMillis
+                    + " ms), the rule is disabled for the rest of the analysis");
+            }
+        }
+    }
+
+    private static void reportExceeded(Rule rule, RuleContext ctx, String issue) {
+        LOG.warning("Rule " + rule.getName() + ": " + issue);
+        ctx.getReport().addConfigError(new Report.ConfigurationError(rule, issue));
+    }
+}
@@ -42,6 +42,11 @@ public abstract class AbstractXPathRuleQuery implements XPathRuleQuery {
      */
     protected final List<String> ruleChainVisits = new ArrayList<>();
 
+    /**
+     * Subclasses can manage the nodes required by the query via this list.
+     */
+    protected final List<String> requiredNodes = new ArrayList<>();
+
     @Override
     public void setXPath(final String xpath) {
         this.xpath = xpath;
@@ -77,6 +82,11 @@ public abstract class AbstractXPathRuleQuery implements XPathRuleQuery {
         return ruleChainVisits;
     }
 
+    @Override
+    public List<String> getRequiredNodes() {
+        return requiredNodes;
+    }
+
     @Override
     public abstract List<Node> evaluate(Node node, RuleContext data);
 }
@@ -8,9 +8,11 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,8 +24,10 @@ import org.jaxen.XPath;
 import org.jaxen.expr.AllNodeStep;
 import org.jaxen.expr.DefaultXPathFactory;
 import org.jaxen.expr.Expr;
+import org.jaxen.expr.FilterExpr;
 import org.jaxen.expr.LocationPath;
 import org.jaxen.expr.NameStep;
+import org.jaxen.expr.PathExpr;
 import org.jaxen.expr.Predicate;
 import org.jaxen.expr.Step;
 import org.jaxen.expr.UnionExpr;
@@ -148,6 +152,13 @@ public class JaxenXPathRuleQuery extends AbstractXPathRuleQuery {
         final BaseXPath originalXPath = createXPath(xpath, navigator);
         addQueryToNode(originalXPath, AST_ROOT);
 
+        // Even without rule chain, the query can be skipped for trees without the selected elements
+        final Set<String> selectedElements = new LinkedHashSet<>();
+        requiredNodes.clear();
+        if (addSelectedElements(originalXPath.getRootExpr(), selectedElements)) {
+            requiredNodes.addAll(selectedElements);
+        }
+
         boolean useRuleChain = true;
         final Deque<Expr> pending = new ArrayDeque<>();
         pending.push(originalXPath.getRootExpr());
@@ -243,6 +254,49 @@ public class JaxenXPathRuleQuery extends AbstractXPathRuleQuery {
         }
     }
 
+    @Override
+    public List<String> getRequiredNodes() {
+        try {
+            initializeExpressionIfStatusIsNoneOrPartial(null);
+            return super.getRequiredNodes();
+        } catch (final JaxenException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Adds the names of the elements selected by the expression to the set,
+     * e.g. "B" and "C" for <code>//A[condition()]/B | //C</code>.
+     *
+     * @return false if the expression might select other nodes or values
+     */
+    private static boolean addSelectedElements(final Expr expr, final Set<String> elements) {
+        if (expr instanceof UnionExpr) {
+            final UnionExpr unionExpr = (UnionExpr) expr;
+            return addSelectedElements(unionExpr.getLHS(), elements) && addSelectedElements(unionExpr.getRHS(), elements);
+        } else if (expr instanceof PathExpr) {
+            final PathExpr pathExpr = (PathExpr) expr;
+            return pathExpr.getLocationPath() != null ? addSelectedElements(pathExpr.getLocationPath(), elements)
+                    : addSelectedElements(pathExpr.getFilterExpr(), elements);
+        } else if (expr instanceof FilterExpr) {
+            return addSelectedElements(((FilterExpr) expr).getExpr(), elements);
+        } else if (expr instanceof LocationPath) {
+            // the path selects the nodes of its last step
+            @SuppressWarnings("unchecked")
+            final List<Step> steps = ((LocationPath) expr).getSteps();
+            if (!steps.isEmpty() && steps.get(steps.size() - 1) instanceof NameStep) {
+                final NameStep step = (NameStep) steps.get(steps.size() - 1);
+                if (step.getAxis() != Axis.ATTRIBUTE && step.getAxis() != Axis.NAMESPACE
+                        && (step.getPrefix() == null || step.getPrefix().isEmpty())
+                        && !"*".equals(step.getLocalName())) {
+                    elements.add(step.getLocalName());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Relates an XPath query to a node by adding the query to the {@link #nodeNameToXPaths}.
      *
@@ -10,6 +10,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -21,6 +23,8 @@ import net.sourceforge.pmd.lang.ast.xpath.internal.AstNodeOwner;
 import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
+import net.sourceforge.pmd.lang.rule.xpath.internal.JaxenCompatibility;
+import net.sourceforge.pmd.lang.rule.xpath.internal.PredicatePlan;
 import net.sourceforge.pmd.lang.rule.xpath.internal.RuleChainAnalyzer;
 import net.sourceforge.pmd.lang.xpath.Initializer;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
@@ -28,7 +32,9 @@ import net.sourceforge.pmd.util.DataMap;
 import net.sourceforge.pmd.util.DataMap.DataKey;
 import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
 
+import net.sf.saxon.Configuration;
 import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.XPathContext;
 import net.sf.saxon.om.Item;
 import net.sf.saxon.om.NamePool;
 import net.sf.saxon.om.NamespaceConstant;
@@ -74,12 +80,27 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
 
     /** Cache key for the wrapped tree for saxon. */
     private static final SimpleDataKey<DocumentNode> SAXON_TREE_CACHE_KEY = DataMap.simpleDataKey("saxon.tree");
+    private static final SimpleDataKey<DocumentNode> UNTYPED_SAXON_TREE_CACHE_KEY = DataMap.simpleDataKey("saxon.tree.untyped");
+
+    /**
+     * Compiled queries by version, variable names and expression, see {@link CompiledQuery}.
+     */
+    private static final ConcurrentMap<String, CompiledQuery> COMPILED_QUERIES = new ConcurrentHashMap<>();
+
+    /** Queries are compiled without caching them past this number, e.g. in the rule designer. */
+    private static final int MAX_COMPILED_QUERIES = 4096;
 
     /**
      * Contains for each nodeName a sub expression, used for implementing rule chain.
      */
     Map<String, List<Expression>> nodeNameToXPaths = new HashMap<>();
 
+    /**
+     * Contains for each nodeName the plans of its sub expressions, in the same order. A plan is
+     * null if the sub expression is evaluated as is.
+     */
+    Map<String, List<PredicatePlan>> nodeNameToPlans = new HashMap<>();
+
     /**
      * Representation of an XPath query, created at {@link #initializeXPathExpression()} using {@link #xpath}.
      */
@@ -92,6 +113,11 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
      */
     private List<XPathVariable> xpathVariables;
 
+    /**
+     * Why the rule chain can't be used for the query, null if it is used.
+     */
+    private String ruleChainFallbackReason;
+
     private final DeprecatedAttrLogger attrCtx;
 
     @Deprecated
@@ -105,7 +131,7 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
 
     @Override
     public boolean isSupportedVersion(String version) {
-        return XPATH_1_0_COMPATIBILITY.equals(version) || XPATH_2_0.equals(version);
+        return XPATH_1_0.equals(version) || XPATH_1_0_COMPATIBILITY.equals(version) || XPATH_2_0.equals(version);
     }
 
     @Override
@@ -117,14 +143,19 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             documentNode.setAttrCtx(attrCtx); //
 
             // Map AST Node -> Saxon Node
-            final ElementNode rootElementNode = documentNode.nodeToElementNode.get(node);
+            final ElementNode rootElementNode = documentNode.getElementNode(node);
             assert rootElementNode != null : "Cannot find " + node;
             final XPathDynamicContext xpathDynamicContext = createDynamicContext(rootElementNode);
 
             final List<Node> results = new LinkedList<>();
             List<Expression> expressions = getXPathExpressionForNodeOrDefault(node.getXPathNodeName());
-            for (Expression expression : expressions) {
-                SequenceIterator iterator = expression.iterate(xpathDynamicContext.getXPathContextObject());
+            List<PredicatePlan> plans = nodeNameToPlans.get(node.getXPathNodeName());
+            for (int i = 0; i < expressions.size(); i++) {
+                PredicatePlan plan = plans == null ? null : plans.get(i);
+                XPathContext context = xpathDynamicContext.getXPathContextObject();
+                SequenceIterator iterator = plan == null
+                                            ? expressions.get(i).iterate(context)
+                                            : plan.iterate(rootElementNode, context, documentNode);
                 Item current = iterator.next();
                 while (current != null) {
                     if (current instanceof AstNodeOwner) {
@@ -139,6 +170,10 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
             Collections.sort(results, RuleChainAnalyzer.documentOrderComparator());
             return results;
         } catch (final XPathException e) {
+            if (XPATH_1_0.equals(version) && e.getCause() instanceof RuntimeException) {
+                // Jaxen lets the exceptions thrown by the PMD functions through
+                throw (RuntimeException) e.getCause();
+            }
             throw new RuntimeException(super.xpath + " had problem: " + e.getMessage(), e);
         }
     }
@@ -178,7 +213,10 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
 
 
     private ValueRepresentation getRepresentation(final PropertyDescriptor<?> descriptor, final Object value) {
-        if (descriptor.isMultiValue()) {
+        if (XPATH_1_0.equals(version) && value != null) {
+            // Jaxen binds the variables to the string representation of the values
+            return new StringValue(value.toString());
+        } else if (descriptor.isMultiValue()) {
             return getSequenceRepresentation((List<?>) value);
         } else {
             return getAtomicRepresentation(value);
@@ -189,6 +227,7 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
      * Gets the DocumentNode representation for the whole AST in which the node is, that is, if the node is not the root
      * of the AST, then the AST is traversed all the way up until the root node is found. If the DocumentNode was
      * cached because this method was previously called, then a new DocumentNode will not be instanced.
+     * XPath 1.0 rules compare the attributes as strings, like Jaxen does, on their own DocumentNode.
      *
      * @param node the node from which the root node will be looked for.
      * @return the DocumentNode representing the whole AST
@@ -197,10 +236,12 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         final Node root = getRootNode(node);
 
         DataMap<DataKey<?, ?>> userMap = root.getUserMap();
-        DocumentNode docNode = userMap.get(SAXON_TREE_CACHE_KEY);
+        final boolean untypedAttributes = XPATH_1_0.equals(version);
+        final SimpleDataKey<DocumentNode> key = untypedAttributes ? UNTYPED_SAXON_TREE_CACHE_KEY : SAXON_TREE_CACHE_KEY;
+        DocumentNode docNode = userMap.get(key);
         if (docNode == null) {
-            docNode = new DocumentNode(root, getNamePool());
-            userMap.set(SAXON_TREE_CACHE_KEY, docNode);
+            docNode = new DocumentNode(root, getNamePool(), untypedAttributes);
+            userMap.set(key, docNode);
         }
         return docNode;
     }
@@ -219,13 +260,6 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         return root;
     }
 
-    private void addExpressionForNode(String nodeName, Expression expression) {
-        if (!nodeNameToXPaths.containsKey(nodeName)) {
-            nodeNameToXPaths.put(nodeName, new LinkedList<Expression>());
-        }
-        nodeNameToXPaths.get(nodeName).add(expression);
-    }
-
     /**
      * Initialize the {@link #xpathExpression} and the {@link #xpathVariables}.
      */
@@ -233,76 +267,63 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         if (xpathExpression != null) {
             return;
         }
+        final CompiledQuery compiled;
         try {
-            final XPathEvaluator xpathEvaluator = new XPathEvaluator();
-            final XPathStaticContext xpathStaticContext = xpathEvaluator.getStaticContext();
-            xpathStaticContext.getConfiguration().setNamePool(getNamePool());
-
-            // Enable XPath 1.0 compatibility
-            if (XPATH_1_0_COMPATIBILITY.equals(version)) {
-                ((AbstractStaticContext) xpathStaticContext).setBackwardsCompatibilityMode(true);
-            }
-
-            ((IndependentContext) xpathStaticContext).declareNamespace("fn", NamespaceConstant.FN);
-
-            // Register PMD functions
-            Initializer.initialize((IndependentContext) xpathStaticContext);
-
-            /*
-            Create XPathVariables for later use. It is a Saxon quirk that XPathVariables must be defined on the
-            static context, and reused later to associate an actual value on the dynamic context creation, in
-            createDynamicContext(ElementNode).
-            */
-            xpathVariables = new ArrayList<>();
-            for (final PropertyDescriptor<?> propertyDescriptor : super.properties.keySet()) {
-                final String name = propertyDescriptor.name();
-                if (!"xpath".equals(name)) {
-                    final XPathVariable xpathVariable = xpathStaticContext.declareVariable(null, name);
-                    xpathVariables.add(xpathVariable);
-                }
-            }
-
-            xpathExpression = xpathEvaluator.createExpression(super.xpath);
-            analyzeXPathForRuleChain(xpathEvaluator);
+            compiled = getCompiledQuery();
         } catch (final XPathException e) {
             throw new RuntimeException(e);
         }
+        xpathVariables = compiled.xpathVariables;
+        nodeNameToXPaths = compiled.nodeNameToXPaths;
+        nodeNameToPlans = compiled.nodeNameToPlans;
+        super.ruleChainVisits.addAll(compiled.ruleChainVisits);
+        ruleChainFallbackReason = compiled.ruleChainFallbackReason;
+        super.requiredNodes.addAll(compiled.requiredNodes);
+        xpathExpression = compiled.xpathExpression;
     }
-    
-    private void analyzeXPathForRuleChain(final XPathEvaluator xpathEvaluator) {
-        final Expression expr = xpathExpression.getInternalExpression();
-
-        boolean useRuleChain = true;
-
-        // First step: Split the union venn expressions into single expressions
-        Iterable<Expression> subexpressions = RuleChainAnalyzer.splitUnions(expr);
 
-        // Second step: Analyze each expression separately
-        for (Expression subexpression : subexpressions) {
-            RuleChainAnalyzer rca = new RuleChainAnalyzer(xpathEvaluator.getConfiguration());
-            Expression modified = rca.visit(subexpression);
+    /**
+     * Returns true if the expression can be compiled. XPath 1.0 expressions
+     * are translated for Saxon, see {@link JaxenCompatibility}, but they
+     * may use functions which only Jaxen knows about.
+     *
+     * @since 6.31.0
+     */
+    public boolean isCompilable() {
+        if (xpathExpression != null) {
+            return true;
+        }
+        try {
+            getCompiledQuery();
+            return true;
+        } catch (final XPathException e) {
+            LOG.log(Level.FINE, "Unable to compile XPath: " + xpath, e);
+            return false;
+        }
+    }
 
-            if (rca.getRootElement() != null) {
-                addExpressionForNode(rca.getRootElement(), modified);
-            } else {
-                // couldn't find a root element for the expression, that means, we can't use rule chain at all
-                // even though, it would be possible for part of the expression.
-                useRuleChain = false;
-                break;
+    private CompiledQuery getCompiledQuery() throws XPathException {
+        final List<String> variableNames = new ArrayList<>();
+        for (final PropertyDescriptor<?> propertyDescriptor : super.properties.keySet()) {
+            if (!"xpath".equals(propertyDescriptor.name())) {
+                variableNames.add(propertyDescriptor.name());
             }
         }
-
-        if (useRuleChain) {
-            super.ruleChainVisits.addAll(nodeNameToXPaths.keySet());
-        } else {
-            nodeNameToXPaths.clear();
-            if (LOG.isLoggable(Level.FINE)) {
-                LOG.log(Level.FINE, "Unable to use RuleChain for XPath: " + xpath);
+        Collections.sort(variableNames);
+
+        // the property values are only used in the dynamic context, they don't change the compiled query
+        final String key = version + '\n' + variableNames + '\n' + xpath;
+        CompiledQuery compiled = COMPILED_QUERIES.get(key);
+        if (compiled == null) {
+            compiled = new CompiledQuery(xpath, version, variableNames);
+            if (COMPILED_QUERIES.size() < MAX_COMPILED_QUERIES) {
+                final CompiledQuery previous = COMPILED_QUERIES.putIfAbsent(key, compiled);
+                if (previous != null) {
+                    compiled = previous;
+                }
             }
         }
-
-        // always add fallback expression
-        addExpressionForNode(AST_ROOT, xpathExpression.getInternalExpression());
+        return compiled;
     }
 
     /**
@@ -363,7 +384,143 @@ public class SaxonXPathRuleQuery extends AbstractXPathRuleQuery {
         return super.getRuleChainVisits();
     }
 
+    @Override
+    public List<String> getRequiredNodes() {
+        initializeXPathExpression();
+        return super.getRequiredNodes();
+    }
+
+    /**
+     * Returns why the query is evaluated on the whole AST instead of using
+     * the rule chain, or null if it uses the rule chain.
+     *
+     * @since 6.31.0
+     */
+    public String getRuleChainFallbackReason() {
+        initializeXPathExpression();
+        return ruleChainFallbackReason;
+    }
+
     public static NamePool getNamePool() {
         return NAME_POOL;
     }
+
+    /**
+     * An XPath expression compiled for the rule chain. It is immutable, and
+     * shared by the queries of all threads: only the dynamic context created
+     * for each evaluation is specific to a query.
+     */
+    private static final class CompiledQuery {
+        private final XPathExpression xpathExpression;
+        private final List<XPathVariable> xpathVariables;
+        private final Map<String, List<Expression>> nodeNameToXPaths;
+        private final Map<String, List<PredicatePlan>> nodeNameToPlans;
+        private final List<String> ruleChainVisits;
+        private final String ruleChainFallbackReason;
+        private final List<String> requiredNodes;
+
+        CompiledQuery(String xpath, String version, List<String> variableNames) throws XPathException {
+            final XPathEvaluator xpathEvaluator = new XPathEvaluator();
+            final XPathStaticContext xpathStaticContext = xpathEvaluator.getStaticContext();
+            xpathStaticContext.getConfiguration().setNamePool(getNamePool());
+
+            // Enable XPath 1.0 compatibility
+            if (XPATH_1_0.equals(version) || XPATH_1_0_COMPATIBILITY.equals(version)) {
+                ((AbstractStaticContext) xpathStaticContext).setBackwardsCompatibilityMode(true);
+            }
+
+            ((IndependentContext) xpathStaticContext).declareNamespace("fn", NamespaceConstant.FN);
+
+            // Register PMD functions
+            Initializer.initialize((IndependentContext) xpathStaticContext);
+
+            /*
+            Create XPathVariables for later use. It is a Saxon quirk that XPathVariables must be defined on the
+            static context, and reused later to associate an actual value on the dynamic context creation, in
+            createDynamicContext(ElementNode).
+            */
+            final List<XPathVariable> variables = new ArrayList<>();
+            for (final String name : variableNames) {
+                variables.add(xpathStaticContext.declareVariable(null, name));
+            }
+            xpathVariables = Collections.unmodifiableList(variables);
+
+            // Jaxen declares the PMD functions without namespace
+            final String source = XPATH_1_0.equals(version)
+                                      ? JaxenCompatibility.translate(xpath, (IndependentContext) xpathStaticContext)
+                                      : xpath;
+            xpathExpression = xpathEvaluator.createExpression(source);
+            if (XPATH_1_0.equals(version)
+                && !JaxenCompatibility.hasSameResults(xpathExpression.getInternalExpression(),
+                                                      xpathEvaluator.getConfiguration().getTypeHierarchy())) {
+                throw new XPathException("The expression doesn't select the same nodes as with Jaxen");
+            }
+
+            final Expression expr = xpathExpression.getInternalExpression();
+            final Configuration configuration = xpathEvaluator.getConfiguration();
+
+            // Even without rule chain, the query can be skipped for trees without the selected elements
+            requiredNodes = RuleChainAnalyzer.getSelectedElements(expr, configuration);
+
+            final Map<String, List<Expression>> expressions = new HashMap<>();
+            String fallbackReason = null;
+
+            // First step: Split the union venn expressions into single expressions
+            Iterable<Expression> subexpressions = RuleChainAnalyzer.splitUnions(expr, configuration);
+
+            // Second step: Analyze each expression separately
+            for (Expression subexpression : subexpressions) {
+                RuleChainAnalyzer rca = new RuleChainAnalyzer(configuration);
+                Expression modified = rca.visit(subexpression);
+
+                if (rca.getFallbackReason() == null) {
+                    for (String rootElement : rca.getRootElements()) {
+                        addExpressionForNode(expressions, rootElement, modified);
+                    }
+                } else {
+                    // couldn't find a root element for the expression, that means, we can't use rule chain at all
+                    // even though, it would be possible for part of the expression.
+                    fallbackReason = rca.getFallbackReason();
+                    break;
+                }
+            }
+
+            ruleChainFallbackReason = fallbackReason;
+            if (fallbackReason == null) {
+                ruleChainVisits = Collections.unmodifiableList(new ArrayList<>(expressions.keySet()));
+            } else {
+                ruleChainVisits = Collections.emptyList();
+                expressions.clear();
+                if (LOG.isLoggable(Level.FINE)) {
+                    LOG.log(Level.FINE, "Unable to use RuleChain for XPath: " + xpath + " (" + fallbackReason + ")");
+                }
+            }
+
+            // the predicates of the rule chain expressions may be shared with other queries
+            final Map<String, List<PredicatePlan>> plans = new HashMap<>();
+            for (Map.Entry<String, List<Expression>> entry : expressions.entrySet()) {
+                final List<PredicatePlan> nodePlans = new ArrayList<>();
+                for (Expression expression : entry.getValue()) {
+                    nodePlans.add(PredicatePlan.create(version, entry.getKey(), expression, configuration));
+                }
+                plans.put(entry.getKey(), Collections.unmodifiableList(nodePlans));
+            }
+            nodeNameToPlans = Collections.unmodifiableMap(plans);
+
+            // always add fallback expression
+            addExpressionForNode(expressions, AST_ROOT, expr);
+            for (Map.Entry<String, List<Expression>> entry : expressions.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            nodeNameToXPaths = Collections.unmodifiableMap(expressions);
+        }
+
+        private static void addExpressionForNode(Map<String, List<Expression>> expressions, String nodeName,
+                                                 Expression expression) {
+            if (!expressions.containsKey(nodeName)) {
+                expressions.put(nodeName, new ArrayList<Expression>());
+            }
+            expressions.get(nodeName).add(expression);
+        }
+    }
 }
@@ -86,6 +86,16 @@ public interface XPathRuleQuery {
      */
     List<String> getRuleChainVisits();
 
+    /**
+     * Indicates the AST Nodes of which at least one must be present for the
+     * query to match any node. If none of them is present in a file, the
+     * query doesn't need to be evaluated on it. An empty list means the nodes
+     * couldn't be determined.
+     *
+     * @since 6.31.0
+     */
+    List<String> getRequiredNodes();
+
     /**
      * Evaluate the XPath query against the given Node.
      *
@@ -0,0 +1,228 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sf.saxon.expr.AxisExpression;
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.FilterExpression;
+import net.sf.saxon.expr.FirstItemExpression;
+import net.sf.saxon.expr.LastItemExpression;
+import net.sf.saxon.expr.PathExpression;
+import net.sf.saxon.expr.RootExpression;
+import net.sf.saxon.expr.StaticProperty;
+import net.sf.saxon.expr.TailExpression;
+import net.sf.saxon.functions.ExtensionFunctionCall;
+import net.sf.saxon.functions.ItemAt;
+import net.sf.saxon.functions.Subsequence;
+import net.sf.saxon.om.Axis;
+import net.sf.saxon.pattern.NameTest;
+import net.sf.saxon.sxpath.IndependentContext;
+import net.sf.saxon.type.BuiltInAtomicType;
+import net.sf.saxon.type.ItemType;
+import net.sf.saxon.type.TypeHierarchy;
+
+/**
+ * Translates XPath 1.0 expressions written for Jaxen, so that they can be
+ * compiled by Saxon in backwards compatibility mode.
+ *
+ * <p>Jaxen registers the PMD functions without a namespace, e.g. {@code matches(@Image, 'a')}
+ * or {@code typeIs('java.util.List')}, while Saxon declares them in the
+ * namespaces {@code pmd} and {@code pmd-<language>}. The calls to these
+ * functions are qualified with the prefix of the namespace declaring them.
+ * Functions that Saxon doesn't know about are left as is, the expression
+ * then fails to compile and is evaluated by Jaxen.
+ *
+ * <p>The attributes of the AST are compared as strings, see
+ * {@link net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode#hasUntypedAttributes()},
+ * and the variables are bound to the string values Jaxen uses.
+ */
+public final class JaxenCompatibility {
+
+    private static final Logger LOG = Logger.getLogger(JaxenCompatibility.class.getName());
+
+    private static final String PMD_PREFIX = "pmd";
+    private static final String JAVA_SCHEME = "java:";
+
+    private JaxenCompatibility() {
+        // utility class
+    }
+
+    /**
+     * Qualifies the calls to PMD functions in the given expression.
+     *
+     * @param xpath   An XPath 1.0 expression
+     * @param context The static context in which the PMD functions are declared
+     *
+     * @return The expression to compile with Saxon
+     */
+    public static String translate(String xpath, IndependentContext context) {
+        Map<String, String> prefixes = getFunctionPrefixes(context);
+        StringBuilder result = new StringBuilder(xpath.length() + 16);
+        int i = 0;
+        while (i < xpath.length()) {
+            char c = xpath.charAt(i);
+            if (c == '"' || c == '\'') {
+                // string literals are copied as is
+                int end = xpath.indexOf(c, i + 1);
+                end = end < 0 ? xpath.length() : end + 1;
+                result.append(xpath, i, end);
+                i = end;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i + 1;
+                while (end < xpath.length() && isNameChar(xpath.charAt(end))) {
+                    end++;
+                }
+                String name = xpath.substring(i, end);
+                String prefix = prefixes.get(name);
+                if (prefix != null && !isQualified(xpath, i, end) && isFollowedByParenthesis(xpath, end)) {
+                    result.append(prefix).append(':');
+                }
+                result.append(name);
+                i = end;
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns true if Saxon evaluates the compiled expression like Jaxen,
+     * whose results differ in two cases:
+     * <ul>
+     * <li>The root of Jaxen is the root node of the AST, while the root of
+     * Saxon is a document node containing it: {@code /A} selects the children
+     * of the root node with Jaxen, and the root node itself with Saxon. Only
+     * the paths from the root which start with a descendant step, e.g.
+     * {@code //A}, select the same nodes.
+     * <li>The rule chain of Jaxen evaluates the predicates of {@code //A[p]}
+     * on each A alone, so that positional predicates never hold, and it never
+     * visits the nodes of {@code //*}. Expressions using positions are left
+     * to Jaxen, wherever they are.
+     * </ul>
+     *
+     * @param expression An expression compiled by Saxon
+     * @param th         The type hierarchy of the configuration
+     */
+    public static boolean hasSameResults(Expression expression, TypeHierarchy th) {
+        if (expression instanceof RootExpression || isPositional(expression, th)) {
+            return false;
+        } else if (expression instanceof PathExpression
+            && ((PathExpression) expression).getStartExpression() instanceof RootExpression) {
+            AxisExpression step = getLeadingStep(((PathExpression) expression).getStepExpression());
+            if (step == null
+                || step.getAxis() != Axis.DESCENDANT && step.getAxis() != Axis.DESCENDANT_OR_SELF
+                || step.getAxis() == Axis.DESCENDANT && !(step.getNodeTest() instanceof NameTest)) {
+                return false;
+            }
+            return hasSameResults(((PathExpression) expression).getStepExpression(), th);
+        }
+        for (Iterator<?> iterator = expression.iterateSubExpressions(); iterator.hasNext();) {
+            if (!hasSameResults((Expression) iterator.next(), th)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the expression uses the position of items. Saxon
+     * optimizes most positional filters into other expressions. The PMD
+     * functions only use the context node, though Saxon considers they
+     * depend on the whole focus.
+     */
+    private static boolean isPositional(Expression expression, TypeHierarchy th) {
+        if (expression instanceof FilterExpression) {
+            ItemType type = ((FilterExpression) expression).getFilter().getItemType(th);
+            if (th.relationship(type, BuiltInAtomicType.NUMERIC) != TypeHierarchy.DISJOINT) {
+                return true;
+            }
+        }
+        return expression instanceof FirstItemExpression
+            || expression instanceof LastItemExpression
+            || expression instanceof TailExpression
+            || expression instanceof ItemAt
+            || expression instanceof Subsequence
+            || !(expression instanceof ExtensionFunctionCall)
+               && (expression.getIntrinsicDependencies() & (StaticProperty.DEPENDS_ON_POSITION | StaticProperty.DEPENDS_ON_LAST)) != 0;
+    }
+
+    private static AxisExpression getLeadingStep(Expression step) {
+        if (step instanceof AxisExpression) {
+            return (AxisExpression) step;
+        } else if (step instanceof PathExpression) {
+            return getLeadingStep(((PathExpression) step).getStartExpression());
+        } else if (step instanceof FilterExpression) {
+            return getLeadingStep(((FilterExpression) step).getBaseExpression());
+        }
+        return null;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    /** Returns true if the name is a prefix, or is prefixed. */
+    private static boolean isQualified(String xpath, int start, int end) {
+        return start > 0 && xpath.charAt(start - 1) == ':'
+            || end < xpath.length() && xpath.charAt(end) == ':';
+    }
+
+    private static boolean isFollowedByParenthesis(String xpath, int end) {
+        int i = end;
+        while (i < xpath.length() && Character.isWhitespace(xpath.charAt(i))) {
+            i++;
+        }
+        return i < xpath.length() && xpath.charAt(i) == '(';
+    }
+
+    /**
+     * Returns the prefix of the PMD namespace declaring each function. The
+     * namespaces are bound to the classes declaring the functions as static
+     * methods. The generic namespace {@code pmd} takes precedence over the
+     * namespaces of the languages.
+     */
+    private static Map<String, String> getFunctionPrefixes(IndependentContext context) {
+        List<String> prefixes = new ArrayList<>();
+        for (Iterator<?> iterator = context.iteratePrefixes(); iterator.hasNext();) {
+            String prefix = (String) iterator.next();
+            if (PMD_PREFIX.equals(prefix) || prefix.startsWith(PMD_PREFIX + '-')) {
+                prefixes.add(prefix);
+            }
+        }
+        Collections.sort(prefixes);
+
+        Map<String, String> functionPrefixes = new HashMap<>();
+        for (String prefix : prefixes) {
+            String uri = context.getURIForPrefix(prefix, false);
+            if (uri == null || !uri.startsWith(JAVA_SCHEME)) {
+                continue;
+            }
+            String className = uri.substring(JAVA_SCHEME.length());
+            try {
+                for (Method method : Class.forName(className).getMethods()) {
+                    if (Modifier.isStatic(method.getModifiers()) && !functionPrefixes.containsKey(method.getName())) {
+                        functionPrefixes.put(method.getName(), prefix);
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                LOG.log(Level.FINE, "Functions of namespace " + prefix + " are not available", e);
+            }
+        }
+        return functionPrefixes;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import net.sf.saxon.expr.Assignation;
+import net.sf.saxon.expr.Atomizer;
+import net.sf.saxon.expr.BinaryExpression;
+import net.sf.saxon.expr.Binding;
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.FunctionCall;
+import net.sf.saxon.expr.LetExpression;
+import net.sf.saxon.expr.QuantifiedExpression;
+import net.sf.saxon.expr.VariableReference;
+
+/**
+ * The ids of the predicates shared by the rule chain queries evaluated on
+ * a document, see {@link PredicatePlan}. The ids are dense for each node
+ * name, and index the {@link PredicateResults} of the nodes with that name.
+ * The ids are scoped to a single document, so that they don't accumulate
+ * over the analyses done in the same JVM. The plans are shared by all the
+ * threads, so the ids of their predicates are kept here, for each plan.
+ */
+public final class PredicateIds {
+
+    private final Map<Key, Integer> ids = new HashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<PredicatePlan, int[]> planIds = new IdentityHashMap<>();
+
+    /**
+     * Returns the ids of the predicates of a plan, -1 for the predicates
+     * specific to the rule. The keys are only looked up the first time the
+     * plan is evaluated on the document.
+     *
+     * @param plan The plan
+     * @param keys The keys of its predicates, null for the predicates specific to the rule
+     */
+    int[] getIds(PredicatePlan plan, Key[] keys) {
+        int[] resolved = planIds.get(plan);
+        if (resolved == null) {
+            resolved = new int[keys.length];
+            for (int i = 0; i < resolved.length; i++) {
+                resolved[i] = keys[i] == null ? -1 : getId(keys[i]);
+            }
+            planIds.put(plan, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * Returns the id of a predicate tested on the nodes with the given name.
+     * Predicates which are structurally equal get the same id.
+     */
+    int getId(Key key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            Integer count = counts.get(key.nodeName);
+            id = count == null ? 0 : count;
+            counts.put(key.nodeName, id + 1);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Identifies a predicate by the structure of its compiled expression.
+     * Two predicates are equal if their expression trees have the same
+     * shape and the same classes, and each of their expressions is equal to
+     * the other according to Saxon. Saxon compiles general comparisons to
+     * quantified expressions over generated local variables, which are
+     * compared up to their renaming. Expressions which don't override
+     * {@link Object#equals(Object)} are only equal to themselves, so that
+     * some predicates are not shared, but never wrongly.
+     */
+    static final class Key {
+        private final String version;
+        private final String nodeName;
+        private final Expression predicate;
+        private final int hash;
+
+        Key(String version, String nodeName, Expression predicate) {
+            this.version = version;
+            this.nodeName = nodeName;
+            this.predicate = predicate;
+            this.hash = (version.hashCode() * 31 + nodeName.hashCode()) * 31 + structuralHash(predicate);
+        }
+
+        private static int structuralHash(Expression expression) {
+            int hash = expression.getClass().getName().hashCode();
+            for (Iterator<?> it = expression.iterateSubExpressions(); it.hasNext();) {
+                hash = hash * 31 + structuralHash((Expression) it.next());
+            }
+            return hash;
+        }
+
+        /**
+         * Compares two expressions, in which the local variables of the first
+         * expression declared so far are mapped to those of the second one.
+         */
+        private static boolean structurallyEqual(Expression a, Expression b, Map<Binding, Binding> locals) {
+            if (a.getClass() != b.getClass()) {
+                return false;
+            }
+            if (a instanceof VariableReference) {
+                Binding binding = ((VariableReference) a).getBinding();
+                Binding expected = locals.containsKey(binding) ? locals.get(binding) : binding;
+                return expected == ((VariableReference) b).getBinding();
+            } else if (a instanceof Assignation) {
+                if (!sameDeclaration((Assignation) a, (Assignation) b)) {
+                    return false;
+                }
+                locals.put((Assignation) a, (Assignation) b);
+            } else if (referencesAny(a, locals.keySet())) {
+                // Saxon compares the local variables by identity
+                if (!sameOperation(a, b)) {
+                    return false;
+                }
+            } else if (!a.equals(b)) {
+                return false;
+            }
+
+            Iterator<?> as = a.iterateSubExpressions();
+            Iterator<?> bs = b.iterateSubExpressions();
+            while (as.hasNext() && bs.hasNext()) {
+                if (!structurallyEqual((Expression) as.next(), (Expression) bs.next(), locals)) {
+                    return false;
+                }
+            }
+            return !as.hasNext() && !bs.hasNext();
+        }
+
+        private static boolean sameDeclaration(Assignation a, Assignation b) {
+            if (a instanceof QuantifiedExpression) {
+                return ((QuantifiedExpression) a).getOperator() == ((QuantifiedExpression) b).getOperator()
+                    && a.getRequiredType().equals(b.getRequiredType());
+            }
+            return a instanceof LetExpression && a.getRequiredType().equals(b.getRequiredType());
+        }
+
+        /**
+         * Compares the operation of two expressions of the same class,
+         * regardless of their operands.
+         */
+        private static boolean sameOperation(Expression a, Expression b) {
+            if (a instanceof BinaryExpression) {
+                return ((BinaryExpression) a).getOperator() == ((BinaryExpression) b).getOperator();
+            } else if (a instanceof FunctionCall) {
+                return ((FunctionCall) a).getFunctionName().equals(((FunctionCall) b).getFunctionName());
+            }
+            return a instanceof Atomizer;
+        }
+
+        private static boolean referencesAny(Expression expression, Set<Binding> bindings) {
+            if (expression instanceof VariableReference) {
+                return bindings.contains(((VariableReference) expression).getBinding());
+            }
+            for (Iterator<?> it = expression.iterateSubExpressions(); it.hasNext();) {
+                if (referencesAny((Expression) it.next(), bindings)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && version.equals(other.version) && nodeName.equals(other.nodeName)
+                && structurallyEqual(predicate, other.predicate, new HashMap<Binding, Binding>());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import net.sourceforge.pmd.lang.ast.xpath.Attribute;
+import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
+import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.expr.Assignation;
+import net.sf.saxon.expr.AxisExpression;
+import net.sf.saxon.expr.Binding;
+import net.sf.saxon.expr.BooleanExpression;
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.FilterExpression;
+import net.sf.saxon.expr.PathExpression;
+import net.sf.saxon.expr.VariableReference;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.Axis;
+import net.sf.saxon.om.EmptyIterator;
+import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.om.SingletonIterator;
+import net.sf.saxon.pattern.AnyNodeTest;
+import net.sf.saxon.pattern.NodeTest;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.type.TypeHierarchy;
+
+/**
+ * Evaluates a rule chain expression of the form {@code self::node()[p1][p2]/rest}
+ * by testing its predicates on the visited node one after the other, and
+ * only evaluating the rest of the expression if they all hold.
+ *
+ * <p>Predicates which only depend on the visited node are shared by all
+ * the queries evaluated on a document. They are identified by the structure
+ * of their compiled expression, see {@link PredicateIds}, and their result
+ * for a node is memoized in its {@link ElementNode}, so that a condition
+ * that many rules test on the same kind of node, e.g. {@code [@Public = true()]},
+ * is only evaluated once per node. Predicates which use the variables of
+ * a rule are specific to the rule, and are evaluated each time.
+ *
+ * <p>Example: The rule chain expressions of <code>//A[@X = 'a' and @Y]/B</code>
+ * and <code>//A[@Y]</code> share the predicate <code>@Y</code>.
+ */
+public final class PredicatePlan {
+
+    private final Expression[] predicates;
+    /** The key of each predicate, to look up its id in the document, null for the predicates specific to the rule. */
+    private final PredicateIds.Key[] keys;
+    /** The expression selecting the results from the visited node, null to select the node itself. */
+    private final Expression residual;
+
+    private PredicatePlan(Expression[] predicates, PredicateIds.Key[] keys, Expression residual) {
+        this.predicates = predicates;
+        this.keys = keys;
+        this.residual = residual;
+    }
+
+    /**
+     * Creates the plan of a rule chain expression.
+     *
+     * @param version       The XPath version the expression was compiled for
+     * @param nodeName      The name of the nodes the rule chain evaluates the expression on
+     * @param expression    The rule chain expression, see {@link RuleChainAnalyzer}
+     * @param configuration The configuration the expression was compiled with
+     *
+     * @return The plan, or null if the expression doesn't start with a predicate on the visited node
+     */
+    public static PredicatePlan create(String version, String nodeName, Expression expression, Configuration configuration) {
+        Expression start = expression;
+        Expression residual = null;
+        if (expression instanceof PathExpression) {
+            start = ((PathExpression) expression).getStartExpression();
+            residual = ((PathExpression) expression).getStepExpression();
+        }
+
+        List<Expression> predicates = new ArrayList<>();
+        if (!addPredicates(start, predicates, configuration.getTypeHierarchy()) || predicates.isEmpty()) {
+            return null;
+        }
+
+        PredicateIds.Key[] keys = new PredicateIds.Key[predicates.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Expression predicate = predicates.get(i);
+            keys[i] = usesOnlyLocalVariables(predicate, new HashSet<Binding>())
+                      ? new PredicateIds.Key(version, nodeName, predicate) : null;
+        }
+        return new PredicatePlan(predicates.toArray(new Expression[0]), keys, residual);
+    }
+
+    private static boolean addPredicates(Expression expr, List<Expression> predicates, TypeHierarchy th) {
+        if (expr instanceof AxisExpression) {
+            NodeTest test = ((AxisExpression) expr).getNodeTest();
+            return ((AxisExpression) expr).getAxis() == Axis.SELF && (test == null || test instanceof AnyNodeTest);
+        } else if (expr instanceof FilterExpression) {
+            FilterExpression filterExpression = (FilterExpression) expr;
+            Expression filter = filterExpression.getFilter();
+            if (!RuleChainAnalyzer.isBooleanFilter(filter, th) || !addPredicates(filterExpression.getBaseExpression(), predicates, th)) {
+                return false;
+            }
+            // the conjuncts of the filter are separate predicates, which can be shared independently
+            BooleanExpression.listAndComponents(filter, predicates);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns false if the predicate references variables declared outside
+     * of it, i.e. the properties of the rule.
+     */
+    private static boolean usesOnlyLocalVariables(Expression expr, Set<Binding> declared) {
+        if (expr instanceof Assignation) {
+            declared.add((Assignation) expr);
+        } else if (expr instanceof VariableReference && !declared.contains(((VariableReference) expr).getBinding())) {
+            return false;
+        }
+        for (Iterator<?> it = expr.iterateSubExpressions(); it.hasNext();) {
+            if (!usesOnlyLocalVariables((Expression) it.next(), declared)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the rule chain expression on a node.
+     *
+     * @param node     The visited node
+     * @param context  The context of the query, whose context item is the visited node
+     * @param document The document of the node
+     *
+     * @return The nodes selected by the expression
+     *
+     * @throws XPathException If the evaluation fails
+     */
+    public SequenceIterator iterate(ElementNode node, XPathContext context, DocumentNode document) throws XPathException {
+        // the plan is shared by the threads, the ids are kept by the document
+        int[] ids = document.getPredicateIds().getIds(this, keys);
+        for (int i = 0; i < predicates.length; i++) {
+            boolean value = ids[i] < 0
+                            ? predicates[i].effectiveBooleanValue(context)
+                            : testShared(i, ids[i], node, context, document);
+            if (!value) {
+                return EmptyIterator.getInstance();
+            }
+        }
+        return residual == null ? SingletonIterator.makeIterator(node) : residual.iterate(context);
+    }
+
+    private boolean testShared(int i, int id, ElementNode node, XPathContext context, DocumentNode document) throws XPathException {
+        PredicateResults results = node.getPredicateResults();
+        DeprecatedAttrLogger attrCtx = document.getAttrCtx();
+        if (results.isEvaluated(id)) {
+            for (Attribute attribute : results.getDeprecatedAttributes(id)) {
+                attrCtx.recordUsageOf(attribute);
+            }
+            return results.getValue(id);
+        }
+
+        RecordingAttrLogger recorder = new RecordingAttrLogger(attrCtx);
+        document.setAttrCtx(recorder);
+        boolean value;
+        try {
+            value = predicates[i].effectiveBooleanValue(context);
+        } finally {
+            document.setAttrCtx(attrCtx);
+        }
+        results.put(id, value, recorder.deprecated);
+        return value;
+    }
+
+    /**
+     * Forwards the usages of attributes to the logger of the rule, and keeps
+     * the deprecated ones, to report them to the other rules.
+     */
+    private static final class RecordingAttrLogger extends DeprecatedAttrLogger {
+        private final DeprecatedAttrLogger delegate;
+        private final List<Attribute> deprecated = new ArrayList<>(0);
+
+        RecordingAttrLogger(DeprecatedAttrLogger delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void recordUsageOf(Attribute attribute) {
+            delegate.recordUsageOf(attribute);
+            if (attribute.replacementIfDeprecated() != null) {
+                deprecated.add(attribute);
+            }
+        }
+    }
+}
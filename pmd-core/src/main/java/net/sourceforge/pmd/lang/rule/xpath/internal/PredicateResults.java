@@ -0,0 +1,53 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sourceforge.pmd.lang.ast.xpath.Attribute;
+
+/**
+ * The results of the predicates shared by rule chain queries, for a single
+ * node. See {@link PredicatePlan}. The deprecated attributes a predicate
+ * used are kept too, so that their usage can be reported for each rule
+ * which tests the predicate.
+ */
+public final class PredicateResults {
+
+    private final BitSet evaluated = new BitSet();
+    private final BitSet values = new BitSet();
+    /** Deprecated attributes used by each predicate, null if there are none. */
+    private Map<Integer, List<Attribute>> deprecatedAttributes;
+
+    boolean isEvaluated(int id) {
+        return evaluated.get(id);
+    }
+
+    boolean getValue(int id) {
+        return values.get(id);
+    }
+
+    List<Attribute> getDeprecatedAttributes(int id) {
+        if (deprecatedAttributes == null || !deprecatedAttributes.containsKey(id)) {
+            return Collections.emptyList();
+        }
+        return deprecatedAttributes.get(id);
+    }
+
+    void put(int id, boolean value, List<Attribute> deprecated) {
+        evaluated.set(id);
+        values.set(id, value);
+        if (!deprecated.isEmpty()) {
+            if (deprecatedAttributes == null) {
+                deprecatedAttributes = new HashMap<>();
+            }
+            deprecatedAttributes.put(id, deprecated);
+        }
+    }
+}
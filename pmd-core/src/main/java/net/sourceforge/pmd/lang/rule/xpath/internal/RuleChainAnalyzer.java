@@ -4,8 +4,13 @@
 
 package net.sourceforge.pmd.lang.rule.xpath.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import net.sourceforge.pmd.lang.ast.Node;
 
@@ -14,12 +19,22 @@ import net.sf.saxon.expr.AxisExpression;
 import net.sf.saxon.expr.Expression;
 import net.sf.saxon.expr.FilterExpression;
 import net.sf.saxon.expr.LazyExpression;
+import net.sf.saxon.expr.LetExpression;
 import net.sf.saxon.expr.PathExpression;
 import net.sf.saxon.expr.RootExpression;
+import net.sf.saxon.expr.StaticProperty;
+import net.sf.saxon.expr.Token;
+import net.sf.saxon.expr.VennExpression;
 import net.sf.saxon.om.Axis;
+import net.sf.saxon.om.NamePool;
+import net.sf.saxon.pattern.CombinedNodeTest;
 import net.sf.saxon.pattern.NameTest;
+import net.sf.saxon.pattern.NodeTest;
 import net.sf.saxon.sort.DocumentSorter;
+import net.sf.saxon.type.BuiltInAtomicType;
+import net.sf.saxon.type.ItemType;
 import net.sf.saxon.type.Type;
+import net.sf.saxon.type.TypeHierarchy;
 
 /**
  * Analyzes the xpath expression to find the root path selector for a element. If found,
@@ -31,23 +46,66 @@ import net.sf.saxon.type.Type;
  * <p>Example: The XPath expression <code>//A[condition()]/B</code> results the rootElement "A"
  * and the expression is rewritten to be <code>self::node[condition()]/B</code>.
  *
+ * <p>The root path selector may select several elements, e.g. <code>(//A | //B)/C</code>,
+ * which Saxon compiles to a single step <code>descendant::(A | B)</code>. The rewritten
+ * expression is then used for each of the {@link #getRootElements() root elements}.
+ *
+ * <p>If the expression can't be rewritten, the reason is available via
+ * {@link #getFallbackReason()}.
+ *
  * <p>DocumentSorter expression is removed. The sorting of the resulting nodes needs to be done
  * after all (sub)expressions have been executed.
  */
 public class RuleChainAnalyzer extends SaxonExprVisitor {
     private final Configuration configuration;
-    private String rootElement;
+    private List<String> rootElements;
     private boolean rootElementReplaced;
     private boolean insideLazyExpression;
     private boolean foundPathInsideLazy;
+    private boolean foundRootElementInUnion;
+    private boolean foundDescendantsOfUnion;
+    private int filterDepth;
 
     public RuleChainAnalyzer(Configuration currentConfiguration) {
         this.configuration = currentConfiguration;
     }
 
+    /**
+     * Returns the first root element, or null if the expression can't be
+     * rewritten.
+     *
+     * @see #getRootElements()
+     */
     public String getRootElement() {
-        if (!foundPathInsideLazy && rootElementReplaced) {
-            return rootElement;
+        List<String> elements = getRootElements();
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    /**
+     * Returns the names of the elements from which the rewritten expression
+     * must be evaluated, or an empty list if the expression can't be rewritten.
+     */
+    public List<String> getRootElements() {
+        if (getFallbackReason() == null) {
+            return rootElements;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns why the expression can't be rewritten, or null if it can.
+     */
+    public String getFallbackReason() {
+        if (rootElements == null) {
+            return "no step selects elements by name";
+        } else if (foundPathInsideLazy) {
+            return "a path is bound to a variable, it would be evaluated for each node";
+        } else if (foundRootElementInUnion) {
+            return "the elements are selected in a union which can't be split, e.g. because of a positional predicate";
+        } else if (foundDescendantsOfUnion) {
+            return "a descendant step follows several elements, it could select a node from several of them";
+        } else if (!rootElementReplaced) {
+            return "the path to the elements is not supported";
         }
         return null;
     }
@@ -61,9 +119,9 @@ public class RuleChainAnalyzer extends SaxonExprVisitor {
 
     @Override
     public Expression visit(PathExpression e) {
-        if (!insideLazyExpression && rootElement == null) {
+        if (!insideLazyExpression && rootElements == null) {
             Expression result = super.visit(e);
-            if (rootElement != null && !rootElementReplaced) {
+            if (rootElements != null && !rootElementReplaced) {
                 if (result instanceof PathExpression) {
                     PathExpression newPath = (PathExpression) result;
                     Expression step = newPath.getStepExpression();
@@ -93,17 +151,38 @@ public class RuleChainAnalyzer extends SaxonExprVisitor {
 
     @Override
     public Expression visit(AxisExpression e) {
-        if (rootElement == null && e.getNodeTest() instanceof NameTest) {
-            NameTest test = (NameTest) e.getNodeTest();
-            if (test.getPrimitiveType() == Type.ELEMENT && e.getAxis() == Axis.DESCENDANT) {
-                rootElement = configuration.getNamePool().getClarkName(test.getFingerprint());
-            } else if (test.getPrimitiveType() == Type.ELEMENT && e.getAxis() == Axis.CHILD) {
-                rootElement = configuration.getNamePool().getClarkName(test.getFingerprint());
+        if (rootElements == null && (e.getAxis() == Axis.DESCENDANT || e.getAxis() == Axis.CHILD)) {
+            List<String> names = new ArrayList<>();
+            if (addElementNames(e.getNodeTest(), configuration.getNamePool(), names)) {
+                rootElements = Collections.unmodifiableList(names);
             }
+        } else if (rootElements != null && rootElements.size() > 1 && filterDepth == 0
+                && (e.getAxis() == Axis.DESCENDANT || e.getAxis() == Axis.DESCENDANT_OR_SELF)) {
+            foundDescendantsOfUnion = true;
         }
         return super.visit(e);
     }
 
+    @Override
+    public Expression visit(FilterExpression e) {
+        Expression base = visit(e.getBaseExpression());
+        filterDepth++;
+        Expression filter = visit(e.getFilter());
+        filterDepth--;
+        return new FilterExpression(base, filter);
+    }
+
+    @Override
+    public Expression visit(VennExpression e) {
+        boolean foundBefore = rootElements != null;
+        Expression result = super.visit(e);
+        if (!foundBefore && rootElements != null && e.getOperator() == Token.UNION) {
+            // the other operands of the union would be lost
+            foundRootElementInUnion = true;
+        }
+        return result;
+    }
+
     @Override
     public Expression visit(LazyExpression e) {
         boolean prevCtx = insideLazyExpression;
@@ -113,21 +192,92 @@ public class RuleChainAnalyzer extends SaxonExprVisitor {
         return result;
     }
 
+    /**
+     * Finds the names of the elements the expression selects. The expression can
+     * only select something in trees which contain one of these elements.
+     *
+     * <p>Example: The XPath expression <code>//A[condition()]/B | //C</code> selects
+     * "B" and "C" elements.
+     *
+     * @return The element names, or an empty list if the expression might select
+     *     other nodes or values
+     */
+    public static List<String> getSelectedElements(Expression expr, Configuration configuration) {
+        Set<String> elements = new LinkedHashSet<>();
+        if (!addSelectedElements(expr, configuration.getNamePool(), elements)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(elements);
+    }
+
+    private static boolean addSelectedElements(Expression expr, NamePool namePool, Set<String> elements) {
+        if (expr instanceof DocumentSorter) {
+            return addSelectedElements(((DocumentSorter) expr).getBaseExpression(), namePool, elements);
+        } else if (expr instanceof LetExpression) {
+            // Saxon binds subexpressions which don't depend on the context to variables
+            return addSelectedElements(((LetExpression) expr).getAction(), namePool, elements);
+        } else if (expr instanceof PathExpression) {
+            // the path selects the nodes of its last step
+            return addSelectedElements(((PathExpression) expr).getStepExpression(), namePool, elements);
+        } else if (expr instanceof FilterExpression) {
+            return addSelectedElements(((FilterExpression) expr).getBaseExpression(), namePool, elements);
+        } else if (expr instanceof VennExpression && ((VennExpression) expr).getOperator() == Token.UNION) {
+            for (Expression operand : ((VennExpression) expr).getOperands()) {
+                if (!addSelectedElements(operand, namePool, elements)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (expr instanceof AxisExpression) {
+            return addElementNames(((AxisExpression) expr).getNodeTest(), namePool, elements);
+        }
+        return false;
+    }
+
+    /**
+     * Adds the names of the elements the node test matches, if it only
+     * matches elements by name, e.g. "A" or "(A | B)".
+     */
+    private static boolean addElementNames(NodeTest test, NamePool namePool, Collection<String> names) {
+        if (test instanceof NameTest && test.getPrimitiveType() == Type.ELEMENT) {
+            names.add(namePool.getClarkName(test.getFingerprint()));
+            return true;
+        } else if (test instanceof CombinedNodeTest && ((CombinedNodeTest) test).getOperator() == Token.UNION) {
+            for (NodeTest component : ((CombinedNodeTest) test).getComponentNodeTests()) {
+                if (!addElementNames(component, namePool, names)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
     public static Comparator<Node> documentOrderComparator() {
         return net.sourceforge.pmd.lang.rule.xpath.internal.DocumentSorter.INSTANCE;
     }
 
     /**
-     * Split union expressions into their components.
+     * Split union expressions into their components. Non-positional predicates
+     * on a union are applied to each component, e.g. "(//A | //B)[@X]" results
+     * in "//A[@X]" and "//B[@X]".
      */
-    public static Iterable<Expression> splitUnions(Expression expr) {
-        SplitUnions unions = new SplitUnions();
+    public static Iterable<Expression> splitUnions(Expression expr, Configuration configuration) {
+        SplitUnions unions = new SplitUnions(configuration.getTypeHierarchy());
         unions.visit(expr);
-        if (unions.getExpressions().isEmpty()) {
-            return Collections.singletonList(expr);
-        } else {
-            return unions.getExpressions();
+        return unions.getExpressions();
+    }
+
+    /**
+     * Returns true if the filter selects the nodes based on its effective
+     * boolean value, and not on their position.
+     */
+    static boolean isBooleanFilter(Expression filter, TypeHierarchy th) {
+        if ((filter.getDependencies() & (StaticProperty.DEPENDS_ON_POSITION | StaticProperty.DEPENDS_ON_LAST)) != 0) {
+            return false;
         }
+        ItemType type = filter.getItemType(th);
+        return type instanceof NodeTest || th.isSubType(type, BuiltInAtomicType.BOOLEAN);
     }
 
 }
@@ -6,32 +6,87 @@
 package net.sourceforge.pmd.lang.rule.xpath.internal;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import net.sf.saxon.expr.Assignation;
 import net.sf.saxon.expr.Expression;
+import net.sf.saxon.expr.FilterExpression;
 import net.sf.saxon.expr.Token;
 import net.sf.saxon.expr.VennExpression;
+import net.sf.saxon.functions.Reverse;
+import net.sf.saxon.sort.DocumentSorter;
+import net.sf.saxon.type.TypeHierarchy;
 
 /**
  * Splits a venn expression with the union operator into single expressions.
  * 
  * <p>E.g. "//A | //B | //C" will result in 3 expressions "//A", "//B", and "//C".
+ *
+ * <p>Only the top level unions are split. A predicate on a union is applied
+ * to each of its components, if it doesn't depend on the position of the
+ * nodes in the union: e.g. "(//A | //B)[@X]" will result in 2 expressions
+ * "//A[@X]" and "//B[@X]". The result of the query is sorted in document
+ * order, so the order of the top level expression, e.g. "reverse(//A)",
+ * is ignored.
  */
 class SplitUnions extends SaxonExprVisitor {
+    private final TypeHierarchy typeHierarchy;
     private List<Expression> expressions = new ArrayList<>();
 
+    SplitUnions(TypeHierarchy typeHierarchy) {
+        this.typeHierarchy = typeHierarchy;
+    }
+
     @Override
-    public Expression visit(VennExpression e) {
-        if (e.getOperator() == Token.UNION) {
-            for (Expression operand : e.getOperands()) {
-                if (operand instanceof VennExpression) {
-                    visit(operand);
-                } else {
-                    expressions.add(operand);
+    public Expression visit(Expression expr) {
+        if (expr instanceof DocumentSorter) {
+            visit(((DocumentSorter) expr).getBaseExpression());
+        } else if (expr instanceof Reverse) {
+            visit(((Reverse) expr).getArguments()[0]);
+        } else if (expr instanceof VennExpression && ((VennExpression) expr).getOperator() == Token.UNION) {
+            for (Expression operand : ((VennExpression) expr).getOperands()) {
+                visit(operand);
+            }
+        } else if (expr instanceof FilterExpression
+                && RuleChainAnalyzer.isBooleanFilter(((FilterExpression) expr).getFilter(), typeHierarchy)) {
+            FilterExpression filterExpression = (FilterExpression) expr;
+            SplitUnions base = new SplitUnions(typeHierarchy);
+            base.visit(filterExpression.getBaseExpression());
+            if (base.expressions.size() > 1) {
+                // Saxon links an expression to its parent, each operand gets its own filter
+                for (Expression operand : base.expressions) {
+                    expressions.add(new FilterExpression(operand, copy(filterExpression.getFilter())));
                 }
+            } else {
+                expressions.add(expr);
             }
+        } else {
+            expressions.add(expr);
+        }
+        return expr;
+    }
+
+    /**
+     * Copies an expression along with the slots of its local variables,
+     * which {@link Expression#copy()} doesn't keep. The slots were allocated
+     * when the whole query was compiled, and are still valid in the copy.
+     */
+    private static Expression copy(Expression expr) {
+        Expression copy = expr.copy();
+        copySlots(expr, copy);
+        return copy;
+    }
+
+    private static void copySlots(Expression original, Expression copy) {
+        if (original instanceof Assignation) {
+            ((Assignation) copy).setSlotNumber(((Assignation) original).getLocalSlotNumber());
+        }
+        Iterator<?> originals = original.iterateSubExpressions();
+        Iterator<?> copies = copy.iterateSubExpressions();
+        while (originals.hasNext() && copies.hasNext()) {
+            copySlots((Expression) originals.next(), (Expression) copies.next());
         }
-        return e;
     }
 
     public List<Expression> getExpressions() {
@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.processor;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.List;
@@ -23,9 +24,13 @@ import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.RulesetsFactoryUtils;
 import net.sourceforge.pmd.SourceCodeProcessor;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.ProgressTracker;
 import net.sourceforge.pmd.benchmark.TimeTracker;
 import net.sourceforge.pmd.benchmark.TimedOperation;
 import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.rule.internal.RuleTimeBudget;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.util.datasource.DataSource;
 
@@ -123,27 +128,51 @@ public abstract class AbstractPMDProcessor {
     // the data sources must only be closed after the threads are finished
     // this is done manually without a try-with-resources
     public void processFiles(RuleSets rulesets, List<DataSource> files, RuleContext ctx, List<Renderer> renderers) {
+        ProgressTracker progressTracker = null;
         try {
             reportBrokenRules(ctx.getReport(), rulesets);
 
+            configuration.getAnalysisCache().checkValidity(rulesets, configuration.getClassLoader());
+            // shared by the copies of the context in each thread
+            ctx.setRuleTimeBudget(RuleTimeBudget.create(configuration, rulesets, ctx.getReport()));
+
             // render base report first - general errors
             renderReports(renderers, ctx.getReport());
 
-            configuration.getAnalysisCache().checkValidity(rulesets, configuration.getClassLoader());
             final SourceCodeProcessor processor = new SourceCodeProcessor(configuration);
+            final MemoryAdmission memoryAdmission = MemoryAdmission.create(configuration);
+            progressTracker = ProgressTracker.start(configuration, files.size());
 
             for (final DataSource dataSource : files) {
                 // this is the real, canonical and absolute filename (not shortened)
                 String realFileName = dataSource.getNiceFileName(false, null);
 
-                runAnalysis(new PmdRunnable(dataSource, realFileName, renderers, ctx, rulesets, processor));
+                Language language = null;
+                long sourceBytes = 0;
+                if (memoryAdmission != null) {
+                    // files within archives have no size on disk, they are estimated as empty
+                    final LanguageVersion languageVersion = configuration.getLanguageVersionOfFile(realFileName);
+                    language = languageVersion == null ? null : languageVersion.getLanguage();
+                    sourceBytes = new File(realFileName).length();
+                }
+
+                PmdRunnable.FILES_QUEUED.increment();
+                runAnalysis(new PmdRunnable(dataSource, realFileName, renderers, ctx, rulesets, processor,
+                        memoryAdmission, language, sourceBytes, progressTracker));
             }
 
             // then add analysis results per file
             collectReports(renderers);
+
+            if (memoryAdmission != null) {
+                memoryAdmission.saveRatios(configuration.getAnalysisCache());
+            }
         } catch (RuntimeException e) {
             throw new ContextedRuntimeException(e).addContextValue("filename", String.valueOf(ctx.getSourceCodeFile()));
         } finally {
+            if (progressTracker != null) {
+                progressTracker.finish();
+            }
             // in case we analyzed files within Zip Files/Jars, we need to close them after
             // the analysis is finished
             for (DataSource dataSource : files) {
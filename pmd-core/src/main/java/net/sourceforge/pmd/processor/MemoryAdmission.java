@@ -0,0 +1,215 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.benchmark.AstMemoryTracker;
+import net.sourceforge.pmd.benchmark.MetricsRegistry;
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Counter;
+import net.sourceforge.pmd.cache.AnalysisCache;
+import net.sourceforge.pmd.lang.Language;
+
+/**
+ * Limits the files analyzed concurrently to the ones whose estimated memory
+ * fits in a fraction of the maximum heap. The memory of a file is estimated
+ * from its size and the heap retained per byte of source by the ASTs of its
+ * language, which is learned from a sample of the analyzed files, and kept
+ * in the analysis cache for the next analyses.
+ *
+ * <p>The heap held by a file is its AST, with the XPath wrappers and the
+ * data added by the rules, see {@link AstMemoryTracker#estimateRetainedBytes(net.sourceforge.pmd.lang.ast.Node)}.
+ * The bytes allocated by the analysis are several times larger, but are
+ * mostly short-lived garbage which the GC collects while the files are
+ * analyzed, and would let far fewer files run concurrently than the heap allows.
+ *
+ * <p>The threads are admitted in their order of arrival, so that a large
+ * file waits for the files in progress to finish, but isn't starved by the
+ * smaller ones. A file is always admitted if no other file is in progress,
+ * whatever its estimate: the largest files are analyzed alone.
+ */
+final class MemoryAdmission {
+
+    private static final Logger LOG = Logger.getLogger(MemoryAdmission.class.getName());
+
+    private static final Counter FILES_AWAITING_MEMORY = MetricsRegistry.getInstance()
+        .gauge("pmd_files_awaiting_memory", "Files waiting for the memory of other files to analyze them");
+
+    /**
+     * Retained bytes per byte of source of a language never analyzed. The
+     * ASTs of the Java sources of PMD retain 175 bytes per byte of source
+     * with the quickstart ruleset, most of them in the Saxon wrappers.
+     */
+    /* default */ static final double DEFAULT_RATIO = 200;
+    /** Weight of the latest file in the learned ratio of its language. */
+    private static final double RATIO_WEIGHT = 0.1;
+    /** Files below this size mostly measure the fixed costs of an analysis. */
+    private static final long MIN_LEARNING_SIZE = 1024;
+    /** Files of each language always measured, before only measuring a sample. */
+    private static final int MEASURED_FIRST_FILES = 10;
+    /** Once a language has a ratio, one file in this many is measured. */
+    private static final int SAMPLE_INTERVAL = 20;
+
+    private final long budget;
+    private final ConcurrentMap<String, Double> ratios = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> candidates = new ConcurrentHashMap<>();
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long inUse;
+    private long nextTicket;
+    private long nextAdmitted;
+
+    /* default */ MemoryAdmission(long budget, Map<String, Double> ratios) {
+        this.budget = budget;
+        this.ratios.putAll(ratios);
+    }
+
+    /**
+     * Creates the admission control of the given configuration, seeded
+     * with the ratios of its analysis cache.
+     *
+     * @return The admission control, or null if the files are analyzed by a
+     *         single thread, or without a memory fraction
+     */
+    static MemoryAdmission create(PMDConfiguration configuration) {
+        final double fraction = configuration.getMemoryFraction();
+        final long maxMemory = Runtime.getRuntime().maxMemory();
+        if (fraction <= 0 || configuration.getThreads() <= 1 || maxMemory == Long.MAX_VALUE) {
+            return null;
+        }
+
+        // the used heap isn't subtracted: it includes the garbage left by loading
+        // the rulesets and the cache, and could leave no budget at all
+        final long budget = (long) (fraction * maxMemory);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Memory budget of the files analyzed concurrently: " + budget + " bytes");
+        }
+        return new MemoryAdmission(budget, configuration.getAnalysisCache().getMemoryRatios());
+    }
+
+    /**
+     * Returns the estimated memory needed to analyze a file.
+     *
+     * @param language    The language of the file, may be null
+     * @param sourceBytes The size of the file
+     */
+    long estimate(Language language, long sourceBytes) {
+        final Double ratio = language == null ? null : ratios.get(language.getName());
+        return (long) ((ratio == null ? DEFAULT_RATIO : ratio) * sourceBytes);
+    }
+
+    /**
+     * Waits for the estimated memory of a file to fit in the budget, along
+     * with the files in progress, and for the threads which arrived earlier
+     * to be admitted.
+     *
+     * @param estimate The estimated memory of the file
+     */
+    void acquire(long estimate) {
+        lock.lock();
+        try {
+            final long ticket = nextTicket++;
+            if (ticket != nextAdmitted || !fits(estimate)) {
+                FILES_AWAITING_MEMORY.increment();
+                try {
+                    while (ticket != nextAdmitted || !fits(estimate)) {
+                        released.awaitUninterruptibly();
+                    }
+                } finally {
+                    FILES_AWAITING_MEMORY.decrement();
+                }
+            }
+            inUse += estimate;
+            nextAdmitted++;
+            // the next thread may fit as well
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean fits(long estimate) {
+        return inUse == 0 || inUse + estimate <= budget;
+    }
+
+    /**
+     * Releases the memory acquired for a file.
+     *
+     * @param estimate The estimated memory of the file, as acquired
+     */
+    void release(long estimate) {
+        lock.lock();
+        try {
+            inUse -= estimate;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if the AST of the given file should be measured, to
+     * learn the memory needed by the files of its language. The measure
+     * walks the whole AST, so only a sample of the files is measured.
+     *
+     * @param language    The language of the file, may be null
+     * @param sourceBytes The size of the file
+     */
+    boolean shouldMeasure(Language language, long sourceBytes) {
+        if (language == null || sourceBytes < MIN_LEARNING_SIZE) {
+            return false;
+        }
+        final String name = language.getName();
+        AtomicInteger count = candidates.get(name);
+        if (count == null) {
+            candidates.putIfAbsent(name, new AtomicInteger());
+            count = candidates.get(name);
+        }
+        final int candidate = count.getAndIncrement();
+        return (candidate < MEASURED_FIRST_FILES && !ratios.containsKey(name)) || candidate % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Learns the memory needed by the files of a language from a parsed
+     * file.
+     *
+     * @param language      The language of the file, may be null
+     * @param sourceBytes   The size of the file
+     * @param retainedBytes The heap retained by the AST of the file, 0 if unknown
+     */
+    void record(Language language, long sourceBytes, long retainedBytes) {
+        if (language == null || sourceBytes < MIN_LEARNING_SIZE || retainedBytes <= 0) {
+            return;
+        }
+
+        final double observed = (double) retainedBytes / sourceBytes;
+        final String name = language.getName();
+        // concurrent updates may lose a sample, which doesn't matter for an average
+        final Double ratio = ratios.get(name);
+        ratios.put(name, ratio == null ? observed : (1 - RATIO_WEIGHT) * ratio + RATIO_WEIGHT * observed);
+    }
+
+    /**
+     * Stores the learned ratios in the given cache, for the next analyses.
+     */
+    void saveRatios(AnalysisCache cache) {
+        for (final Map.Entry<String, Double> ratio : ratios.entrySet()) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Bytes retained per byte of " + ratio.getKey() + " source: " + Math.round(ratio.getValue()));
+            }
+            cache.setMemoryRatio(ratio.getKey(), ratio.getValue());
+        }
+    }
+}
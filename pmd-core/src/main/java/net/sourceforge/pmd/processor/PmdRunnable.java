@@ -5,6 +5,7 @@
 package net.sourceforge.pmd.processor;
 
 import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -18,7 +19,12 @@ import net.sourceforge.pmd.RuleContext;
 import net.sourceforge.pmd.RuleSets;
 import net.sourceforge.pmd.SourceCodeProcessor;
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.MetricsRegistry;
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Counter;
+import net.sourceforge.pmd.benchmark.ProgressListener.Outcome;
+import net.sourceforge.pmd.benchmark.ProgressTracker;
 import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.lang.Language;
 import net.sourceforge.pmd.renderers.Renderer;
 import net.sourceforge.pmd.util.datasource.DataSource;
 
@@ -34,21 +40,44 @@ public class PmdRunnable implements Callable<Report> {
 
     private static final ThreadLocal<ThreadContext> LOCAL_THREAD_CONTEXT = new ThreadLocal<>();
 
+    /* default */ static final Counter FILES_QUEUED = MetricsRegistry.getInstance()
+        .gauge("pmd_files_queued", "Files waiting for a thread to analyze them");
+    private static final Counter FILES_IN_PROGRESS = MetricsRegistry.getInstance()
+        .gauge("pmd_files_in_progress", "Files being analyzed");
+    private static final Counter FILES_PROCESSED = MetricsRegistry.getInstance()
+        .counter("pmd_files_processed_total", "Files analyzed, including the ones which failed");
+    private static final Counter PROCESSING_ERRORS = MetricsRegistry.getInstance()
+        .counter("pmd_processing_errors_total", "Files whose analysis failed");
+
     private final DataSource dataSource;
     private final String fileName;
     private final List<Renderer> renderers;
     private final RuleContext ruleContext;
     private final RuleSets ruleSets;
     private final SourceCodeProcessor sourceCodeProcessor;
+    private final MemoryAdmission memoryAdmission;
+    private final Language language;
+    private final long sourceBytes;
+    private final ProgressTracker progressTracker;
 
     public PmdRunnable(DataSource dataSource, String fileName, List<Renderer> renderers,
             RuleContext ruleContext, RuleSets ruleSets, SourceCodeProcessor sourceCodeProcessor) {
+        this(dataSource, fileName, renderers, ruleContext, ruleSets, sourceCodeProcessor, null, null, 0, null);
+    }
+
+    /* default */ PmdRunnable(DataSource dataSource, String fileName, List<Renderer> renderers,
+            RuleContext ruleContext, RuleSets ruleSets, SourceCodeProcessor sourceCodeProcessor,
+            MemoryAdmission memoryAdmission, Language language, long sourceBytes, ProgressTracker progressTracker) {
         this.ruleSets = ruleSets;
         this.dataSource = dataSource;
         this.fileName = fileName;
         this.renderers = renderers;
         this.ruleContext = ruleContext;
         this.sourceCodeProcessor = sourceCodeProcessor;
+        this.memoryAdmission = memoryAdmission;
+        this.language = language;
+        this.sourceBytes = sourceBytes;
+        this.progressTracker = progressTracker;
     }
 
     public static void reset() {
@@ -59,11 +88,14 @@ public class PmdRunnable implements Callable<Report> {
         // unexpected exception: log and stop executor service
         LOG.log(Level.FINE, errorMessage, e);
         report.addError(new Report.ProcessingError(e, fileName));
+        PROCESSING_ERRORS.increment();
     }
 
     @Override
     public Report call() {
+        FILES_QUEUED.decrement();
         TimeTracker.initThread();
+        FILES_IN_PROGRESS.increment();
 
         ThreadContext tc = LOCAL_THREAD_CONTEXT.get();
         if (tc == null) {
@@ -73,30 +105,111 @@ public class PmdRunnable implements Callable<Report> {
 
         Report report = Report.createReport(tc.ruleContext, fileName);
 
+        try {
+            analyze(tc, report);
+        } finally {
+            // the registry outlives the analysis, the gauge must not drift
+            TimeTracker.finishThread();
+            FILES_IN_PROGRESS.decrement();
+            FILES_PROCESSED.increment();
+        }
+
+        // merge the sub-report into the global report (thread-safe)
+        ruleContext.getReport().merge(report);
+
+        if (progressTracker != null) {
+            final Outcome outcome = report.hasErrors() ? Outcome.FAILED
+                : tc.ruleContext.isSourceCodeParsed() ? Outcome.ANALYZED : Outcome.SKIPPED;
+            progressTracker.fileFinished(fileName, outcome, report.getViolations().size());
+        }
+
+        return report;
+    }
+
+    private void analyze(ThreadContext tc, Report report) {
         if (LOG.isLoggable(Level.FINE)) {
             LOG.fine("Processing " + fileName);
         }
+        if (progressTracker != null) {
+            progressTracker.fileStarted(fileName);
+        }
         for (Renderer r : renderers) {
             r.startFileAnalysis(dataSource);
         }
 
+        AdmittedInputStream admitted = null;
         try (InputStream stream = new BufferedInputStream(dataSource.getInputStream())) {
             tc.ruleContext.setLanguageVersion(null);
-            sourceCodeProcessor.processSourceCode(stream, tc.ruleSets, tc.ruleContext);
+            tc.ruleContext.setAstSizeMeasured(memoryAdmission != null && memoryAdmission.shouldMeasure(language, sourceBytes));
+            InputStream source = stream;
+            if (memoryAdmission != null) {
+                admitted = new AdmittedInputStream(stream, memoryAdmission, memoryAdmission.estimate(language, sourceBytes));
+                source = admitted;
+            }
+            sourceCodeProcessor.processSourceCode(source, tc.ruleSets, tc.ruleContext);
+            if (memoryAdmission != null && tc.ruleContext.isSourceCodeParsed()) {
+                memoryAdmission.record(language, sourceBytes, tc.ruleContext.getAstRetainedBytes());
+            }
         } catch (PMDException pmde) {
             addError(report, pmde, "Error while processing file: " + fileName);
         } catch (IOException ioe) {
             addError(report, ioe, "IOException during processing of " + fileName);
         } catch (RuntimeException re) {
             addError(report, re, "RuntimeException during processing of " + fileName);
+        } finally {
+            if (admitted != null) {
+                admitted.release();
+            }
         }
+    }
 
-        TimeTracker.finishThread();
+    /**
+     * Waits for the memory of the file to be admitted when the file is first
+     * read, i.e. when it is parsed. A file whose violations are taken from the
+     * analysis cache is not read, and doesn't wait for the files in progress.
+     */
+    private static final class AdmittedInputStream extends FilterInputStream {
+        private final MemoryAdmission memoryAdmission;
+        private final long estimate;
+        private boolean acquired;
+
+        AdmittedInputStream(InputStream in, MemoryAdmission memoryAdmission, long estimate) {
+            super(in);
+            this.memoryAdmission = memoryAdmission;
+            this.estimate = estimate;
+        }
 
-        // merge the sub-report into the global report (thread-safe)
-        ruleContext.getReport().merge(report);
+        private void acquire() {
+            if (!acquired) {
+                memoryAdmission.acquire(estimate);
+                acquired = true;
+            }
+        }
 
-        return report;
+        /* default */ void release() {
+            if (acquired) {
+                acquired = false;
+                memoryAdmission.release(estimate);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            acquire();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            acquire();
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            acquire();
+            return super.skip(n);
+        }
     }
 
     private static class ThreadContext {
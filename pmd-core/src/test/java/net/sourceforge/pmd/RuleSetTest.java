@@ -32,6 +32,7 @@ import net.sourceforge.pmd.lang.DummyLanguageModule;
 import net.sourceforge.pmd.lang.LanguageRegistry;
 import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.FusedTraversalRule;
 import net.sourceforge.pmd.lang.rule.MockRule;
 import net.sourceforge.pmd.lang.rule.RuleReference;
 import net.sourceforge.pmd.util.CollectionUtil;
@@ -627,4 +628,175 @@ public class RuleSetTest {
         assertEquals("There should be a violation", 1, context.getReport().size());
     }
 
+    @Test
+    public void ruleChainVisitsNodesByNameWithUnderlyingRule() {
+        final List<String> visited = new ArrayList<>();
+        final MockRule rule = new MockRule() {
+            @Override
+            public void apply(List<? extends Node> nodes, RuleContext ctx) {
+                for (Node node : nodes) {
+                    visited.add(node.getXPathNodeName() + ":" + node.getImage());
+                }
+            }
+        };
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        RuleReference reference = new RuleReference(rule, null);
+        reference.addRuleChainVisit("second");
+        reference.addRuleChainVisit("first");
+        RuleSets rulesets = new RuleSets(createRuleSetBuilder("ruleChainVisitsNodesByName").addRule(reference).build());
+
+        DummyNode root = new DummyNode(0, false, "root");
+        root.jjtAddChild(makeNamedNode("first", "a"), 0);
+        root.jjtAddChild(makeNamedNode("second", "b"), 1);
+        root.jjtAddChild(makeNamedNode("first", "c"), 2);
+
+        RuleContext context = new RuleContext();
+        context.setReport(new Report());
+        context.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        context.setSourceCodeFile(new File("ruleChainVisitsNodesByName"));
+        rulesets.apply(Arrays.<Node>asList(root), context, LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        assertEquals(Arrays.asList("second:b", "first:a", "first:c"), visited);
+
+        // the node lists are reused for the next file
+        visited.clear();
+        rulesets.apply(Arrays.<Node>asList(makeNamedNode("first", "d")), context,
+                LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        assertEquals(Arrays.asList("first:d"), visited);
+    }
+
+    @Test
+    public void fusedTraversalRulesShareTheRuleChainTraversal() {
+        final List<String> visited = new ArrayList<>();
+        RuleSets rulesets = new RuleSets(createRuleSetBuilder("fusedTraversal")
+                .addRule(new RecordingFusedRule("onFirst", visited, "first"))
+                .addRule(new RecordingFusedRule("onAll", visited))
+                .build());
+
+        DummyNode root = new DummyNode(0, false, "root");
+        DummyNode second = makeNamedNode("second", "b");
+        second.jjtAddChild(makeNamedNode("first", "c"), 0);
+        root.jjtAddChild(makeNamedNode("first", "a"), 0);
+        root.jjtAddChild(second, 1);
+
+        RuleContext context = new RuleContext();
+        context.setReport(new Report());
+        context.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        context.setSourceCodeFile(new File("fusedTraversal"));
+        rulesets.apply(Arrays.<Node>asList(root), context, LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        // a single traversal dispatches each node to all the interested rules
+        assertEquals(Arrays.asList("onAll root:null", "onAll first:a", "onFirst first:a", "onAll second:b",
+                "onAll first:c", "onFirst first:c"), visited);
+    }
+
+    @Test
+    public void fusedTraversalRuleFailureDoesNotStopTheOtherRules() {
+        final List<String> visited = new ArrayList<>();
+        RuleSets rulesets = new RuleSets(createRuleSetBuilder("fusedTraversal")
+                .addRule(new RecordingFusedRule("failing", visited, "first") {
+                    @Override
+                    public void apply(List<? extends Node> nodes, RuleContext ctx) {
+                        super.apply(nodes, ctx);
+                        throw new IllegalStateException("Test exception while applying rule");
+                    }
+                })
+                .addRule(new RecordingFusedRule("onAll", visited))
+                .build());
+
+        DummyNode root = new DummyNode(0, false, "root");
+        root.jjtAddChild(makeNamedNode("first", "a"), 0);
+        root.jjtAddChild(makeNamedNode("first", "b"), 1);
+
+        RuleContext context = new RuleContext();
+        context.setReport(new Report());
+        context.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        context.setSourceCodeFile(new File("fusedTraversal"));
+        context.setIgnoreExceptions(true);
+        rulesets.apply(Arrays.<Node>asList(root), context, LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        assertEquals(Arrays.asList("onAll root:null", "onAll first:a", "failing first:a", "onAll first:b"), visited);
+        assertEquals(1, context.getReport().getProcessingErrors().size());
+    }
+
+    @Test
+    public void rulesAreSkippedWithoutRequiredNodes() {
+        final List<String> visited = new ArrayList<>();
+        RecordingRequiringRule present = new RecordingRequiringRule(visited, "present");
+        present.addRequiredNode("second");
+        RecordingRequiringRule absent = new RecordingRequiringRule(visited, "absent");
+        absent.addRequiredNode("third");
+        RecordingRequiringRule anyFile = new RecordingRequiringRule(visited, "anyFile");
+        RuleSets rulesets = new RuleSets(createRuleSetBuilder("requiredNodes")
+                .addRule(present).addRule(absent).addRule(anyFile)
+                .build());
+
+        DummyNode root = new DummyNode(0, false, "root");
+        root.jjtAddChild(makeNamedNode("first", "a"), 0);
+        root.jjtAddChild(makeNamedNode("second", "b"), 1);
+
+        RuleContext context = new RuleContext();
+        context.setReport(new Report());
+        context.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        context.setSourceCodeFile(new File("requiredNodes"));
+        rulesets.apply(Arrays.<Node>asList(root), context, LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        assertEquals(Arrays.asList("present", "anyFile"), visited);
+
+        // without the presence recorded by the rule chain, all rules are applied
+        visited.clear();
+        rulesets.getAllRuleSets()[0].apply(Arrays.<Node>asList(new DummyNode(0, false, "root")), context);
+        assertEquals(Arrays.asList("present", "absent", "anyFile"), visited);
+    }
+
+    private static class RecordingRequiringRule extends MockRule {
+        private final List<String> visited;
+
+        RecordingRequiringRule(List<String> visited, String name) {
+            this.visited = visited;
+            setName(name);
+            setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        }
+
+        @Override
+        public void apply(List<? extends Node> nodes, RuleContext ctx) {
+            visited.add(getName());
+        }
+    }
+
+    private static class RecordingFusedRule extends MockRule implements FusedTraversalRule {
+        private final List<String> visited;
+        private final List<String> visits;
+
+        RecordingFusedRule(String name, List<String> visited, String... visits) {
+            setName(name);
+            this.visited = visited;
+            this.visits = Arrays.asList(visits);
+            setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        }
+
+        @Override
+        public boolean isFusedTraversal() {
+            return true;
+        }
+
+        @Override
+        public List<String> getFusedTraversalVisits() {
+            return visits;
+        }
+
+        @Override
+        public void visitInFusedTraversal(Node node, RuleContext ctx) {
+            apply(Arrays.asList(node), ctx);
+        }
+
+        @Override
+        public void apply(List<? extends Node> nodes, RuleContext ctx) {
+            for (Node node : nodes) {
+                visited.add(getName() + " " + node.getXPathNodeName() + ":" + node.getImage());
+            }
+        }
+    }
+
+    private static DummyNode makeNamedNode(String xpathName, String image) {
+        DummyNode node = new DummyNode(1, false, xpathName);
+        node.setImage(image);
+        return node;
+    }
 }
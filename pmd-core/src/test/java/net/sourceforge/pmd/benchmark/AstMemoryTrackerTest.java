@@ -0,0 +1,71 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.sourceforge.pmd.benchmark.AstMemoryReport.LanguageFootprint;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+
+public class AstMemoryTrackerTest {
+
+    private final Language language = LanguageRegistry.getLanguage(DummyLanguageModule.NAME);
+
+    @After
+    public void stopTracking() {
+        AstMemoryTracker.stopGlobalTracking();
+    }
+
+    private static DummyNode tree(int children) {
+        DummyNode root = new DummyNode(0);
+        for (int i = 0; i < children; i++) {
+            DummyNode child = new DummyNode(1);
+            child.setImage("image" + i);
+            child.jjtSetParent(root);
+            root.jjtAddChild(child, i);
+        }
+        return root;
+    }
+
+    @Test
+    public void testNotTracking() {
+        AstMemoryTracker.measure(language, new File("Foo.dummy"), tree(1));
+        assertTrue(AstMemoryTracker.stopGlobalTracking().getLanguages().isEmpty());
+    }
+
+    @Test
+    public void testMeasure() throws IOException {
+        AstMemoryTracker.startGlobalTracking();
+        AstMemoryTracker.measure(language, new File("Small.dummy"), tree(1));
+        AstMemoryTracker.measure(language, new File("Large.dummy"), tree(100));
+        AstMemoryReport report = AstMemoryTracker.stopGlobalTracking();
+        assertFalse(AstMemoryTracker.isTracking());
+
+        LanguageFootprint footprint = report.getLanguages().get(language.getName());
+        assertEquals(2, footprint.getFiles());
+        assertEquals("Large.dummy", footprint.getLargestFile());
+        assertTrue(footprint.getBytes(AstMemoryCategory.NODES) > 0);
+        assertTrue(footprint.getBytes(AstMemoryCategory.IMAGES) > 0);
+        assertTrue(footprint.getLargestFileBytes() > footprint.getPercentile(0));
+        assertEquals(footprint.getTotalBytes(), footprint.getBytes(AstMemoryCategory.NODES)
+            + footprint.getBytes(AstMemoryCategory.IMAGES) + footprint.getBytes(AstMemoryCategory.USER_DATA));
+
+        StringWriter writer = new StringWriter();
+        new TextAstMemoryReportRenderer().render(report, writer);
+        assertTrue(writer.toString().contains("AST Memory - " + language.getName()));
+    }
+}
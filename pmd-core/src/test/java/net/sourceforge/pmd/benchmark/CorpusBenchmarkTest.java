@@ -0,0 +1,141 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.cli.PMDCommandLineInterface;
+
+public class CorpusBenchmarkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CorpusBenchmarkResult result(long wallClockMillis, long parserMillis, long ruleMillis) {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        phases.put(TimedOperationCategory.PARSER.name(), parserMillis);
+        phases.put(TimedOperationCategory.RULE.name(), ruleMillis);
+        return new CorpusBenchmarkResult("6.31.0", 5, 100, wallClockMillis, 20, 64 * 1024 * 1024, phases);
+    }
+
+    @Test
+    public void testJsonRoundTrip() throws IOException {
+        CorpusBenchmarkResult result = result(2000, 1000, 500);
+        StringWriter writer = new StringWriter();
+        result.writeJson(writer);
+
+        CorpusBenchmarkResult read = CorpusBenchmarkResult.readJson(new StringReader(writer.toString()));
+        assertEquals("6.31.0", read.getPmdVersion());
+        assertEquals(5, read.getIterations());
+        assertEquals(100, read.getFiles());
+        assertEquals(2000, read.getWallClockMillis());
+        assertEquals(50.0, read.getFilesPerSecond(), 0.001);
+        assertEquals(20, read.getGcMillis());
+        assertEquals(64 * 1024 * 1024, read.getPeakHeapBytes());
+        assertEquals(result.getPhaseMillis(), read.getPhaseMillis());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidJson() throws IOException {
+        CorpusBenchmarkResult.readJson(new StringReader("{\"pmdVersion\": \"6.31.0\"}"));
+    }
+
+    @Test
+    public void testFindRegressions() {
+        CorpusBenchmarkResult baseline = result(2000, 1000, 50);
+
+        assertTrue(result(2100, 1050, 50).findRegressions(baseline, 0.1, 100).isEmpty());
+
+        // the rule phase is below the minimum time, and not compared
+        List<String> regressions = result(2100, 1200, 500).findRegressions(baseline, 0.1, 100);
+        assertEquals(1, regressions.size());
+        assertEquals("PARSER: 1200 ms instead of 1000 ms (+20.0%)", regressions.get(0));
+
+        assertEquals(2, result(3000, 1200, 50).findRegressions(baseline, 0.1, 100).size());
+    }
+
+    @Test
+    public void testRunAndCompareWithBaseline() throws IOException {
+        File corpus = folder.newFolder("corpus");
+        for (int i = 0; i < 3; i++) {
+            Files.write(new File(corpus, "Foo" + i + ".dummy").toPath(), "dummy code".getBytes(StandardCharsets.UTF_8));
+        }
+        File baseline = new File(folder.getRoot(), "baseline.json");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = CorpusBenchmark.run(new String[] {"-d", corpus.getPath(), "-R", "rulesets/dummy/basic.xml",
+            "-warmup", "0", "-iterations", "2", "-o", baseline.getPath(), }, new PrintStream(out, true));
+        assertEquals(PMDCommandLineInterface.NO_ERRORS_STATUS, status);
+        assertTrue(out.toString().contains("Analyzed 3 files, median of 2 runs"));
+
+        CorpusBenchmarkResult result;
+        try (Reader reader = Files.newBufferedReader(baseline.toPath(), StandardCharsets.UTF_8)) {
+            result = CorpusBenchmarkResult.readJson(reader);
+        }
+        assertEquals(3, result.getFiles());
+        assertEquals(2, result.getIterations());
+
+        out.reset();
+        status = CorpusBenchmark.run(new String[] {"-d", corpus.getPath(), "-R", "rulesets/dummy/basic.xml",
+            "-warmup", "0", "-iterations", "1", "-baseline", baseline.getPath(), "-mintime", "100000", },
+                                     new PrintStream(out, true));
+        assertEquals(PMDCommandLineInterface.NO_ERRORS_STATUS, status);
+        assertTrue(out.toString().contains("No regression above 10.0%"));
+    }
+
+    @Test
+    public void testLabeledOperationsNestedInUnlabeledAreCountedOnce() throws InterruptedException {
+        TimeTracker.startGlobalTracking();
+        TimingReport report;
+        try {
+            try (TimedOperation rules = TimeTracker.startOperation(TimedOperationCategory.RULE)) {
+                try (TimedOperation rule = TimeTracker.startOperation(TimedOperationCategory.RULE, "SomeRule")) {
+                    Thread.sleep(20);
+                }
+            }
+            // like the fused rules, recorded outside of the unlabeled operation
+            TimeTracker.recordOperation(TimedOperationCategory.RULE, "FusedRule", 5000000, 1);
+            try (TimedOperation rule = TimeTracker.startOperation(TimedOperationCategory.RULECHAIN_RULE, "OtherRule")) {
+                Thread.sleep(10);
+            }
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+        }
+
+        long unlabeled = report.getUnlabeledMeasurements(TimedOperationCategory.RULE).totalTimeNanos.get();
+        assertTrue(report.getLabeledMeasurements(TimedOperationCategory.RULE).get("SomeRule").totalTimeNanos.get() >= 20000000);
+        assertEquals(unlabeled + 5000000, CorpusBenchmark.getTotalNanos(report, TimedOperationCategory.RULE));
+
+        // without an unlabeled operation, the labeled ones are summed
+        long other = report.getLabeledMeasurements(TimedOperationCategory.RULECHAIN_RULE).get("OtherRule").totalTimeNanos.get();
+        assertTrue(other >= 10000000);
+        assertEquals(other, CorpusBenchmark.getTotalNanos(report, TimedOperationCategory.RULECHAIN_RULE));
+    }
+
+    @Test
+    public void testMissingBaseline() {
+        int status = CorpusBenchmark.run(new String[] {"-d", folder.getRoot().getPath(), "-R", "rulesets/dummy/basic.xml",
+            "-baseline", new File(folder.getRoot(), "missing.json").getPath(), }, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(PMDCommandLineInterface.ERROR_STATUS, status);
+    }
+}
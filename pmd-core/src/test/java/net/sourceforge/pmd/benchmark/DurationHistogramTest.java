@@ -0,0 +1,53 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DurationHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        assertEquals(0, new DurationHistogram().getPercentile(50));
+    }
+
+    @Test
+    public void testSmallDurationsAreExact() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 1; i <= 4; i++) {
+            histogram.record(i);
+        }
+        assertEquals(2, histogram.getPercentile(50));
+        assertEquals(4, histogram.getPercentile(99));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testPercentilesAreWithinTenPercent() {
+        DurationHistogram histogram = new DurationHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000000);
+        }
+        assertWithinTenPercent(500000000, histogram.getPercentile(50));
+        assertWithinTenPercent(990000000, histogram.getPercentile(99));
+        assertWithinTenPercent(1000000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testExtremeDurations() {
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getPercentile(50));
+        assertTrue(histogram.getPercentile(100) > Long.MAX_VALUE / 2);
+    }
+
+    private static void assertWithinTenPercent(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 10);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FlightRecorderEventsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNoEventsWithoutRecording() {
+        final TimedOperation operation = TimeTracker.startOperation(TimedOperationCategory.RULE, "MyRule");
+        operation.close();
+        assertSame(operation, TimeTracker.startOperation(TimedOperationCategory.RULE, "MyRule"));
+    }
+
+    @Test
+    public void testEventsOfEnabledCategories() throws Exception {
+        Assume.assumeTrue(isFlightRecorderAvailable());
+
+        // the tests are compiled for Java 7, which has no flight recorder API
+        final Object recording = Class.forName("jdk.jfr.Recording").getConstructor().newInstance();
+        invoke(recording, "disable", "net.sourceforge.pmd.Parser");
+        invoke(recording, "start");
+
+        try (TimedOperation file = TimeTracker.startFileOperation("Foo.java", "java")) {
+            TimeTracker.startOperation(TimedOperationCategory.RULE, "MyRule").close();
+            TimeTracker.startOperation(TimedOperationCategory.PARSER).close();
+            // disabled unless enabled in the recording settings
+            TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, "typeIs").close();
+        }
+        TimeTracker.startOperation(TimedOperationCategory.RULE, "OtherRule").close();
+
+        invoke(recording, "stop");
+        final Path dump = folder.newFile("pmd.jfr").toPath();
+        recording.getClass().getMethod("dump", Path.class).invoke(recording, dump);
+        invoke(recording, "close");
+
+        final List<?> events = readPmdEvents(dump);
+        assertEquals(3, events.size());
+        assertEvent(events.get(0), "net.sourceforge.pmd.Rule", "MyRule", "Foo.java", "java");
+        assertEvent(events.get(1), "net.sourceforge.pmd.FileProcessing", null, "Foo.java", "java");
+        assertEvent(events.get(2), "net.sourceforge.pmd.Rule", "OtherRule", null, null);
+
+        // the recording is over
+        final TimedOperation operation = TimeTracker.startOperation(TimedOperationCategory.RULE, "MyRule");
+        assertSame(operation, TimeTracker.startOperation(TimedOperationCategory.RULE, "MyRule"));
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            return (Boolean) Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static List<Object> readPmdEvents(final Path dump) throws Exception {
+        final List<Object> events = new ArrayList<>();
+        final Object recorded = Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", Path.class).invoke(null, dump);
+        for (final Object event : (List<?>) recorded) {
+            if (eventName(event).startsWith("net.sourceforge.pmd.")) {
+                events.add(event);
+            }
+        }
+        Collections.sort(events, new Comparator<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public int compare(Object e1, Object e2) {
+                return ((Comparable<Object>) invoke(e1, "getEndTime")).compareTo(invoke(e2, "getEndTime"));
+            }
+        });
+        return events;
+    }
+
+    private static String eventName(final Object event) {
+        return (String) invoke(invoke(event, "getEventType"), "getName");
+    }
+
+    private static void assertEvent(final Object event, final String name, final String label,
+                                    final String file, final String language) {
+        assertEquals(name, eventName(event));
+        assertEquals(label, invoke(event, "getString", "label"));
+        assertEquals(file, invoke(event, "getString", "file"));
+        assertEquals(language, invoke(event, "getString", "language"));
+    }
+
+    private static Object invoke(final Object target, final String method, final String... args) {
+        final Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = String.class;
+        }
+        try {
+            return target.getClass().getMethod(method, types).invoke(target, (Object[]) args);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.benchmark.MetricsRegistry.Counter;
+
+public class MetricsRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        final Counter counter = new MetricsRegistry().counter("test_total", "Test");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        counter.increment();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, counter.get());
+    }
+
+    @Test
+    public void testCountersAreRegisteredOnce() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("a_total", "A"), registry.counter("a_total", "A"));
+        assertSame(registry.counter("a_total", "A", "language", "java"), registry.counter("a_total", "A", "language", "java"));
+        assertEquals(2, registry.getCounters().size());
+    }
+
+    @Test
+    public void testPrometheusFormat() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.gauge("pmd_files_queued", "Queued files").add(3);
+        registry.timer("pmd_parse_time_seconds_total", "Parse time", "language", "java").add(1500000000);
+        registry.timer("pmd_parse_time_seconds_total", "Parse time", "language", "apex").add(500000000);
+
+        StringWriter writer = new StringWriter();
+        MetricsExporter.renderPrometheus(registry, writer);
+        assertEquals("# HELP pmd_files_queued Queued files\n"
+                + "# TYPE pmd_files_queued gauge\n"
+                + "pmd_files_queued 3\n"
+                + "# HELP pmd_parse_time_seconds_total Parse time\n"
+                + "# TYPE pmd_parse_time_seconds_total counter\n"
+                + "pmd_parse_time_seconds_total{language=\"apex\"} 0.5\n"
+                + "pmd_parse_time_seconds_total{language=\"java\"} 1.5\n",
+                writer.toString());
+    }
+
+    @Test
+    public void testExportToFile() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("pmd_files_processed_total", "Processed files").add(42);
+
+        File json = new File(folder.getRoot(), "metrics/pmd.json");
+        File prometheus = new File(folder.getRoot(), "pmd.prom");
+        MetricsExporter.start(registry, json.getPath(), 60).close();
+        MetricsExporter.start(registry, prometheus.getPath(), 60).close();
+
+        String jsonContent = new String(Files.readAllBytes(json.toPath()), StandardCharsets.UTF_8);
+        assertTrue(jsonContent, jsonContent.contains("\"name\": \"pmd_files_processed_total\""));
+        assertTrue(jsonContent, jsonContent.contains("\"value\": 42"));
+        String prometheusContent = new String(Files.readAllBytes(prometheus.toPath()), StandardCharsets.UTF_8);
+        assertTrue(prometheusContent, prometheusContent.contains("pmd_files_processed_total 42\n"));
+        // no temporary file is left
+        assertEquals(1, json.getParentFile().list().length);
+        assertEquals(2, folder.getRoot().list().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInterval() {
+        MetricsExporter.start(new MetricsRegistry(), new File(folder.getRoot(), "pmd.prom").getPath(), 0);
+    }
+}
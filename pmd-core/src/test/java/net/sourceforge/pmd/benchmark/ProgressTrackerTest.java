@@ -0,0 +1,67 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.benchmark.ProgressListener.Outcome;
+
+public class ProgressTrackerTest {
+
+    @Test
+    public void testNoListener() {
+        assertNull(ProgressTracker.start(new PMDConfiguration(), 10));
+    }
+
+    @Test
+    public void testProgress() {
+        final PMDConfiguration configuration = new PMDConfiguration();
+        final StringWriter output = new StringWriter();
+        configuration.addProgressListener(new JsonLinesProgressWriter(output));
+
+        final ProgressTracker tracker = ProgressTracker.start(configuration, 4);
+        tracker.fileStarted("Foo.java");
+        tracker.fileStarted("Bar.java");
+        tracker.fileFinished("Foo.java", Outcome.ANALYZED, 3);
+        tracker.fileFinished("Bar.java", Outcome.SKIPPED, 1);
+        tracker.fileStarted("Baz.java");
+        tracker.fileFinished("Baz.java", Outcome.FAILED, 0);
+
+        final AnalysisProgress progress = tracker.snapshot();
+        assertEquals(4, progress.getTotalFiles());
+        assertEquals(3, progress.getStartedFiles());
+        assertEquals(3, progress.getFinishedFiles());
+        assertEquals(0, progress.getFilesInProgress());
+        assertEquals(1, progress.getSkippedFiles());
+        assertEquals(1, progress.getFailedFiles());
+        assertEquals(4, progress.getViolations());
+        tracker.finish();
+
+        final String[] lines = output.toString().split("\n");
+        assertEquals(8, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("{\"event\":\"analysisStarted\",\"totalFiles\":4,"));
+        assertTrue(lines[3], lines[3].startsWith("{\"event\":\"fileFinished\",\"file\":\"Foo.java\",\"outcome\":\"analyzed\","
+            + "\"fileViolations\":3,\"totalFiles\":4,\"startedFiles\":2,\"finishedFiles\":1,"));
+        assertTrue(lines[7], lines[7].startsWith("{\"event\":\"analysisFinished\","));
+    }
+
+    @Test
+    public void testProgressBar() {
+        final AnalysisProgress progress = new AnalysisProgress(100, 30, 25, 5, 1, 42, 5000);
+        assertEquals(5.0, progress.getFilesPerSecond(), 0.001);
+        assertEquals(15000, progress.getEstimatedRemainingMillis());
+        assertEquals("[=======                       ]  25% 25/100 files, 5 in progress, 5 skipped, 1 failed, "
+            + "42 violations, 5.0 files/s, ETA 0:15", ConsoleProgressBar.format(progress));
+
+        assertEquals(-1, new AnalysisProgress(100, 4, 0, 0, 0, 0, 5000).getEstimatedRemainingMillis());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.sourceforge.pmd.benchmark.TimeTracker.TimedResult;
+
+public class TimeTrackerTest {
+
+    @Test
+    public void testCallsAndPercentilesPerLabel() throws IOException {
+        TimeTracker.startGlobalTracking();
+        TimingReport report;
+        try {
+            for (int i = 0; i < 10; i++) {
+                try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.RULE, "SomeRule")) {
+                    busyWait(i == 9 ? 20000000 : 1000000);
+                }
+            }
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+        }
+
+        TimedResult result = report.getLabeledMeasurements(TimedOperationCategory.RULE).get("SomeRule");
+        assertEquals(10, result.callCount.get());
+        long p50 = result.getDurationPercentile(50);
+        long p99 = result.getDurationPercentile(99);
+        assertTrue("p50 " + p50, p50 >= 900000 && p50 < 20000000);
+        assertTrue("p99 " + p99, p99 >= 18000000);
+
+        StringWriter text = new StringWriter();
+        new TextTimingReportRenderer().render(report, text);
+        assertTrue(text.toString().contains("p99 (ms)"));
+        StringWriter json = new StringWriter();
+        new JsonTimingReportRenderer().render(report, json);
+        assertTrue(json.toString().contains("\"p99Nanos\""));
+    }
+
+    @Test
+    public void testAllocationsAreTracked() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+
+        TimeTracker.startGlobalTracking();
+        TimingReport report;
+        try {
+            try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.RULE, "Allocating")) {
+                List<long[]> arrays = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    arrays.add(new long[1024]);
+                }
+                assertEquals(100, arrays.size());
+            }
+            try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.RULE, "Spinning")) {
+                busyWait(5000000);
+            }
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+        }
+
+        TimedResult allocating = report.getLabeledMeasurements(TimedOperationCategory.RULE).get("Allocating");
+        assertTrue(allocating.allocatedBytes.get() >= 100 * 1024 * 8);
+        TimedResult spinning = report.getLabeledMeasurements(TimedOperationCategory.RULE).get("Spinning");
+        assertTrue(spinning.cpuTimeNanos.get() > 0);
+    }
+
+    @Test
+    public void testPerNodeOperationsOnlyTrackWallClockTime() {
+        TimeTracker.startGlobalTracking();
+        TimingReport report;
+        try {
+            try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, "typeIs")) {
+                List<long[]> arrays = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    arrays.add(new long[1024]);
+                }
+                assertEquals(100, arrays.size());
+                busyWait(1000000);
+            }
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+        }
+
+        TimedResult result = report.getLabeledMeasurements(TimedOperationCategory.XPATH_FUNCTION).get("typeIs");
+        assertEquals(1, result.callCount.get());
+        assertTrue(result.totalTimeNanos.get() >= 1000000);
+        assertEquals(0, result.cpuTimeNanos.get());
+        assertEquals(0, result.allocatedBytes.get());
+    }
+
+    @Test
+    public void testSlowestOperationsOnFiles() throws Exception {
+        TimeTracker.startGlobalTracking();
+        TimingReport report;
+        try {
+            Thread other = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    analyzeFiles(0, 10);
+                }
+            });
+            other.start();
+            analyzeFiles(10, 20);
+            other.join();
+        } finally {
+            report = TimeTracker.stopGlobalTracking();
+        }
+
+        // bounded, and merged from both threads
+        List<SlowOperation> files = report.getSlowestFiles();
+        assertEquals(10, files.size());
+        assertEquals("File19", files.get(0).getFileName());
+        assertEquals(TimedOperationCategory.FILE_PROCESSING, files.get(0).getCategory());
+        for (int i = 1; i < files.size(); i++) {
+            assertTrue(files.get(i - 1).getNanos() >= files.get(i).getNanos());
+        }
+
+        // the unlabeled total of the rules of a file is a phase
+        List<SlowOperation> phases = report.getSlowestFilePhases();
+        assertEquals(10, phases.size());
+        assertEquals("File19", phases.get(0).getFileName());
+        assertEquals(TimedOperationCategory.RULE, phases.get(0).getCategory());
+
+        List<SlowOperation> rules = report.getSlowestFileRules();
+        assertEquals(10, rules.size());
+        assertEquals("File19", rules.get(0).getFileName());
+        assertEquals("SlowRule", rules.get(0).getLabel());
+        assertTrue(report.getTotalFileNanos() >= files.get(0).getNanos());
+
+        StringWriter text = new StringWriter();
+        new TextTimingReportRenderer().render(report, text);
+        assertTrue(text.toString().contains("Slowest Files And Rules"));
+        StringWriter json = new StringWriter();
+        new JsonTimingReportRenderer().render(report, json);
+        assertTrue(json.toString().contains("\"slowestFilePhases\""));
+        assertTrue(json.toString().contains("\"ratioToRuleP50\""));
+    }
+
+    private static void analyzeFiles(int from, int to) {
+        for (int i = from; i < to; i++) {
+            try (TimedOperation file = TimeTracker.startFileOperation("File" + i, "dummy")) {
+                try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.PARSER)) {
+                    busyWait(100000);
+                }
+                try (TimedOperation rules = TimeTracker.startOperation(TimedOperationCategory.RULE);
+                     TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.RULE, "SlowRule")) {
+                    // the last file is much slower
+                    busyWait(i == 19 ? 10000000 : 100000 + i * 10000);
+                }
+            }
+        }
+    }
+
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // spin
+        }
+    }
+}
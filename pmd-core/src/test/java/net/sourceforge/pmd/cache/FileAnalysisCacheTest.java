@@ -349,6 +349,76 @@ public class FileAnalysisCacheTest {
                 cache.isUpToDate(sourceFile));
     }
 
+    @Test
+    public void testStorePersistsRulesOverTimeBudget() throws IOException {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(rs, cl);
+        cache.isUpToDate(sourceFile);
+        cache.ruleDisabled("SlowRule", 1000L);
+        cache.ruleSkipped(sourceFile, "SlowOnFileRule", 100L);
+        cache.persist();
+
+        // the rules skipped on a file are kept when the file changes
+        Files.write(Paths.get(sourceFile.getAbsolutePath()), "some text".getBytes());
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl);
+        assertFalse(reloadedCache.isUpToDate(sourceFile));
+        assertEquals(Collections.singletonMap("SlowRule", 1000L), reloadedCache.getDisabledRules());
+        assertEquals(Collections.singletonMap("SlowOnFileRule", 100L), reloadedCache.getSkippedRules(sourceFile));
+
+        when(rs.getChecksum()).thenReturn(1L);
+        reloadedCache.checkValidity(rs, cl);
+        assertTrue("Rules disabled for other rulesets", reloadedCache.getDisabledRules().isEmpty());
+    }
+
+    @Test
+    public void testFileWithSkippedRulesIsNotUpToDateWithoutBudget() throws IOException {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+
+        // a run with a budget, on which a rule is skipped on the file
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(rs, cl);
+        cache.isUpToDate(sourceFile);
+        cache.ruleSkipped(sourceFile, "SlowOnFileRule", 100L);
+        cache.analysisIncomplete(sourceFile);
+        cache.persist();
+
+        // the next run without budget analyzes the unchanged file again
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        reloadedCache.checkValidity(rs, cl);
+        assertFalse("Cache believes a file analyzed without all the rules is up to date",
+                reloadedCache.isUpToDate(sourceFile));
+        assertEquals(Collections.singletonMap("SlowOnFileRule", 100L), reloadedCache.getSkippedRules(sourceFile));
+        reloadedCache.persist();
+
+        // until all the rules were applied to it
+        final FileAnalysisCache completeCache = new FileAnalysisCache(newCacheFile);
+        completeCache.checkValidity(rs, cl);
+        assertTrue("Cache believes a completely analyzed file is not up to date",
+                completeCache.isUpToDate(sourceFile));
+    }
+
+    @Test
+    public void testStorePersistsMemoryRatiosAcrossRulesets() throws IOException {
+        final RuleSets rs = mock(RuleSets.class);
+        final ClassLoader cl = mock(ClassLoader.class);
+
+        final FileAnalysisCache cache = new FileAnalysisCache(newCacheFile);
+        cache.checkValidity(rs, cl);
+        cache.setMemoryRatio("Java", 1500.0);
+        cache.persist();
+
+        final FileAnalysisCache reloadedCache = new FileAnalysisCache(newCacheFile);
+        when(rs.getChecksum()).thenReturn(1L);
+        reloadedCache.checkValidity(rs, cl);
+        assertEquals(Collections.singletonMap("Java", 1500.0), reloadedCache.getMemoryRatios());
+    }
+
     private void setupCacheWithFiles(final File cacheFile, final RuleSets ruleSets,
             final ClassLoader classLoader, final File... files) {
         // Setup a cache file with an entry for an empty Source.java with no violations
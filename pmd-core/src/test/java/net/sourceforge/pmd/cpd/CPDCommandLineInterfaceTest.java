@@ -8,6 +8,7 @@ import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+import org.junit.contrib.java.lang.system.SystemErrRule;
 import org.junit.contrib.java.lang.system.SystemOutRule;
 import org.junit.rules.TestRule;
 
@@ -16,6 +17,8 @@ public class CPDCommandLineInterfaceTest {
     public final TestRule restoreSystemProperties = new RestoreSystemProperties();
     @Rule
     public final SystemOutRule log = new SystemOutRule().enableLog();
+    @Rule
+    public final SystemErrRule errLog = new SystemErrRule().enableLog().mute();
 
     @Test
     public void testEmptyResultRendering() {
@@ -24,4 +27,16 @@ public class CPDCommandLineInterfaceTest {
             "src/test/resources/net/sourceforge/pmd/cpd/files/", "--format", "xml", });
         Assert.assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + "\n" + "<pmd-cpd/>", log.getLog());
     }
+
+    @Test
+    public void testJsonBenchmark() {
+        System.setProperty(CPDCommandLineInterface.NO_EXIT_AFTER_RUN, "true");
+        CPDCommandLineInterface.main(new String[] { "--minimum-tokens", "10", "--language", "java", "--files",
+            "src/test/resources/net/sourceforge/pmd/cpd/files/", "--format", "xml", "--benchmark", "--benchmark-format", "json", });
+        String benchmark = errLog.getLog();
+        Assert.assertTrue(benchmark, benchmark.contains("\"CPD_TOKENIZATION\""));
+        Assert.assertTrue(benchmark, benchmark.contains("\"CPD_HASHING\""));
+        Assert.assertTrue(benchmark, benchmark.contains("\"Mark groups of size 2\""));
+        Assert.assertTrue(benchmark, benchmark.contains("\"REPORTING\""));
+    }
 }
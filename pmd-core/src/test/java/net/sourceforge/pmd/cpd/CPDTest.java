@@ -5,13 +5,20 @@
 package net.sourceforge.pmd.cpd;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Iterator;
 
 import org.apache.commons.lang3.SystemUtils;
 import org.junit.Assert;
 import org.junit.Assume;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.cpd.renderer.CPDStreamingRenderer;
 
 /**
  * Unit test for {@link CPD}
@@ -21,6 +28,9 @@ public class CPDTest {
     private static final String BASE_TEST_RESOURCE_PATH = "src/test/resources/net/sourceforge/pmd/cpd/files/";
     private static final String TARGET_TEST_RESOURCE_PATH = "target/classes/net/sourceforge/pmd/cpd/files/";
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     private CPD cpd;
 
     // Symlinks are not well supported under Windows - so the tests are
@@ -130,6 +140,207 @@ public class CPDTest {
         }
     }
 
+    @Test
+    public void testMaxDuplications() throws Exception {
+        CPDConfiguration config = new CPDConfiguration();
+        config.setLanguage(new AnyLanguage("any"));
+        config.setMinimumTileSize(3);
+        config.setMaxDuplications(1);
+        config.postContruct();
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        cpd.go();
+
+        Iterator<Match> matches = cpd.getMatches();
+        Assert.assertTrue(matches.hasNext());
+        Assert.assertEquals(8, matches.next().getTokenCount());
+        Assert.assertFalse(matches.hasNext());
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        cpd = new CPD(streamingConfig(0));
+        addDuplications(cpd);
+        StringWriter writer = new StringWriter();
+        int count = cpd.go(new CSVRenderer(), writer);
+
+        Assert.assertEquals(2, count);
+        Assert.assertEquals(3, writer.toString().split("\\R").length);
+        Assert.assertFalse(cpd.getMatches().hasNext());
+    }
+
+    @Test
+    public void testStreamingRethrowsTheIOExceptionOfTheRenderer() throws Exception {
+        cpd = new CPD(streamingConfig(0));
+        addDuplications(cpd);
+        final IOException failure = new IOException("disk full");
+        final int[] rendered = {0};
+        CPDStreamingRenderer renderer = new CSVRenderer() {
+            @Override
+            public void renderMatch(Match match, Writer writer) throws IOException {
+                rendered[0]++;
+                throw failure;
+            }
+        };
+
+        try {
+            cpd.go(renderer, new StringWriter());
+            Assert.fail("Expected an IOException");
+        } catch (IOException e) {
+            Assert.assertSame(failure, e);
+        }
+        Assert.assertEquals("The rendering stops at the first failure", 1, rendered[0]);
+    }
+
+    @Test
+    public void testStreamingMinimumLines() throws Exception {
+        cpd = new CPD(streamingConfig(2));
+        addDuplications(cpd);
+        StringWriter writer = new StringWriter();
+        int count = cpd.go(new CSVRenderer(), writer);
+
+        Assert.assertEquals(1, count);
+        Assert.assertTrue(writer.toString().contains(",8,2,"));
+    }
+
+    @Test
+    public void testBaselineReportsOnlyNewDuplications() throws Exception {
+        File baseline = new File(tempFolder.getRoot(), "cpd-baseline.txt");
+        CPDConfiguration config = streamingConfig(0);
+        config.setBaselineFile(baseline);
+        config.setUpdateBaseline(true);
+
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        Assert.assertEquals(2, cpd.go(new CSVRenderer(), new StringWriter()));
+        Assert.assertTrue(baseline.isFile());
+
+        // the known duplications moved, and there is a new one
+        cpd = new CPD(config);
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("\n\na b c d\ne f g h\nx y z\n", "first.txt")));
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nu v w\nx y z\n", "second.txt")));
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("k l m n o\nk l m n o\n", "third.txt")));
+        cpd.go();
+        Iterator<Match> matches = cpd.getMatches();
+        Assert.assertTrue(matches.hasNext());
+        Assert.assertEquals("third.txt", matches.next().getFirstMark().getFilename());
+        Assert.assertFalse(matches.hasNext());
+
+        // the baseline was updated with the new duplication
+        cpd = new CPD(config);
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("k l m n o\nk l m n o\n", "third.txt")));
+        cpd.go();
+        Assert.assertFalse(cpd.getMatches().hasNext());
+    }
+
+    @Test
+    public void testBaselineRecordsDuplicationsBelowMinimumLines() throws Exception {
+        File baseline = new File(tempFolder.getRoot(), "cpd-baseline.txt");
+        CPDConfiguration config = streamingConfig(2);
+        config.setBaselineFile(baseline);
+        config.setUpdateBaseline(true);
+
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        Assert.assertEquals(1, cpd.go(new CSVRenderer(), new StringWriter()));
+
+        // lowering the minimum line count doesn't make the smaller duplication new
+        config = streamingConfig(0);
+        config.setBaselineFile(baseline);
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        Assert.assertEquals(0, cpd.go(new CSVRenderer(), new StringWriter()));
+    }
+
+    @Test
+    public void testBaselineNewCopyOfKnownDuplication() throws Exception {
+        File baseline = new File(tempFolder.getRoot(), "cpd-baseline.txt");
+        CPDConfiguration config = streamingConfig(2);
+        config.setBaselineFile(baseline);
+        config.setUpdateBaseline(true);
+
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        cpd.go();
+        Assert.assertTrue(cpd.getMatches().hasNext());
+
+        config.setUpdateBaseline(false);
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\n", "third.txt")));
+        cpd.go();
+        Iterator<Match> matches = cpd.getMatches();
+        Assert.assertTrue(matches.hasNext());
+        Assert.assertEquals(3, matches.next().getMarkCount());
+    }
+
+    @Test
+    public void testTokenCache() throws Exception {
+        File cacheFile = new File(tempFolder.getRoot(), "cpd-tokens.cache");
+        CPDConfiguration config = streamingConfig(0);
+        config.setTokenCacheFile(cacheFile);
+
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        Assert.assertEquals(2, cpd.go(new CSVRenderer(), new StringWriter()));
+        Assert.assertTrue(cacheFile.isFile());
+
+        TokenCache tokenCache = new TokenCache(cacheFile, TokenCache.signature(config));
+        SourceCode first = new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nx y z\n", "first.txt"));
+        SourceCode changed = new SourceCode(new SourceCode.StringCodeLoader("a b c d\n", "first.txt"));
+        Tokens cachedTokens = new Tokens();
+        Assert.assertFalse(tokenCache.addCachedTokens("first.txt", TokenCache.checksum(changed), cachedTokens));
+        Assert.assertTrue(tokenCache.addCachedTokens("first.txt", TokenCache.checksum(first), cachedTokens));
+        Tokens tokens = new Tokens();
+        config.tokenizer().tokenize(first, tokens);
+        Assert.assertEquals(tokens.size(), cachedTokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenEntry expected = tokens.getTokens().get(i);
+            TokenEntry actual = cachedTokens.getTokens().get(i);
+            Assert.assertEquals(expected.toString(), actual.toString());
+            Assert.assertEquals(expected.getBeginLine(), actual.getBeginLine());
+            Assert.assertEquals(expected.getBeginColumn(), actual.getBeginColumn());
+            Assert.assertEquals(expected.getEndColumn(), actual.getEndColumn());
+        }
+
+        // a file changed since the cache was written
+        cpd = new CPD(config);
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nx y z\n", "first.txt")));
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\n", "second.txt")));
+        Assert.assertEquals(1, cpd.go(new CSVRenderer(), new StringWriter()));
+    }
+
+    @Test
+    public void testTokenCacheOtherTokenizerOptions() throws Exception {
+        File cacheFile = new File(tempFolder.getRoot(), "cpd-tokens.cache");
+        CPDConfiguration config = streamingConfig(0);
+        config.setTokenCacheFile(cacheFile);
+        cpd = new CPD(config);
+        addDuplications(cpd);
+        cpd.go();
+
+        config.setIgnoreLiterals(true);
+        TokenCache tokenCache = new TokenCache(cacheFile, TokenCache.signature(config));
+        SourceCode first = new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nx y z\n", "first.txt"));
+        Assert.assertFalse(tokenCache.addCachedTokens("first.txt", TokenCache.checksum(first), new Tokens()));
+    }
+
+    private static CPDConfiguration streamingConfig(int minimumLines) {
+        CPDConfiguration config = new CPDConfiguration();
+        config.setLanguage(new AnyLanguage("any"));
+        config.setMinimumTileSize(3);
+        config.setMinimumLineCount(minimumLines);
+        config.setStreaming(true);
+        config.postContruct();
+        return config;
+    }
+
+    private static void addDuplications(CPD cpd) throws IOException {
+        // a duplication of 8 tokens over 2 lines and one of 3 tokens on a single line
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nx y z\n", "first.txt")));
+        cpd.add(new SourceCode(new SourceCode.StringCodeLoader("a b c d\ne f g h\nu v w\nx y z\n", "second.txt")));
+    }
+
     /**
      * Simple listener that fails, if too many files were added and not skipped.
      */
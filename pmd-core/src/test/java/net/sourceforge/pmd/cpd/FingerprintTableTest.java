@@ -0,0 +1,59 @@
+/**
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.cpd;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FingerprintTableTest {
+
+    @Test
+    public void testGroupsInAscendingOrder() {
+        List<TokenEntry> code = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            code.add(new TokenEntry("t" + i, "Foo", 1, i + 1, i + 1));
+        }
+
+        FingerprintTable table = new FingerprintTable(code.size());
+        long[] fingerprints = {7L, Long.MIN_VALUE, 7L, 3L, Long.MIN_VALUE, 7L};
+        for (int i = code.size() - 1; i >= 0; i--) {
+            table.add(fingerprints[i], i);
+        }
+
+        List<List<TokenEntry>> groups = new ArrayList<>();
+        for (int slot = table.nextGroup(0); slot >= 0; slot = table.nextGroup(slot + 1)) {
+            List<TokenEntry> group = new ArrayList<>();
+            table.addGroupTo(slot, code, group);
+            groups.add(group);
+        }
+
+        assertEquals(2, groups.size());
+        for (List<TokenEntry> group : groups) {
+            if (group.size() == 3) {
+                assertEquals(code.get(0), group.get(0));
+                assertEquals(code.get(2), group.get(1));
+                assertEquals(code.get(5), group.get(2));
+            } else {
+                assertEquals(2, group.size());
+                assertEquals(code.get(1), group.get(0));
+                assertEquals(code.get(4), group.get(1));
+            }
+        }
+    }
+
+    @Test
+    public void testManyDistinctFingerprints() {
+        int size = 10000;
+        FingerprintTable table = new FingerprintTable(size);
+        for (int i = size - 1; i >= 0; i--) {
+            table.add(i * 31L, i);
+        }
+        assertEquals(-1, table.nextGroup(0));
+    }
+}
@@ -222,6 +222,43 @@ public class XMLRendererTest {
         assertTrue(report.contains("x=\"]]]]><![CDATA[>\";"));
     }
 
+    @Test
+    public void testStreamingEquivalentToDom() throws Exception {
+        String codefragment = "code fragment\nx=\"]]>\";";
+        Mark mark1 = createMark("public", "/var/A<oo.java", 48, 6, codefragment, 2, 3);
+        Mark mark2 = createMark("void", "/var/B\"oo.java", 73, 6, codefragment, 4, 5);
+        Match match = new Match(75, mark1, mark2);
+
+        XMLRenderer renderer = new XMLRenderer();
+        StringWriter sw = new StringWriter();
+        renderer.start(sw);
+        renderer.renderMatch(match, sw);
+        renderer.end(sw);
+        Document streamed = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(sw.toString().getBytes(ENCODING)));
+
+        List<Match> list = new ArrayList<>();
+        list.add(match);
+        Document dom = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(renderer.render(list.iterator()).getBytes(ENCODING)));
+
+        String domOutput = renderer.render(list.iterator());
+        assertEquals(domOutput.substring(0, domOutput.indexOf("?>") + 2),
+                sw.toString().substring(0, sw.toString().indexOf("?>") + 2));
+        assertEquals("pmd-cpd", streamed.getDocumentElement().getNodeName());
+        NodeList streamedFiles = streamed.getElementsByTagName("file");
+        NodeList domFiles = dom.getElementsByTagName("file");
+        assertEquals(domFiles.getLength(), streamedFiles.getLength());
+        for (int i = 0; i < domFiles.getLength(); i++) {
+            for (String attribute : new String[] {"line", "endline", "column", "endcolumn", "path"}) {
+                assertEquals(domFiles.item(i).getAttributes().getNamedItem(attribute).getNodeValue(),
+                        streamedFiles.item(i).getAttributes().getNamedItem(attribute).getNodeValue());
+            }
+        }
+        assertEquals(dom.getElementsByTagName("codefragment").item(0).getTextContent(),
+                streamed.getElementsByTagName("codefragment").item(0).getTextContent());
+    }
+
     private Mark createMark(String image, String tokenSrcID, int beginLine, int lineCount, String code) {
         Mark result = new Mark(new TokenEntry(image, tokenSrcID, beginLine));
 
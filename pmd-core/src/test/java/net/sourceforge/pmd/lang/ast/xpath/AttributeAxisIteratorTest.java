@@ -7,6 +7,7 @@ package net.sourceforge.pmd.lang.ast.xpath;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -71,6 +72,51 @@ public class AttributeAxisIteratorTest {
         assertFalse(atts.containsKey("NodeList"));
     }
 
+    @Test
+    public void testAttributeValuesReadThroughAccessors() {
+        DummyNode dummyNode = new DummyNode(1);
+        dummyNode.testingOnlySetBeginLine(1000);
+        dummyNode.testingOnlySetEndLine(1000);
+
+        Map<String, Attribute> atts = toMap(new AttributeAxisIterator(dummyNode));
+        Attribute beginLine = atts.get("BeginLine");
+        assertTrue(beginLine.getAccessor().hasIntValue());
+        assertEquals(1000, beginLine.getAccessor().getInt(dummyNode));
+        assertEquals("1000", beginLine.getStringValue());
+        assertEquals(1000, beginLine.getValue());
+
+        Attribute singleLine = atts.get("SingleLine");
+        assertTrue(singleLine.getAccessor().hasBooleanValue());
+        assertEquals("true", singleLine.getStringValue());
+        assertEquals(true, singleLine.getValue());
+
+        Attribute image = atts.get("Image");
+        assertFalse(image.getAccessor().hasIntValue());
+        assertEquals("", image.getStringValue());
+        assertNull(image.getValue());
+    }
+
+    @Test
+    public void testAttributeWithFailingGetter() {
+        DummyNodeWithFailingGetter dummyNode = new DummyNodeWithFailingGetter(1);
+
+        Map<String, Attribute> atts = toMap(new AttributeAxisIterator(dummyNode));
+        assertNull(atts.get("Failing").getValue());
+        assertEquals("", atts.get("Failing").getStringValue());
+    }
+
+    @Test
+    public void testPrimitiveAttributesWithFailingGetter() {
+        DummyNodeWithFailingGetter dummyNode = new DummyNodeWithFailingGetter(1);
+
+        Map<String, Attribute> atts = toMap(new AttributeAxisIterator(dummyNode));
+        // not "false" nor "0", which would match comparisons
+        assertEquals("", atts.get("FailingBoolean").getStringValue());
+        assertEquals("", atts.get("FailingInt").getStringValue());
+        assertNull(atts.get("FailingBoolean").getValue());
+        assertNull(atts.get("FailingInt").getValue());
+    }
+
     private Map<String, Attribute> toMap(AttributeAxisIterator it) {
         Map<String, Attribute> atts = new HashMap<>();
         while (it.hasNext()) {
@@ -109,4 +155,23 @@ public class AttributeAxisIteratorTest {
             return Collections.emptyList();
         }
     }
+
+    public static class DummyNodeWithFailingGetter extends DummyNode {
+
+        public DummyNodeWithFailingGetter(int id) {
+            super(id);
+        }
+
+        public String getFailing() {
+            throw new IllegalStateException("failing attribute");
+        }
+
+        public boolean isFailingBoolean() {
+            throw new IllegalStateException("failing attribute");
+        }
+
+        public int getFailingInt() {
+            throw new IllegalStateException("failing attribute");
+        }
+    }
 }
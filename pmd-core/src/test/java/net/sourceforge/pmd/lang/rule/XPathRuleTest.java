@@ -8,6 +8,8 @@ import static java.util.Collections.singletonList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Arrays;
+
 import org.hamcrest.Matchers;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -90,6 +92,20 @@ public class XPathRuleTest {
         assertThat(log, Matchers.containsString("Use of deprecated attribute 'dummyNode/@List' by XPath rule 'OtherTestRuleWithListAccess' (in ruleset 'rset.xml')"));
     }
 
+    @Test
+    public void testRequiredNodesMergesAddedNodes() {
+        XPathRule rule = new XPathRule(XPathVersion.XPATH_2_0, "//dummyNode[@Image = 'a']");
+        rule.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        rule.addRequiredNode("otherNode");
+        assertEquals(Arrays.asList("otherNode", "dummyNode"), rule.getRequiredNodes());
+
+        // the nodes can't be inferred from this query
+        XPathRule anyNode = new XPathRule(XPathVersion.XPATH_2_0, "//*[@Image = 'a']");
+        anyNode.setLanguage(LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+        anyNode.addRequiredNode("otherNode");
+        assertEquals(singletonList("otherNode"), anyNode.getRequiredNodes());
+    }
+
 
     private XPathRule makeRuleWithList(String name) {
         XPathRule xpr = new XPathRule(XPathVersion.XPATH_2_0, "//dummyNode[@List = 'A']");
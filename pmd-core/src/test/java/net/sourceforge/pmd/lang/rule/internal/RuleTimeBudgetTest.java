@@ -0,0 +1,138 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.cache.FileAnalysisCache;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.rule.MockRule;
+
+public class RuleTimeBudgetTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final AtomicInteger applications = new AtomicInteger();
+
+    private final RuleSets ruleSets = new RuleSets(RuleSet.forSingleRule(new MockRule("SlowRule", "desc", "msg", "rulesetname") {
+        @Override
+        public void apply(List<? extends Node> nodes, RuleContext ctx) {
+            applications.incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }));
+
+    private void apply(RuleContext ctx, File file) {
+        ctx.setReport(new Report());
+        ctx.setSourceCodeFile(file);
+        ctx.setLanguageVersion(LanguageRegistry.getLanguage(DummyLanguageModule.NAME).getDefaultVersion());
+        ruleSets.apply(Collections.<Node>singletonList(new DummyNode(1)), ctx,
+                       LanguageRegistry.getLanguage(DummyLanguageModule.NAME));
+    }
+
+    @Test
+    public void testNoBudget() {
+        assertNull(RuleTimeBudget.create(new PMDConfiguration(), ruleSets, new Report()));
+    }
+
+    @Test
+    public void testCumulativeBudget() {
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setRuleTimeBudget(10);
+
+        RuleContext ctx = new RuleContext();
+        ctx.setRuleTimeBudget(RuleTimeBudget.create(configuration, ruleSets, ctx.getReport()));
+
+        apply(ctx, new File("Foo.dummy"));
+        assertEquals(1, applications.get());
+        assertEquals(1, ctx.getReport().getConfigurationErrors().size());
+        assertTrue(ctx.getReport().getConfigurationErrors().get(0).issue().contains("disabled for the rest of the analysis"));
+
+        // shared by the copies of the context
+        RuleContext copy = new RuleContext(ctx);
+        apply(copy, new File("Bar.dummy"));
+        assertEquals(1, applications.get());
+        assertTrue(copy.getReport().getConfigurationErrors().isEmpty());
+    }
+
+    @Test
+    public void testBudgetsAreRecordedInCache() throws IOException {
+        File cacheFile = new File(tempFolder.getRoot(), "pmd-analysis.cache");
+        File sourceFile = tempFolder.newFile("Foo.dummy");
+
+        PMDConfiguration configuration = analyze(cacheFile, sourceFile, 10, 10);
+        assertEquals(1, applications.get());
+        configuration.getAnalysisCache().persist();
+
+        // the file changed, but the rule is skipped from the start
+        Files.write(sourceFile.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+        analyze(cacheFile, sourceFile, 10, 0);
+        assertEquals(1, applications.get());
+        analyze(cacheFile, sourceFile, 0, 10);
+        assertEquals(1, applications.get());
+
+        // unless the budget is larger now
+        analyze(cacheFile, sourceFile, 100, 100);
+        assertEquals(2, applications.get());
+    }
+
+    @Test
+    public void testSkippedFilesAreNotUpToDate() throws IOException {
+        File cacheFile = new File(tempFolder.getRoot(), "pmd-analysis.cache");
+        File sourceFile = tempFolder.newFile("Foo.dummy");
+
+        analyze(cacheFile, sourceFile, 10, 0).getAnalysisCache().persist();
+        analyze(cacheFile, sourceFile, 10, 0).getAnalysisCache().persist();
+        assertEquals(1, applications.get());
+
+        // the results of the run which skipped the rule are not replayed without budget
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setAnalysisCache(new FileAnalysisCache(cacheFile));
+        configuration.getAnalysisCache().checkValidity(ruleSets, configuration.getClassLoader());
+        assertFalse(configuration.getAnalysisCache().isUpToDate(sourceFile));
+    }
+
+    private PMDConfiguration analyze(File cacheFile, File sourceFile, long budget, long fileBudget) {
+        PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setAnalysisCache(new FileAnalysisCache(cacheFile));
+        configuration.setRuleTimeBudget(budget);
+        configuration.setRuleFileTimeBudget(fileBudget);
+        configuration.getAnalysisCache().checkValidity(ruleSets, configuration.getClassLoader());
+
+        RuleContext ctx = new RuleContext();
+        ctx.setRuleTimeBudget(RuleTimeBudget.create(configuration, ruleSets, ctx.getReport()));
+        configuration.getAnalysisCache().isUpToDate(sourceFile);
+        apply(ctx, sourceFile);
+        return configuration;
+    }
+}
@@ -4,6 +4,7 @@
 
 package net.sourceforge.pmd.lang.rule.xpath;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -142,4 +143,19 @@ public class JaxenXPathRuleQueryTest {
         query.setXPath(xpath);
         return query;
     }
+
+    @Test
+    public void requiredNodes() {
+        JaxenXPathRuleQuery query = createQuery("//dummyNode[//ClassOrInterfaceType]");
+        Assert.assertEquals(Arrays.asList("dummyNode"), query.getRequiredNodes());
+
+        query = createQuery("(//ForStatement | //WhileStatement)//AssignmentOperator[@Image='foo'] | //DoStatement");
+        Assert.assertEquals(Arrays.asList("AssignmentOperator", "DoStatement"), query.getRequiredNodes());
+
+        query = createQuery("//dummyNode/foo[@Baz = 'a']/*");
+        Assert.assertEquals(Collections.emptyList(), query.getRequiredNodes());
+
+        query = createQuery("//dummyNode/@Image");
+        Assert.assertEquals(Collections.emptyList(), query.getRequiredNodes());
+    }
 }
@@ -4,8 +4,11 @@
 
 package net.sourceforge.pmd.lang.rule.xpath;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +22,9 @@ import net.sourceforge.pmd.RuleContext;
 import net.sourceforge.pmd.lang.ast.DummyNode;
 import net.sourceforge.pmd.lang.ast.DummyNodeWithListAndEnum;
 import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.lang.ast.xpath.Attribute;
+import net.sourceforge.pmd.lang.ast.xpath.AttributeAxisIteratorTest.DummyNodeWithFailingGetter;
+import net.sourceforge.pmd.lang.ast.xpath.internal.DeprecatedAttrLogger;
 import net.sourceforge.pmd.properties.PropertyDescriptor;
 import net.sourceforge.pmd.properties.PropertyFactory;
 
@@ -44,6 +50,17 @@ public class SaxonXPathRuleQueryTest {
         assertQuery(0, "//dummyNode[@EmptyList = (\"A\")]", dummy);
     }
 
+    @Test
+    public void testPrimitiveAttributeWithFailingGetter() {
+        DummyNodeWithFailingGetter dummy = new DummyNodeWithFailingGetter(1);
+
+        assertQuery(0, "//dummyNode[@FailingBoolean = false()]", dummy);
+        assertQuery(0, "//dummyNode[@FailingBoolean = 'false']", dummy);
+        assertQuery(0, "//dummyNode[@FailingInt = 0]", dummy);
+        assertQuery(0, "//dummyNode[@FailingInt = '0']", dummy);
+        assertQuery(1, "//dummyNode[not(@FailingBoolean = true())]", dummy);
+    }
+
     @Test
     public void testInvalidReturn() {
         DummyNodeWithListAndEnum dummy = new DummyNodeWithListAndEnum(1);
@@ -256,4 +273,229 @@ public class SaxonXPathRuleQueryTest {
         List<String> ruleChainVisits = query.getRuleChainVisits();
         Assert.assertEquals(0, ruleChainVisits.size());
     }
+
+    @Test
+    public void ruleChainWithFilteredUnion() {
+        SaxonXPathRuleQuery query = createQuery("(//A | //B)[@Image = 'x']");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("A", "B")), new HashSet<>(query.getRuleChainVisits()));
+        Assert.assertNull(query.getRuleChainFallbackReason());
+
+        DummyNode root = new DummyNode(0, false, "root");
+        DummyNode a = new DummyNode(1, false, "A");
+        a.setImage("x");
+        DummyNode b = new DummyNode(2, false, "B");
+        b.setImage("y");
+        root.jjtAddChild(a, 0);
+        a.jjtSetParent(root);
+        root.jjtAddChild(b, 1);
+        b.jjtSetParent(root);
+
+        // the predicate applies to both components of the union
+        Assert.assertEquals(Collections.<Node>singletonList(a), query.evaluate(a, new RuleContext()));
+        Assert.assertEquals(Collections.<Node>emptyList(), query.evaluate(b, new RuleContext()));
+    }
+
+    @Test
+    public void ruleChainWithFilteredUnionAndLocalVariable() {
+        // each component of the union gets its own copy of the filter
+        SaxonXPathRuleQuery query = createQuery("(//A | //B)[some $i in (@Image, 'z') satisfies $i = 'x']");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("A", "B")), new HashSet<>(query.getRuleChainVisits()));
+
+        DummyNode root = new DummyNode(0, false, "root");
+        DummyNode a = new DummyNode(1, false, "A");
+        a.setImage("x");
+        DummyNode b = new DummyNode(2, false, "B");
+        b.setImage("x");
+        DummyNode otherB = new DummyNode(3, false, "B");
+        otherB.setImage("y");
+        root.jjtAddChild(a, 0);
+        a.jjtSetParent(root);
+        root.jjtAddChild(b, 1);
+        b.jjtSetParent(root);
+        root.jjtAddChild(otherB, 2);
+        otherB.jjtSetParent(root);
+
+        Assert.assertEquals(Collections.<Node>singletonList(a), query.evaluate(a, new RuleContext()));
+        Assert.assertEquals(Collections.<Node>singletonList(b), query.evaluate(b, new RuleContext()));
+        Assert.assertEquals(Collections.<Node>emptyList(), query.evaluate(otherB, new RuleContext()));
+    }
+
+    @Test
+    public void ruleChainWithUnionOfNames() {
+        SaxonXPathRuleQuery query = createQuery("(//A | //B)/C");
+        Assert.assertEquals(new HashSet<>(Arrays.asList("A", "B")), new HashSet<>(query.getRuleChainVisits()));
+
+        query = createQuery("reverse(//A[@Image = 'x'])");
+        Assert.assertEquals(Collections.singletonList("A"), query.getRuleChainVisits());
+    }
+
+    @Test
+    public void ruleChainFallbackReasons() {
+        SaxonXPathRuleQuery query = createQuery("(//A | //B)[1]");
+        Assert.assertEquals(0, query.getRuleChainVisits().size());
+        Assert.assertNotNull(query.getRuleChainFallbackReason());
+
+        query = createQuery("(//ForStatement | //WhileStatement)//AssignmentOperator");
+        Assert.assertEquals(0, query.getRuleChainVisits().size());
+        Assert.assertNotNull(query.getRuleChainFallbackReason());
+
+        query = createQuery("count(//A) > 1");
+        Assert.assertEquals(0, query.getRuleChainVisits().size());
+        Assert.assertNotNull(query.getRuleChainFallbackReason());
+    }
+
+    @Test
+    public void xpath10RulesHaveJaxenSemantics() {
+        DummyNode node = new DummyNode(1, true);
+        node.setImage("foo");
+
+        // attributes are compared as strings, and PMD functions don't need a prefix
+        SaxonXPathRuleQuery query = createQuery("//dummyNode[@FindBoundary = 'true' and matches(@Image, '^f')]");
+        query.setVersion(XPathRuleQuery.XPATH_1_0);
+        Assert.assertTrue(query.isCompilable());
+        Assert.assertEquals(1, query.evaluate(node, new RuleContext()).size());
+
+        // the string 'true' is not a number, while the boolean true is 1
+        query = createQuery("//dummyNode[@FindBoundary = 1]");
+        query.setVersion(XPathRuleQuery.XPATH_1_0);
+        Assert.assertEquals(0, query.evaluate(node, new RuleContext()).size());
+        query = createQuery("//dummyNode[@FindBoundary = 1]");
+        query.setVersion(XPathRuleQuery.XPATH_1_0_COMPATIBILITY);
+        Assert.assertEquals(1, query.evaluate(node, new RuleContext()).size());
+
+        // the root of Jaxen is the root node, not a document
+        query = createQuery("/dummyNode");
+        query.setVersion(XPathRuleQuery.XPATH_1_0);
+        Assert.assertFalse(query.isCompilable());
+
+        query = createQuery("//dummyNode[getCommentOn()]");
+        query.setVersion(XPathRuleQuery.XPATH_1_0);
+        Assert.assertFalse(query.isCompilable());
+    }
+
+    @Test
+    public void requiredNodes() {
+        SaxonXPathRuleQuery query = createQuery("//dummyNode[//ClassOrInterfaceType]");
+        Assert.assertEquals(Arrays.asList("dummyNode"), query.getRequiredNodes());
+
+        query = createQuery("(//ForStatement | //WhileStatement)//AssignmentOperator[@Image='foo'] | //DoStatement");
+        Assert.assertEquals(Arrays.asList("AssignmentOperator", "DoStatement"), query.getRequiredNodes());
+
+        query = createQuery("//dummyNode/foo[@Baz = 'a']/*");
+        Assert.assertEquals(Collections.emptyList(), query.getRequiredNodes());
+
+        query = createQuery("//dummyNode/@Image");
+        Assert.assertEquals(Collections.emptyList(), query.getRequiredNodes());
+    }
+
+    @Test
+    public void compiledQueriesAreSharedAcrossPropertyValues() {
+        PropertyDescriptor<String> image = PropertyFactory.stringProperty("image").desc("test").defaultValue("a").build();
+        SaxonXPathRuleQuery queryA = createQuery("//dummyNode[@Image = $image]", image);
+        SaxonXPathRuleQuery queryB = createQuery("//dummyNode[@Image = $image]");
+        queryB.setProperties(Collections.<PropertyDescriptor<?>, Object>singletonMap(image, "b"));
+
+        DummyNode dummy = new DummyNode(1);
+        dummy.setImage("b");
+        Assert.assertEquals(0, queryA.evaluate(dummy, new RuleContext()).size());
+        Assert.assertEquals(1, queryB.evaluate(dummy, new RuleContext()).size());
+        Assert.assertSame(queryA.xpathExpression, queryB.xpathExpression);
+        Assert.assertSame(queryA.nodeNameToXPaths, queryB.nodeNameToXPaths);
+    }
+
+    @Test
+    public void predicatesAreSharedAcrossQueries() {
+        SaxonXPathRuleQuery queryA = createQuery("//dummyNode[@Image = 'a']");
+        SaxonXPathRuleQuery queryB = createQuery("//dummyNode[@Image = 'b']");
+        SaxonXPathRuleQuery queryC = createQuery("//dummyNode[@OldImage = 'a' and @Image = 'a']/foo");
+        RecordingAttrLogger loggerD = new RecordingAttrLogger();
+        SaxonXPathRuleQuery queryD = createQuery(loggerD, "//dummyNode[@OldImage = 'a' and @Image = 'a']");
+        DummyNode root = new DummyNode(0, false, "root");
+        DummyNodeWithDeprecatedAttribute dummy = new DummyNodeWithDeprecatedAttribute();
+        dummy.setImage("a");
+        root.jjtAddChild(dummy, 0);
+        dummy.jjtSetParent(root);
+        DummyNode foo = new DummyNode(2, false, "foo");
+        dummy.jjtAddChild(foo, 0);
+        foo.jjtSetParent(dummy);
+
+        // a predicate which differs only by a literal is not shared
+        Assert.assertEquals(Collections.singletonList(dummy), queryA.evaluate(dummy, new RuleContext()));
+        Assert.assertEquals(Collections.emptyList(), queryB.evaluate(dummy, new RuleContext()));
+        Assert.assertEquals(Collections.<Node>singletonList(foo), queryC.evaluate(dummy, new RuleContext()));
+        Assert.assertNotNull(queryA.nodeNameToPlans.get("dummyNode").get(0));
+        Assert.assertNotNull(queryC.nodeNameToPlans.get("dummyNode").get(0));
+
+        // both predicates were evaluated for queryC, the deprecated attribute is still reported
+        Assert.assertEquals(Collections.singletonList(dummy), queryD.evaluate(dummy, new RuleContext()));
+        Assert.assertEquals(Collections.singletonList("OldImage"), loggerD.usages);
+    }
+
+    @Test
+    public void sharedPredicatesAreEvaluatedOncePerNode() {
+        // the usages of a non-deprecated attribute are only recorded when it is read
+        RecordingAttrLogger loggerA = new RecordingAttrLogger();
+        RecordingAttrLogger loggerB = new RecordingAttrLogger();
+        SaxonXPathRuleQuery queryA = createQuery(loggerA, "//dummyNode[@Image = 'a']");
+        SaxonXPathRuleQuery queryB = createQuery(loggerB, "//dummyNode[@Image = 'a']/foo");
+
+        List<DummyNode> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DummyNode dummy = new DummyNode(1);
+            dummy.setImage("a");
+            files.add(dummy);
+        }
+
+        // alternate the documents, whose predicate ids are distinct
+        for (DummyNode dummy : files) {
+            Assert.assertEquals(Collections.<Node>singletonList(dummy), queryA.evaluate(dummy, new RuleContext()));
+            Assert.assertEquals(Collections.emptyList(), queryB.evaluate(dummy, new RuleContext()));
+        }
+        Assert.assertEquals(Collections.nCopies(files.size(), "Image"), loggerA.usages);
+        Assert.assertEquals(Collections.emptyList(), loggerB.usages);
+        Assert.assertNotSame(queryA.nodeNameToPlans.get("dummyNode").get(0),
+                             queryB.nodeNameToPlans.get("dummyNode").get(0));
+    }
+
+    @Test
+    public void predicatesWithVariablesAreNotShared() {
+        PropertyDescriptor<String> image = PropertyFactory.stringProperty("image").desc("test").defaultValue("a").build();
+        SaxonXPathRuleQuery queryA = createQuery("//dummyNode[@Image = $image]", image);
+        SaxonXPathRuleQuery queryB = createQuery("//dummyNode[@Image = $image]");
+        queryB.setProperties(Collections.<PropertyDescriptor<?>, Object>singletonMap(image, "b"));
+
+        DummyNode dummy = new DummyNode(1);
+        dummy.setImage("a");
+        Assert.assertEquals(1, queryA.evaluate(dummy, new RuleContext()).size());
+        Assert.assertEquals(0, queryB.evaluate(dummy, new RuleContext()).size());
+    }
+
+    private static SaxonXPathRuleQuery createQuery(DeprecatedAttrLogger logger, String xpath) {
+        SaxonXPathRuleQuery query = new SaxonXPathRuleQuery(logger);
+        query.setVersion(XPathRuleQuery.XPATH_2_0);
+        query.setProperties(Collections.<PropertyDescriptor<?>, Object>emptyMap());
+        query.setXPath(xpath);
+        return query;
+    }
+
+    private static class RecordingAttrLogger extends DeprecatedAttrLogger {
+        private final List<String> usages = new ArrayList<>();
+
+        @Override
+        public void recordUsageOf(Attribute attribute) {
+            usages.add(attribute.getName());
+        }
+    }
+
+    public static class DummyNodeWithDeprecatedAttribute extends DummyNode {
+
+        public DummyNodeWithDeprecatedAttribute() {
+            super(1);
+        }
+
+        @Deprecated
+        public String getOldImage() {
+            return getImage();
+        }
+    }
 }
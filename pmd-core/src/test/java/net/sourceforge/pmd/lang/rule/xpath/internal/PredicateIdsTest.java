@@ -0,0 +1,37 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.rule.xpath.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.sf.saxon.expr.Expression;
+import net.sf.saxon.sxpath.XPathEvaluator;
+import net.sf.saxon.trans.XPathException;
+
+public class PredicateIdsTest {
+
+    @Test
+    public void testStructurallyEqualPredicatesShareTheirId() throws XPathException {
+        PredicateIds ids = new PredicateIds();
+        int id = ids.getId(key("2.0", "dummyNode", "@Image = 'a'"));
+        Assert.assertEquals(id, ids.getId(key("2.0", "dummyNode", "@Image = 'a'")));
+        Assert.assertNotEquals(id, ids.getId(key("2.0", "dummyNode", "@Image = 'b'")));
+        Assert.assertNotEquals(id, ids.getId(key("2.0", "dummyNode", "'a' = @Image")));
+        Assert.assertNotEquals(id, ids.getId(key("1.0", "dummyNode", "@Image = 'a'")));
+        // the local variables are compared up to their renaming
+        String some = "some $x in @Image satisfies $x = 'a'";
+        Assert.assertEquals(ids.getId(key("2.0", "dummyNode", some)), ids.getId(key("2.0", "dummyNode", some.replace("$x", "$y"))));
+        Assert.assertNotEquals(ids.getId(key("2.0", "dummyNode", some)),
+            ids.getId(key("2.0", "dummyNode", "every $x in @Image satisfies $x = 'a'")));
+        // the ids are dense for each node name
+        Assert.assertEquals(0, ids.getId(key("2.0", "otherNode", "@Image = 'a'")));
+    }
+
+    private static PredicateIds.Key key(String version, String nodeName, String xpath) throws XPathException {
+        Expression expression = new XPathEvaluator().createExpression(xpath).getInternalExpression();
+        return new PredicateIds.Key(version, nodeName, expression);
+    }
+}
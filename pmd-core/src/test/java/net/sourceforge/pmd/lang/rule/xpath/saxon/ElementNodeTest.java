@@ -4,13 +4,20 @@
 
 package net.sourceforge.pmd.lang.rule.xpath.saxon;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import net.sourceforge.pmd.lang.ast.DummyNode;
+import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.DocumentNode;
 import net.sourceforge.pmd.lang.ast.xpath.saxon.ElementNode;
 
+import net.sf.saxon.om.Axis;
+
 public class ElementNodeTest {
 
     @Test
@@ -56,4 +63,57 @@ public class ElementNodeTest {
         Assert.assertTrue(elementFoo1.compareOrder(elementFoo2) < 0);
         Assert.assertTrue(elementFoo2.compareOrder(elementFoo1) > 0);
     }
+
+    @Test
+    public void testNodesAreWrappedLazily() {
+        final List<Node> wrapped = new ArrayList<>();
+        DummyNode root = new WrapCountingNode(wrapped);
+        DummyNode left = new WrapCountingNode(wrapped);
+        DummyNode leftChild = new WrapCountingNode(wrapped);
+        DummyNode right = new WrapCountingNode(wrapped);
+        DummyNode rightChild = new WrapCountingNode(wrapped);
+        addChild(root, left, 0);
+        addChild(root, right, 1);
+        addChild(left, leftChild, 0);
+        addChild(right, rightChild, 0);
+
+        DocumentNode document = new DocumentNode(root);
+        Assert.assertEquals(Arrays.<Node>asList(root), wrapped);
+        Assert.assertTrue(document.nodeToElementNode.get(root).hasChildNodes());
+
+        ElementNode elementRightChild = document.getElementNode(rightChild);
+        Assert.assertEquals(Arrays.<Node>asList(root, left, right, rightChild), wrapped);
+        Assert.assertSame(elementRightChild, document.getElementNode(rightChild));
+        Assert.assertSame(rightChild, elementRightChild.getUnderlyingNode());
+
+        ElementNode elementLeft = (ElementNode) elementRightChild.getParent().iterateAxis(Axis.PRECEDING_SIBLING).next();
+        Assert.assertSame(document.getElementNode(left), elementLeft);
+        Assert.assertEquals(4, wrapped.size());
+
+        Assert.assertEquals(5, document.nodeToElementNode.size());
+        Assert.assertSame(leftChild, ((ElementNode) elementLeft.iterateAxis(Axis.CHILD).next()).getUnderlyingNode());
+    }
+
+    private static void addChild(DummyNode parent, DummyNode child, int index) {
+        parent.jjtAddChild(child, index);
+        child.jjtSetParent(parent);
+    }
+
+    private static class WrapCountingNode extends DummyNode {
+        private final List<Node> wrapped;
+
+        WrapCountingNode(List<Node> wrapped) {
+            super(1, false, "node");
+            this.wrapped = wrapped;
+        }
+
+        @Override
+        public String getXPathNodeName() {
+            // the wrapper asks the name of the node once, when it is created
+            if (!wrapped.contains(this)) {
+                wrapped.add(this);
+            }
+            return super.getXPathNodeName();
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.cache.AnalysisCache;
+import net.sourceforge.pmd.lang.DummyLanguageModule;
+import net.sourceforge.pmd.lang.Language;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+
+public class MemoryAdmissionTest {
+
+    private final Language language = LanguageRegistry.getLanguage(DummyLanguageModule.NAME);
+
+    @Test
+    public void testLearnRatios() {
+        final MemoryAdmission admission = new MemoryAdmission(1000, Collections.<String, Double>emptyMap());
+        assertEquals((long) (10 * MemoryAdmission.DEFAULT_RATIO), admission.estimate(language, 10));
+
+        admission.record(language, 2048, 2048 * 100);
+        assertEquals(1000, admission.estimate(language, 10));
+        admission.record(language, 2048, 2048 * 200);
+        assertEquals(1100, admission.estimate(language, 10));
+
+        // small files and unsupported measurements are ignored
+        admission.record(language, 10, 10 * 10000);
+        admission.record(language, 2048, 0);
+        assertEquals(1100, admission.estimate(language, 10));
+
+        final AnalysisCache cache = mock(AnalysisCache.class);
+        admission.saveRatios(cache);
+        verify(cache).setMemoryRatio(language.getName(), 110.0);
+    }
+
+    @Test
+    public void testMeasureASampleOfTheFiles() {
+        final MemoryAdmission admission = new MemoryAdmission(1000, Collections.<String, Double>emptyMap());
+        assertFalse(admission.shouldMeasure(language, 10));
+        assertFalse(admission.shouldMeasure(null, 2048));
+        // the first files of a language without a ratio, then one file in 20
+        int measured = 0;
+        for (int i = 0; i < 100; i++) {
+            if (admission.shouldMeasure(language, 2048)) {
+                measured++;
+            }
+        }
+        assertEquals(10 + 4, measured);
+
+        final MemoryAdmission learned = new MemoryAdmission(1000, Collections.singletonMap(language.getName(), 100.0));
+        measured = 0;
+        for (int i = 0; i < 100; i++) {
+            if (learned.shouldMeasure(language, 2048)) {
+                measured++;
+            }
+        }
+        assertEquals(5, measured);
+    }
+
+    @Test
+    public void testLargeFileWaitsForFilesInProgress() throws InterruptedException {
+        final MemoryAdmission admission = new MemoryAdmission(100, Collections.singletonMap(language.getName(), 1.0));
+        admission.acquire(60);
+
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                admission.acquire(60);
+                admitted.countDown();
+            }
+        });
+        thread.start();
+
+        assertFalse("Admitted over the budget", admitted.await(200, TimeUnit.MILLISECONDS));
+        admission.release(60);
+        assertTrue("Not admitted once the memory was released", admitted.await(10, TimeUnit.SECONDS));
+        thread.join();
+        admission.release(60);
+
+        // a file over the budget is analyzed alone
+        admission.acquire(1000);
+        admission.release(1000);
+    }
+}
@@ -10,7 +10,7 @@ usage() {
 }
 
 valid_app_options () {
-    echo "pmd, cpd, cpdgui, designer, bgastviewer, designerold, ast-dump"
+    echo "pmd, cpd, cpdgui, designer, bgastviewer, designerold, ast-dump, corpus-benchmark"
 }
 
 is_cygwin() {
@@ -196,6 +196,9 @@ case "${APPNAME}" in
   "ast-dump")
     readonly CLASSNAME="net.sourceforge.pmd.util.treeexport.TreeExportCli"
     ;;
+  "corpus-benchmark")
+    readonly CLASSNAME="net.sourceforge.pmd.benchmark.CorpusBenchmark"
+    ;;
   *)
     echo "${APPNAME} is NOT a valid application name, valid options are:$(valid_app_options)"
     ;;
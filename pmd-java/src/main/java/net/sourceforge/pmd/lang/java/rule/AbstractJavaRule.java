@@ -4,7 +4,12 @@
 
 package net.sourceforge.pmd.lang.java.rule;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sourceforge.pmd.RuleContext;
 import net.sourceforge.pmd.annotation.Experimental;
@@ -142,9 +147,17 @@ import net.sourceforge.pmd.lang.java.ast.ASTYieldStatement;
 import net.sourceforge.pmd.lang.java.ast.JavaNode;
 import net.sourceforge.pmd.lang.java.ast.JavaParserVisitor;
 import net.sourceforge.pmd.lang.rule.AbstractRule;
+import net.sourceforge.pmd.lang.rule.FusedTraversalRule;
 import net.sourceforge.pmd.lang.rule.ImmutableLanguage;
 
-public abstract class AbstractJavaRule extends AbstractRule implements JavaParserVisitor, ImmutableLanguage {
+public abstract class AbstractJavaRule extends AbstractRule implements JavaParserVisitor, ImmutableLanguage, FusedTraversalRule {
+
+    private boolean fusedTraversal;
+    /** Whether the rule is being visited by the shared traversal, which visits the children. */
+    private boolean inFusedTraversal;
+    private boolean requireVisitedNodes;
+    private List<String> overriddenVisits;
+    private List<String> inferredRequiredNodes;
 
     public AbstractJavaRule() {
         super.setLanguage(LanguageRegistry.getLanguage(JavaLanguageModule.NAME));
@@ -152,6 +165,127 @@ public abstract class AbstractJavaRule extends AbstractRule implements JavaParse
         super.setTypeResolution(true);
     }
 
+    /**
+     * Lets this rule share a single traversal of the AST with the other
+     * rules, instead of walking the tree itself. Call this in the constructor
+     * of rules which don't control the descent, see {@link FusedTraversalRule}.
+     * The rule is then visited with each node whose visit method it overrides,
+     * in document order, and {@link #visit(JavaNode, Object)} doesn't visit the
+     * children of these nodes. Applying the rule directly, with {@link #apply(List, RuleContext)},
+     * still walks the whole tree.
+     *
+     * @since 6.31.0
+     */
+    @Experimental
+    protected final void useFusedTraversal() {
+        fusedTraversal = true;
+    }
+
+    /**
+     * Declares that this rule can only find violations in files which
+     * contain a node whose visit method it overrides, see {@link #getRequiredNodes()}.
+     * Call this in the constructor of rules which only report violations
+     * from these visit methods, and don't traverse the tree themselves in
+     * a way that could reach other nodes, e.g. from {@link #apply(List, RuleContext)}
+     * or a helper method.
+     *
+     * @since 6.31.0
+     */
+    @Experimental
+    protected final void requireVisitedNodes() {
+        requireVisitedNodes = true;
+    }
+
+    @Override
+    public boolean isFusedTraversal() {
+        return fusedTraversal;
+    }
+
+    @Override
+    public void visitInFusedTraversal(Node node, RuleContext ctx) {
+        inFusedTraversal = true;
+        try {
+            ((JavaNode) node).jjtAccept(this, ctx);
+        } finally {
+            inFusedTraversal = false;
+        }
+    }
+
+    @Override
+    public List<String> getFusedTraversalVisits() {
+        if (overriddenVisits == null) {
+            overriddenVisits = overriddenVisits(getClass());
+        }
+        return overriddenVisits;
+    }
+
+    /**
+     * Returns the nodes added with {@link #addRequiredNode(Class)} if any.
+     * Otherwise, if the rule called {@link #requireVisitedNodes()}, it can
+     * only find violations in files which contain a node whose visit method
+     * it overrides, and these nodes are returned. Nothing is required if the
+     * rule overrides the visit method of all nodes, {@link #apply(List, RuleContext)}
+     * or {@link #visitAll(List, RuleContext)}.
+     */
+    @Override
+    public List<String> getRequiredNodes() {
+        if (!super.getRequiredNodes().isEmpty() || !requireVisitedNodes) {
+            return super.getRequiredNodes();
+        }
+        if (inferredRequiredNodes == null) {
+            inferredRequiredNodes = overridesTraversal(getClass()) ? Collections.<String>emptyList()
+                    : getFusedTraversalVisits();
+        }
+        return inferredRequiredNodes;
+    }
+
+    private static boolean overridesTraversal(Class<?> ruleClass) {
+        for (Class<?> c = ruleClass; c != AbstractJavaRule.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (("apply".equals(method.getName()) || "visitAll".equals(method.getName()))
+                        && method.getParameterTypes().length == 2) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the XPath names of the nodes whose visit method is overridden
+     * by the given rule class, or an empty list if it overrides the visit
+     * method of all nodes.
+     */
+    static List<String> overriddenVisits(Class<?> ruleClass) {
+        Set<String> visits = new LinkedHashSet<>();
+        for (Class<?> c = ruleClass; c != AbstractJavaRule.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                Class<?>[] parameterTypes = method.getParameterTypes();
+                if (!"visit".equals(method.getName()) || method.isSynthetic() || parameterTypes.length != 2
+                        || !JavaNode.class.isAssignableFrom(parameterTypes[0])) {
+                    continue;
+                }
+                if (parameterTypes[0] == JavaNode.class) {
+                    return new ArrayList<>();
+                }
+                if (isVisitorMethod(parameterTypes[0])) {
+                    visits.add(parameterTypes[0].getSimpleName().substring("AST".length()));
+                }
+            }
+        }
+        return new ArrayList<>(visits);
+    }
+
+    private static boolean isVisitorMethod(Class<?> nodeType) {
+        try {
+            JavaParserVisitor.class.getMethod("visit", nodeType, Object.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            // an overload which is never called by the visitor
+            return false;
+        }
+    }
+
     @Override
     public void apply(List<? extends Node> nodes, RuleContext ctx) {
         visitAll(nodes, ctx);
@@ -216,8 +350,10 @@ public abstract class AbstractJavaRule extends AbstractRule implements JavaParse
     //
     @Override
     public Object visit(JavaNode node, Object data) {
-        for (JavaNode child : node.children()) {
-            child.jjtAccept(this, data);
+        if (!inFusedTraversal) {
+            for (JavaNode child : node.children()) {
+                child.jjtAccept(this, data);
+            }
         }
         return null;
     }
@@ -36,6 +36,10 @@ public class PreserveStackTraceRule extends AbstractJavaRule {
 
     private static final String FILL_IN_STACKTRACE = ".fillInStackTrace";
 
+    public PreserveStackTraceRule() {
+        requireVisitedNodes();
+    }
+
     @Override
     public Object visit(ASTCatchStatement catchStmt, Object data) {
         String target = catchStmt.getChild(0).findChildrenOfType(ASTVariableDeclaratorId.class).get(0).getImage();
@@ -29,6 +29,10 @@ import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 public class IdenticalCatchBranchesRule extends AbstractJavaRule {
 
 
+    public IdenticalCatchBranchesRule() {
+        requireVisitedNodes();
+    }
+
     private boolean areEquivalent(ASTCatchStatement st1, ASTCatchStatement st2) {
         return hasSameSubTree(st1.getBody(), st2.getBody(), st1.getExceptionName(), st2.getExceptionName());
     }
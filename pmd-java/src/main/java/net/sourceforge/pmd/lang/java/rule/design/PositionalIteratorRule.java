@@ -14,6 +14,10 @@ import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 
 public class PositionalIteratorRule extends AbstractJavaRule {
 
+    public PositionalIteratorRule() {
+        requireVisitedNodes();
+    }
+
     @Override
     public Object visit(ASTWhileStatement node, Object data) {
         if (hasNameAsChild(node.getChild(0))) {
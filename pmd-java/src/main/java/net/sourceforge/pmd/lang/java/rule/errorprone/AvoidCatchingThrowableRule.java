@@ -15,6 +15,10 @@ import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
  */
 public class AvoidCatchingThrowableRule extends AbstractJavaRule {
 
+    public AvoidCatchingThrowableRule() {
+        useFusedTraversal();
+    }
+
     @Override
     public Object visit(ASTCatchStatement catchStatement, Object data) {
         for (Class<? extends Exception> caughtException : catchStatement.getCaughtExceptionTypes()) {
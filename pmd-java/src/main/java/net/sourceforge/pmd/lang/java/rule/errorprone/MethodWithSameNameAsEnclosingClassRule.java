@@ -12,6 +12,10 @@ import net.sourceforge.pmd.lang.java.rule.AbstractJavaRule;
 
 public class MethodWithSameNameAsEnclosingClassRule extends AbstractJavaRule {
 
+    public MethodWithSameNameAsEnclosingClassRule() {
+        useFusedTraversal();
+    }
+
     @Override
     public Object visit(ASTClassOrInterfaceDeclaration node, Object data) {
         List<ASTMethodDeclarator> methods = node.findDescendantsOfType(ASTMethodDeclarator.class);
@@ -1547,6 +1547,16 @@ public class ClassTypeResolver extends JavaParserVisitorAdapter implements Nulla
         return loadClassOrNull(fullyQualifiedClassName);
     }
 
+    /**
+     * Returns the class loader of this resolver, which is shared by the
+     * resolvers using the same parent class loader.
+     *
+     * @since 6.31.0
+     */
+    public PMDASMClassLoader getSharedClassLoader() {
+        return pmdClassLoader;
+    }
+
     private Class<?> processOnDemand(String qualifiedName) {
         for (String entry : importedOnDemand) {
             String fullClassName = entry + "." + qualifiedName;
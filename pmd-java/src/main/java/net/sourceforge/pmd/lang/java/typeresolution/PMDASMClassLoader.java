@@ -47,6 +47,11 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
      */
     private final ConcurrentMap<String, Boolean> dontBother = new ConcurrentHashMap<>();
 
+    /**
+     * Caches the classes looked up by name for the type tests of the rules.
+     */
+    private final ConcurrentMap<String, Class<?>> lookedUpClasses = new ConcurrentHashMap<>();
+
     static {
         registerAsParallelCapable();
     }
@@ -96,6 +101,17 @@ public final class PMDASMClassLoader extends ClassLoader implements NullableClas
         }
     }
 
+    /**
+     * Returns the classes looked up by name for the type tests of the rules,
+     * which are loaded by this class loader, and thus shared by the type
+     * resolvers of an analysis. The map is populated by its users.
+     *
+     * @since 6.31.0
+     */
+    public ConcurrentMap<String, Class<?>> getLookedUpClasses() {
+        return lookedUpClasses;
+    }
+
     /**
      * Checks if the class loader could resolve a given class name (ie: it
      * doesn't know for sure it will fail). Notice, that the ability to resolve
@@ -0,0 +1,62 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.types;
+
+import java.util.concurrent.ConcurrentMap;
+
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
+import net.sourceforge.pmd.lang.java.typeresolution.PMDASMClassLoader;
+
+/**
+ * Caches the classes loaded by name with {@link TypesFromReflection}, for
+ * the type tests of the rules. The same few names are tested on most
+ * files, while the resolution of a canonical name may try several binary
+ * names, e.g. {@code java.util.Map.Entry} before {@code java.util.Map$Entry}.
+ *
+ * <p>The type resolvers of the files share a class loader for the
+ * whole analysis, see {@link PMDASMClassLoader#getInstance(ClassLoader)},
+ * and the cache is kept by this class loader, see {@link PMDASMClassLoader#getLookedUpClasses()}.
+ * The analyses using different class loaders in the same JVM thus don't
+ * replace each other's cache, and the lookups don't synchronize. The lookups
+ * are tracked with {@link TimedOperationCategory#CLASS_LOOKUP}, the counter
+ * of an operation is the number of cache hits.
+ */
+final class ClassLookupCache {
+
+    /** Marks the names which don't resolve, as the map can't contain null. */
+    private static final Class<?> NOT_FOUND = NotFound.class;
+
+    private ClassLookupCache() {
+        // utility class
+    }
+
+    /**
+     * Loads a class by name, see {@link TypesFromReflection#loadClass(net.sourceforge.pmd.lang.java.typeresolution.internal.NullableClassLoader, String)}.
+     *
+     * @param classLoader The class loader shared by the type resolvers
+     * @param className   The name of the class
+     *
+     * @return The class, or null if it cannot be loaded
+     */
+    static Class<?> loadClass(PMDASMClassLoader classLoader, String className) {
+        try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.CLASS_LOOKUP)) {
+            ConcurrentMap<String, Class<?>> classes = classLoader.getLookedUpClasses();
+            Class<?> clazz = classes.get(className);
+            if (clazz != null) {
+                op.close(1);
+                return NOT_FOUND.equals(clazz) ? null : clazz;
+            }
+            clazz = TypesFromReflection.loadClass(classLoader, className);
+            classes.put(className, clazz == null ? NOT_FOUND : clazz);
+            return clazz;
+        }
+    }
+
+    private static final class NotFound {
+        // only used as a marker
+    }
+}
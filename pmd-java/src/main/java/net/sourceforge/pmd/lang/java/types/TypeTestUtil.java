@@ -15,6 +15,7 @@ import net.sourceforge.pmd.lang.java.ast.ASTEnumDeclaration;
 import net.sourceforge.pmd.lang.java.ast.ASTImplementsList;
 import net.sourceforge.pmd.lang.java.ast.ASTImportDeclaration;
 import net.sourceforge.pmd.lang.java.ast.TypeNode;
+import net.sourceforge.pmd.lang.java.typeresolution.PMDASMClassLoader;
 import net.sourceforge.pmd.lang.java.typeresolution.TypeHelper;
 
 /**
@@ -291,7 +292,8 @@ public final class TypeTestUtil {
 
     static Class<?> loadClassWithNodeClassloader(final TypeNode n, final String clazzName) {
         if (n.getType() != null) {
-            return TypesFromReflection.loadClass(n.getRoot().getClassTypeResolver(), clazzName);
+            PMDASMClassLoader classLoader = n.getRoot().getClassTypeResolver().getSharedClassLoader();
+            return ClassLookupCache.loadClass(classLoader, clazzName);
         }
 
         return null;
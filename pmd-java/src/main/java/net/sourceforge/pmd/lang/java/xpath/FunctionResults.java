@@ -0,0 +1,60 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.xpath;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sourceforge.pmd.lang.ast.Node;
+import net.sourceforge.pmd.util.DataMap;
+import net.sourceforge.pmd.util.DataMap.SimpleDataKey;
+
+/**
+ * Memoizes the results of the XPath functions for a node. Many rules call
+ * the same functions with the same arguments on the same nodes, e.g.
+ * {@code typeIs('java.lang.String')}. The results are kept in the user map
+ * of the node, so that they live as long as the AST of the file.
+ *
+ * <p>The lookups are tracked with {@link net.sourceforge.pmd.benchmark.TimedOperationCategory#XPATH_FUNCTION},
+ * the counter of an operation is the number of calls whose result was memoized.
+ */
+final class FunctionResults {
+
+    private static final SimpleDataKey<Map<String, Object>> RESULTS = DataMap.simpleDataKey("xpath function results");
+
+    private FunctionResults() {
+        // utility class
+    }
+
+    /**
+     * Returns the key of a call of a function, the arguments may be null.
+     */
+    static String key(String function, String... arguments) {
+        StringBuilder key = new StringBuilder(function);
+        for (String argument : arguments) {
+            // a null argument is distinguished from every string
+            key.append(argument == null ? "\u0001" : '\u0000' + argument);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the memoized result of the call on the node, or null if it
+     * wasn't evaluated yet.
+     */
+    static Object get(Node node, String key) {
+        Map<String, Object> results = node.getUserMap().get(RESULTS);
+        return results == null ? null : results.get(key);
+    }
+
+    static void put(Node node, String key, Object result) {
+        Map<String, Object> results = node.getUserMap().get(RESULTS);
+        if (results == null) {
+            results = new HashMap<>(4);
+            node.getUserMap().set(RESULTS, results);
+        }
+        results.put(key, result);
+    }
+}
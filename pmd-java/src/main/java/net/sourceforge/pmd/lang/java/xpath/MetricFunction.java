@@ -16,6 +16,9 @@ import org.jaxen.SimpleFunctionContext;
 import org.jaxen.XPathFunctionContext;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.ASTAnyTypeDeclaration;
 import net.sourceforge.pmd.lang.java.ast.MethodLikeNode;
@@ -82,6 +85,20 @@ public class MetricFunction implements Function {
 
 
     public static double getMetric(Node n, String metricKeyName) {
+        try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, "metric")) {
+            final String key = FunctionResults.key("metric", metricKeyName);
+            final Double memoized = (Double) FunctionResults.get(n, key);
+            if (memoized != null) {
+                op.close(1);
+                return memoized;
+            }
+            final double result = computeNamedMetric(n, metricKeyName);
+            FunctionResults.put(n, key, result);
+            return result;
+        }
+    }
+
+    private static double computeNamedMetric(Node n, String metricKeyName) {
         if (n instanceof ASTAnyTypeDeclaration) {
             return computeMetric(getClassMetricKey(metricKeyName), (ASTAnyTypeDeclaration) n);
         } else if (n instanceof MethodLikeNode) {
@@ -13,6 +13,9 @@ import org.jaxen.SimpleFunctionContext;
 import org.jaxen.XPathFunctionContext;
 
 import net.sourceforge.pmd.annotation.InternalApi;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.java.ast.TypeNode;
 import net.sourceforge.pmd.lang.java.types.TypeTestUtil;
@@ -49,10 +52,20 @@ public class TypeIsExactlyFunction implements Function {
      * @return True if the type of the node matches, false otherwise.
      */
     public static boolean typeIsExactly(final Node n, final String fullTypeName) {
-        if (n instanceof TypeNode) {
-            return TypeTestUtil.isExactlyA(fullTypeName, (TypeNode) n);
-        } else {
+        if (!(n instanceof TypeNode)) {
             throw new IllegalArgumentException("typeIsExactly function may only be called on a TypeNode.");
         }
+
+        try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, "typeIsExactly")) {
+            final String key = FunctionResults.key("typeIsExactly", fullTypeName);
+            final Boolean memoized = (Boolean) FunctionResults.get(n, key);
+            if (memoized != null) {
+                op.close(1);
+                return memoized;
+            }
+            final boolean result = TypeTestUtil.isExactlyA(fullTypeName, (TypeNode) n);
+            FunctionResults.put(n, key, result);
+            return result;
+        }
     }
 }
@@ -15,6 +15,9 @@ import org.jaxen.SimpleFunctionContext;
 import org.jaxen.XPathFunctionContext;
 
 import net.sourceforge.pmd.PMDVersion;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimedOperation;
+import net.sourceforge.pmd.benchmark.TimedOperationCategory;
 import net.sourceforge.pmd.lang.ast.Node;
 import net.sourceforge.pmd.lang.ast.xpath.Attribute;
 import net.sourceforge.pmd.lang.java.ast.TypeNode;
@@ -87,28 +90,42 @@ public class TypeOfFunction implements Function {
     public static boolean typeof(Node n, String nodeTypeName, String fullTypeName, String shortTypeName) {
         nagDeprecatedFunction();
 
-        if (n instanceof TypeNode) {
-            Class<?> type = ((TypeNode) n).getType();
-            if (type == null) {
-                return nodeTypeName != null
-                        && (nodeTypeName.equals(fullTypeName) || nodeTypeName.equals(shortTypeName));
-            }
-            if (type.getName().equals(fullTypeName)) {
-                return true;
+        if (!(n instanceof TypeNode)) {
+            throw new IllegalArgumentException("typeof function may only be called on a TypeNode.");
+        }
+
+        try (TimedOperation op = TimeTracker.startOperation(TimedOperationCategory.XPATH_FUNCTION, "typeof")) {
+            final String key = FunctionResults.key("typeof", nodeTypeName, fullTypeName, shortTypeName);
+            final Boolean memoized = (Boolean) FunctionResults.get(n, key);
+            if (memoized != null) {
+                op.close(1);
+                return memoized;
             }
-            List<Class<?>> implementors = Arrays.asList(type.getInterfaces());
-            if (implementors.contains(type)) {
+            final boolean result = isTypeOf((TypeNode) n, nodeTypeName, fullTypeName, shortTypeName);
+            FunctionResults.put(n, key, result);
+            return result;
+        }
+    }
+
+    private static boolean isTypeOf(TypeNode n, String nodeTypeName, String fullTypeName, String shortTypeName) {
+        Class<?> type = n.getType();
+        if (type == null) {
+            return nodeTypeName != null
+                    && (nodeTypeName.equals(fullTypeName) || nodeTypeName.equals(shortTypeName));
+        }
+        if (type.getName().equals(fullTypeName)) {
+            return true;
+        }
+        List<Class<?>> implementors = Arrays.asList(type.getInterfaces());
+        if (implementors.contains(type)) {
+            return true;
+        }
+        Class<?> superC = type.getSuperclass();
+        while (superC != null && !superC.equals(Object.class)) {
+            if (superC.getName().equals(fullTypeName)) {
                 return true;
             }
-            Class<?> superC = type.getSuperclass();
-            while (superC != null && !superC.equals(Object.class)) {
-                if (superC.getName().equals(fullTypeName)) {
-                    return true;
-                }
-                superC = superC.getSuperclass();
-            }
-        } else {
-            throw new IllegalArgumentException("typeof function may only be called on a TypeNode.");
+            superC = superC.getSuperclass();
         }
         return false;
     }
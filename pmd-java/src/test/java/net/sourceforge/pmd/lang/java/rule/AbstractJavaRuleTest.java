@@ -0,0 +1,174 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.java.JavaParsingHelper;
+import net.sourceforge.pmd.lang.java.ast.ASTClassOrInterfaceDeclaration;
+import net.sourceforge.pmd.lang.java.ast.ASTCompilationUnit;
+import net.sourceforge.pmd.lang.java.ast.ASTMethodDeclaration;
+import net.sourceforge.pmd.lang.java.ast.JavaNode;
+import net.sourceforge.pmd.lang.java.rule.errorprone.DontImportSunRule;
+import net.sourceforge.pmd.lang.java.rule.errorprone.ImportFromSamePackageRule;
+import net.sourceforge.pmd.testframework.RuleTst;
+
+public class AbstractJavaRuleTest extends RuleTst {
+
+    private static final String NESTED_CLASSES = "public class Foo {\n"
+            + "  void a() {}\n"
+            + "  class Bar {\n"
+            + "    void b() {}\n"
+            + "  }\n"
+            + "  void c() {}\n"
+            + "}\n";
+
+    @Test
+    public void testOverriddenVisits() {
+        assertEquals(Collections.singletonList("ImportDeclaration"),
+                AbstractJavaRule.overriddenVisits(ImportFromSamePackageRule.class));
+        assertEquals(new HashSet<>(Arrays.asList("ClassOrInterfaceDeclaration", "MethodDeclaration")),
+                new HashSet<>(AbstractJavaRule.overriddenVisits(RecordingRule.class)));
+        assertEquals(Collections.emptyList(), AbstractJavaRule.overriddenVisits(AllNodesRule.class));
+    }
+
+    @Test
+    public void testFusedTraversalIsOptIn() {
+        assertFalse(RuleSet.usesFusedTraversal(new RecordingRule(false)));
+        assertTrue(RuleSet.usesFusedTraversal(new RecordingRule(true)));
+    }
+
+    @Test
+    public void testFusedTraversalVisitsInDocumentOrder() {
+        RecordingRule walking = new RecordingRule(false);
+        Report report = getReportForTestString(walking, NESTED_CLASSES);
+        assertEquals(Arrays.asList("Foo", "a", "Bar", "b", "c"), walking.visited);
+
+        RecordingRule fused = new RecordingRule(true);
+        Report fusedReport = getReportForTestString(fused, NESTED_CLASSES);
+        assertEquals(walking.visited, fused.visited);
+        assertEquals(report.size(), fusedReport.size());
+    }
+
+    @Test
+    public void testFusedTraversalVisitsAllNodes() {
+        AllNodesRule walking = new AllNodesRule(false);
+        getReportForTestString(walking, NESTED_CLASSES);
+
+        AllNodesRule fused = new AllNodesRule(true);
+        getReportForTestString(fused, NESTED_CLASSES);
+        assertEquals(walking.visits, fused.visits);
+    }
+
+    @Test
+    public void testFusedTraversalRulesWalkTheTreeWhenAppliedDirectly() {
+        ASTCompilationUnit root = JavaParsingHelper.WITH_PROCESSING.parse(NESTED_CLASSES);
+        RuleContext ctx = new RuleContext();
+        ctx.setLanguageVersion(LanguageRegistry.getLanguage(JavaLanguageModule.NAME).getDefaultVersion());
+        ctx.setReport(new Report());
+
+        RecordingRule fused = new RecordingRule(true);
+        fused.apply(Collections.singletonList(root), ctx);
+        assertEquals(Arrays.asList("Foo", "a", "Bar", "b", "c"), fused.visited);
+        assertEquals(2, ctx.getReport().size());
+
+        DontImportSunRule dontImportSun = new DontImportSunRule();
+        dontImportSun.setMessage("sun import");
+        ctx.setReport(new Report());
+        dontImportSun.apply(Collections.singletonList(JavaParsingHelper.WITH_PROCESSING.parse(
+                "import sun.misc.Unsafe;\npublic class Foo {}\n")), ctx);
+        assertEquals(1, ctx.getReport().size());
+    }
+
+    @Test
+    public void testRequiredNodes() {
+        // the inference is opt-in
+        assertEquals(Collections.emptyList(), new RecordingRule().getRequiredNodes());
+
+        RecordingRule inferred = new RecordingRule();
+        inferred.requireVisitedNodes();
+        assertEquals(new HashSet<>(Arrays.asList("ClassOrInterfaceDeclaration", "MethodDeclaration")),
+                new HashSet<>(inferred.getRequiredNodes()));
+        AllNodesRule allNodes = new AllNodesRule();
+        allNodes.requireVisitedNodes();
+        assertEquals(Collections.emptyList(), allNodes.getRequiredNodes());
+
+        RecordingRule declared = new RecordingRule();
+        declared.addRequiredNode(ASTMethodDeclaration.class);
+        assertEquals(Collections.singletonList("MethodDeclaration"), declared.getRequiredNodes());
+    }
+
+    private Report getReportForTestString(AbstractJavaRule rule, String code) {
+        Report report = new Report();
+        runTestFromString(code, rule, report, LanguageRegistry.getLanguage(JavaLanguageModule.NAME).getDefaultVersion());
+        return report;
+    }
+
+    public static class RecordingRule extends AbstractJavaRule {
+        private final List<String> visited = new ArrayList<>();
+
+        public RecordingRule() {
+            this(false);
+        }
+
+        RecordingRule(boolean fused) {
+            setName("RecordingRule");
+            setMessage("visited {0}");
+            if (fused) {
+                useFusedTraversal();
+            }
+        }
+
+        @Override
+        public Object visit(ASTClassOrInterfaceDeclaration node, Object data) {
+            visited.add(node.getSimpleName());
+            addViolation(data, node);
+            return super.visit(node, data);
+        }
+
+        @Override
+        public Object visit(ASTMethodDeclaration node, Object data) {
+            visited.add(node.getName());
+            return super.visit(node, data);
+        }
+    }
+
+    public static class AllNodesRule extends AbstractJavaRule {
+        private int visits;
+
+        public AllNodesRule() {
+            this(false);
+        }
+
+        AllNodesRule(boolean fused) {
+            setName("AllNodesRule");
+            setMessage("all nodes");
+            if (fused) {
+                useFusedTraversal();
+            }
+        }
+
+        @Override
+        public Object visit(JavaNode node, Object data) {
+            visits++;
+            return super.visit(node, data);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.rule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
+
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.lang.rule.xpath.SaxonXPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.XPathRuleQuery;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+import net.sourceforge.pmd.properties.PropertyDescriptor;
+import net.sourceforge.pmd.properties.PropertyFactory;
+import net.sourceforge.pmd.testframework.RuleTst;
+
+/**
+ * Compares the results of XPath 1.0 rules evaluated with Saxon to the
+ * results of Jaxen.
+ */
+public class JaxenCompatibilityTest extends RuleTst {
+
+    private static final String CODE = "import java.util.*;\n"
+        + "public class Foo extends ArrayList<String> {\n"
+        + "    private final int x = 0;\n"
+        + "    public static final String S = \"a\";\n"
+        + "    protected Object baz;\n"
+        + "    /** doc */\n"
+        + "    void foo(List<String> l) {\n"
+        + "        int y = 1;\n"
+        + "        if (y == 2 && l.isEmpty()) {\n"
+        + "            bar();\n"
+        + "        }\n"
+        + "        String s = null;\n"
+        + "        for (String e : l) {\n"
+        + "            s = e + S;\n"
+        + "        }\n"
+        + "    }\n"
+        + "    public void bar() throws Exception {\n"
+        + "        new HashMap<String, Integer>().put(\"b\", 2);\n"
+        + "    }\n"
+        + "}\n";
+
+    /** Expressions which Saxon evaluates. */
+    private static final List<String> TRANSLATED = Arrays.asList(
+        // attributes of any type compared as strings
+        "//FieldDeclaration[@Final='true']",
+        "//FieldDeclaration[@Final='false']",
+        "//FieldDeclaration[@Static != 'true']",
+        "//FieldDeclaration[@Final=1]",
+        "//FieldDeclaration[@Final=true()]",
+        "//FieldDeclaration[@Static = @Final]",
+        "//Literal[@IntLiteral='true' and @Image=1]",
+        "//Literal[string-length(@Image) = 1 and @StringLiteral='false']",
+        "//Literal[@ValueAsInt + 1 = 3]",
+        "//MethodDeclaration[@BeginLine > '10']",
+        "//FieldDeclaration[@Modifiers > 3]",
+        "//PrimaryPrefix[@Image='']",
+        "//PrimaryPrefix[not(@Image)]",
+        "//FieldDeclaration[lower-case(@Static)='true']",
+        // functions and paths
+        "//ClassOrInterfaceType[matches(@Image, '^Arr')]",
+        "//ClassOrInterfaceType[ matches (@Image, '^Arr', 'Li')]",
+        "//ClassOrInterfaceType[typeIs('java.util.List')]",
+        "//ClassOrInterfaceType[typeIsExactly('java.util.ArrayList')]",
+        "//Name[typeof(@Image, 'java.util.List', 'List')]",
+        "//MethodDeclaration[metric('CYCLO') > 1]",
+        "//VariableDeclaratorId[@Image = //Name/@Image]",
+        "//VariableDeclaratorId[contains(@Image, 'matches(')]",
+        "//FieldDeclaration | //MethodDeclaration[@Public='true']",
+        "//MethodDeclaration[../../..//FieldDeclaration[@Private='true']]",
+        "//IfStatement//PrimaryPrefix/Name[@Image = 'bar']",
+        "//ForStatement[count(.//StatementExpression) = 1]"
+    );
+
+    /** Expressions which are evaluated by Jaxen, because Saxon would evaluate them differently. */
+    private static final List<String> NOT_TRANSLATED = Arrays.asList(
+        "//FieldDeclaration[getCommentOn()]",
+        "/TypeDeclaration",
+        "/CompilationUnit",
+        "//MethodDeclaration[/TypeDeclaration]",
+        "//BlockStatement[position() = 2]",
+        "//VariableDeclaratorId[1]",
+        "//*[@Image = 'S']"
+    );
+
+    @Rule
+    public RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
+    @Test
+    public void testTranslatedExpressions() {
+        for (String xpath : TRANSLATED) {
+            assertTrue(xpath, isCompilable(xpath));
+            assertSameViolations(xpath, new HashMap<PropertyDescriptor<?>, Object>());
+        }
+    }
+
+    @Test
+    public void testExpressionsLeftToJaxen() {
+        for (String xpath : NOT_TRANSLATED) {
+            assertFalse(xpath, isCompilable(xpath));
+            assertSameViolations(xpath, new HashMap<PropertyDescriptor<?>, Object>());
+        }
+    }
+
+    @Test
+    public void testVariablesAreStrings() {
+        Map<PropertyDescriptor<?>, Object> properties = new HashMap<>();
+        properties.put(PropertyFactory.booleanProperty("flag").desc("flag").defaultValue(false).build(), false);
+        properties.put(PropertyFactory.intProperty("line").desc("line").defaultValue(0).build(), 10);
+        properties.put(PropertyFactory.stringProperty("name").desc("name").defaultValue("").build(), "bar");
+
+        assertSameViolations("//FieldDeclaration[@Final = $flag]", properties);
+        assertSameViolations("//MethodDeclaration[@BeginLine > $line]", properties);
+        assertSameViolations("//MethodDeclaration[@Name = $name or $flag]", properties);
+    }
+
+    private boolean isCompilable(String xpath) {
+        SaxonXPathRuleQuery query = new SaxonXPathRuleQuery();
+        query.setXPath(xpath);
+        query.setVersion(XPathRuleQuery.XPATH_1_0);
+        query.setProperties(new HashMap<PropertyDescriptor<?>, Object>());
+        return query.isCompilable();
+    }
+
+    private void assertSameViolations(String xpath, Map<PropertyDescriptor<?>, Object> properties) {
+        System.setProperty(XPathRule.USE_SAXON_PROPERTY, "false");
+        List<String> jaxen = getViolations(xpath, properties);
+        System.setProperty(XPathRule.USE_SAXON_PROPERTY, "true");
+        List<String> saxon = getViolations(xpath, properties);
+        assertEquals(xpath, jaxen, saxon);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getViolations(String xpath, Map<PropertyDescriptor<?>, Object> properties) {
+        XPathRule rule = new XPathRule(XPathVersion.XPATH_1_0, xpath);
+        rule.setName("JaxenCompatibility");
+        rule.setMessage("violation");
+        rule.setLanguage(LanguageRegistry.getLanguage(JavaLanguageModule.NAME));
+        for (Map.Entry<PropertyDescriptor<?>, Object> entry : properties.entrySet()) {
+            PropertyDescriptor<Object> descriptor = (PropertyDescriptor<Object>) entry.getKey();
+            rule.definePropertyDescriptor(descriptor);
+            rule.setProperty(descriptor, entry.getValue());
+        }
+
+        Report report = new Report();
+        runTestFromString(CODE, rule, report, LanguageRegistry.getLanguage(JavaLanguageModule.NAME).getDefaultVersion());
+        List<String> violations = new ArrayList<>();
+        for (RuleViolation violation : report) {
+            violations.add(violation.getBeginLine() + ":" + violation.getBeginColumn() + " " + violation.getDescription());
+        }
+        return violations;
+    }
+}
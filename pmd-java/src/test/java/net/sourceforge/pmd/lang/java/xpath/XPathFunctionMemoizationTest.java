@@ -0,0 +1,129 @@
+/*
+ * BSD-style license; for more info see http://pmd.sourceforge.net/license.html
+ */
+
+package net.sourceforge.pmd.lang.java.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDException;
+import net.sourceforge.pmd.Report;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RuleSet;
+import net.sourceforge.pmd.RuleSets;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.benchmark.JsonTimingReportRenderer;
+import net.sourceforge.pmd.benchmark.TimeTracker;
+import net.sourceforge.pmd.benchmark.TimingReport;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.lang.LanguageVersion;
+import net.sourceforge.pmd.lang.java.JavaLanguageModule;
+import net.sourceforge.pmd.lang.rule.XPathRule;
+import net.sourceforge.pmd.lang.rule.xpath.XPathVersion;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class XPathFunctionMemoizationTest {
+
+    private static final String CODE = "import java.util.*;\n"
+        + "class Foo {\n"
+        + "    List<String> a;\n"
+        + "    ArrayList<String> b;\n"
+        + "    int c() { return 0; }\n"
+        + "}\n";
+
+    @Test
+    public void testResultsAreMemoizedAcrossRules() throws Exception {
+        TimeTracker.startGlobalTracking();
+        Report report;
+        TimingReport timing;
+        try {
+            report = analyze(
+                "//ClassOrInterfaceType[pmd-java:typeIs('java.util.List')]",
+                "//ClassOrInterfaceType[pmd-java:typeIs('java.util.List') or @Image = 'Map']",
+                "//MethodDeclaration[pmd-java:metric('CYCLO') = 1]",
+                "//MethodDeclaration[pmd-java:metric('CYCLO') > 0 or @Name = 'd']"
+            );
+        } finally {
+            timing = TimeTracker.stopGlobalTracking();
+        }
+
+        assertEquals(6, report.size());
+
+        JsonObject categories = render(timing).getAsJsonObject("categories");
+        // four ClassOrInterfaceType nodes with the type arguments, the second rule reuses the results of the first
+        JsonObject typeIs = categories.getAsJsonObject("XPATH_FUNCTION").getAsJsonObject("labels").getAsJsonObject("typeIs");
+        assertEquals(8, typeIs.get("calls").getAsInt());
+        assertEquals(4, typeIs.get("counter").getAsInt());
+        JsonObject metric = categories.getAsJsonObject("XPATH_FUNCTION").getAsJsonObject("labels").getAsJsonObject("metric");
+        assertEquals(2, metric.get("calls").getAsInt());
+        assertEquals(1, metric.get("counter").getAsInt());
+        // java.util.List is loaded at most once, the cache is kept for the whole run
+        JsonObject classLookup = categories.getAsJsonObject("CLASS_LOOKUP").getAsJsonObject("total");
+        assertEquals(4, classLookup.get("calls").getAsInt());
+        assertTrue(classLookup.get("counter").getAsInt() >= 1);
+    }
+
+    @Test
+    public void testMemoizedResultsDependOnArguments() throws PMDException {
+        Report report = analyze(
+            "//ClassOrInterfaceType[pmd-java:typeIs('java.util.List')]",
+            "//ClassOrInterfaceType[pmd-java:typeIs('java.util.Collection')]",
+            "//ClassOrInterfaceType[pmd-java:typeIsExactly('java.util.List')]",
+            "//ClassOrInterfaceType[pmd-java:typeIsExactly('java.util.ArrayList')]"
+        );
+
+        List<String> violations = new ArrayList<>();
+        for (RuleViolation violation : report) {
+            violations.add(violation.getRule().getName() + ":" + violation.getBeginLine());
+        }
+        Collections.sort(violations);
+        assertEquals(
+            "[0:3, 0:4, 1:3, 1:4, 2:3, 3:4]",
+            violations.toString()
+        );
+    }
+
+    private Report analyze(String... xpaths) throws PMDException {
+        LanguageVersion version = LanguageRegistry.getLanguage(JavaLanguageModule.NAME).getDefaultVersion();
+        List<RuleSet> ruleSets = new ArrayList<>();
+        for (int i = 0; i < xpaths.length; i++) {
+            XPathRule rule = new XPathRule(XPathVersion.XPATH_2_0, xpaths[i]);
+            rule.setName(String.valueOf(i));
+            rule.setMessage("violation");
+            rule.setLanguage(version.getLanguage());
+            ruleSets.add(RuleSet.forSingleRule(rule));
+        }
+
+        PMD pmd = new PMD();
+        pmd.getConfiguration().setDefaultLanguageVersion(version);
+        pmd.getConfiguration().setIgnoreIncrementalAnalysis(true);
+        RuleContext ctx = new RuleContext();
+        Report report = new Report();
+        ctx.setReport(report);
+        ctx.setSourceCodeFile(new File("n/a"));
+        ctx.setLanguageVersion(version);
+        ctx.setIgnoreExceptions(false);
+        pmd.getSourceCodeProcessor().processSourceCode(new StringReader(CODE), new RuleSets(ruleSets), ctx);
+        return report;
+    }
+
+    private JsonObject render(TimingReport timing) throws IOException {
+        StringWriter writer = new StringWriter();
+        new JsonTimingReportRenderer().render(timing, writer);
+        return new JsonParser().parse(writer.toString()).getAsJsonObject();
+    }
+}